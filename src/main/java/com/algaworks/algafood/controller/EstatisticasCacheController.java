@@ -0,0 +1,23 @@
+package com.algaworks.algafood.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.algaworks.algafood.dto.EstatisticasCacheDTO;
+import com.algaworks.algafood.restaurante.CardapioRestauranteCache;
+
+@RestController
+@RequestMapping(path = "/estatisticas/caches")
+public class EstatisticasCacheController {
+
+    @Autowired
+    private CardapioRestauranteCache cardapioCache;
+
+    @GetMapping("/cardapios")
+    public EstatisticasCacheDTO buscarEstatisticasCardapios() {
+        return cardapioCache.buscarEstatisticas();
+    }
+
+}
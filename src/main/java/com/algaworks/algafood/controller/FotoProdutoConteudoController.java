@@ -0,0 +1,37 @@
+package com.algaworks.algafood.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.algaworks.algafood.service.FotoProdutoConteudoService;
+import com.algaworks.algafood.storage.ImagemFotoProduto;
+import com.algaworks.algafood.web.RespostaImagemFotoProduto;
+
+/*
+ * Fotos de produto pelo nome do arquivo, só com algafood.armazenamento.enderecamentoPorConteudo ativo. O nome é o
+ * nomeArquivo do foto-json (o sha-256 da foto), e como ele muda sempre que a foto muda a resposta é imutável.
+ */
+@RestController
+@RequestMapping(path = "/fotos-produtos")
+public class FotoProdutoConteudoController {
+
+    @Autowired
+    private FotoProdutoConteudoService fotoProdutoConteudoService;
+
+    @Autowired
+    private RespostaImagemFotoProduto respostaImagemFotoProduto;
+
+    @GetMapping("/{nomeArquivo}")
+    public ResponseEntity<?> mostrarImagem(@PathVariable String nomeArquivo, @RequestParam(required = false) Integer largura,
+            ServletWebRequest request) {
+        ImagemFotoProduto imagem = fotoProdutoConteudoService.buscarImagem(nomeArquivo, largura);
+        return respostaImagemFotoProduto.responder(request, imagem);
+    }
+
+}
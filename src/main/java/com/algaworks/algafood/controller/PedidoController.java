@@ -1,5 +1,6 @@
 package com.algaworks.algafood.controller;
 
+import java.net.URI;
 import java.util.List;
 
 import javax.validation.Valid;
@@ -7,8 +8,11 @@ import javax.validation.Valid;
 import com.algaworks.algafood.documentation.PedidoOpenAPI;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,21 +20,32 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.algaworks.algafood.dto.PedidoDTO;
+import com.algaworks.algafood.dto.PedidoLoteRetornoDTO;
 import com.algaworks.algafood.dto.PedidoResumoDTO;
+import com.algaworks.algafood.dto.RecebimentoPedidoDTO;
 import com.algaworks.algafood.filtro.PedidoFiltro;
+import com.algaworks.algafood.service.PedidoExportacaoService;
 import com.algaworks.algafood.service.PedidoService;
+import com.algaworks.algafood.web.RespostaAssincrona;
 
 @RestController
 @RequestMapping("/pedidos")
 public class PedidoController implements PedidoOpenAPI {
 
+	private static final String APPLICATION_NDJSON = "application/x-ndjson";
+	
 	@Autowired
 	private PedidoService service;
 	
+	@Autowired
+	private PedidoExportacaoService exportacaoService;
+	
 	@Override
 	@GetMapping("/{codigo}")
 	public PedidoDTO buscarDtoPorCodigo(@PathVariable String codigo) {
@@ -42,6 +57,16 @@ public class PedidoController implements PedidoOpenAPI {
 	public PagedModel<PedidoResumoDTO> listarResumido(Pageable pageable) {
 		return service.listarResumido(pageable);
 	}
+	
+	/*
+	 * Quando o parâmetro cursor é informado a listagem é paginada por keyset, sem count e sem offset.
+	 * A primeira página é pedida com o cursor vazio (?cursor=) e as seguintes pelo link next do retorno.
+	 */
+	@Override
+	@GetMapping(value = "/listar-resumido", params = "cursor")
+	public CollectionModel<PedidoResumoDTO> listarResumidoPorCursor(@RequestParam String cursor, @RequestParam(defaultValue = "20") int size) {
+		return service.listarResumidoPorCursor(cursor, size);
+	}
 
 	@Override
 	@GetMapping("/listar-completo")
@@ -49,6 +74,18 @@ public class PedidoController implements PedidoOpenAPI {
 		return service.listarCompleto();
 	}
 	
+	/*
+	 * Mesma url do listar-completo, quando o cliente pede Accept: application/x-ndjson os pedidos são escritos
+	 * um por linha enquanto são lidos do banco, sem carregar todos em memória.
+	 */
+	@Override
+	@GetMapping(value = "/listar-completo", produces = APPLICATION_NDJSON)
+	public ResponseEntity<StreamingResponseBody> exportarCompleto() {
+		return ResponseEntity.ok()
+								.contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+								.body(exportacaoService.exportarCompleto());
+	}
+	
 	/*
 	 * Só pelo fato de colocar o PedidoFiltro como parametro, o spring já instancia um PedidoFiltro
 	 * e atribui quando passado na url um clienteId e restauranteId a esse PedidoFiltro criado automaticamente.
@@ -66,6 +103,38 @@ public class PedidoController implements PedidoOpenAPI {
 		return service.criarPedido(dto);
 	}
 	
+	/*
+	 * Com o cabeçalho Prefer: respond-async (RFC 7240) o pedido é só colocado na fila e a resposta é 202 com o
+	 * código e o link para acompanhar a situação, se a fila estiver cheia a resposta é 429 com Retry-After. O
+	 * respond-async pode vir junto de outras preferências no mesmo cabeçalho (CondicaoRespostaAssincrona).
+	 */
+	@Override
+	@RespostaAssincrona
+	@PostMapping
+	public ResponseEntity<RecebimentoPedidoDTO> criarPedidoAssincrono(@Valid @RequestBody PedidoDTO dto) {
+		RecebimentoPedidoDTO recebimento = service.criarPedidoAssincrono(dto);
+		
+		return ResponseEntity.accepted()
+								.location(URI.create(recebimento.getRequiredLink(IanaLinkRelations.SELF).getHref()))
+								.body(recebimento);
+	}
+	
+	@Override
+	@GetMapping("/recebimentos/{codigo}")
+	public RecebimentoPedidoDTO buscarRecebimento(@PathVariable String codigo) {
+		return service.buscarRecebimento(codigo);
+	}
+	
+	/*
+	 * Os pedidos não são anotados com @Valid porque cada um é validado no service, assim um pedido inválido
+	 * é rejeitado no retorno sem impedir que os outros do lote sejam criados.
+	 */
+	@Override
+	@PostMapping("/lote")
+	public PedidoLoteRetornoDTO criarPedidosEmLote(@RequestBody List<PedidoDTO> dtos) {
+		return service.criarPedidosEmLote(dtos);
+	}
+	
 	@Override
 	@PutMapping("/{codigo}/confirmar-pedido")
 	@ResponseStatus(HttpStatus.NO_CONTENT)
@@ -90,4 +159,31 @@ public class PedidoController implements PedidoOpenAPI {
 		return ResponseEntity.noContent().build();
 	}
 	
+	/*
+	 * Alterações de status em massa, recebem a lista de códigos e todos os pedidos são alterados ou nenhum é.
+	 */
+	@Override
+	@PutMapping("/confirmar")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public ResponseEntity<Void> confirmarPedidos(@RequestBody List<String> codigos) {
+		service.confirmarPedidos(codigos);
+		return ResponseEntity.noContent().build();
+	}
+	
+	@Override
+	@PutMapping("/entregar")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public ResponseEntity<Void> confirmarEntregas(@RequestBody List<String> codigos) {
+		service.confirmarEntregas(codigos);
+		return ResponseEntity.noContent().build();
+	}
+	
+	@Override
+	@PutMapping("/cancelar")
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	public ResponseEntity<Void> cancelarPedidos(@RequestBody List<String> codigos) {
+		service.cancelarPedidos(codigos);
+		return ResponseEntity.noContent().build();
+	}
+	
 }
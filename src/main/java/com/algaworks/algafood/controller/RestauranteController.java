@@ -2,6 +2,8 @@ package com.algaworks.algafood.controller;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.validation.Valid;
 
@@ -12,15 +14,29 @@ import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.algaworks.algafood.dto.RestauranteAlteracaoEmMassaDTO;
 import com.algaworks.algafood.dto.RestauranteEntradaDTO;
+import com.algaworks.algafood.dto.RestauranteProximoDTO;
 import com.algaworks.algafood.dto.RestauranteRetornoDTO;
+import com.algaworks.algafood.dto.VitrineRestauranteDTO;
+import com.algaworks.algafood.enuns.OrdenacaoRestaurante;
+import com.algaworks.algafood.restaurante.CatalogoRestaurante;
+import com.algaworks.algafood.restaurante.CatalogoSerializado;
+import com.algaworks.algafood.restaurante.VitrineRestaurante;
+import com.algaworks.algafood.service.RestauranteExportacaoService;
 import com.algaworks.algafood.service.RestauranteService;
+import com.algaworks.algafood.service.VitrineRestauranteService;
 import com.algaworks.algafood.view.RestauranteView;
 import com.fasterxml.jackson.annotation.JsonView;
 
@@ -28,26 +44,63 @@ import com.fasterxml.jackson.annotation.JsonView;
 @RequestMapping("/restaurantes")
 public class RestauranteController {
 
+	private static final String PARAMETRO_FIELDS_SQUIGGLY = "fields";
+
 	@Autowired
 	private RestauranteService service;	
 	
+	@Autowired
+	private RestauranteExportacaoService exportacaoService;
+	
+	@Autowired
+	private VitrineRestauranteService vitrineService;
+	
+	/*
+	 * Listagem paginada por keyset, ordenada por nome ou por taxa de frete (e id). A primeira página é pedida sem
+	 * cursor e as seguintes pelo link next do retorno, o cursor só vale para a ordenação em que foi gerado.
+	 */
 	@GetMapping
-	public List<RestauranteRetornoDTO> listar() {
-		return service.listar();
+	public CollectionModel<RestauranteRetornoDTO> listar(@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "NOME") OrdenacaoRestaurante ordenacao, @RequestParam(defaultValue = "20") int size) {
+		return service.listarPorCursor(cursor, ordenacao, size);
+	}
+	
+	/*
+	 * A lista completa de antes, sem paginação, para os clientes que ainda dependem dela pedirem com ?completo=true.
+	 * 
+	 * As listagens abaixo usam o catálogo em cache do RestauranteService, a versão do catálogo é a ETag (deep etag),
+	 * se o If-None-Match for igual à versão do catálogo em cache a resposta é 304 sem serializar a lista.
+	 */
+	@GetMapping(params = "completo=true")
+	public ResponseEntity<List<RestauranteRetornoDTO>> listarCompleto(ServletWebRequest request) {
+		return responderCatalogo(request, service::listarCatalogo, CatalogoRestaurante::getRestaurantes);
+	}
+	
+	/*
+	 * Todos os restaurantes em um único array json, escrito enquanto é lido do banco. O ShallowEtagHeaderFilter é
+	 * desabilitado para a resposta não ser guardada inteira em memória só para calcular a ETag.
+	 */
+	@GetMapping("/exportacao")
+	public ResponseEntity<StreamingResponseBody> exportar(ServletWebRequest request) {
+		ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+		
+		return ResponseEntity.ok()
+								.contentType(MediaType.APPLICATION_JSON)
+								.body(exportacaoService.exportar());
 	}
 
 	@ApiOperation(value = "Listar Resumido", response = RestauranteResumoOpenAPI.class)
 	@JsonView(RestauranteView.Resumo.class)
 	@GetMapping(value = "/listar-resumido", params = "tipoRetorno=resumo")
-	public List<RestauranteRetornoDTO> listarResumido() {
-		return service.listar();
+	public ResponseEntity<?> listarResumido(ServletWebRequest request) {
+		return responderSerializado(request, RestauranteView.Resumo.class, CatalogoRestaurante::getRestaurantes);
 	}
 
 	@ApiOperation(value = "Lista apenas os nomes", response = RestauranteApenasNomesOpenAPI.class)
 	@JsonView(RestauranteView.ApenasNomes.class)
 	@GetMapping(value = "/listar-apenas-nomes", params = "tipoRetorno=apenas-nomes")
-	public List<RestauranteRetornoDTO> listarApenasNomes() {
-		return service.listar();
+	public ResponseEntity<?> listarApenasNomes(ServletWebRequest request) {
+		return responderSerializado(request, RestauranteView.ApenasNomes.class, CatalogoRestaurante::getRestaurantes);
 	}
 
 	@GetMapping("/resumo")
@@ -60,10 +113,95 @@ public class RestauranteController {
 	 * 
 	 * O required do @RequestParam por dafault é true, para que não seja pedido no request caso não necessário é preciso 
 	 * colocar o false.
+	 * 
+	 * Só o tipo completo precisa do catálogo completo, os outros tipos usam o catálogo resumido já serializado.
 	 */
 	@GetMapping("/listar-envelopado")
-	public MappingJacksonValue listarEnvelopado(@RequestParam(required = false) String tipoRetorno) {
-		return service.listarEnvelopado(tipoRetorno);
+	public ResponseEntity<?> listarEnvelopado(@RequestParam(required = false) String tipoRetorno, ServletWebRequest request) {
+		Class<?> view = service.buscarViewEnvelopado(tipoRetorno);
+		Function<CatalogoRestaurante, MappingJacksonValue> corpo = catalogo -> service.listarEnvelopado(catalogo.getRestaurantes(), tipoRetorno);
+		
+		if (view == null) {
+			return responderCatalogo(request, service::listarCatalogo, corpo);
+		}
+		
+		return responderSerializado(request, view, corpo);
+	}
+	
+	/*
+	 * Igual ao FormaPagamentoController, o ShallowEtagHeaderFilter é desabilitado porque a ETag já vem da versão.
+	 * A ETag comparada é a do catálogo que seria devolvido, com o cache válido buscar o catálogo é só a leitura do
+	 * mapa, e com ele vencido a lista é remontada antes da comparação, assim uma lista expirada nunca gera 304.
+	 */
+	private <T> ResponseEntity<T> responderCatalogo(ServletWebRequest request, Supplier<CatalogoRestaurante> buscarCatalogo,
+			Function<CatalogoRestaurante, T> corpo) {
+		ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+		
+		CatalogoRestaurante catalogo = buscarCatalogo.get();
+		
+		if (request.checkNotModified(catalogo.getVersao())) {
+			return null;
+		}
+		
+		return ResponseEntity.ok()
+								.eTag(catalogo.getVersao())
+								.body(corpo.apply(catalogo));
+	}
+	
+	/*
+	 * As listagens com JsonView escrevem os bytes do CatalogoSerializadoCache direto na resposta pelo
+	 * ByteArrayHttpMessageConverter, em gzip quando o cliente aceita. Cada codificação tem a sua ETag, são
+	 * representações diferentes do mesmo recurso. A versão comparada é a do catálogo de onde os bytes vieram.
+	 * 
+	 * Com o parâmetro fields do Squiggly o json depende da requisição, então segue pelo Jackson como antes.
+	 */
+	private ResponseEntity<?> responderSerializado(ServletWebRequest request, Class<?> view, Function<CatalogoRestaurante, ?> corpoSemCache) {
+		if (request.getParameter(PARAMETRO_FIELDS_SQUIGGLY) != null) {
+			return responderCatalogo(request, service::listarCatalogoResumido, corpoSemCache);
+		}
+		
+		ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+		
+		boolean gzip = aceitaGzip(request);
+		String sufixoETag = gzip ? "-gzip" : "";
+		
+		CatalogoSerializado serializado = service.listarCatalogoSerializado(view);
+		
+		if (request.checkNotModified(serializado.getVersao() + sufixoETag)) {
+			return null;
+		}
+		
+		ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+																.eTag(serializado.getVersao() + sufixoETag)
+																.contentType(MediaType.APPLICATION_JSON)
+																.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		
+		if (gzip) {
+			return resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(serializado.getJsonGzip());
+		}
+		
+		return resposta.body(serializado.getJson());
+	}
+	
+	/*
+	 * Aceita gzip se estiver no Accept-Encoding sem q=0
+	 */
+	private boolean aceitaGzip(ServletWebRequest request) {
+		String codificacoes = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		
+		if (codificacoes == null) {
+			return false;
+		}
+		
+		for (String codificacao : codificacoes.split(",")) {
+			String[] partes = codificacao.split(";");
+			
+			if (partes[0].trim().equalsIgnoreCase("gzip")) {
+				return partes.length == 1 || !partes[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+		
+		return false;
 	}
 	
 	@GetMapping("/{id}")
@@ -71,19 +209,51 @@ public class RestauranteController {
 		return service.buscarDtoPorId(id);		
 	}
 	
+	/*
+	 * Restaurante, cozinha, formas de pagamento e produtos ativos com as fotos em uma única resposta. A ETag é a versão
+	 * da vitrine no VitrineRestauranteCache (deep etag), igual às listagens do catálogo, a comparação é feita com a
+	 * vitrine que seria devolvida, assim uma vitrine expirada é remontada antes.
+	 */
+	@GetMapping("/{id}/vitrine")
+	public ResponseEntity<VitrineRestauranteDTO> buscarVitrine(@PathVariable Long id, ServletWebRequest request) {
+		ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+		
+		VitrineRestaurante vitrine = vitrineService.buscar(id);
+		
+		if (request.checkNotModified(vitrine.getVersao())) {
+			return null;
+		}
+		
+		return ResponseEntity.ok()
+								.eTag(vitrine.getVersao())
+								.body(vitrine.getVitrine());
+	}
+	
+	/*
+	 * O abertoAgora traz só os restaurantes abertos, sem informar traz todos
+	 */
 	@GetMapping("/taxa-frete")
-	public List<RestauranteRetornoDTO> listarPorTaxaFrete(BigDecimal taxaInicial, BigDecimal taxaFinal) {
-		return service.listarPorTaxaFrete(taxaInicial, taxaFinal);		
+	public List<RestauranteRetornoDTO> listarPorTaxaFrete(BigDecimal taxaInicial, BigDecimal taxaFinal, boolean abertoAgora) {
+		return service.listarPorTaxaFrete(taxaInicial, taxaFinal, abertoAgora);		
 	}
 	
 	@GetMapping("/nome-taxa-frete")
-	public List<RestauranteRetornoDTO> listarPorNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal) {
-		return service.listarPorNomeTaxaFrete(nome, taxaInicial, taxaFinal);
+	public List<RestauranteRetornoDTO> listarPorNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal, boolean abertoAgora) {
+		return service.listarPorNomeTaxaFrete(nome, taxaInicial, taxaFinal, abertoAgora);
+	}
+	
+	/*
+	 * Restaurantes ativos e abertos até o raio (em km) da coordenada, do mais próximo para o mais distante
+	 */
+	@GetMapping("/proximos")
+	public List<RestauranteProximoDTO> listarProximos(@RequestParam("lat") double latitude, @RequestParam("lng") double longitude,
+			@RequestParam(required = false) Double raio) {
+		return service.listarProximos(latitude, longitude, raio);
 	}
 	
 	@GetMapping("/com-frete-gratis")
-	public List<RestauranteRetornoDTO> comFreteGratis(String nome) {	
-		return service.comFreteGratis(nome);
+	public List<RestauranteRetornoDTO> comFreteGratis(String nome, boolean abertoAgora) {	
+		return service.comFreteGratis(nome, abertoAgora);
 	}
 	
 	@GetMapping("/nome-cozinha")
@@ -114,9 +284,8 @@ public class RestauranteController {
 	}
 	
 	@PutMapping("/ativar-todos")
-	@ResponseStatus(HttpStatus.NO_CONTENT)
-	public void ativarTodos(@RequestBody List<Long> ids) {
-		service.ativarTodos(ids);
+	public RestauranteAlteracaoEmMassaDTO ativarTodos(@RequestBody List<Long> ids) {
+		return service.ativarTodos(ids);
 	}
 	
 	@PutMapping("/{id}/desativar")
@@ -126,9 +295,8 @@ public class RestauranteController {
 	}
 	
 	@PutMapping("/desativar-todos")
-	@ResponseStatus(HttpStatus.NO_CONTENT)
-	public void desativarTodos(@RequestBody List<Long> ids) {
-		service.desativarTodos(ids);
+	public RestauranteAlteracaoEmMassaDTO desativarTodos(@RequestBody List<Long> ids) {
+		return service.desativarTodos(ids);
 	}
 	
 	@PutMapping("/{id}/abertura")
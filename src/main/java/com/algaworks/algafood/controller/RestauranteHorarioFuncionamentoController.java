@@ -0,0 +1,36 @@
+package com.algaworks.algafood.controller;
+
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.algaworks.algafood.dto.AgendaFuncionamentoDTO;
+import com.algaworks.algafood.service.RestauranteService;
+
+@RestController
+@RequestMapping(value = "/restaurantes/{restauranteId}/horarios-funcionamento")
+public class RestauranteHorarioFuncionamentoController {
+	
+	@Autowired
+	private RestauranteService restauranteService;
+	
+	@GetMapping
+	public AgendaFuncionamentoDTO buscar(@PathVariable Long restauranteId) {
+		return restauranteService.buscarHorariosFuncionamento(restauranteId);
+	}
+	
+	/*
+	 * Substitui todos os horários da semana, o abrir/fechamento manual continua valendo até o próximo horário
+	 */
+	@PutMapping
+	public AgendaFuncionamentoDTO atualizar(@PathVariable Long restauranteId, @RequestBody @Valid AgendaFuncionamentoDTO agenda) {
+		return restauranteService.atualizarHorariosFuncionamento(restauranteId, agenda);
+	}
+
+}
@@ -1,22 +1,26 @@
 package com.algaworks.algafood.controller;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import com.algaworks.algafood.dto.FotoProdutoDTO;
 import com.algaworks.algafood.dto.FotoProdutoPutDTO;
 import com.algaworks.algafood.service.ProdutoService;
 import com.algaworks.algafood.service.RestauranteProdutoService;
+import com.algaworks.algafood.storage.ArmazenamentoProperties;
+import com.algaworks.algafood.storage.ImagemFotoProduto;
+import com.algaworks.algafood.web.LeitorMultipart;
+import com.algaworks.algafood.web.RespostaImagemFotoProduto;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.algaworks.algafood.dto.ProdutoDTO;
 
@@ -29,6 +33,12 @@ public class RestauranteProdutoController {
 
 	@Autowired
 	private ProdutoService produtoService;
+
+	@Autowired
+	private RespostaImagemFotoProduto respostaImagemFotoProduto;
+
+	@Autowired
+	private ArmazenamentoProperties armazenamentoProperties;
 	
 	@GetMapping
 	public List<ProdutoDTO> listaProdutos(@PathVariable Long restauranteId) {
@@ -65,6 +75,17 @@ public class RestauranteProdutoController {
 		return restauranteProdutoService.salvarFotoProduto(restauranteId, produtoId, fotoProdutoPutDTO);
 	}
 
+	/*
+		Mesmos campos do PUT /foto (arquivo e descricao), mas o corpo é lido direto da requisição e a foto vai para o
+		armazenamento enquanto é recebida, ver RestauranteProdutoService.salvarFotoProdutoStreaming. Os 64KB a mais
+		no limite do corpo são para a descricao e os cabeçalhos das partes.
+	 */
+	@PutMapping(value = "/{produtoId}/foto-stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public FotoProdutoDTO salvarFotoProdutoStreaming(@PathVariable Long restauranteId, @PathVariable Long produtoId, HttpServletRequest request) throws IOException {
+		long tamanhoMaximoCorpo = armazenamentoProperties.getTamanhoMaximoFoto().toBytes() + 64 * 1024;
+		return restauranteProdutoService.salvarFotoProdutoStreaming(restauranteId, produtoId, LeitorMultipart.de(request, tamanhoMaximoCorpo));
+	}
+
 	@ResponseStatus(HttpStatus.NO_CONTENT)
 	@DeleteMapping("/{produtoId}/foto")
 	public void deletarFotoProduto(@PathVariable Long restauranteId, @PathVariable Long produtoId) {
@@ -84,11 +105,10 @@ public class RestauranteProdutoController {
 		Não foi necessário corrigir pois implementei em endpoints separados
 	 */
 	@GetMapping("/{produtoId}/foto-imagem")
-	public ResponseEntity<InputStreamResource> mostrarImagemFoto(@PathVariable Long restauranteId, @PathVariable Long produtoId, @RequestHeader(name = "accept") String mediasAceitasHeader) throws HttpMediaTypeNotAcceptableException {
-		InputStream fotoInputStream = restauranteProdutoService.buscarImagemFotoProdutoPorRestaurante(restauranteId, produtoId, mediasAceitasHeader);
-
-		return ResponseEntity.ok()
-				.body(new InputStreamResource(fotoInputStream));
+	public ResponseEntity<?> mostrarImagemFoto(@PathVariable Long restauranteId, @PathVariable Long produtoId, @RequestHeader(name = "accept") String mediasAceitasHeader,
+			@RequestParam(required = false) Integer largura, ServletWebRequest request) throws HttpMediaTypeNotAcceptableException {
+		ImagemFotoProduto imagem = restauranteProdutoService.buscarImagemFotoProdutoPorRestaurante(restauranteId, produtoId, mediasAceitasHeader, largura);
+		return respostaImagemFotoProduto.responder(request, imagem);
 	}
 
 }
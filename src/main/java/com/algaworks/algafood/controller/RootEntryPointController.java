@@ -25,7 +25,7 @@ public class RootEntryPointController {
         // TODO: Substituir todas as strings como no estados por properties no messages.properties
         var linkToCozinhas = linkTo(methodOn(CozinhaController.class).listarSemPaginacao()).withRel("cozinhas/sem-paginacao");
         var linkToPedidos = linkTo(methodOn(PedidoController.class).listarCompleto()).withRel("pedidos");
-        var linkToRestaurantes = linkTo(methodOn(RestauranteController.class).listar()).withRel("restaurantes");
+        var linkToRestaurantes = linkTo(RestauranteController.class).withRel("restaurantes");
         var linkToGrupos = linkTo(methodOn(GrupoController.class).listar()).withRel("grupos");
         var linkToUsuarios = linkTo(methodOn(UsuarioController.class).listar()).withRel("usuarios");
         var linkToEstados = linkTo(methodOn(EstadoController.class).listar()).withRel("estados");
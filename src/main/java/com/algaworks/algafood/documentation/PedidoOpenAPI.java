@@ -1,13 +1,17 @@
 package com.algaworks.algafood.documentation;
 
 import com.algaworks.algafood.dto.PedidoDTO;
+import com.algaworks.algafood.dto.PedidoLoteRetornoDTO;
 import com.algaworks.algafood.dto.PedidoResumoDTO;
+import com.algaworks.algafood.dto.RecebimentoPedidoDTO;
 import com.algaworks.algafood.exception.Problema;
 import com.algaworks.algafood.filtro.PedidoFiltro;
 import io.swagger.annotations.*;
 import org.springframework.data.domain.Pageable;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -17,9 +21,19 @@ public interface PedidoOpenAPI {
     @ApiOperation("Lista os registros resumidos")
     PagedModel<PedidoResumoDTO> listarResumido(Pageable pageable);
 
+    @ApiOperation("Lista os registros resumidos paginando por cursor, do mais recente para o mais antigo")
+    @ApiResponses({
+            @ApiResponse(code = 400, message = "Cursor inválido", response = Problema.class)
+    })
+    CollectionModel<PedidoResumoDTO> listarResumidoPorCursor(@ApiParam(value = "cursor retornado no link next, vazio para a primeira página") String cursor,
+                                                             @ApiParam(value = "quantidade de registros por página", example = "20") int size);
+
     @ApiOperation("Lista os registros completos")
     List<PedidoDTO> listarCompleto();
 
+    @ApiOperation(value = "Exporta os registros completos em NDJSON, um pedido por linha", produces = "application/x-ndjson")
+    ResponseEntity<StreamingResponseBody> exportarCompleto();
+
     @ApiOperation("Busca um registro por código")
     @ApiResponses({
             @ApiResponse(code = 400, message = "Parametro passado inválido", response = Problema.class),
@@ -47,6 +61,26 @@ public interface PedidoOpenAPI {
     })
     PedidoResumoDTO criarPedido(PedidoDTO dto);
 
+    @ApiOperation(value = "Recebe um novo pedido para ser processado em segundo plano", notes = "Enviar o cabeçalho Prefer com a preferência respond-async, ex. Prefer: respond-async, wait=10")
+    @ApiResponses({
+            @ApiResponse(code = 202, message = "Pedido recebido, acompanhar a situação pelo link self"),
+            @ApiResponse(code = 429, message = "Capacidade de recebimento esgotada, tentar novamente após o Retry-After", response = Problema.class)
+    })
+    ResponseEntity<RecebimentoPedidoDTO> criarPedidoAssincrono(PedidoDTO dto);
+
+    @ApiOperation("Busca a situação de um pedido recebido em segundo plano")
+    @ApiResponses({
+            @ApiResponse(code = 404, message = "Não encontrado com o código", response = Problema.class)
+    })
+    RecebimentoPedidoDTO buscarRecebimento(@ApiParam(value = "codigo", example = "8e6588c2-b393-4e04-ba84-0d8a576977ae") String codigo);
+
+    @ApiOperation("Cadastra vários pedidos de uma vez, informando o resultado de cada um")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Lote processado, verificar a situação de cada pedido"),
+            @ApiResponse(code = 400, message = "Lote acima do tamanho máximo permitido", response = Problema.class)
+    })
+    PedidoLoteRetornoDTO criarPedidosEmLote(List<PedidoDTO> dtos);
+
     @ApiOperation("Confirma um pedido")
     @ApiResponses({
             @ApiResponse(code = 200, message = "Confirmado com sucesso"),
@@ -68,4 +102,25 @@ public interface PedidoOpenAPI {
     })
     ResponseEntity<Void> cancelarPedido(@ApiParam(value = "codigo", example = "8e6588c2-b393-4e04-ba84-0d8a576977ae") String codigo);
 
+    @ApiOperation("Confirma vários pedidos de uma vez, se algum não puder ser confirmado nenhum é alterado")
+    @ApiResponses({
+            @ApiResponse(code = 204, message = "Confirmados com sucesso"),
+            @ApiResponse(code = 400, message = "Código inexistente ou pedido que não pode ser confirmado", response = Problema.class)
+    })
+    ResponseEntity<Void> confirmarPedidos(@ApiParam(value = "códigos dos pedidos") List<String> codigos);
+
+    @ApiOperation("Confirma a entrega de vários pedidos de uma vez, se algum não puder ser entregue nenhum é alterado")
+    @ApiResponses({
+            @ApiResponse(code = 204, message = "Entregas confirmadas com sucesso"),
+            @ApiResponse(code = 400, message = "Código inexistente ou pedido que não pode ser entregue", response = Problema.class)
+    })
+    ResponseEntity<Void> confirmarEntregas(@ApiParam(value = "códigos dos pedidos") List<String> codigos);
+
+    @ApiOperation("Cancela vários pedidos de uma vez, se algum não puder ser cancelado nenhum é alterado")
+    @ApiResponses({
+            @ApiResponse(code = 204, message = "Cancelados com sucesso"),
+            @ApiResponse(code = 400, message = "Código inexistente ou pedido que não pode ser cancelado", response = Problema.class)
+    })
+    ResponseEntity<Void> cancelarPedidos(@ApiParam(value = "códigos dos pedidos") List<String> codigos);
+
 }
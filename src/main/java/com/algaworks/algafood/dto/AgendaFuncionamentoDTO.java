@@ -0,0 +1,21 @@
+package com.algaworks.algafood.dto;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import io.swagger.annotations.ApiModel;
+import lombok.Getter;
+import lombok.Setter;
+
+@ApiModel("Representa os horários de funcionamento semanais do restaurante")
+@Getter
+@Setter
+public class AgendaFuncionamentoDTO {
+
+	@Valid
+	@NotNull
+	private List<HorarioFuncionamentoDTO> horarios;
+
+}
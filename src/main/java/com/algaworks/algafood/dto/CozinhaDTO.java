@@ -5,13 +5,17 @@ import com.fasterxml.jackson.annotation.JsonView;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.hateoas.RepresentationModel;
 import org.springframework.hateoas.server.core.Relation;
 
 @Relation(collectionRelation = "cozinhas")
 @ApiModel("Representa um DTO de Cozinha")
+@NoArgsConstructor
+@AllArgsConstructor
 @Getter
 @Setter
 public class CozinhaDTO extends RepresentationModel<CozinhaDTO> {
@@ -1,6 +1,10 @@
 package com.algaworks.algafood.dto;
 
+import java.math.BigDecimal;
+
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
@@ -25,6 +29,14 @@ public class EnderecoEntradaDTO {
 	@NotBlank
 	private String bairro;
 	
+	@DecimalMin("-90")
+	@DecimalMax("90")
+	private BigDecimal latitude;
+	
+	@DecimalMin("-180")
+	@DecimalMax("180")
+	private BigDecimal longitude;
+	
 	@Valid // Valida as propriedades dentro da cidadeIdDTO
 	@NotNull
 	private CidadeIdDTO cidade;
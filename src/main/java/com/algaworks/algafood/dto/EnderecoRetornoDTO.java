@@ -1,5 +1,7 @@
 package com.algaworks.algafood.dto;
 
+import java.math.BigDecimal;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -14,5 +16,7 @@ public class EnderecoRetornoDTO {
 	private String bairro;
 	private String nomeCidade;
 	private String nomeEstado;
+	private BigDecimal latitude;
+	private BigDecimal longitude;
 
 }
@@ -0,0 +1,20 @@
+package com.algaworks.algafood.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Contadores de um cache desde que a api subiu, as remoções são as entradas que saíram por falta de espaço
+ */
+@Getter
+@AllArgsConstructor
+public class EstatisticasCacheDTO {
+
+	private long acertos;
+	private long faltas;
+	private double taxaAcerto;
+	private long remocoes;
+	private int tamanho;
+	private int tamanhoMaximo;
+
+}
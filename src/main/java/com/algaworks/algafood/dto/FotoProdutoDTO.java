@@ -1,8 +1,11 @@
 package com.algaworks.algafood.dto;
 
+import com.algaworks.algafood.enuns.SituacaoVariantesFoto;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 public class FotoProdutoDTO {
@@ -10,4 +13,6 @@ public class FotoProdutoDTO {
     private String descricao;
     private String contentType;
     private Long tamanho;
+    private SituacaoVariantesFoto situacaoVariantes;
+    private List<Integer> largurasVariantes;
 }
@@ -0,0 +1,30 @@
+package com.algaworks.algafood.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import javax.validation.constraints.NotNull;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+@ApiModel("Representa um período de funcionamento semanal do restaurante")
+@Getter
+@Setter
+public class HorarioFuncionamentoDTO {
+
+	@ApiModelProperty(example = "FRIDAY", required = true)
+	@NotNull
+	private DayOfWeek diaSemana;
+
+	@ApiModelProperty(example = "18:00:00", required = true)
+	@NotNull
+	private LocalTime horaAbertura;
+
+	@ApiModelProperty(value = "Antes da abertura quando o período passa da meia-noite", example = "02:00:00", required = true)
+	@NotNull
+	private LocalTime horaFechamento;
+
+}
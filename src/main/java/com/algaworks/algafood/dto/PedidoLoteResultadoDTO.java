@@ -0,0 +1,42 @@
+package com.algaworks.algafood.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@ApiModel("Representa o resultado de um pedido enviado em lote")
+@JsonInclude(Include.NON_NULL)
+@AllArgsConstructor
+@Getter
+@Setter
+public class PedidoLoteResultadoDTO {
+
+	public static final String CRIADO = "CRIADO";
+	public static final String REJEITADO = "REJEITADO";
+
+	@ApiModelProperty(value = "Posição do pedido na lista enviada", example = "0")
+	private Integer indice;
+
+	@ApiModelProperty(example = "8e6588c2-b393-4e04-ba84-0d8a576977ae")
+	private String codigo;
+
+	@ApiModelProperty(example = "CRIADO")
+	private String situacao;
+
+	@ApiModelProperty(example = "Não existe Produto com id 100")
+	private String mensagem;
+
+	public static PedidoLoteResultadoDTO criado(int indice, String codigo) {
+		return new PedidoLoteResultadoDTO(indice, codigo, CRIADO, null);
+	}
+
+	public static PedidoLoteResultadoDTO rejeitado(int indice, String mensagem) {
+		return new PedidoLoteResultadoDTO(indice, null, REJEITADO, mensagem);
+	}
+
+}
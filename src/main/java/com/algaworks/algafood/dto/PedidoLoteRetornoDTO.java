@@ -0,0 +1,31 @@
+package com.algaworks.algafood.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+@ApiModel("Representa o retorno de um lote de pedidos")
+@Getter
+@Setter
+public class PedidoLoteRetornoDTO {
+
+	@ApiModelProperty(example = "10")
+	private Integer totalRecebidos;
+
+	@ApiModelProperty(example = "9")
+	private Integer totalCriados;
+
+	@ApiModelProperty(example = "1")
+	private Integer totalRejeitados;
+
+	private List<PedidoLoteResultadoDTO> resultados = new ArrayList<>();
+
+	public void adicionarResultado(PedidoLoteResultadoDTO resultado) {
+		this.resultados.add(resultado);
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.algaworks.algafood.dto;
+
+import java.math.BigDecimal;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/*
+ * Produto ativo da vitrine, a foto fica null quando o produto não tem foto
+ */
+@Getter
+@Setter
+public class ProdutoVitrineDTO {
+
+	private Long id;
+	private String nome;
+	private String descricao;
+	private BigDecimal preco;
+	private FotoProdutoDTO foto;
+
+}
@@ -0,0 +1,36 @@
+package com.algaworks.algafood.dto;
+
+import java.time.OffsetDateTime;
+
+import org.springframework.hateoas.RepresentationModel;
+
+import com.algaworks.algafood.enuns.SituacaoRecebimentoPedido;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@ApiModel("Representa a situação de um pedido recebido de forma assíncrona")
+@JsonInclude(Include.NON_NULL)
+@AllArgsConstructor
+@Getter
+@Setter
+public class RecebimentoPedidoDTO extends RepresentationModel<RecebimentoPedidoDTO> {
+
+	@ApiModelProperty(example = "8e6588c2-b393-4e04-ba84-0d8a576977ae")
+	private String codigo;
+
+	@ApiModelProperty(example = "VALIDANDO")
+	private SituacaoRecebimentoPedido situacao;
+
+	@ApiModelProperty(value = "Motivo quando o pedido é rejeitado", example = "Não existe Produto com id 100")
+	private String motivo;
+
+	@ApiModelProperty(example = "2021-04-10T11:13:34Z")
+	private OffsetDateTime dataAtualizacao;
+
+}
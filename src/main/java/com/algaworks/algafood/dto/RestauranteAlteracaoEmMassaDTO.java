@@ -0,0 +1,21 @@
+package com.algaworks.algafood.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@ApiModel("Representa o resultado de uma ativação ou desativação de restaurantes em massa")
+@AllArgsConstructor
+@Getter
+@Setter
+public class RestauranteAlteracaoEmMassaDTO {
+
+	@ApiModelProperty(value = "Quantidade de ids diferentes informados", example = "10")
+	private Integer totalInformados;
+
+	@ApiModelProperty(value = "Quantidade de restaurantes que mudaram, os que já estavam na situação não contam", example = "7")
+	private Integer totalAlterados;
+
+}
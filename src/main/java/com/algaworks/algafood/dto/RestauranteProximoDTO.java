@@ -0,0 +1,31 @@
+package com.algaworks.algafood.dto;
+
+import java.math.BigDecimal;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@ApiModel("Representa um restaurante próximo da localização informada")
+@AllArgsConstructor
+@Getter
+@Setter
+public class RestauranteProximoDTO {
+
+	@ApiModelProperty(example = "1")
+	private Long id;
+
+	@ApiModelProperty(example = "Thai Gourmet")
+	private String nome;
+
+	@ApiModelProperty(example = "10.00")
+	private BigDecimal taxaFrete;
+
+	private CozinhaDTO cozinha;
+
+	@ApiModelProperty(value = "Distância em linha reta até o restaurante, em metros", example = "850")
+	private Long distancia;
+
+}
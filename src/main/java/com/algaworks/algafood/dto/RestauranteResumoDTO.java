@@ -3,12 +3,14 @@ package com.algaworks.algafood.dto;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.math.BigDecimal;
 
 @ApiModel("Representa o resumo de um restaurante")
+@NoArgsConstructor
 @Getter
 @Setter
 public class RestauranteResumoDTO extends RepresentationModel<RestauranteRetornoDTO> {
@@ -24,4 +26,14 @@ public class RestauranteResumoDTO extends RepresentationModel<RestauranteRetorno
 
 	private CozinhaDTO cozinha;
 	
+	/*
+	 * Usado pelo select new do RestauranteRepository.buscarResumos
+	 */
+	public RestauranteResumoDTO(Long id, String nome, BigDecimal taxaFrete, Long cozinhaId, String cozinhaNome) {
+		this.id = id;
+		this.nome = nome;
+		this.taxaFrete = taxaFrete;
+		this.cozinha = new CozinhaDTO(cozinhaId, cozinhaNome);
+	}
+	
 }
@@ -6,9 +6,11 @@ import com.algaworks.algafood.view.RestauranteView;
 import com.fasterxml.jackson.annotation.JsonView;
 
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.hateoas.RepresentationModel;
 
+@NoArgsConstructor
 @Getter
 @Setter
 public class RestauranteRetornoDTO extends RepresentationModel<RestauranteRetornoDTO> {
@@ -29,4 +31,14 @@ public class RestauranteRetornoDTO extends RepresentationModel<RestauranteRetorn
 	private Boolean aberto;
 	private EnderecoRetornoDTO endereco;
 	
+	/*
+	 * Usado pelo select new do RestauranteRepository.buscarResumosParaVisao, preenche só os campos das JsonViews
+	 */
+	public RestauranteRetornoDTO(Long id, String nome, BigDecimal taxaFrete, Long cozinhaId, String cozinhaNome) {
+		this.id = id;
+		this.nome = nome;
+		this.taxaFrete = taxaFrete;
+		this.cozinha = new CozinhaDTO(cozinhaId, cozinhaNome);
+	}
+	
 }
@@ -0,0 +1,26 @@
+package com.algaworks.algafood.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/*
+ * Tudo o que o app precisa para mostrar a página do restaurante em uma única chamada: o restaurante com a cozinha,
+ * as formas de pagamento e os produtos ativos com os dados das fotos.
+ */
+@Getter
+@Setter
+public class VitrineRestauranteDTO {
+
+	private Long id;
+	private String nome;
+	private BigDecimal taxaFrete;
+	private Boolean aberto;
+	private CozinhaDTO cozinha;
+	private EnderecoRetornoDTO endereco;
+	private List<FormaPagamentoDTO> formasPagamento;
+	private List<ProdutoVitrineDTO> produtos;
+
+}
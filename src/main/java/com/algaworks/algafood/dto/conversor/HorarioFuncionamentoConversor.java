@@ -0,0 +1,34 @@
+package com.algaworks.algafood.dto.conversor;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.algaworks.algafood.dto.AgendaFuncionamentoDTO;
+import com.algaworks.algafood.dto.HorarioFuncionamentoDTO;
+import com.algaworks.algafood.entity.HorarioFuncionamento;
+
+@Component
+public class HorarioFuncionamentoConversor {
+	
+	@Autowired
+	private ModelMapper modelMapper;
+	
+	public AgendaFuncionamentoDTO converterParaDTO(List<HorarioFuncionamento> horarios) {
+		AgendaFuncionamentoDTO agenda = new AgendaFuncionamentoDTO();
+		agenda.setHorarios(horarios.stream()
+									.map(horario -> modelMapper.map(horario, HorarioFuncionamentoDTO.class))
+									.collect(Collectors.toList()));
+		return agenda;
+	}
+	
+	public List<HorarioFuncionamento> converterParaObjeto(AgendaFuncionamentoDTO agenda) {
+		return agenda.getHorarios().stream()
+									.map(horario -> modelMapper.map(horario, HorarioFuncionamento.class))
+									.collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.algaworks.algafood.dto.conversor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.algaworks.algafood.dto.CozinhaDTO;
+import com.algaworks.algafood.dto.EnderecoRetornoDTO;
+import com.algaworks.algafood.dto.ProdutoVitrineDTO;
+import com.algaworks.algafood.dto.VitrineRestauranteDTO;
+import com.algaworks.algafood.entity.FotoProduto;
+import com.algaworks.algafood.entity.Produto;
+import com.algaworks.algafood.entity.Restaurante;
+
+/*
+ * Os campos são atribuídos um a um ao invés de um modelMapper.map do restaurante inteiro, que também mapearia a lista
+ * restaurante.produtos, com os inativos e carregada sob demanda.
+ */
+@Component
+public class VitrineRestauranteConversor {
+
+	@Autowired
+	private ModelMapper modelMapper;
+
+	@Autowired
+	private FormaPagamentoConversor formaPagamentoConversor;
+
+	@Autowired
+	private FotoProdutoConversor fotoProdutoConversor;
+
+	public VitrineRestauranteDTO converterParaDTO(Restaurante restaurante, List<Produto> produtos, Map<Long, FotoProduto> fotosPorProduto) {
+		VitrineRestauranteDTO vitrine = new VitrineRestauranteDTO();
+		vitrine.setId(restaurante.getId());
+		vitrine.setNome(restaurante.getNome());
+		vitrine.setTaxaFrete(restaurante.getTaxaFrete());
+		vitrine.setAberto(restaurante.getAberto());
+		vitrine.setCozinha(new CozinhaDTO(restaurante.getCozinha().getId(), restaurante.getCozinha().getNome()));
+
+		if (restaurante.getEndereco() != null) {
+			vitrine.setEndereco(modelMapper.map(restaurante.getEndereco(), EnderecoRetornoDTO.class));
+		}
+
+		vitrine.setFormasPagamento(formaPagamentoConversor.converterListaParaDTO(restaurante.getFormasPagamento()));
+		vitrine.setProdutos(produtos.stream()
+										.map(produto -> converterProduto(produto, fotosPorProduto.get(produto.getId())))
+										.collect(Collectors.toList()));
+		return vitrine;
+	}
+
+	private ProdutoVitrineDTO converterProduto(Produto produto, FotoProduto foto) {
+		ProdutoVitrineDTO produtoVitrine = new ProdutoVitrineDTO();
+		produtoVitrine.setId(produto.getId());
+		produtoVitrine.setNome(produto.getNome());
+		produtoVitrine.setDescricao(produto.getDescricao());
+		produtoVitrine.setPreco(produto.getPreco());
+
+		if (foto != null) {
+			produtoVitrine.setFoto(fotoProdutoConversor.converterParaDTO(foto));
+		}
+
+		return produtoVitrine;
+	}
+
+}
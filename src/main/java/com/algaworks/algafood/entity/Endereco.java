@@ -1,5 +1,7 @@
 package com.algaworks.algafood.entity;
 
+import java.math.BigDecimal;
+
 import javax.persistence.Embeddable;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
@@ -17,6 +19,10 @@ public class Endereco {
 	private String complemento;
 	private String bairro;
 	
+	// Coordenadas em graus decimais, opcionais, usadas na busca de restaurantes próximos
+	private BigDecimal latitude;
+	private BigDecimal longitude;
+	
 	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "cidade_id")
 	private Cidade cidade;
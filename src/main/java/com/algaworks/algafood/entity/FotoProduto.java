@@ -1,5 +1,7 @@
 package com.algaworks.algafood.entity;
 
+import com.algaworks.algafood.enuns.SituacaoVariantesFoto;
+import com.algaworks.algafood.storage.LargurasVariantesConverter;
 import com.algaworks.algafood.validations.Grupos;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -7,6 +9,8 @@ import lombok.EqualsAndHashCode;
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -33,5 +37,15 @@ public class FotoProduto {
 	private String descricao;
 	private String contentType;
 	private Long tamanho;
+
+	/*
+		Variantes geradas depois do upload pelo VariantesFotoProdutoService, as larguras só são preenchidas
+		quando a situação é CONCLUIDA
+	 */
+	@Enumerated(EnumType.STRING)
+	private SituacaoVariantesFoto situacaoVariantes;
+
+	@Convert(converter = LargurasVariantesConverter.class)
+	private List<Integer> largurasVariantes = new ArrayList<>();
 	
 }
@@ -0,0 +1,36 @@
+package com.algaworks.algafood.entity;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Um período de funcionamento semanal do restaurante. Quando o fechamento é antes da abertura o período passa da
+ * meia-noite e termina no dia seguinte, ex: sexta das 18:00 às 02:00.
+ * Abertura igual ao fechamento é o dia inteiro.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class HorarioFuncionamento {
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private DayOfWeek diaSemana;
+	
+	@Column(nullable = false)
+	private LocalTime horaAbertura;
+	
+	@Column(nullable = false)
+	private LocalTime horaFechamento;
+
+}
@@ -9,9 +9,15 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.Transient;
 
+import com.algaworks.algafood.util.Centavos;
+
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
 
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -47,22 +53,46 @@ public class ItemPedido {
 	@JoinColumn(nullable = false)
 	private Pedido pedido;
 	
-	public BigDecimal getPrecoTotal() {
-		BigDecimal precoUnitario = this.getPrecoUnitario();
-		Integer quantidade = this.getQuantidade();
-
-		/*
-		 * Para evitar nullPointerException
-		 */
-		if (precoUnitario == null) {
-			precoUnitario = BigDecimal.ZERO;
-		}
-
-		if (quantidade == null) {
-			quantidade = 0;
+	/*
+	 * Preço unitário em centavos, calculado uma vez a partir do precoUnitario e reaproveitado nos cálculos do pedido.
+	 * Não é persistido, o banco continua com a coluna decimal.
+	 */
+	@Transient
+	@Setter(AccessLevel.NONE)
+	private long precoUnitarioEmCentavos = -1;
+	
+	public void setPrecoUnitario(BigDecimal precoUnitario) {
+		this.precoUnitario = precoUnitario;
+		this.precoUnitarioEmCentavos = -1;
+	}
+	
+	public long getPrecoUnitarioEmCentavos() {
+		// Quando a entidade vem do banco o JPA preenche o campo direto, sem o setter, por isso o cálculo é feito na primeira leitura
+		if (precoUnitarioEmCentavos < 0) {
+			precoUnitarioEmCentavos = Centavos.de(precoUnitario);
 		}
-
-		return (precoUnitario.multiply(new BigDecimal(quantidade)));
+		
+		return precoUnitarioEmCentavos;
+	}
+	
+	/*
+	 * Quantidade e preço nulos contam como zero, para evitar nullPointerException
+	 */
+	public long getPrecoTotalEmCentavos() {
+		int quantidade = this.getQuantidade() != null ? this.getQuantidade() : 0;
+		return Centavos.multiplicar(getPrecoUnitarioEmCentavos(), quantidade);
+	}
+	
+	public BigDecimal getPrecoTotal() {
+		return Centavos.paraBigDecimal(getPrecoTotalEmCentavos());
+	}
+	
+	/*
+	 * O campo precoTotal só é preenchido aqui, antes do insert, o getPrecoTotal sempre calcula o valor atual.
+	 */
+	@PrePersist
+	public void preencherPrecoTotal() {
+		this.precoTotal = getPrecoTotal();
 	}
 
 }
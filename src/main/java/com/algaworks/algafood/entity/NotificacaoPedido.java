@@ -0,0 +1,102 @@
+package com.algaworks.algafood.entity;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.algaworks.algafood.enuns.StatusNotificacaoPedido;
+import com.algaworks.algafood.enuns.TipoNotificacaoPedido;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/*
+ * Outbox das notificações de pedido: o registro é gravado na mesma transação que confirma ou cancela o pedido
+ * e o e-mail é enviado depois pelo NotificacaoPedidoService, fora da transação do pedido.
+ * O id auto incremento define a ordem de envio das notificações de um mesmo pedido.
+ */
+@Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity
+public class NotificacaoPedido {
+	
+	private static final int TAMANHO_MAXIMO_ERRO = 255;
+	
+	// Limita o 2^n do intervalo entre tentativas para não estourar o long
+	private static final int EXPOENTE_MAXIMO_RETENTATIVA = 10;
+	
+	@EqualsAndHashCode.Include
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(nullable = false)
+	private Pedido pedido;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private TipoNotificacaoPedido tipo;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private StatusNotificacaoPedido status = StatusNotificacaoPedido.PENDENTE;
+	
+	@Column(nullable = false)
+	private int tentativas;
+	
+	private String ultimoErro;
+	
+	@Column(nullable = false, columnDefinition = "datetime")
+	private OffsetDateTime dataCriacao;
+	
+	@Column(nullable = false, columnDefinition = "datetime")
+	private OffsetDateTime dataProximaTentativa;
+	
+	@Column(columnDefinition = "datetime")
+	private OffsetDateTime dataEnvio;
+	
+	public static NotificacaoPedido pendente(Pedido pedido, TipoNotificacaoPedido tipo) {
+		NotificacaoPedido notificacao = new NotificacaoPedido();
+		notificacao.setPedido(pedido);
+		notificacao.setTipo(tipo);
+		notificacao.setDataCriacao(OffsetDateTime.now());
+		notificacao.setDataProximaTentativa(notificacao.getDataCriacao());
+		return notificacao;
+	}
+	
+	public void registrarEnvio(OffsetDateTime data) {
+		this.status = StatusNotificacaoPedido.ENVIADA;
+		this.dataEnvio = data;
+		this.ultimoErro = null;
+	}
+	
+	/*
+	 * Cada falha dobra o intervalo até a próxima tentativa (intervaloBase, 2x, 4x...), ao atingir o máximo de
+	 * tentativas a notificação fica com status FALHA e não é mais enviada.
+	 */
+	public void registrarFalha(String erro, OffsetDateTime data, int maximoTentativas, Duration intervaloBase) {
+		this.tentativas++;
+		this.ultimoErro = StringUtils.abbreviate(erro, TAMANHO_MAXIMO_ERRO);
+		
+		if (this.tentativas >= maximoTentativas) {
+			this.status = StatusNotificacaoPedido.FALHA;
+		} else {
+			long multiplicador = 1L << Math.min(this.tentativas - 1, EXPOENTE_MAXIMO_RETENTATIVA);
+			this.dataProximaTentativa = data.plus(intervaloBase.multipliedBy(multiplicador));
+		}
+	}
+	
+}
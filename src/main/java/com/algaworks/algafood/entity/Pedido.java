@@ -4,7 +4,6 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -23,10 +22,12 @@ import javax.persistence.PrePersist;
 
 import com.algaworks.algafood.event.PedidoCanceladoEvent;
 import com.algaworks.algafood.event.PedidoConfirmadoEvent;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 
 import com.algaworks.algafood.enuns.StatusPedido;
 import com.algaworks.algafood.exception.NegocioException;
+import com.algaworks.algafood.util.Centavos;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -80,20 +81,27 @@ public class Pedido extends AbstractAggregateRoot<Pedido> {
 	@Enumerated(EnumType.STRING)
 	private StatusPedido status = StatusPedido.CRIADO;
 	
+	/*
+	 * Quando vários pedidos estão no contexto de persistência, ao acessar os itens de um deles o Hibernate já carrega
+	 * os itens de até 100 pedidos em um único select (where pedido_id in (...)), evitando um select por pedido.
+	 */
+	@BatchSize(size = 100)
 	@OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL)
 	private List<ItemPedido> itens = new ArrayList<>();
 		
+	/*
+	 * As contas são feitas em centavos (long), só o subtotal e o total são convertidos para BigDecimal no final.
+	 * O preço total de cada item é convertido apenas quando o item é gravado (@PrePersist do ItemPedido).
+	 */
 	public void calcularValorTotal() {
+		long subtotalEmCentavos = 0L;
 		
-		getItens().forEach(ItemPedido::getPrecoTotal);
-		
-		// TODO: Verificar melhor como funciona o reduce
-		this.subtotal = getItens().stream()
-									.map(item -> item.getPrecoTotal())
-									.reduce(BigDecimal.ZERO, BigDecimal::add);
-		
-		this.valorTotal = this.subtotal.add(this.taxaFrete);
+		for (ItemPedido item : getItens()) {
+			subtotalEmCentavos = Centavos.somar(subtotalEmCentavos, item.getPrecoTotalEmCentavos());
+		}
 		
+		this.subtotal = Centavos.paraBigDecimal(subtotalEmCentavos);
+		this.valorTotal = Centavos.paraBigDecimal(Centavos.somar(subtotalEmCentavos, Centavos.de(this.taxaFrete)));
 	}
 	
 	public void statusConfirmado() {
@@ -115,6 +123,23 @@ public class Pedido extends AbstractAggregateRoot<Pedido> {
 		registerEvent(new PedidoCanceladoEvent(this));
 	}
 	
+	/*
+	 * Reflete na instância a alteração já gravada pelo update em massa do PedidoService, com a mesma data do update,
+	 * para os eventos levarem o pedido igual ao save de um pedido só. Não registra eventos, quem publica é o service,
+	 * e a instância lida como somente leitura não é gravada de novo.
+	 */
+	public void aplicarStatusAlteradoEmMassa(StatusPedido novoStatus, OffsetDateTime dataAlteracao) {
+		setStatus(novoStatus);
+
+		if (novoStatus == StatusPedido.CONFIRMADO) {
+			setDataConfirmacao(dataAlteracao);
+		} else if (novoStatus == StatusPedido.ENTREGUE) {
+			setDataEntrega(dataAlteracao);
+		} else if (novoStatus == StatusPedido.CANCELADO) {
+			setDataCancelamento(dataAlteracao);
+		}
+	}
+
 	/*
 	 * É private para que apenas seja chamado dentro da classe, como a entidade é rica, as tratativas ficam nela mesma.
 	 */
@@ -130,10 +155,15 @@ public class Pedido extends AbstractAggregateRoot<Pedido> {
 	 * Método de callback do JPA, é executado em alguns eventos do ciclo de vida das entidades
 	 * um dos eventos é o @PrePersist, ele vai fazer com que antes de persistir a entidade esse
 	 * método seja executado, antes de fazer o insert no caso.
+	 * 
+	 * O código vem do GeradorCodigoPedido no PedidoService. Não existe mais um UUID aleatório gerado aqui: um caminho
+	 * que esquecesse o gerador gravaria códigos fora da ordem de tempo sem ninguém perceber, então falha no insert.
 	 */
 	@PrePersist
-	public void gerarCodigo() {
-		setCodigo(UUID.randomUUID().toString());
+	public void verificarCodigo() {
+		if (getCodigo() == null) {
+			throw new IllegalStateException("Pedido sem código, o código deve ser gerado pelo GeradorCodigoPedido");
+		}
 	}
 
 	public Boolean podeSerConfirmado() {
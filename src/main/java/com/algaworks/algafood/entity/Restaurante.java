@@ -7,7 +7,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -93,6 +95,13 @@ public class Restaurante {
 	)
 	private Set<Usuario> responsaveis = new HashSet<>();
 	
+	/*
+	 * Horários da semana em que o restaurante abre sozinho, sem horários só abre e fecha pelo abrir/fechar
+	 */
+	@ElementCollection
+	@CollectionTable(name = "restaurante_horario_funcionamento", joinColumns = @JoinColumn(name = "restaurante_id"))
+	private List<HorarioFuncionamento> horariosFuncionamento = new ArrayList<>();
+	
 	
 	// TODO: refatorar para gravar a data da atualização
 	public void ativar() {
@@ -136,6 +145,11 @@ public class Restaurante {
 		setAberto(true);
 	}
 	
+	public void substituirHorariosFuncionamento(List<HorarioFuncionamento> horarios) {
+		this.horariosFuncionamento.clear();
+		this.horariosFuncionamento.addAll(horarios);
+	}
+	
 	public void vincularResponsavel(Usuario responsavel) {
 		this.responsaveis.add(responsavel);
 	}
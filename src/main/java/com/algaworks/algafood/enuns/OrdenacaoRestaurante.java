@@ -0,0 +1,6 @@
+package com.algaworks.algafood.enuns;
+
+public enum OrdenacaoRestaurante {
+    NOME,
+    TAXA_FRETE;
+}
@@ -0,0 +1,17 @@
+package com.algaworks.algafood.enuns;
+
+/*
+    Situação de um pedido recebido de forma assíncrona enquanto ele passa pelas etapas do RecebimentoPedidoPipeline
+ */
+public enum SituacaoRecebimentoPedido {
+    NA_FILA,
+    VALIDANDO,
+    PRECIFICANDO,
+    GRAVANDO,
+    CRIADO,
+    REJEITADO;
+
+    public boolean isFinalizado() {
+        return this == CRIADO || this == REJEITADO;
+    }
+}
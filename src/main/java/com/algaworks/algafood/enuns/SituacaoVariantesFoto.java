@@ -0,0 +1,12 @@
+package com.algaworks.algafood.enuns;
+
+/*
+    Situação da geração das variantes (fotos redimensionadas) de uma foto de produto pelo VariantesFotoProdutoService.
+    Fotos enviadas antes das variantes existirem ficam com a situação null e sem variantes.
+ */
+public enum SituacaoVariantesFoto {
+    PENDENTE,
+    PROCESSANDO,
+    CONCLUIDA,
+    FALHA
+}
@@ -0,0 +1,7 @@
+package com.algaworks.algafood.enuns;
+
+public enum StatusNotificacaoPedido {
+    PENDENTE,
+    ENVIADA,
+    FALHA
+}
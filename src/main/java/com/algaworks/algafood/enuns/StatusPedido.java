@@ -1,7 +1,7 @@
 package com.algaworks.algafood.enuns;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.Set;
 
 public enum StatusPedido {
 	CRIADO("Criado"),
@@ -10,26 +10,56 @@ public enum StatusPedido {
 	CANCELADO("Cancelado", CRIADO);
 	
 	private String descricao;
-	private List<StatusPedido> statusAnteriores;
+	private StatusPedido[] anteriores;
+	
+	/*
+	 * Matriz de transições, para cada status o conjunto de status para os quais ele pode ir e de onde ele pode vir.
+	 * O EnumSet guarda os valores como bits de um long, assim o podeAlterarPara é só um teste de bit ao invés
+	 * de percorrer uma lista. Precisa ser montado no bloco static porque dentro do construtor do enum os valores
+	 * ainda não existem para criar um EnumSet.
+	 */
+	private EnumSet<StatusPedido> statusAnteriores;
+	private EnumSet<StatusPedido> proximosStatus;
+	
+	static {
+		for (StatusPedido status : values()) {
+			status.statusAnteriores = EnumSet.noneOf(StatusPedido.class);
+			status.proximosStatus = EnumSet.noneOf(StatusPedido.class);
+		}
+		
+		for (StatusPedido status : values()) {
+			for (StatusPedido anterior : status.anteriores) {
+				status.statusAnteriores.add(anterior);
+				anterior.proximosStatus.add(status);
+			}
+		}
+	}
 	
 	/*
 	 * É usado o varArgs StatusPedido... statusAnteriores porque pode ser passado nenhum, ou mais do que um.
 	 */
 	private StatusPedido(String descricao, StatusPedido... statusAnteriores) {
 		this.descricao = descricao;
-		this.statusAnteriores = Arrays.asList(statusAnteriores);
+		this.anteriores = statusAnteriores;
 	}
 	
 	public String getDescricao() {
 		return this.descricao;
 	}
 	
+	/*
+	 * Status de onde é permitido chegar neste, usado no where das alterações de status em massa
+	 */
+	public Set<StatusPedido> getStatusAnteriores() {
+		return EnumSet.copyOf(statusAnteriores);
+	}
+	
 	public boolean podeAlterarPara(StatusPedido novoStatus) {
 		/*
-		 * O this é o status que está sendo passado, por exemplo, se na chamada o status passado for CANCELADO o this é esse valor
-		 * no caso a lista de statusAnterioes vai conter o status CRIADO.
+		 * O this é o status atual do pedido, por exemplo, se o pedido está CRIADO o conjunto de próximos status
+		 * contém CONFIRMADO e CANCELADO.
 		 */
-		return novoStatus.statusAnteriores.contains(this);
+		return proximosStatus.contains(novoStatus);
 	}
 	
 }
@@ -0,0 +1,6 @@
+package com.algaworks.algafood.enuns;
+
+public enum TipoGeradorCodigoPedido {
+    UUID_ALEATORIO,
+    UUID_V7;
+}
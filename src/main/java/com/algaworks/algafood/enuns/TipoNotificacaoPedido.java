@@ -0,0 +1,21 @@
+package com.algaworks.algafood.enuns;
+
+import lombok.Getter;
+
+/*
+    Tipos de notificação enviadas ao cliente quando o pedido muda de status, com o template do e-mail
+    e o final do assunto (o começo é o nome do restaurante)
+ */
+@Getter
+public enum TipoNotificacaoPedido {
+    CONFIRMADO("pedido-confirmado.html", " - Pedido confirmado!"),
+    CANCELADO("pedido-cancelado.html", " - Pedido cancelado!");
+
+    private String template;
+    private String assunto;
+
+    TipoNotificacaoPedido(String template, String assunto) {
+        this.template = template;
+        this.assunto = assunto;
+    }
+}
@@ -14,7 +14,8 @@ public enum TipoProblema {
 	NEGOCIO("Negócio", "/negocio"),
 	PARAMETRO_INVALIDO("Parâmetro Inválido", "/parametro-invalido"),
 	ERRO_DE_SISTEMA("Erro de Sistema", "/erro-de-sistema"),
-	DADOS_INVALIDOS("Dados Inválidos", "/dados-invalidos");
+	DADOS_INVALIDOS("Dados Inválidos", "/dados-invalidos"),
+	CAPACIDADE_EXCEDIDA("Capacidade Excedida", "/capacidade-excedida");
 	
 	private String titulo;
 	private String uri;
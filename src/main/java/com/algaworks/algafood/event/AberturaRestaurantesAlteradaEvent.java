@@ -0,0 +1,20 @@
+package com.algaworks.algafood.event;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+    Publicado quando os horários de funcionamento abrem e fecham restaurantes em massa, só o campo aberto mudou
+    e quem guarda restaurantes em memória atualiza só os ids informados, sem remontar tudo
+ */
+@Getter
+@AllArgsConstructor
+public class AberturaRestaurantesAlteradaEvent {
+
+    private List<Long> abertos;
+
+    private List<Long> fechados;
+
+}
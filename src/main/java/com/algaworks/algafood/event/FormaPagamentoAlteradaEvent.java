@@ -0,0 +1,12 @@
+package com.algaworks.algafood.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FormaPagamentoAlteradaEvent {
+
+    private Long formaPagamentoId;
+
+}
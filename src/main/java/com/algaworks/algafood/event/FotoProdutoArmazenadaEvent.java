@@ -0,0 +1,18 @@
+package com.algaworks.algafood.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+    Publicado quando uma foto nova de produto é armazenada, as variantes são geradas depois do commit
+ */
+@Getter
+@AllArgsConstructor
+public class FotoProdutoArmazenadaEvent {
+
+    private Long restauranteId;
+    private Long produtoId;
+    private String nomeArquivo;
+    private String contentType;
+
+}
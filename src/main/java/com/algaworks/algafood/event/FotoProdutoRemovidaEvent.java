@@ -0,0 +1,16 @@
+package com.algaworks.algafood.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+    Publicado quando uma foto de produto armazenada pelo conteúdo deixa de ser usada pelo produto, o arquivo só é
+    apagado depois do commit se nenhum outro produto usar a mesma foto
+ */
+@Getter
+@AllArgsConstructor
+public class FotoProdutoRemovidaEvent {
+
+    private String nomeArquivo;
+
+}
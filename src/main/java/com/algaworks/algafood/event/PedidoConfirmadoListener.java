@@ -1,11 +1,8 @@
 package com.algaworks.algafood.event;
 
-import com.algaworks.algafood.entity.Pedido;
-import com.algaworks.algafood.mail.Email;
-import com.algaworks.algafood.mail.EnvioEmailService;
-import lombok.var;
+import com.algaworks.algafood.enuns.TipoNotificacaoPedido;
+import com.algaworks.algafood.service.NotificacaoPedidoService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
@@ -14,7 +11,7 @@ import org.springframework.transaction.event.TransactionalEventListener;
 public class PedidoConfirmadoListener {
 
     @Autowired
-    private EnvioEmailService envioEmailService;
+    private NotificacaoPedidoService notificacaoPedidoService;
 
     /*
         O método é chamado automáticamente pelo spring pois fica ouvindo os eventos nesse caso esse evento é disparado ao
@@ -27,20 +24,14 @@ public class PedidoConfirmadoListener {
         Nesse caso informado o BEFORE_COMMIT o método só é executado antes de ser feito o commit, caso de algum erro é feito rollback
         Aí fica a critério da necessidade da api, caso o método a ser chamado não seja tão importante pode ser deixado o padrão.
         como no exemplo abaixo é só um envio de email, poderia ser deixado sem phase que seria a default AFTER_COMMIT
+
+        O e-mail não é mais enviado aqui: no BEFORE_COMMIT o template e o SMTP seguravam a conexão e os locks do pedido.
+        Agora só é gravada a notificação na tabela notificacao_pedido (outbox), na mesma transação, e o
+        NotificacaoPedidoService envia depois. Se o pedido sofrer rollback a notificação também some.
      */
     @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
     public void pedidoConfirmado(PedidoConfirmadoEvent pedidoConfirmadoEvent) {
-
-        Pedido pedido = pedidoConfirmadoEvent.getPedido();
-
-        var email = Email.builder()
-                .assunto(pedido.getRestaurante().getNome() + " - Pedido confirmado!")
-                .corpo("pedido-confirmado.html")
-                .variavel("pedido", pedido)
-                .destinatario(pedido.getUsuarioCliente().getEmail())
-                .build();
-
-        envioEmailService.enviar(email);
+        notificacaoPedidoService.registrar(pedidoConfirmadoEvent.getPedido(), TipoNotificacaoPedido.CONFIRMADO);
     }
 
 }
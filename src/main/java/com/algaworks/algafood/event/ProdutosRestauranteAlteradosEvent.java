@@ -0,0 +1,15 @@
+package com.algaworks.algafood.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+    Publicado quando um produto do restaurante ou a foto de um produto é incluído, alterado ou removido
+ */
+@Getter
+@AllArgsConstructor
+public class ProdutosRestauranteAlteradosEvent {
+
+    private Long restauranteId;
+
+}
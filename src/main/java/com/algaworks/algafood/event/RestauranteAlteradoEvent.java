@@ -0,0 +1,15 @@
+package com.algaworks.algafood.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+    O restauranteId fica null quando vários restaurantes foram alterados de uma vez (ativarTodos/desativarTodos)
+ */
+@Getter
+@AllArgsConstructor
+public class RestauranteAlteradoEvent {
+
+    private Long restauranteId;
+
+}
@@ -0,0 +1,19 @@
+package com.algaworks.algafood.exception;
+
+import lombok.Getter;
+
+/*
+ * Lançada quando a api não tem capacidade para aceitar mais trabalho no momento, vira um 429 com o Retry-After
+ */
+@Getter
+public class CapacidadeExcedidaException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final long segundosParaNovaTentativa;
+
+	public CapacidadeExcedidaException(String mensagem, long segundosParaNovaTentativa) {
+		super(mensagem);
+		this.segundosParaNovaTentativa = segundosParaNovaTentativa;
+	}
+
+}
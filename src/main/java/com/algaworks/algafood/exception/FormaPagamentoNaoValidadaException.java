@@ -14,4 +14,8 @@ public class FormaPagamentoNaoValidadaException extends NegocioException {
 		this(String.format("O restaurante %s não aceita a forma de pagamento %s", restaurante.getNome(), formaPagamentoRecebida.getDescricao() ));
 	}
 	
+	public FormaPagamentoNaoValidadaException(String nomeRestaurante, String descricaoFormaPagamento) {
+		this(String.format("O restaurante %s não aceita a forma de pagamento %s", nomeRestaurante, descricaoFormaPagamento));
+	}
+	
 }
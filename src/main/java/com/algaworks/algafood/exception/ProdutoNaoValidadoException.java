@@ -11,7 +11,11 @@ public class ProdutoNaoValidadoException extends NegocioException {
 	}
 	
 	public ProdutoNaoValidadoException(Produto produto, Restaurante restaurante) {
-		this(String.format("O produto %d não pertence ao restaurante %d", produto.getDescricao(), restaurante.getNome()));
+		this(String.format("O produto %s não pertence ao restaurante %s", produto.getDescricao(), restaurante.getNome()));
+	}
+	
+	public ProdutoNaoValidadoException(Long produtoId, String nomeRestaurante) {
+		this(String.format("O produto %d não existe, está inativo ou não pertence ao restaurante %s", produtoId, nomeRestaurante));
 	}
 
 }
@@ -97,6 +97,20 @@ public class TrataExcecoesDaAPI extends ResponseEntityExceptionHandler {
 		return handleExceptionInternal(ex, problema, new HttpHeaders(), status, request);		
 	}
 	
+	/*
+	 * O Retry-After informa em quantos segundos o cliente pode tentar de novo
+	 */
+	@ExceptionHandler(CapacidadeExcedidaException.class)
+	public ResponseEntity<?> tratarCapacidadeExcedidaException( CapacidadeExcedidaException ex, WebRequest request ) {
+		HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+		Problema problema = criarUmProblema(status, TipoProblema.CAPACIDADE_EXCEDIDA, ex.getMessage())
+									.mensagemParaUsuario(ex.getMessage())
+									.build();
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getSegundosParaNovaTentativa()));
+		return handleExceptionInternal(ex, problema, headers, status, request);
+	}
+	
 	@ExceptionHandler(MethodArgumentTypeMismatchException.class)
 	public ResponseEntity<?> tratarMethodArgumentTypeMismatchException( MethodArgumentTypeMismatchException ex, WebRequest request ) {
 		HttpStatus status = HttpStatus.BAD_REQUEST;
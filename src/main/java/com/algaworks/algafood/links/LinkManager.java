@@ -5,7 +5,11 @@ import com.algaworks.algafood.dto.*;
 import com.algaworks.algafood.entity.Estado;
 import com.algaworks.algafood.entity.Pedido;
 import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.enuns.OrdenacaoRestaurante;
+import com.algaworks.algafood.enuns.SituacaoRecebimentoPedido;
 import lombok.var;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.TemplateVariable;
 import org.springframework.hateoas.TemplateVariables;
@@ -58,6 +62,33 @@ public class LinkManager {
 
     }
 
+    /*
+        O next só é adicionado quando existe uma próxima página, do mesmo jeito que o PagedResourcesAssembler faz
+        na listagem paginada por offset
+     */
+    public CollectionModel<PedidoResumoDTO> linkToPedidosResumidosPorCursor(CollectionModel<PedidoResumoDTO> pedidos, String cursor, String proximoCursor, int size) {
+        pedidos.add(linkTo(methodOn(PedidoController.class).listarResumidoPorCursor(cursor, size)).withSelfRel());
+
+        if (proximoCursor != null) {
+            pedidos.add(linkTo(methodOn(PedidoController.class).listarResumidoPorCursor(proximoCursor, size)).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return pedidos;
+    }
+
+    /*
+        O link para o pedido só existe depois que ele foi gravado
+     */
+    public RecebimentoPedidoDTO linkToRecebimentoPedido(RecebimentoPedidoDTO recebimentoDTO) {
+        recebimentoDTO.add(linkTo(methodOn(PedidoController.class).buscarRecebimento(recebimentoDTO.getCodigo())).withSelfRel());
+
+        if (SituacaoRecebimentoPedido.CRIADO.equals(recebimentoDTO.getSituacao())) {
+            recebimentoDTO.add(linkTo(methodOn(PedidoController.class).buscarDtoPorCodigo(recebimentoDTO.getCodigo())).withRel("pedido"));
+        }
+
+        return recebimentoDTO;
+    }
+
     public PedidoDTO linkToPedido(PedidoDTO pedidoDTO, Pedido pedido) {
         // Pedido
         var linkBuscarPorId = linkTo(methodOn(PedidoController.class).buscarDtoPorCodigo(pedido.getCodigo())).withSelfRel();
@@ -118,7 +149,7 @@ public class LinkManager {
 
     public RestauranteRetornoDTO linkToRestaurante(RestauranteRetornoDTO restauranteRetornoDTO, Restaurante restaurante) {
         var linkBuscarPorId = linkTo(methodOn(RestauranteController.class).buscarPorId(restaurante.getId())).withSelfRel();
-        var linkListar = linkTo(methodOn(RestauranteController.class).listar()).withRel("listar");
+        var linkListar = linkTo(RestauranteController.class).withRel("listar");
 
         restauranteRetornoDTO.add(linkBuscarPorId);
         restauranteRetornoDTO.add(linkListar);
@@ -126,6 +157,20 @@ public class LinkManager {
         return restauranteRetornoDTO;
     }
 
+    /*
+        Mesmo formato da listagem de pedidos por cursor, o next só existe quando há uma próxima página
+     */
+    public CollectionModel<RestauranteRetornoDTO> linkToRestaurantesPorCursor(CollectionModel<RestauranteRetornoDTO> restaurantes, String cursor,
+            OrdenacaoRestaurante ordenacao, String proximoCursor, int size) {
+        restaurantes.add(linkTo(methodOn(RestauranteController.class).listar(cursor, ordenacao, size)).withSelfRel());
+
+        if (proximoCursor != null) {
+            restaurantes.add(linkTo(methodOn(RestauranteController.class).listar(proximoCursor, ordenacao, size)).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return restaurantes;
+    }
+
     public UsuarioDTO linkToUsuario(UsuarioDTO usuarioDTO) {
         Link linkBuscarPorId = linkTo(methodOn(UsuarioController.class).buscarPorId(usuarioDTO.getId())).withSelfRel();
         Link linkListar = linkTo(methodOn(UsuarioController.class).listar()).withRel("lista");
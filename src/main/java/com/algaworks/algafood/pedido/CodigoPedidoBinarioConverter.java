@@ -0,0 +1,48 @@
+package com.algaworks.algafood.pedido;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/*
+    Usado apenas quando a coluna pedido.codigo é convertida para binary(16) (migração opcional em db/opcional/codigo-binario),
+    é aplicado ao Pedido pelo META-INF/orm-codigo-binario.xml. Na aplicação o código continua sendo o texto do UUID,
+    só o que vai para o banco são os 16 bytes, na mesma ordem do texto, então a ordem por tempo do UUID v7 é mantida.
+ */
+@Converter
+public class CodigoPedidoBinarioConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String codigo) {
+        return paraBytes(codigo);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return paraTexto(bytes);
+    }
+
+    public static byte[] paraBytes(String codigo) {
+        if (codigo == null) {
+            return null;
+        }
+
+        UUID uuid = UUID.fromString(codigo);
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static String paraTexto(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.algaworks.algafood.pedido;
+
+/*
+    Gera o código público do pedido (coluna codigo), sempre no formato texto de UUID com 36 caracteres
+ */
+public interface GeradorCodigoPedido {
+
+    String gerar();
+
+}
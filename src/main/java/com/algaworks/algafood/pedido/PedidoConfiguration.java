@@ -0,0 +1,31 @@
+package com.algaworks.algafood.pedido;
+
+import com.algaworks.algafood.enuns.TipoGeradorCodigoPedido;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/*
+    O @EnableScheduling ativa os @Scheduled, usados no envio das notificações de pedido (NotificacaoPedidoService)
+ */
+@Configuration
+@EnableScheduling
+public class PedidoConfiguration {
+
+    @Autowired
+    private PedidoProperties pedidoProperties;
+
+    /*
+        Define qual gerador de código de pedido vai ser usado, configurado no application.properties
+     */
+    @Bean
+    public GeradorCodigoPedido geradorCodigoPedido() {
+        if (TipoGeradorCodigoPedido.UUID_ALEATORIO.equals(pedidoProperties.getCodigo().getGerador())) {
+            return new UuidAleatorioGeradorCodigoPedido();
+        } else {
+            return new UuidV7GeradorCodigoPedido();
+        }
+    }
+
+}
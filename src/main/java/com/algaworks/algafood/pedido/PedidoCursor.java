@@ -0,0 +1,61 @@
+package com.algaworks.algafood.pedido;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.algaworks.algafood.entity.Pedido;
+import com.algaworks.algafood.exception.NegocioException;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Posição da listagem de pedidos por cursor (keyset), guarda a data de criação e o id do último pedido entregue,
+ * a próxima página começa logo depois dele. Para o cliente é só um texto opaco em base64, o formato interno
+ * pode mudar sem quebrar quem consome a API.
+ */
+@Getter
+@AllArgsConstructor
+public class PedidoCursor {
+
+	private static final String MSG_CURSOR_INVALIDO = "O cursor %s informado é inválido";
+
+	private final OffsetDateTime dataCriacao;
+	private final Long id;
+
+	public static PedidoCursor posicaoDo(Pedido pedido) {
+		return new PedidoCursor(pedido.getDataCriacao(), pedido.getId());
+	}
+
+	public String codificar() {
+		Instant instante = dataCriacao.toInstant();
+		String posicao = instante.getEpochSecond() + "." + instante.getNano() + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(posicao.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * Cursor em branco indica a primeira página, por isso devolve null.
+	 */
+	public static PedidoCursor decodificar(String cursor) {
+		if (StringUtils.isBlank(cursor)) {
+			return null;
+		}
+
+		try {
+			String posicao = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] dataEId = posicao.split(":");
+			String[] segundosENanos = dataEId[0].split("\\.");
+
+			Instant instante = Instant.ofEpochSecond(Long.parseLong(segundosENanos[0]), Long.parseLong(segundosENanos[1]));
+			return new PedidoCursor(OffsetDateTime.ofInstant(instante, ZoneOffset.UTC), Long.valueOf(dataEId[1]));
+		} catch (RuntimeException e) {
+			throw new NegocioException(String.format(MSG_CURSOR_INVALIDO, cursor), e);
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.algaworks.algafood.pedido;
+
+import com.algaworks.algafood.enuns.TipoGeradorCodigoPedido;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/*
+    Configurações dos pedidos definidas no application.properties com o prefixo algafood.pedido
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("algafood.pedido")
+public class PedidoProperties {
+
+    private Lote lote = new Lote();
+
+    private Cursor cursor = new Cursor();
+
+    private Exportacao exportacao = new Exportacao();
+
+    private Codigo codigo = new Codigo();
+
+    private Notificacao notificacao = new Notificacao();
+
+    private Recebimento recebimento = new Recebimento();
+
+    /*
+        algafood.pedido.lote.tamanhoMaximo - quantidade máxima de pedidos aceitos em uma requisição de lote
+        algafood.pedido.lote.tamanhoBatchJdbc - quantidade de inserts enviados por vez ao banco no executeBatch
+     */
+    @Getter
+    @Setter
+    public class Lote {
+        private int tamanhoMaximo = 500;
+        private int tamanhoBatchJdbc = 100;
+    }
+
+    /*
+        algafood.pedido.cursor.tamanhoMaximoPagina - maior quantidade de pedidos por página na listagem por cursor
+     */
+    @Getter
+    @Setter
+    public class Cursor {
+        private int tamanhoMaximoPagina = 100;
+    }
+
+    /*
+        algafood.pedido.exportacao.tamanhoFetch - quantidade de linhas que o driver busca do banco por vez no export ndjson
+        algafood.pedido.exportacao.tamanhoBloco - quantidade de pedidos escritos antes de limpar o contexto de persistência
+        algafood.pedido.exportacao.conexoes - conexões com useCursorFetch, só do export, é o máximo de exports ao mesmo tempo
+        algafood.pedido.exportacao.tempoLimite - tempo limite assíncrono da requisição do export
+     */
+    @Getter
+    @Setter
+    public class Exportacao {
+        private int tamanhoFetch = 500;
+        private int tamanhoBloco = 100;
+        private int conexoes = 2;
+        private Duration tempoLimite = Duration.ofMinutes(10);
+    }
+
+    /*
+        algafood.pedido.codigo.gerador - UUID_V7 (ordenado por tempo) ou UUID_ALEATORIO
+        algafood.pedido.codigo.armazenamentoBinario - true quando a coluna pedido.codigo foi convertida para binary(16)
+     */
+    @Getter
+    @Setter
+    public class Codigo {
+        private TipoGeradorCodigoPedido gerador = TipoGeradorCodigoPedido.UUID_V7;
+        private boolean armazenamentoBinario = false;
+    }
+
+    /*
+        algafood.pedido.notificacao.intervaloEnvio - milissegundos entre o fim de um envio das notificações pendentes e o início do próximo
+        algafood.pedido.notificacao.tamanhoLote - quantidade de notificações lidas do banco em cada envio
+        algafood.pedido.notificacao.maximoTentativas - tentativas antes da notificação ficar com status FALHA
+        algafood.pedido.notificacao.intervaloRetentativa - espera após a primeira falha, dobra a cada nova falha
+        algafood.pedido.notificacao.diasRetencao - dias que as notificações enviadas ficam na tabela antes de serem removidas
+     */
+    @Getter
+    @Setter
+    public class Notificacao {
+        private long intervaloEnvio = 5000;
+        private int tamanhoLote = 50;
+        private int maximoTentativas = 5;
+        private Duration intervaloRetentativa = Duration.ofSeconds(30);
+        private int diasRetencao = 7;
+    }
+
+    /*
+        algafood.pedido.recebimento.capacidade - máximo de pedidos assíncronos em processamento, acima disso a api responde 429
+        algafood.pedido.recebimento.threadsValidacao/threadsPrecificacao/threadsGravacao - threads de cada etapa, as de
+            validação e gravação usam conexões do banco e somadas devem ficar abaixo do maximum-pool-size do Hikari
+        algafood.pedido.recebimento.esperaSugerida - tempo informado no Retry-After quando a capacidade é excedida
+        algafood.pedido.recebimento.tempoRetencaoSituacao - tempo que a situação de um pedido finalizado fica em memória
+        algafood.pedido.recebimento.tempoEncerramento - espera pelos pedidos em andamento ao parar a api
+     */
+    @Getter
+    @Setter
+    public class Recebimento {
+        private int capacidade = 200;
+        private int threadsValidacao = 2;
+        private int threadsPrecificacao = 1;
+        private int threadsGravacao = 2;
+        private Duration esperaSugerida = Duration.ofSeconds(5);
+        private Duration tempoRetencaoSituacao = Duration.ofMinutes(10);
+        private Duration tempoEncerramento = Duration.ofSeconds(10);
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.algaworks.algafood.pedido;
+
+import java.time.OffsetDateTime;
+
+import com.algaworks.algafood.enuns.SituacaoRecebimentoPedido;
+
+import lombok.Getter;
+
+/*
+ * Acompanhamento de um pedido recebido de forma assíncrona, consultado pelo cliente no link devolvido com o 202.
+ * É alterado pelas threads das etapas e lido pelas requisições, por isso os campos são volatile.
+ */
+@Getter
+public class RecebimentoPedido {
+
+	private final String codigo;
+	private volatile SituacaoRecebimentoPedido situacao = SituacaoRecebimentoPedido.NA_FILA;
+	private volatile String motivo;
+	private volatile OffsetDateTime dataAtualizacao = OffsetDateTime.now();
+
+	public RecebimentoPedido(String codigo) {
+		this.codigo = codigo;
+	}
+
+	void atualizar(SituacaoRecebimentoPedido situacao) {
+		this.situacao = situacao;
+		this.dataAtualizacao = OffsetDateTime.now();
+	}
+
+	void rejeitar(String motivo) {
+		this.motivo = motivo;
+		atualizar(SituacaoRecebimentoPedido.REJEITADO);
+	}
+
+	/*
+	 * Usado quando o pedido já não está mais em memória mas foi encontrado no banco
+	 */
+	public static RecebimentoPedido criado(String codigo) {
+		RecebimentoPedido recebimento = new RecebimentoPedido(codigo);
+		recebimento.atualizar(SituacaoRecebimentoPedido.CRIADO);
+		return recebimento;
+	}
+
+}
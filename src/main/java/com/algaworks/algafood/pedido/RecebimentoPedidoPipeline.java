@@ -0,0 +1,198 @@
+package com.algaworks.algafood.pedido;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.algaworks.algafood.entity.Pedido;
+import com.algaworks.algafood.enuns.SituacaoRecebimentoPedido;
+import com.algaworks.algafood.exception.CapacidadeExcedidaException;
+import com.algaworks.algafood.exception.NegocioException;
+import com.algaworks.algafood.pedido.ValidacaoPedidoCache.RestauranteValidacao;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Recebimento assíncrono de pedidos em três etapas, validação → precificação → gravação, cada uma com o seu pool
+ * de threads. Assim a thread da requisição só converte o pedido e coloca na fila, e a quantidade de threads que
+ * usam o banco ao mesmo tempo fica limitada pelos pools de validação e gravação, abaixo do pool do Hikari.
+ *
+ * A capacidade é controlada por um semáforo com o total de pedidos dentro do pipeline (em fila ou em alguma
+ * etapa), quando não existe vaga o pedido é recusado na hora com CapacidadeExcedidaException (429) ao invés de
+ * esperar. A vaga só é liberada quando o pedido termina, criado ou rejeitado.
+ *
+ * As situações ficam em memória durante o tempoRetencaoSituacao depois de finalizadas, depois disso a consulta
+ * vai ao banco. Pedidos que estavam no pipeline são perdidos se a api for parada antes de gravá-los.
+ */
+@Slf4j
+public class RecebimentoPedidoPipeline {
+
+	private static final String MSG_CAPACIDADE_EXCEDIDA = "O recebimento de pedidos está com a capacidade máxima de %d pedidos em processamento, tente novamente em alguns segundos";
+	private static final String MSG_ERRO_INTERNO = "Erro interno ao processar o pedido";
+
+	/*
+	 * As etapas são implementadas pelo PedidoService, que cria o pipeline
+	 */
+	public interface Etapas {
+
+		RestauranteValidacao validar(Pedido pedido);
+
+		void precificar(Pedido pedido, RestauranteValidacao restaurante);
+
+		void gravar(Pedido pedido);
+
+	}
+
+	private final Etapas etapas;
+	private final PedidoProperties.Recebimento configuracao;
+
+	private final Semaphore vagas;
+	private final ExecutorService validacao;
+	private final ExecutorService precificacao;
+	private final ExecutorService gravacao;
+
+	private final Map<String, RecebimentoPedido> recebimentos = new ConcurrentHashMap<>();
+	private final Queue<RecebimentoPedido> finalizados = new ConcurrentLinkedQueue<>();
+
+	public RecebimentoPedidoPipeline(Etapas etapas, PedidoProperties.Recebimento configuracao) {
+		this.etapas = etapas;
+		this.configuracao = configuracao;
+		this.vagas = new Semaphore(configuracao.getCapacidade());
+		this.validacao = criarPool("pedido-validacao-", configuracao.getThreadsValidacao());
+		this.precificacao = criarPool("pedido-precificacao-", configuracao.getThreadsPrecificacao());
+		this.gravacao = criarPool("pedido-gravacao-", configuracao.getThreadsGravacao());
+	}
+
+	/*
+	 * A fila de cada pool não tem limite próprio porque o semáforo já limita o total de pedidos no pipeline
+	 */
+	private static ExecutorService criarPool(String prefixo, int threads) {
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory(prefixo));
+	}
+
+	/*
+	 * O pedido já deve estar com o código, é por ele que o cliente acompanha a situação
+	 */
+	public RecebimentoPedido enfileirar(Pedido pedido) {
+		removerFinalizadosExpirados();
+
+		if (!vagas.tryAcquire()) {
+			throw capacidadeExcedida();
+		}
+
+		RecebimentoPedido recebimento = new RecebimentoPedido(pedido.getCodigo());
+		recebimentos.put(recebimento.getCodigo(), recebimento);
+
+		try {
+			validacao.execute(() -> validar(pedido, recebimento));
+		} catch (RejectedExecutionException e) {
+			recebimentos.remove(recebimento.getCodigo());
+			vagas.release();
+			throw capacidadeExcedida();
+		}
+
+		return recebimento;
+	}
+
+	public RecebimentoPedido buscar(String codigo) {
+		return recebimentos.get(codigo);
+	}
+
+	/*
+	 * Os pools são encerrados na ordem das etapas, cada um só depois do anterior terminar, senão um pedido que
+	 * acabou de ser validado seria recusado pela precificação já encerrada. Todos dividem o tempoEncerramento.
+	 */
+	public void encerrar() {
+		long limite = System.nanoTime() + configuracao.getTempoEncerramento().toNanos();
+
+		try {
+			for (ExecutorService etapa : new ExecutorService[] { validacao, precificacao, gravacao }) {
+				etapa.shutdown();
+				etapa.awaitTermination(Math.max(0L, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		log.info("Recebimento de pedidos encerrado com {} pedidos ainda no pipeline", configuracao.getCapacidade() - vagas.availablePermits());
+	}
+
+	private void validar(Pedido pedido, RecebimentoPedido recebimento) {
+		executarEtapa(recebimento, SituacaoRecebimentoPedido.VALIDANDO, () -> {
+			RestauranteValidacao restaurante = etapas.validar(pedido);
+			precificacao.execute(() -> precificar(pedido, restaurante, recebimento));
+		});
+	}
+
+	private void precificar(Pedido pedido, RestauranteValidacao restaurante, RecebimentoPedido recebimento) {
+		executarEtapa(recebimento, SituacaoRecebimentoPedido.PRECIFICANDO, () -> {
+			etapas.precificar(pedido, restaurante);
+			gravacao.execute(() -> gravar(pedido, recebimento));
+		});
+	}
+
+	private void gravar(Pedido pedido, RecebimentoPedido recebimento) {
+		executarEtapa(recebimento, SituacaoRecebimentoPedido.GRAVANDO, () -> {
+			etapas.gravar(pedido);
+			finalizar(recebimento, SituacaoRecebimentoPedido.CRIADO, null);
+		});
+	}
+
+	/*
+	 * Erros de negócio (produto inexistente, restaurante inativo...) viram o motivo da rejeição, os demais são
+	 * registrados no log e o cliente recebe uma mensagem genérica, igual ao tratamento das requisições síncronas.
+	 */
+	private void executarEtapa(RecebimentoPedido recebimento, SituacaoRecebimentoPedido situacao, Runnable etapa) {
+		recebimento.atualizar(situacao);
+
+		try {
+			etapa.run();
+		} catch (NegocioException e) {
+			finalizar(recebimento, SituacaoRecebimentoPedido.REJEITADO, e.getMessage());
+		} catch (Exception e) {
+			log.error("Erro na etapa {} do pedido {}", situacao, recebimento.getCodigo(), e);
+			finalizar(recebimento, SituacaoRecebimentoPedido.REJEITADO, MSG_ERRO_INTERNO);
+		}
+	}
+
+	private void finalizar(RecebimentoPedido recebimento, SituacaoRecebimentoPedido situacao, String motivo) {
+		if (situacao == SituacaoRecebimentoPedido.REJEITADO) {
+			recebimento.rejeitar(motivo);
+		} else {
+			recebimento.atualizar(situacao);
+		}
+
+		finalizados.add(recebimento);
+		vagas.release();
+	}
+
+	/*
+	 * Os finalizados entram na fila em ordem de finalização, basta olhar o início da fila até achar um que ainda
+	 * não expirou, sem precisar de uma thread só para a limpeza.
+	 */
+	private void removerFinalizadosExpirados() {
+		OffsetDateTime limite = OffsetDateTime.now().minus(configuracao.getTempoRetencaoSituacao());
+		RecebimentoPedido recebimento;
+
+		while ((recebimento = finalizados.peek()) != null && recebimento.getDataAtualizacao().isBefore(limite)) {
+			finalizados.poll();
+			recebimentos.remove(recebimento.getCodigo());
+		}
+	}
+
+	private CapacidadeExcedidaException capacidadeExcedida() {
+		return new CapacidadeExcedidaException(String.format(MSG_CAPACIDADE_EXCEDIDA, configuracao.getCapacidade()),
+				configuracao.getEsperaSugerida().getSeconds());
+	}
+
+}
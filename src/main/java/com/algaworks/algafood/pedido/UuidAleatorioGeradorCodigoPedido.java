@@ -0,0 +1,16 @@
+package com.algaworks.algafood.pedido;
+
+import java.util.UUID;
+
+/*
+    UUID versão 4, totalmente aleatório. Era o comportamento original do @PrePersist do Pedido, cada insert cai
+    numa posição qualquer do índice uk_pedido_codigo.
+ */
+public class UuidAleatorioGeradorCodigoPedido implements GeradorCodigoPedido {
+
+    @Override
+    public String gerar() {
+        return UUID.randomUUID().toString();
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.algaworks.algafood.pedido;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/*
+    UUID versão 7 (RFC 9562): os primeiros 48 bits são o instante em milissegundos, então os códigos gerados depois
+    são sempre maiores que os anteriores, tanto nos bytes quanto no texto. Os inserts vão para o final do índice
+    uk_pedido_codigo ao invés de espalhar pela árvore inteira, evitando divisão de páginas.
+
+    Layout: unix_ts_ms (48) | versão 7 (4) | contador (12) | variante (2) | aleatório (62)
+
+    O contador de 12 bits garante a ordem entre códigos gerados no mesmo milissegundo, se ele estourar o instante
+    avança 1ms. O mesmo vale se o relógio voltar, o último instante usado é mantido para não gerar código menor.
+ */
+public class UuidV7GeradorCodigoPedido implements GeradorCodigoPedido {
+
+    private static final int CONTADOR_MAXIMO = 0xFFF;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private long ultimoInstante = -1;
+
+    private int contador;
+
+    @Override
+    public String gerar() {
+        long bitsAleatorios = random.nextLong();
+        long mostSigBits;
+
+        synchronized (this) {
+            long instante = System.currentTimeMillis();
+
+            if (instante > ultimoInstante) {
+                ultimoInstante = instante;
+                contador = 0;
+            } else if (++contador > CONTADOR_MAXIMO) {
+                ultimoInstante++;
+                contador = 0;
+            }
+
+            mostSigBits = (ultimoInstante << 16) | (0x7L << 12) | contador;
+        }
+
+        long leastSigBits = (bitsAleatorios & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.algaworks.algafood.pedido;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.event.AberturaRestaurantesAlteradaEvent;
+import com.algaworks.algafood.event.CidadeAlteradaEvent;
+import com.algaworks.algafood.event.FormaPagamentoAlteradaEvent;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+import com.algaworks.algafood.repository.CidadeRepository;
+import com.algaworks.algafood.repository.FormaPagamentoRepository;
+import com.algaworks.algafood.repository.RestauranteRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Guarda em memória um retrato (snapshot) somente leitura dos dados que a validação de pedido consulta: situação
+ * do restaurante, formas de pagamento aceitas, cidades e formas de pagamento existentes. Esses dados mudam poucas
+ * vezes por hora enquanto pedidos chegam o tempo todo, assim a validação deixa de ir ao banco a cada pedido.
+ *
+ * Cada alteração confirmada incrementa a versão, o snapshot é remontado na próxima leitura que encontrar uma versão
+ * diferente da que ele foi montado. Leituras em andamento continuam usando o snapshot antigo, que é imutável.
+ *
+ * A abertura e o fechamento em massa pelos horários de funcionamento não remontam o snapshot, só trocam os
+ * restaurantes alterados numa cópia dele com a mesma versão.
+ */
+@Component
+public class ValidacaoPedidoCache {
+
+	@Autowired
+	private RestauranteRepository restauranteRepository;
+
+	@Autowired
+	private CidadeRepository cidadeRepository;
+
+	@Autowired
+	private FormaPagamentoRepository formaPagamentoRepository;
+
+	private final AtomicLong versao = new AtomicLong();
+
+	private volatile Snapshot snapshot;
+
+	public Snapshot getSnapshot() {
+		Snapshot atual = snapshot;
+
+		if (atual == null || atual.getVersao() != versao.get()) {
+			atual = recarregar();
+		}
+
+		return atual;
+	}
+
+	/*
+	 * Só uma thread remonta o snapshot por vez, as demais que chegarem aqui esperam e reaproveitam o que foi montado.
+	 * A versão é lida antes das consultas, se houver uma alteração durante a montagem o snapshot já nasce desatualizado
+	 * e é remontado na leitura seguinte.
+	 */
+	private synchronized Snapshot recarregar() {
+		long versaoAtual = versao.get();
+
+		if (snapshot != null && snapshot.getVersao() == versaoAtual) {
+			return snapshot;
+		}
+
+		Map<Long, RestauranteValidacao> restaurantes = new HashMap<>();
+		restauranteRepository.buscarDadosParaValidacaoPedido().forEach(linha -> {
+			Long id = (Long) linha[0];
+			restaurantes.put(id, new RestauranteValidacao(id, (String) linha[1], (BigDecimal) linha[2],
+					Boolean.TRUE.equals(linha[3]), Boolean.TRUE.equals(linha[4]), new BitSet()));
+		});
+
+		restauranteRepository.buscarFormasPagamentoAceitas().forEach(linha -> {
+			RestauranteValidacao restaurante = restaurantes.get((Long) linha[0]);
+
+			if (restaurante != null) {
+				restaurante.getFormasPagamento().set(((Long) linha[1]).intValue());
+			}
+		});
+
+		BitSet cidades = new BitSet();
+		cidadeRepository.buscarTodosIds().forEach(id -> cidades.set(id.intValue()));
+
+		Map<Long, String> formasPagamento = new HashMap<>();
+		formaPagamentoRepository.findAll().forEach(formaPagamento -> formasPagamento.put(formaPagamento.getId(), formaPagamento.getDescricao()));
+
+		snapshot = new Snapshot(versaoAtual, Collections.unmodifiableMap(restaurantes), cidades, Collections.unmodifiableMap(formasPagamento));
+		return snapshot;
+	}
+
+	public void invalidar() {
+		versao.incrementAndGet();
+	}
+
+	/*
+	 * Os eventos são publicados pelos services nas operações de escrita, o AFTER_COMMIT garante que o snapshot só é
+	 * invalidado quando a alteração já está visível no banco, e o fallbackExecution cobre chamadas fora de transação.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void restauranteAlterado(RestauranteAlteradoEvent event) {
+		invalidar();
+	}
+
+	/*
+	 * Sincronizado com a montagem, igual ao CatalogoRestauranteCache. Um snapshot desatualizado fica como está, a
+	 * próxima leitura remonta com o aberto do banco.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public synchronized void aberturaRestaurantesAlterada(AberturaRestaurantesAlteradaEvent event) {
+		Snapshot atual = snapshot;
+
+		if (atual == null || atual.getVersao() != versao.get()) {
+			return;
+		}
+
+		Map<Long, RestauranteValidacao> restaurantes = new HashMap<>(atual.getRestaurantes());
+		event.getAbertos().forEach(id -> restaurantes.computeIfPresent(id, (chave, restaurante) -> restaurante.comAberto(true)));
+		event.getFechados().forEach(id -> restaurantes.computeIfPresent(id, (chave, restaurante) -> restaurante.comAberto(false)));
+
+		snapshot = new Snapshot(atual.getVersao(), Collections.unmodifiableMap(restaurantes), atual.getCidades(), atual.getFormasPagamento());
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void cidadeAlterada(CidadeAlteradaEvent event) {
+		invalidar();
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void formaPagamentoAlterada(FormaPagamentoAlteradaEvent event) {
+		invalidar();
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class Snapshot {
+
+		private final long versao;
+		private final Map<Long, RestauranteValidacao> restaurantes;
+		private final BitSet cidades;
+		private final Map<Long, String> formasPagamento;
+
+		public RestauranteValidacao buscarRestaurante(Long restauranteId) {
+			return restaurantes.get(restauranteId);
+		}
+
+		public boolean existeCidade(Long cidadeId) {
+			return cabeNoBitSet(cidadeId) && cidades.get(cidadeId.intValue());
+		}
+
+		public String buscarDescricaoFormaPagamento(Long formaPagamentoId) {
+			return formasPagamento.get(formaPagamentoId);
+		}
+
+	}
+
+	/*
+	 * As formas de pagamento aceitas ficam num BitSet indexado pelo id, a verificação do pedido vira a leitura de um bit
+	 * ao invés de carregar a coleção formasPagamento do restaurante.
+	 */
+	@Getter
+	@AllArgsConstructor
+	public static class RestauranteValidacao {
+
+		private final Long id;
+		private final String nome;
+		private final BigDecimal taxaFrete;
+		private final boolean ativo;
+		private final boolean aberto;
+		private final BitSet formasPagamento;
+
+		public boolean aceitaFormaPagamento(Long formaPagamentoId) {
+			return cabeNoBitSet(formaPagamentoId) && formasPagamento.get(formaPagamentoId.intValue());
+		}
+
+		private RestauranteValidacao comAberto(boolean novoAberto) {
+			return new RestauranteValidacao(id, nome, taxaFrete, ativo, novoAberto, formasPagamento);
+		}
+
+	}
+
+	private static boolean cabeNoBitSet(Long id) {
+		return id != null && id >= 0 && id <= Integer.MAX_VALUE;
+	}
+
+}
@@ -1,6 +1,9 @@
 package com.algaworks.algafood.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.algaworks.algafood.entity.Cidade;
@@ -8,4 +11,7 @@ import com.algaworks.algafood.entity.Cidade;
 @Repository
 public interface CidadeRepository extends JpaRepository<Cidade, Long> {
 
+	@Query("select c.id from Cidade c")
+	List<Long> buscarTodosIds();
+
 }
\ No newline at end of file
@@ -1,10 +1,49 @@
 package com.algaworks.algafood.repository;
 
 import com.algaworks.algafood.entity.FotoProduto;
+import com.algaworks.algafood.enuns.SituacaoVariantesFoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface FotoProdutoRepository extends JpaRepository<FotoProduto, Long> {
 
+    /*
+        Com o endereçamento por conteúdo vários produtos apontam para o mesmo arquivo, as linhas com o mesmo
+        nome_arquivo são as referências a ele (idx_foto_produto_nome_arquivo)
+     */
+    long countByNomeArquivo(String nomeArquivo);
+
+    Optional<FotoProduto> findFirstByNomeArquivo(String nomeArquivo);
+
+    /*
+        Trava da foto pelo conteúdo até o fim da transação: cria a linha de foto_conteudo se não existir e, existindo,
+        o update sem alteração trava a linha do mesmo jeito. Vale entre todas as instâncias da api, que usam o mesmo banco
+     */
+    @Modifying
+    @Query(value = "insert into foto_conteudo (nome_arquivo) values (:nomeArquivo) "
+            + "on duplicate key update nome_arquivo = nome_arquivo", nativeQuery = true)
+    void bloquearConteudo(@Param("nomeArquivo") String nomeArquivo);
+
+    @Modifying
+    @Query(value = "delete from foto_conteudo where nome_arquivo = :nomeArquivo", nativeQuery = true)
+    void removerConteudo(@Param("nomeArquivo") String nomeArquivo);
+
+    Optional<FotoProduto> findFirstByNomeArquivoAndSituacaoVariantes(String nomeArquivo, SituacaoVariantesFoto situacaoVariantes);
+
+    /*
+        Restaurante, produto, nome do arquivo e content type das fotos nas situações informadas, os dados do
+        FotoProdutoArmazenadaEvent sem carregar o produto
+     */
+    @Query("select p.restaurante.id, f.produtoId, f.nomeArquivo, f.contentType from FotoProduto f join f.produto p "
+            + "where f.situacaoVariantes in :situacoes")
+    List<Object[]> buscarPorSituacoesVariantes(@Param("situacoes") Collection<SituacaoVariantesFoto> situacoes);
+
 }
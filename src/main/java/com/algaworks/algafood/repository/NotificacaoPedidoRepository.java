@@ -0,0 +1,42 @@
+package com.algaworks.algafood.repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.algaworks.algafood.entity.NotificacaoPedido;
+import com.algaworks.algafood.enuns.StatusNotificacaoPedido;
+
+@Repository
+public interface NotificacaoPedidoRepository extends JpaRepository<NotificacaoPedido, Long> {
+	
+	/*
+	 * Notificações prontas para envio, em ordem de criação. O not exists deixa de fora as que têm uma notificação
+	 * anterior ainda pendente do mesmo pedido (por exemplo aguardando nova tentativa), assim o cliente nunca recebe
+	 * o cancelamento antes da confirmação. Usa o índice (status, data_proxima_tentativa) e o (pedido_id, status).
+	 * Os dados do pedido usados nos templates vêm no mesmo select, os itens são carregados pelo @BatchSize.
+	 */
+	@Query("from NotificacaoPedido notificacao "
+		 + "join fetch notificacao.pedido pedido "
+		 + "join fetch pedido.usuarioCliente "
+		 + "join fetch pedido.restaurante "
+		 + "join fetch pedido.formaPagamento "
+		 + "where notificacao.status = :status "
+		 + "and notificacao.dataProximaTentativa <= :data "
+		 + "and not exists (select 1 from NotificacaoPedido anterior "
+		 + "                where anterior.pedido = notificacao.pedido "
+		 + "                and anterior.status = :status "
+		 + "                and anterior.id < notificacao.id) "
+		 + "order by notificacao.id")
+	List<NotificacaoPedido> buscarProntasParaEnvio(StatusNotificacaoPedido status, OffsetDateTime data, Pageable pageable);
+	
+	@Modifying
+	@Query("delete from NotificacaoPedido notificacao where notificacao.status = :status and notificacao.dataEnvio < :data")
+	int removerEnviadasAntesDe(StatusNotificacaoPedido status, OffsetDateTime data);
+
+}
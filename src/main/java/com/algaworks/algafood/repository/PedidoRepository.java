@@ -1,8 +1,12 @@
 package com.algaworks.algafood.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
+import org.hibernate.jpa.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -11,7 +15,7 @@ import org.springframework.stereotype.Repository;
 import com.algaworks.algafood.entity.Pedido;
 
 @Repository
-public interface PedidoRepository extends JpaRepository<Pedido, Long>, JpaSpecificationExecutor<Pedido> {
+public interface PedidoRepository extends JpaRepository<Pedido, Long>, JpaSpecificationExecutor<Pedido>, PedidoRepositoryCustom {
 	
 	/*
 	 * join fetch no jpql serve para que apenas uma consulta seja feita retornando todos os relacionamentos de uma só vez, 
@@ -25,5 +29,17 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long>, JpaSpecif
 	List<Pedido> findAll();	
 	
 	Optional<Pedido> findByCodigo(String codigo);
+	
+	/*
+	 * Os pedidos voltam como somente leitura, o Hibernate não faz dirty checking neles, usado nas alterações
+	 * de status em massa onde quem grava é o update da alterarStatusEmMassa e as entidades só servem para os eventos.
+	 */
+	@org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.HINT_READONLY, value = "true"))
+	@Query("from Pedido pedido "
+		 + "join fetch pedido.usuarioCliente "
+		 + "join fetch pedido.restaurante "
+		 + "join fetch pedido.formaPagamento "
+		 + "where pedido.codigo in :codigos")
+	List<Pedido> buscarPorCodigosSomenteLeitura(Collection<String> codigos);
 
 }
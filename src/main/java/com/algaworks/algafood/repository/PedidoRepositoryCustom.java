@@ -0,0 +1,24 @@
+package com.algaworks.algafood.repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+
+import com.algaworks.algafood.entity.Pedido;
+import com.algaworks.algafood.enuns.StatusPedido;
+import com.algaworks.algafood.pedido.PedidoCursor;
+
+public interface PedidoRepositoryCustom {
+
+	void inserirEmLote(List<Pedido> pedidos);
+
+	List<Pedido> buscarAposCursor(PedidoCursor cursor, int quantidade);
+
+	void percorrerCompletos(EntityManager sessao, Consumer<List<Pedido>> consumidorBloco);
+
+	int alterarStatusEmMassa(Collection<String> codigos, StatusPedido novoStatus, OffsetDateTime dataAlteracao);
+
+}
@@ -0,0 +1,271 @@
+package com.algaworks.algafood.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.algaworks.algafood.entity.Endereco;
+import com.algaworks.algafood.entity.ItemPedido;
+import com.algaworks.algafood.entity.Pedido;
+import com.algaworks.algafood.enuns.StatusPedido;
+import com.algaworks.algafood.pedido.CodigoPedidoBinarioConverter;
+import com.algaworks.algafood.pedido.PedidoCursor;
+import com.algaworks.algafood.pedido.PedidoProperties;
+
+@Repository
+public class PedidoRepositoryCustomImpl implements PedidoRepositoryCustom {
+
+	private static final String INSERT_PEDIDO = "insert into pedido (codigo, subtotal, taxa_frete, valor_total, data_criacao, status, "
+											  + "restaurante_id, forma_pagamento_id, usuario_cliente_id, "
+											  + "cidade_id, cep, logradouro, numero, complemento, bairro) "
+											  + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String SELECT_PEDIDOS_CURSOR = "from Pedido pedido "
+													 + "join fetch pedido.usuarioCliente "
+													 + "join fetch pedido.restaurante restaurante "
+													 + "join fetch restaurante.cozinha ";
+
+	private static final String WHERE_APOS_CURSOR = "where pedido.dataCriacao < :dataCriacao "
+												  + "or (pedido.dataCriacao = :dataCriacao and pedido.id < :id) ";
+
+	private static final String ORDER_BY_CURSOR = "order by pedido.dataCriacao desc, pedido.id desc";
+
+	private static final String SELECT_PEDIDOS_COMPLETOS = "from Pedido pedido "
+														+ "join fetch pedido.usuarioCliente "
+														+ "join fetch pedido.restaurante restaurante "
+														+ "join fetch restaurante.cozinha "
+														+ "join fetch pedido.formaPagamento "
+														+ "join fetch pedido.enderecoEntrega.cidade cidade "
+														+ "join fetch cidade.estado "
+														+ "order by pedido.id";
+
+	private static final String UPDATE_STATUS_EM_MASSA = "update Pedido pedido "
+													  + "set pedido.status = :novoStatus, pedido.%s = :dataAlteracao "
+													  + "where pedido.codigo in :codigos "
+													  + "and pedido.status in :statusAnteriores";
+
+	// Coluna de data que cada status preenche, a mesma dos métodos statusConfirmado, stausEntregue e stausCancelado do Pedido
+	private static final Map<StatusPedido, String> DATA_POR_STATUS = new EnumMap<>(StatusPedido.class);
+
+	static {
+		DATA_POR_STATUS.put(StatusPedido.CONFIRMADO, "dataConfirmacao");
+		DATA_POR_STATUS.put(StatusPedido.ENTREGUE, "dataEntrega");
+		DATA_POR_STATUS.put(StatusPedido.CANCELADO, "dataCancelamento");
+	}
+
+	private static final String INSERT_ITEM_PEDIDO = "insert into item_pedido (quantidade, preco_unitario, preco_total, observacao, produto_id, pedido_id) "
+												   + "values (?, ?, ?, ?, ?, ?)";
+
+	/*
+	 * O JdbcTemplate usa a mesma conexão da transação do JPA que estiver aberta, assim os inserts em lote
+	 * participam do mesmo commit/rollback do restante da operação.
+	 */
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PedidoProperties pedidoProperties;
+
+	@PersistenceContext
+	private EntityManager manager;
+
+	/*
+	 * Como Pedido e ItemPedido usam GenerationType.IDENTITY o Hibernate desliga o batch de inserts, porque precisa
+	 * executar cada insert na hora para descobrir o id gerado. Aqui os inserts são agrupados com addBatch/executeBatch
+	 * e os ids são lidos de uma só vez pelo getGeneratedKeys, com o rewriteBatchedStatements=true da url de conexão
+	 * o driver do MySQL ainda reescreve o lote em um único insert com vários values.
+	 */
+	@Override
+	public void inserirEmLote(List<Pedido> pedidos) {
+		if (pedidos.isEmpty()) {
+			return;
+		}
+
+		jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+			inserirPedidos(connection, pedidos);
+			inserirItens(connection, pedidos);
+			return null;
+		});
+	}
+
+	/*
+	 * Paginação por keyset: ao invés de offset, que obriga o banco a percorrer e descartar todas as linhas das páginas
+	 * anteriores, a consulta continua a partir do último (data_criacao, id) entregue usando o índice
+	 * idx_pedido_data_criacao_id, assim o custo de qualquer página é o mesmo da primeira.
+	 */
+	@Override
+	public List<Pedido> buscarAposCursor(PedidoCursor cursor, int quantidade) {
+		String jpql = SELECT_PEDIDOS_CURSOR + (cursor != null ? WHERE_APOS_CURSOR : "") + ORDER_BY_CURSOR;
+
+		TypedQuery<Pedido> query = manager.createQuery(jpql, Pedido.class);
+
+		if (cursor != null) {
+			query.setParameter("dataCriacao", cursor.getDataCriacao());
+			query.setParameter("id", cursor.getId());
+		}
+
+		return query.setMaxResults(quantidade).getResultList();
+	}
+
+	/*
+	 * Percorre todos os pedidos com um ScrollableResults ao invés de trazer a lista inteira para a memória. O banco
+	 * entrega as linhas aos poucos (fetch size com o useCursorFetch=true, que só a conexão da sessão do export tem,
+	 * ver PedidoExportacaoService) e a cada bloco o contexto de persistência é limpo, assim a memória usada não
+	 * depende da quantidade de pedidos da tabela.
+	 *
+	 * O consumidor recebe cada bloco ainda gerenciado, podendo acessar os itens (carregados via @BatchSize),
+	 * e não deve guardar referências aos pedidos depois que retornar.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void percorrerCompletos(EntityManager sessao, Consumer<List<Pedido>> consumidorBloco) {
+		int tamanhoBloco = pedidoProperties.getExportacao().getTamanhoBloco();
+
+		Query<Pedido> query = sessao.createQuery(SELECT_PEDIDOS_COMPLETOS, Pedido.class).unwrap(Query.class);
+		query.setFetchSize(pedidoProperties.getExportacao().getTamanhoFetch());
+		query.setReadOnly(true);
+
+		try (ScrollableResults resultados = query.scroll(ScrollMode.FORWARD_ONLY)) {
+			List<Pedido> bloco = new ArrayList<>(tamanhoBloco);
+
+			while (resultados.next()) {
+				bloco.add((Pedido) resultados.get(0));
+
+				if (bloco.size() == tamanhoBloco) {
+					consumidorBloco.accept(bloco);
+					bloco.clear();
+					sessao.clear();
+				}
+			}
+
+			if (!bloco.isEmpty()) {
+				consumidorBloco.accept(bloco);
+				sessao.clear();
+			}
+		}
+	}
+
+	/*
+	 * Um único update para todos os pedidos ao invés de carregar e salvar um por um. O filtro pelos status anteriores
+	 * garante no próprio banco que só pedidos em um status válido para a transição são alterados, se algum mudou
+	 * depois da validação ele fica de fora e o retorno com a quantidade alterada mostra isso.
+	 */
+	@Override
+	public int alterarStatusEmMassa(Collection<String> codigos, StatusPedido novoStatus, OffsetDateTime dataAlteracao) {
+		return manager.createQuery(String.format(UPDATE_STATUS_EM_MASSA, DATA_POR_STATUS.get(novoStatus)))
+						.setParameter("novoStatus", novoStatus)
+						.setParameter("dataAlteracao", dataAlteracao)
+						.setParameter("codigos", codigos)
+						.setParameter("statusAnteriores", novoStatus.getStatusAnteriores())
+						.executeUpdate();
+	}
+
+	private void inserirPedidos(Connection connection, List<Pedido> pedidos) throws SQLException {
+		int tamanhoBatch = pedidoProperties.getLote().getTamanhoBatchJdbc();
+
+		try (PreparedStatement statement = connection.prepareStatement(INSERT_PEDIDO, Statement.RETURN_GENERATED_KEYS)) {
+			for (int inicio = 0; inicio < pedidos.size(); inicio += tamanhoBatch) {
+				List<Pedido> parte = pedidos.subList(inicio, Math.min(inicio + tamanhoBatch, pedidos.size()));
+
+				for (Pedido pedido : parte) {
+					preencherPedido(statement, pedido);
+					statement.addBatch();
+				}
+
+				statement.executeBatch();
+
+				// As chaves geradas voltam na mesma ordem em que os inserts foram adicionados ao lote
+				try (ResultSet chaves = statement.getGeneratedKeys()) {
+					for (Pedido pedido : parte) {
+						chaves.next();
+						pedido.setId(chaves.getLong(1));
+					}
+				}
+			}
+		}
+	}
+
+	private void inserirItens(Connection connection, List<Pedido> pedidos) throws SQLException {
+		int tamanhoBatch = pedidoProperties.getLote().getTamanhoBatchJdbc();
+		int itensNoLote = 0;
+
+		try (PreparedStatement statement = connection.prepareStatement(INSERT_ITEM_PEDIDO)) {
+			for (Pedido pedido : pedidos) {
+				for (ItemPedido item : pedido.getItens()) {
+					statement.setInt(1, item.getQuantidade());
+					statement.setBigDecimal(2, item.getPrecoUnitario());
+					statement.setBigDecimal(3, item.getPrecoTotal());
+					statement.setString(4, item.getObservacao());
+					statement.setLong(5, item.getProduto().getId());
+					statement.setLong(6, pedido.getId());
+					statement.addBatch();
+
+					if (++itensNoLote == tamanhoBatch) {
+						statement.executeBatch();
+						itensNoLote = 0;
+					}
+				}
+			}
+
+			if (itensNoLote > 0) {
+				statement.executeBatch();
+			}
+		}
+	}
+
+	private void preencherPedido(PreparedStatement statement, Pedido pedido) throws SQLException {
+		Endereco endereco = pedido.getEnderecoEntrega();
+
+		// Com a coluna em binary(16) o código é gravado com os mesmos bytes que o converter do JPA usaria
+		if (pedidoProperties.getCodigo().isArmazenamentoBinario()) {
+			statement.setBytes(1, CodigoPedidoBinarioConverter.paraBytes(pedido.getCodigo()));
+		} else {
+			statement.setString(1, pedido.getCodigo());
+		}
+
+		statement.setBigDecimal(2, pedido.getSubtotal());
+		statement.setBigDecimal(3, pedido.getTaxaFrete());
+		statement.setBigDecimal(4, pedido.getValorTotal());
+		statement.setTimestamp(5, Timestamp.from(pedido.getDataCriacao().toInstant()));
+		statement.setString(6, pedido.getStatus().name());
+		statement.setLong(7, pedido.getRestaurante().getId());
+		statement.setLong(8, pedido.getFormaPagamento().getId());
+		statement.setLong(9, pedido.getUsuarioCliente().getId());
+		statement.setLong(10, endereco.getCidade().getId());
+		statement.setString(11, endereco.getCep());
+		statement.setString(12, endereco.getLogradouro());
+		statement.setString(13, endereco.getNumero());
+
+		if (endereco.getComplemento() != null) {
+			statement.setString(14, endereco.getComplemento());
+		} else {
+			statement.setNull(14, Types.VARCHAR);
+		}
+
+		statement.setString(15, endereco.getBairro());
+	}
+
+}
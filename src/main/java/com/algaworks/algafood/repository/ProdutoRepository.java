@@ -1,5 +1,6 @@
 package com.algaworks.algafood.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,13 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long>, Produto
 	@Query("from Produto produto where produto.ativo = true and produto.restaurante = :restaurante")
 	List<Produto> buscaApenasAtivosPorRestaurante(Restaurante restaurante);
 
+	/*
+		Busca todos os produtos de um pedido em uma única consulta, já restringindo ao restaurante do pedido
+		e aos produtos ativos, os ids que não voltarem na lista não podem ser vendidos pelo restaurante.
+	 */
+	@Query("from Produto produto where produto.ativo = true and produto.restaurante.id = :restauranteId and produto.id in :produtosIds")
+	List<Produto> buscarAtivosPorRestauranteEIds(@Param("restauranteId") Long restauranteId, @Param("produtosIds") Collection<Long> produtosIds);
+
 	/*
 		Como está sendo feito join com outra instancia é preciso informar
 		o select para saber o que precisa ser retornado, no caso só quero
@@ -33,5 +41,15 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long>, Produto
 	 */
 	@Query("select f from FotoProduto f join f.produto p where p.restaurante.id = :restauranteId and f.produto.id = :produtoId")
 	Optional<FotoProduto> buscarFotoPorId(Long restauranteId, Long produtoId);
+
+	/*
+		Consultas da vitrine, os produtos ativos e as fotos deles, cada uma com um único select para o restaurante
+		inteiro ao invés de um por produto
+	 */
+	@Query("from Produto produto where produto.ativo = true and produto.restaurante.id = :restauranteId order by produto.nome, produto.id")
+	List<Produto> buscarAtivosPorRestauranteId(@Param("restauranteId") Long restauranteId);
+
+	@Query("select f from FotoProduto f join f.produto p where p.restaurante.id = :restauranteId and p.ativo = true")
+	List<FotoProduto> buscarFotosDosAtivosPorRestauranteId(@Param("restauranteId") Long restauranteId);
 	
 }
@@ -1,13 +1,19 @@
 package com.algaworks.algafood.repository;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.algaworks.algafood.dto.RestauranteResumoDTO;
+import com.algaworks.algafood.dto.RestauranteRetornoDTO;
 import com.algaworks.algafood.entity.Restaurante;
 
 @Repository
@@ -23,7 +29,35 @@ public interface RestauranteRepository extends CustomJpaRepository<Restaurante,
 	@Query("from Restaurante r join fetch r.cozinha")
 	List<Restaurante> findAllCustom();
 	
+	/*
+	 * Projeções das listagens resumidas: o select new monta os DTOs direto das colunas, sem carregar as entidades
+	 * no contexto de persistência, sem endereço, datas e coleções e sem a cópia guardada para o dirty checking.
+	 */
+	@Query("select new com.algaworks.algafood.dto.RestauranteResumoDTO(r.id, r.nome, r.taxaFrete, c.id, c.nome) "
+		 + "from Restaurante r join r.cozinha c")
+	List<RestauranteResumoDTO> buscarResumos();
+	
+	@Query("select new com.algaworks.algafood.dto.RestauranteRetornoDTO(r.id, r.nome, r.taxaFrete, c.id, c.nome) "
+		 + "from Restaurante r join r.cozinha c")
+	List<RestauranteRetornoDTO> buscarResumosParaVisao();
+	
+	/*
+	 * Restaurante da vitrine em um único select, com cozinha, cidade, estado e formas de pagamento. O distinct tira
+	 * as linhas repetidas do restaurante, uma por forma de pagamento.
+	 */
+	@Query("select distinct r from Restaurante r "
+		 + "join fetch r.cozinha "
+		 + "left join fetch r.endereco.cidade cidade "
+		 + "left join fetch cidade.estado "
+		 + "left join fetch r.formasPagamento "
+		 + "where r.id = :id")
+	Optional<Restaurante> buscarParaVitrine(@Param("id") Long id);
 	
+	
+	/*
+	 * Consulta anterior do /restaurantes/taxa-frete, substituída pelo findPorTaxaFrete que usa o
+	 * IndiceTaxaFreteRestaurante. Mantida para a comparação do RestauranteTaxaFreteBenchmarkIT.
+	 */
 	List<Restaurante> findByTaxaFreteBetween(BigDecimal taxaInicial, BigDecimal taxaFinal);
 	
 	// List<Restaurante> findByNomeContainingAndCozinhaId(String nome, Long cozinhaId);
@@ -31,6 +65,39 @@ public interface RestauranteRepository extends CustomJpaRepository<Restaurante,
 //	@Query("FROM Restaurante WHERE nome LIKE %:nome% AND cozinha.id = :cozinhaId" )
 //	List<Restaurante> consultarPorNome(String nome, @Param("cozinhaId") Long cozinhaId); // O nome não precisa do @Param pois como é o mesmo nome do atributo o spring data já faz o binding
 
-	List<Restaurante> consultarPorNome(String nome, @Param("cozinhaId") Long cozinhaId);
+	/*
+	 * Named query Restaurante.consultarPorIdsECozinha do META-INF/orm.xml, os ids vêm do IndiceNomeRestaurante,
+	 * usada pelo consultarPorNome do RestauranteRepositoryCustomImpl.
+	 */
+	List<Restaurante> consultarPorIdsECozinha(@Param("ids") Collection<Long> ids, @Param("cozinhaId") Long cozinhaId);
+	
+	/*
+	 * Consultas usadas para montar o snapshot de validação de pedidos, trazem só as colunas necessárias
+	 * sem carregar as entidades e seus relacionamentos.
+	 */
+	@Query("select r.id, r.nome, r.taxaFrete, r.ativo, r.aberto from Restaurante r")
+	List<Object[]> buscarDadosParaValidacaoPedido();
+	
+	@Query("select r.id, f.id from Restaurante r join r.formasPagamento f")
+	List<Object[]> buscarFormasPagamentoAceitas();
+	
+	@Query("select r.id from Restaurante r where r.id in :ids")
+	List<Long> buscarIdsExistentes(@Param("ids") Collection<Long> ids);
+	
+	/*
+	 * Ativação e desativação em massa em um único update. O @UpdateTimestamp não é aplicado em update jpql, por
+	 * isso a data de atualização é passada. Só altera quem ainda não está na situação, assim o retorno é a
+	 * quantidade de restaurantes que realmente mudaram.
+	 */
+	@Modifying
+	@Query("update Restaurante r set r.ativo = :ativo, r.dataAtualizacao = :dataAtualizacao where r.id in :ids and r.ativo <> :ativo")
+	int alterarAtivoEmMassa(@Param("ids") Collection<Long> ids, @Param("ativo") Boolean ativo, @Param("dataAtualizacao") OffsetDateTime dataAtualizacao);
+	
+	/*
+	 * Abertura e fechamento em massa pelos horários de funcionamento, da mesma forma que o alterarAtivoEmMassa
+	 */
+	@Modifying
+	@Query("update Restaurante r set r.aberto = :aberto, r.dataAtualizacao = :dataAtualizacao where r.id in :ids and r.aberto <> :aberto")
+	int alterarAbertoEmMassa(@Param("ids") Collection<Long> ids, @Param("aberto") Boolean aberto, @Param("dataAtualizacao") OffsetDateTime dataAtualizacao);
 	
 }
@@ -4,11 +4,19 @@ import java.math.BigDecimal;
 import java.util.List;
 
 import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.enuns.OrdenacaoRestaurante;
+import com.algaworks.algafood.restaurante.RestauranteCursor;
 
 public interface RestauranteRepositoryCustom {
 
-	List<Restaurante> findByNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal);
+	List<Restaurante> findByNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal, boolean apenasAbertos);
 	
-	List<Restaurante> findComFreteGratis(String nome);
+	List<Restaurante> findPorTaxaFrete(BigDecimal taxaInicial, BigDecimal taxaFinal, boolean apenasAbertos);
+	
+	List<Restaurante> findComFreteGratis(String nome, boolean apenasAbertos);
+	
+	List<Restaurante> consultarPorNome(String nome, Long cozinhaId);
+	
+	List<Restaurante> buscarAposCursor(OrdenacaoRestaurante ordenacao, RestauranteCursor cursor, int quantidade);
 
 }
\ No newline at end of file
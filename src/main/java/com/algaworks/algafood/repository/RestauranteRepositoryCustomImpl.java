@@ -2,62 +2,228 @@ package com.algaworks.algafood.repository;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
+import javax.persistence.TypedQuery;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.enuns.OrdenacaoRestaurante;
 import com.algaworks.algafood.repository.spec.RestauranteSpecs;
+import com.algaworks.algafood.restaurante.IndiceNomeRestaurante;
+import com.algaworks.algafood.restaurante.IndiceTaxaFreteRestaurante;
+import com.algaworks.algafood.restaurante.RestauranteCursor;
+import com.algaworks.algafood.restaurante.RestauranteProperties;
+import com.algaworks.algafood.restaurante.RestaurantesAbertos;
 
+/*
+ * As buscas por nome e por taxa de frete são resolvidas nos índices em memória (IndiceNomeRestaurante e
+ * IndiceTaxaFreteRestaurante), os filtros são combinados nas listas de ids e o banco só recebe o where id in (...)
+ * final, que usa a chave primária. Nenhuma entidade é carregada só para ser descartada por um dos filtros. Uma faixa
+ * larga (ou sem limites) pode trazer quase todos os ids, por isso o in (...) é dividido em blocos de
+ * algafood.restaurante.lote.tamanhoBloco ids, igual às alterações em massa.
+ *
+ * O apenasAbertos filtra os ids pelo RestaurantesAbertos, também em memória.
+ *
+ * Nomes com menos de 3 letras não passam pelo índice (qualquer restaurante seria candidato), vão para o banco com o
+ * like e os outros filtros na mesma consulta, ordenados depois pela mesma relevância do índice.
+ */
 @Repository
 public class RestauranteRepositoryCustomImpl implements RestauranteRepositoryCustom {
 
+	private static final String SELECT_RESTAURANTES_CURSOR = "from Restaurante restaurante "
+														  + "join fetch restaurante.cozinha "
+														  + "left join fetch restaurante.endereco.cidade cidade "
+														  + "left join fetch cidade.estado ";
+
+	private static final String WHERE_APOS_CURSOR_NOME = "where restaurante.nome > :nome "
+													   + "or (restaurante.nome = :nome and restaurante.id > :id) ";
+
+	private static final String WHERE_APOS_CURSOR_TAXA_FRETE = "where restaurante.taxaFrete > :taxaFrete "
+															 + "or (restaurante.taxaFrete = :taxaFrete and restaurante.id > :id) ";
+
+	private static final String ORDER_BY_NOME = "order by restaurante.nome, restaurante.id";
+
+	private static final String ORDER_BY_TAXA_FRETE = "order by restaurante.taxaFrete, restaurante.id";
+
 	@PersistenceContext
 	private EntityManager manager;
-	
+
 	@Autowired
 	@Lazy // Só carrega quando chamado, para evitar erro de dependência circular
 	private RestauranteRepository restauranteRepository;
 	
+	@Autowired
+	private IndiceNomeRestaurante indiceNomeRestaurante;
+	
+	@Autowired
+	private IndiceTaxaFreteRestaurante indiceTaxaFreteRestaurante;
+	
+	@Autowired
+	private RestaurantesAbertos restaurantesAbertos;
+	
+	@Autowired
+	private RestauranteProperties restauranteProperties;
+	
+	/*
+	 * Com nome o resultado volta na ordem de relevância do índice de nomes, sem nome da menor taxa para a maior.
+	 */
 	@Override
-	public List<Restaurante> findByNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal) {		
-
-		CriteriaBuilder builder = manager.getCriteriaBuilder();
-		CriteriaQuery<Restaurante> query = builder.createQuery(Restaurante.class);
-		Root<Restaurante> root = query.from(Restaurante.class);
+	public List<Restaurante> findByNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal, boolean apenasAbertos) {		
+		if (!StringUtils.hasText(nome)) {
+			return findPorTaxaFrete(taxaInicial, taxaFinal, apenasAbertos);
+		}
+		
+		if (!IndiceNomeRestaurante.isBuscavel(nome)) {
+			return buscarPorNomeNoBanco(nome, RestauranteSpecs.comTaxaFreteEntre(taxaInicial, taxaFinal), apenasAbertos);
+		}
+		
+		List<Long> idsPorNome = indiceNomeRestaurante.buscar(nome);
 		
-		List<Predicate> predicates = new ArrayList<>();
+		if (idsPorNome.isEmpty() || (taxaInicial == null && taxaFinal == null)) {
+			return buscarPorIds(idsPorNome, apenasAbertos);
+		}
+		
+		return buscarPorIds(manterSomente(idsPorNome, indiceTaxaFreteRestaurante.buscarPorFaixa(taxaInicial, taxaFinal)), apenasAbertos);
+	}
+	
+	@Override
+	public List<Restaurante> findPorTaxaFrete(BigDecimal taxaInicial, BigDecimal taxaFinal, boolean apenasAbertos) {
+		return buscarPorIds(indiceTaxaFreteRestaurante.buscarPorFaixa(taxaInicial, taxaFinal), apenasAbertos);
+	}
+
+	/*
+	 * Sem nome informado traz todos com frete grátis
+	 */
+	@Override
+	public List<Restaurante> findComFreteGratis(String nome, boolean apenasAbertos) {
+		List<Long> idsComFreteGratis = indiceTaxaFreteRestaurante.buscarComFreteGratis();
 		
-		if (StringUtils.hasText(nome)) {
-			predicates.add(builder.like(root.get("nome"), "%" + nome + "%"));
+		if (!StringUtils.hasText(nome) || idsComFreteGratis.isEmpty()) {
+			return buscarPorIds(idsComFreteGratis, apenasAbertos);
 		}
 		
-		if (taxaInicial != null) {
-			predicates.add(builder.greaterThanOrEqualTo(root.get("taxaFrete"), taxaInicial));
+		if (!IndiceNomeRestaurante.isBuscavel(nome)) {
+			return buscarPorNomeNoBanco(nome, RestauranteSpecs.comFreteGratis(), apenasAbertos);
 		}
 		
-		if (taxaFinal != null) {
-			predicates.add(builder.lessThanOrEqualTo(root.get("taxaFrete"), taxaFinal));
+		return buscarPorIds(manterSomente(indiceNomeRestaurante.buscar(nome), idsComFreteGratis), apenasAbertos);
+	}
+	
+	@Override
+	public List<Restaurante> consultarPorNome(String nome, Long cozinhaId) {
+		if (!IndiceNomeRestaurante.isBuscavel(nome)) {
+			return buscarPorNomeNoBanco(nome != null ? nome : "", RestauranteSpecs.comCozinha(cozinhaId), false);
 		}
 		
-		query.where(predicates.toArray(new Predicate[0])); // TODO: ver como melhorar essa conversão
+		List<Long> idsPorNome = indiceNomeRestaurante.buscar(nome);
 		
-		return manager.createQuery(query).getResultList();
+		if (idsPorNome.isEmpty()) {
+			return new ArrayList<>();
+		}
+		
+		return ordenarPelosIds(buscarEmBlocos(idsPorNome, bloco -> restauranteRepository.consultarPorIdsECozinha(bloco, cozinhaId)), idsPorNome);
 	}
-
+	
+	/*
+	 * Paginação por keyset igual à dos pedidos, a consulta continua a partir do último (nome, id) ou (taxa_frete, id)
+	 * entregue usando os índices idx_restaurante_nome_id e idx_restaurante_taxa_frete_id, assim o custo de qualquer
+	 * página é o mesmo da primeira. Cozinha, cidade e estado vêm no mesmo select para a conversão não ir ao banco.
+	 */
 	@Override
-	public List<Restaurante> findComFreteGratis(String nome) {
-		return restauranteRepository.findAll(RestauranteSpecs.comFreteGratis().and(RestauranteSpecs.comNomeSemelhante(nome)));
+	public List<Restaurante> buscarAposCursor(OrdenacaoRestaurante ordenacao, RestauranteCursor cursor, int quantidade) {
+		boolean porNome = ordenacao == OrdenacaoRestaurante.NOME;
+		String jpql = SELECT_RESTAURANTES_CURSOR
+					+ (cursor == null ? "" : porNome ? WHERE_APOS_CURSOR_NOME : WHERE_APOS_CURSOR_TAXA_FRETE)
+					+ (porNome ? ORDER_BY_NOME : ORDER_BY_TAXA_FRETE);
+		
+		TypedQuery<Restaurante> query = manager.createQuery(jpql, Restaurante.class);
+		
+		if (cursor != null) {
+			if (porNome) {
+				query.setParameter("nome", cursor.getNome());
+			} else {
+				query.setParameter("taxaFrete", cursor.getTaxaFrete());
+			}
+			
+			query.setParameter("id", cursor.getId());
+		}
+		
+		return query.setMaxResults(quantidade).getResultList();
+	}
+	
+	/*
+	 * Mantém a ordem da primeira lista
+	 */
+	private static List<Long> manterSomente(List<Long> ids, List<Long> permitidos) {
+		Set<Long> conjuntoPermitidos = new HashSet<>(permitidos);
+		
+		return ids.stream()
+					.filter(conjuntoPermitidos::contains)
+					.collect(Collectors.toList());
+	}
+	
+	private List<Restaurante> buscarPorIds(List<Long> ids, boolean apenasAbertos) {
+		if (apenasAbertos) {
+			ids = restaurantesAbertos.filtrarAbertos(ids);
+		}
+		
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		
+		return ordenarPelosIds(buscarEmBlocos(ids, bloco -> restauranteRepository.findAll(RestauranteSpecs.comIds(bloco))), ids);
+	}
+	
+	private List<Restaurante> buscarEmBlocos(List<Long> ids, Function<List<Long>, List<Restaurante>> consulta) {
+		int tamanhoBloco = restauranteProperties.getLote().getTamanhoBloco();
+		List<Restaurante> restaurantes = new ArrayList<>(ids.size());
+		
+		for (int inicio = 0; inicio < ids.size(); inicio += tamanhoBloco) {
+			restaurantes.addAll(consulta.apply(ids.subList(inicio, Math.min(inicio + tamanhoBloco, ids.size()))));
+		}
+		
+		return restaurantes;
+	}
+	
+	private List<Restaurante> buscarPorNomeNoBanco(String nome, Specification<Restaurante> filtro, boolean apenasAbertos) {
+		List<Restaurante> restaurantes = restauranteRepository.findAll(RestauranteSpecs.comNomeSemelhante(nome).and(filtro));
+		
+		if (apenasAbertos) {
+			restaurantes = restaurantes.stream()
+										.filter(restaurante -> restaurantesAbertos.isAberto(restaurante.getId()))
+										.collect(Collectors.toList());
+		}
+		
+		restaurantes.sort(Comparator.comparing(Restaurante::getNome, IndiceNomeRestaurante.comparadorRelevancia(nome))
+									.thenComparing(Restaurante::getId));
+		return restaurantes;
+	}
+	
+	private List<Restaurante> ordenarPelosIds(List<Restaurante> restaurantes, List<Long> ids) {
+		Map<Long, Integer> posicoes = new HashMap<>();
+		
+		for (int posicao = 0; posicao < ids.size(); posicao++) {
+			posicoes.put(ids.get(posicao), posicao);
+		}
+		
+		List<Restaurante> ordenados = new ArrayList<>(restaurantes);
+		ordenados.sort(Comparator.comparing(restaurante -> posicoes.get(restaurante.getId())));
+		return ordenados;
 	}
 	
 }
@@ -1,6 +1,11 @@
 package com.algaworks.algafood.repository.spec;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.criteria.Predicate;
 
 import org.springframework.data.jpa.domain.Specification;
 
@@ -12,8 +17,41 @@ public class RestauranteSpecs {
 		return (root, query, builder) -> builder.equal(root.get("taxaFrete"), BigDecimal.ZERO);
 	}
 	
+	/*
+	 * Usado só para termos com menos de 3 letras, que o IndiceNomeRestaurante não atende
+	 */
 	public static Specification<Restaurante> comNomeSemelhante(String nome) {
 		return (root, query, builder) -> builder.like(root.get("nome"), "%" + nome + "%");
 	}
 	
+	/*
+	 * Faixa com os limites inclusivos, limite nulo não filtra
+	 */
+	public static Specification<Restaurante> comTaxaFreteEntre(BigDecimal taxaInicial, BigDecimal taxaFinal) {
+		return (root, query, builder) -> {
+			List<Predicate> predicates = new ArrayList<>();
+			
+			if (taxaInicial != null) {
+				predicates.add(builder.greaterThanOrEqualTo(root.get("taxaFrete"), taxaInicial));
+			}
+			
+			if (taxaFinal != null) {
+				predicates.add(builder.lessThanOrEqualTo(root.get("taxaFrete"), taxaFinal));
+			}
+			
+			return builder.and(predicates.toArray(new Predicate[0]));
+		};
+	}
+	
+	public static Specification<Restaurante> comCozinha(Long cozinhaId) {
+		return (root, query, builder) -> builder.equal(root.get("cozinha").get("id"), cozinhaId);
+	}
+	
+	/*
+	 * Nos termos com 3 letras ou mais substitui o comNomeSemelhante, os ids são os encontrados no IndiceNomeRestaurante
+	 */
+	public static Specification<Restaurante> comIds(Collection<Long> ids) {
+		return (root, query, builder) -> root.get("id").in(ids);
+	}
+	
 }
@@ -0,0 +1,248 @@
+package com.algaworks.algafood.restaurante;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.entity.HorarioFuncionamento;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+/*
+ * Horários de funcionamento de todos os restaurantes pré-calculados por minuto da semana (0 é segunda 00:00, são
+ * 10080 minutos). Para cada minuto em que algum restaurante abre ou fecha existe um par de BitSets com os ids que
+ * abrem e os que fecham naquele minuto, assim o agendamento do FuncionamentoRestauranteService só consulta os
+ * minutos que passaram desde a última execução e altera todos os restaurantes de uma vez.
+ *
+ * As transições são calculadas sobre a união dos horários do restaurante, horários sobrepostos ou encostados
+ * (ex: 11:00-15:00 e 15:00-23:00) não fecham e abrem no mesmo minuto.
+ *
+ * Igual aos índices de restaurantes, é montado no primeiro uso e atualizado a cada RestauranteAlteradoEvent.
+ */
+@Component
+public class AgendaFuncionamentoRestaurante {
+
+	public static final int MINUTOS_DIA = 24 * 60;
+	public static final int MINUTOS_SEMANA = 7 * MINUTOS_DIA;
+
+	private final EntityManager manager;
+
+	private final RestauranteProperties restauranteProperties;
+
+	private final Map<Integer, Transicoes> transicoes = new HashMap<>();
+
+	private final Map<Long, List<HorarioFuncionamento>> horarios = new HashMap<>();
+
+	private boolean carregado;
+
+	public AgendaFuncionamentoRestaurante(EntityManager manager, RestauranteProperties restauranteProperties) {
+		this.manager = manager;
+		this.restauranteProperties = restauranteProperties;
+	}
+
+	/*
+	 * Minuto da semana atual no fuso horário dos restaurantes
+	 */
+	public int minutoAtual() {
+		return minutoDaSemana(LocalDateTime.now(restauranteProperties.getFuncionamento().getFusoHorario()));
+	}
+
+	public static int minutoDaSemana(LocalDateTime dataHora) {
+		return minutoDaSemana(dataHora.getDayOfWeek(), dataHora.toLocalTime());
+	}
+
+	public static boolean estaAberto(List<HorarioFuncionamento> horarios, int minuto) {
+		return minutosAbertos(horarios).get(minuto);
+	}
+
+	/*
+	 * Restaurantes que abrem (true) ou fecham (false) depois do minutoAnterior até o minutoAtual, inclusive. Se um
+	 * restaurante abriu e fechou no intervalo fica a última transição.
+	 */
+	public synchronized Map<Long, Boolean> buscarTransicoes(int minutoAnterior, int minutoAtual) {
+		carregarSeNecessario();
+
+		Map<Long, Boolean> situacoes = new LinkedHashMap<>();
+
+		for (int minuto = minutoAnterior; minuto != minutoAtual; ) {
+			minuto = (minuto + 1) % MINUTOS_SEMANA;
+			Transicoes transicao = transicoes.get(minuto);
+
+			if (transicao != null) {
+				transicao.fecham.stream().forEach(id -> situacoes.put((long) id, false));
+				transicao.abrem.stream().forEach(id -> situacoes.put((long) id, true));
+			}
+		}
+
+		return situacoes;
+	}
+
+	/*
+	 * Situação esperada no minuto de todos os restaurantes com horários, usada quando não se sabe o que aconteceu
+	 * antes (ex: a api acabou de subir)
+	 */
+	public synchronized Map<Long, Boolean> buscarSituacoes(int minuto) {
+		carregarSeNecessario();
+
+		Map<Long, Boolean> situacoes = new LinkedHashMap<>();
+		horarios.forEach((id, horariosRestaurante) -> situacoes.put(id, estaAberto(horariosRestaurante, minuto)));
+		return situacoes;
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public synchronized void restauranteAlterado(RestauranteAlteradoEvent event) {
+		if (!carregado) {
+			return;
+		}
+
+		if (event.getRestauranteId() == null) {
+			carregar();
+			return;
+		}
+
+		remover(event.getRestauranteId());
+
+		List<HorarioFuncionamento> horariosRestaurante = new ArrayList<>();
+
+		manager.createQuery("select h.diaSemana, h.horaAbertura, h.horaFechamento from Restaurante r join r.horariosFuncionamento h "
+						  + "where r.id = :id", Object[].class)
+				.setParameter("id", event.getRestauranteId())
+				.getResultList()
+				.forEach(linha -> horariosRestaurante.add(new HorarioFuncionamento((DayOfWeek) linha[0], (LocalTime) linha[1], (LocalTime) linha[2])));
+
+		adicionar(event.getRestauranteId(), horariosRestaurante);
+	}
+
+	private void carregarSeNecessario() {
+		if (!carregado) {
+			carregar();
+		}
+	}
+
+	private void carregar() {
+		transicoes.clear();
+		horarios.clear();
+
+		Map<Long, List<HorarioFuncionamento>> horariosPorRestaurante = new HashMap<>();
+
+		manager.createQuery("select r.id, h.diaSemana, h.horaAbertura, h.horaFechamento from Restaurante r join r.horariosFuncionamento h", Object[].class)
+				.getResultList()
+				.forEach(linha -> horariosPorRestaurante.computeIfAbsent((Long) linha[0], id -> new ArrayList<>())
+						.add(new HorarioFuncionamento((DayOfWeek) linha[1], (LocalTime) linha[2], (LocalTime) linha[3])));
+
+		horariosPorRestaurante.forEach(this::adicionar);
+		carregado = true;
+	}
+
+	/*
+	 * Só os minutos de abertura e fechamento de cada horário podem ser transições, os outros não precisam ser olhados
+	 */
+	private void adicionar(Long restauranteId, List<HorarioFuncionamento> horariosRestaurante) {
+		if (horariosRestaurante.isEmpty()) {
+			return;
+		}
+
+		horarios.put(restauranteId, horariosRestaurante);
+
+		BitSet abertos = minutosAbertos(horariosRestaurante);
+		int id = Math.toIntExact(restauranteId);
+
+		for (int minuto : minutosLimite(horariosRestaurante)) {
+			boolean aberto = abertos.get(minuto);
+
+			if (aberto != abertos.get((minuto + MINUTOS_SEMANA - 1) % MINUTOS_SEMANA)) {
+				Transicoes transicao = transicoes.computeIfAbsent(minuto, chave -> new Transicoes());
+				(aberto ? transicao.abrem : transicao.fecham).set(id);
+			}
+		}
+	}
+
+	private void remover(Long restauranteId) {
+		List<HorarioFuncionamento> horariosRestaurante = horarios.remove(restauranteId);
+
+		if (horariosRestaurante == null) {
+			return;
+		}
+
+		int id = Math.toIntExact(restauranteId);
+
+		for (int minuto : minutosLimite(horariosRestaurante)) {
+			Transicoes transicao = transicoes.get(minuto);
+
+			if (transicao != null) {
+				transicao.abrem.clear(id);
+				transicao.fecham.clear(id);
+
+				if (transicao.abrem.isEmpty() && transicao.fecham.isEmpty()) {
+					transicoes.remove(minuto);
+				}
+			}
+		}
+	}
+
+	private static List<Integer> minutosLimite(List<HorarioFuncionamento> horariosRestaurante) {
+		List<Integer> minutos = new ArrayList<>();
+
+		for (HorarioFuncionamento horario : horariosRestaurante) {
+			int abertura = minutoDaSemana(horario.getDiaSemana(), horario.getHoraAbertura());
+			minutos.add(abertura);
+			minutos.add((abertura + duracao(horario)) % MINUTOS_SEMANA);
+		}
+
+		return minutos;
+	}
+
+	/*
+	 * Um bit por minuto da semana, ligado nos minutos em que o restaurante está aberto
+	 */
+	private static BitSet minutosAbertos(List<HorarioFuncionamento> horariosRestaurante) {
+		BitSet abertos = new BitSet(MINUTOS_SEMANA);
+
+		for (HorarioFuncionamento horario : horariosRestaurante) {
+			int abertura = minutoDaSemana(horario.getDiaSemana(), horario.getHoraAbertura());
+			int fechamento = abertura + duracao(horario);
+
+			abertos.set(abertura, Math.min(fechamento, MINUTOS_SEMANA));
+
+			// Domingo que passa da meia-noite termina na segunda, no começo da semana
+			if (fechamento > MINUTOS_SEMANA) {
+				abertos.set(0, fechamento - MINUTOS_SEMANA);
+			}
+		}
+
+		return abertos;
+	}
+
+	private static int duracao(HorarioFuncionamento horario) {
+		int abertura = minutoDoDia(horario.getHoraAbertura());
+		int fechamento = minutoDoDia(horario.getHoraFechamento());
+		return fechamento > abertura ? fechamento - abertura : fechamento + MINUTOS_DIA - abertura;
+	}
+
+	private static int minutoDaSemana(DayOfWeek diaSemana, LocalTime hora) {
+		return (diaSemana.getValue() - 1) * MINUTOS_DIA + minutoDoDia(hora);
+	}
+
+	private static int minutoDoDia(LocalTime hora) {
+		return hora.getHour() * 60 + hora.getMinute();
+	}
+
+	private static class Transicoes {
+
+		private final BitSet abrem = new BitSet();
+		private final BitSet fecham = new BitSet();
+
+	}
+
+}
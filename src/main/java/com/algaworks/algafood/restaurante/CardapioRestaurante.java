@@ -0,0 +1,21 @@
+package com.algaworks.algafood.restaurante;
+
+import java.util.List;
+
+import com.algaworks.algafood.dto.ProdutoDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Produtos de um restaurante já convertidos em DTO, a lista completa e só os ativos. As listas não podem ser
+ * alteradas, são as mesmas para todas as requisições enquanto estiverem no CardapioRestauranteCache.
+ */
+@Getter
+@AllArgsConstructor
+public class CardapioRestaurante {
+
+	private final List<ProdutoDTO> ativos;
+	private final List<ProdutoDTO> todos;
+
+}
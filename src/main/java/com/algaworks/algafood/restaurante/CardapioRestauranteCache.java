@@ -0,0 +1,128 @@
+package com.algaworks.algafood.restaurante;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.dto.EstatisticasCacheDTO;
+import com.algaworks.algafood.event.ProdutosRestauranteAlteradosEvent;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+import lombok.AllArgsConstructor;
+
+/*
+ * Cache dos cardápios (GET /restaurantes/{id}/produtos e /produtos/inativos), um por restaurante com os produtos
+ * ativos e todos os produtos. O cardápio é lido muitas vezes para cada alteração, assim o buscarPorId, a consulta dos
+ * produtos e o ModelMapper só rodam quando um produto ou foto do restaurante muda.
+ *
+ * Igual ao VitrineRestauranteCache, cada restaurante tem a sua versão, lida antes da montagem, e um cardápio montado
+ * durante uma alteração já nasce desatualizado. Fica limitado ao tamanhoMaximo, sai o menos acessado, e conta os
+ * acertos, faltas e remoções para as estatísticas.
+ */
+@Component
+public class CardapioRestauranteCache {
+
+	private final RestauranteProperties restauranteProperties;
+
+	private final Map<Long, Long> versoes = new ConcurrentHashMap<>();
+
+	private final LongAdder acertos = new LongAdder();
+
+	private final LongAdder faltas = new LongAdder();
+
+	private final LongAdder remocoes = new LongAdder();
+
+	private final Map<Long, Entrada> entradas = new LinkedHashMap<Long, Entrada>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Entrada> maisAntiga) {
+			if (size() > restauranteProperties.getCardapio().getTamanhoMaximo()) {
+				remocoes.increment();
+				return true;
+			}
+
+			return false;
+		}
+
+	};
+
+	public CardapioRestauranteCache(RestauranteProperties restauranteProperties) {
+		this.restauranteProperties = restauranteProperties;
+	}
+
+	public CardapioRestaurante buscar(Long restauranteId, Function<Long, CardapioRestaurante> montar) {
+		long versaoAtual = versoes.getOrDefault(restauranteId, 0L);
+		Entrada entrada;
+
+		synchronized (entradas) {
+			entrada = entradas.get(restauranteId);
+		}
+
+		if (entrada != null && entrada.versao == versaoAtual) {
+			acertos.increment();
+			return entrada.cardapio;
+		}
+
+		faltas.increment();
+		entrada = new Entrada(versaoAtual, montar.apply(restauranteId));
+
+		synchronized (entradas) {
+			entradas.put(restauranteId, entrada);
+		}
+
+		return entrada.cardapio;
+	}
+
+	public void invalidar(Long restauranteId) {
+		versoes.merge(restauranteId, 1L, Long::sum);
+
+		synchronized (entradas) {
+			entradas.remove(restauranteId);
+		}
+	}
+
+	public EstatisticasCacheDTO buscarEstatisticas() {
+		long totalAcertos = acertos.sum();
+		long totalFaltas = faltas.sum();
+		long leituras = totalAcertos + totalFaltas;
+		int tamanho;
+
+		synchronized (entradas) {
+			tamanho = entradas.size();
+		}
+
+		return new EstatisticasCacheDTO(totalAcertos, totalFaltas, leituras > 0 ? (double) totalAcertos / leituras : 0,
+				remocoes.sum(), tamanho, restauranteProperties.getCardapio().getTamanhoMaximo());
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void produtosRestauranteAlterados(ProdutosRestauranteAlteradosEvent event) {
+		invalidar(event.getRestauranteId());
+	}
+
+	/*
+	 * O restaurante removido não pode continuar respondendo o cardápio. Sem id (alteração em massa) nada muda nos
+	 * produtos, só o ativo dos restaurantes.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void restauranteAlterado(RestauranteAlteradoEvent event) {
+		if (event.getRestauranteId() != null) {
+			invalidar(event.getRestauranteId());
+		}
+	}
+
+	@AllArgsConstructor
+	private static class Entrada {
+
+		private final long versao;
+		private final CardapioRestaurante cardapio;
+
+	}
+
+}
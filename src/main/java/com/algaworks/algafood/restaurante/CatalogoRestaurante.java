@@ -0,0 +1,21 @@
+package com.algaworks.algafood.restaurante;
+
+import java.util.List;
+
+import com.algaworks.algafood.dto.RestauranteRetornoDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Lista de restaurantes já convertida para DTO junto com a versão do cache e o número da montagem, a versão é
+ * usada como ETag da resposta e sempre corresponde à lista devolvida.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogoRestaurante {
+
+	private final String versao;
+	private final List<RestauranteRetornoDTO> restaurantes;
+
+}
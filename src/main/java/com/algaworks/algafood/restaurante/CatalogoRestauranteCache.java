@@ -0,0 +1,203 @@
+package com.algaworks.algafood.restaurante;
+
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.algaworks.algafood.dto.RestauranteRetornoDTO;
+import com.algaworks.algafood.event.AberturaRestaurantesAlteradaEvent;
+import com.algaworks.algafood.event.CidadeAlteradaEvent;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+import lombok.AllArgsConstructor;
+
+/*
+ * Cache da lista de restaurantes já convertida em DTO, com os links, usado pelas listagens do RestauranteController.
+ * A lista muda poucas vezes por hora e é a consulta mais chamada da api, assim o findAllCustom, o ModelMapper e o
+ * LinkManager só rodam quando alguma coisa muda.
+ *
+ * Funciona igual ao ValidacaoPedidoCache: cada alteração confirmada incrementa a versão e a lista é remontada na
+ * próxima leitura. Os links dos DTOs usam o endereço da requisição (host, porta, X-Forwarded-*), por isso é guardada
+ * uma lista por endereço base, limitada ao tamanhoMaximo, e cada lista expira depois do tempoExpiracao.
+ *
+ * A versão de cada lista montada leva o instante em que a api subiu, a versão do cache e um número de montagem,
+ * assim uma lista remontada pela expiração (que pode trazer o nome novo de uma cozinha, alteração que não publica
+ * evento) nunca repete a ETag da anterior, nem uma ETag de antes de um restart coincide com a atual.
+ *
+ * As listagens com JsonView (resumo e apenas nomes) não mostram endereço nem links e usam uma lista à parte, montada
+ * pela projeção buscarResumosParaVisao, igual para qualquer endereço e com a mesma versão do catálogo completo.
+ *
+ * A abertura e o fechamento pelos horários de funcionamento acontecem em massa a cada minuto e só mudam o campo
+ * aberto, então não invalidam o cache: as listas guardadas recebem uma cópia dos restaurantes alterados com o novo
+ * aberto e um número de montagem novo (ETag nova), sem voltar ao banco. O resumo não mostra o aberto e fica igual.
+ */
+@Component
+public class CatalogoRestauranteCache {
+
+	@Autowired
+	private RestauranteProperties restauranteProperties;
+
+	private final String instancia = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+	private final AtomicLong versao = new AtomicLong();
+
+	private final AtomicLong montagens = new AtomicLong();
+
+	private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+	private volatile Entrada resumo;
+
+	public CatalogoRestaurante buscar(Supplier<List<RestauranteRetornoDTO>> carregar) {
+		String enderecoBase = ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+		Entrada entrada = entradas.get(enderecoBase);
+
+		if (entrada == null || !entrada.isValida(versao.get())) {
+			entrada = recarregar(enderecoBase, carregar);
+		}
+
+		return entrada.catalogo;
+	}
+
+	public CatalogoRestaurante buscarResumo(Supplier<List<RestauranteRetornoDTO>> carregar) {
+		Entrada entrada = resumo;
+
+		if (entrada == null || !entrada.isValida(versao.get())) {
+			entrada = recarregarResumo(carregar);
+		}
+
+		return entrada.catalogo;
+	}
+
+	/*
+	 * A versão é lida antes da consulta, se houver alteração durante a montagem a lista já nasce desatualizada e é
+	 * remontada na leitura seguinte. Com o cache cheio sai a lista montada há mais tempo.
+	 */
+	private synchronized Entrada recarregar(String enderecoBase, Supplier<List<RestauranteRetornoDTO>> carregar) {
+		long versaoAtual = versao.get();
+		Entrada entrada = entradas.get(enderecoBase);
+
+		if (entrada != null && entrada.isValida(versaoAtual)) {
+			return entrada;
+		}
+
+		entrada = montar(versaoAtual, carregar);
+
+		if (!entradas.containsKey(enderecoBase) && entradas.size() >= restauranteProperties.getCatalogo().getTamanhoMaximo()) {
+			entradas.entrySet().stream()
+								.min(Comparator.comparing(outra -> outra.getValue().dataExpiracao))
+								.ifPresent(maisAntiga -> entradas.remove(maisAntiga.getKey()));
+		}
+
+		entradas.put(enderecoBase, entrada);
+		return entrada;
+	}
+
+	private synchronized Entrada recarregarResumo(Supplier<List<RestauranteRetornoDTO>> carregar) {
+		long versaoAtual = versao.get();
+
+		if (resumo == null || !resumo.isValida(versaoAtual)) {
+			resumo = montar(versaoAtual, carregar);
+		}
+
+		return resumo;
+	}
+
+	private Entrada montar(long versaoAtual, Supplier<List<RestauranteRetornoDTO>> carregar) {
+		String versaoCatalogo = formatarVersao(versaoAtual, montagens.incrementAndGet());
+		CatalogoRestaurante catalogo = new CatalogoRestaurante(versaoCatalogo, Collections.unmodifiableList(carregar.get()));
+		return new Entrada(versaoAtual, OffsetDateTime.now().plus(restauranteProperties.getCatalogo().getTempoExpiracao()), catalogo);
+	}
+
+	public void invalidar() {
+		versao.incrementAndGet();
+	}
+
+	/*
+	 * O RestauranteAlteradoEvent é publicado por todas as escritas do RestauranteService (salvar, atualizar, remover,
+	 * ativar, abrir, vincularFormaPagamento...) e a cidade aparece no endereço de cada restaurante da lista.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void restauranteAlterado(RestauranteAlteradoEvent event) {
+		invalidar();
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void cidadeAlterada(CidadeAlteradaEvent event) {
+		invalidar();
+	}
+
+	/*
+	 * Sincronizado com a montagem: uma lista montada antes do commit dos updates recebe a alteração logo depois, e
+	 * numa montada depois a cópia só repete o valor que já veio do banco.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public synchronized void aberturaRestaurantesAlterada(AberturaRestaurantesAlteradaEvent event) {
+		Map<Long, Boolean> alterados = new HashMap<>();
+		event.getAbertos().forEach(id -> alterados.put(id, true));
+		event.getFechados().forEach(id -> alterados.put(id, false));
+
+		if (alterados.isEmpty()) {
+			return;
+		}
+
+		// Mesma versão do cache e mesma expiração, só a montagem muda
+		entradas.replaceAll((enderecoBase, entrada) -> new Entrada(entrada.versao, entrada.dataExpiracao,
+				new CatalogoRestaurante(formatarVersao(entrada.versao, montagens.incrementAndGet()),
+										comAberto(entrada.catalogo.getRestaurantes(), alterados))));
+	}
+
+	/*
+	 * Os DTOs que não mudaram continuam sendo os mesmos objetos, os alterados são copiados com os mesmos links
+	 */
+	private static List<RestauranteRetornoDTO> comAberto(List<RestauranteRetornoDTO> restaurantes, Map<Long, Boolean> alterados) {
+		return Collections.unmodifiableList(restaurantes.stream()
+														.map(restaurante -> alterados.containsKey(restaurante.getId())
+																? copiarComAberto(restaurante, alterados.get(restaurante.getId()))
+																: restaurante)
+														.collect(Collectors.toList()));
+	}
+
+	private static RestauranteRetornoDTO copiarComAberto(RestauranteRetornoDTO restaurante, Boolean aberto) {
+		RestauranteRetornoDTO copia = new RestauranteRetornoDTO();
+		copia.setId(restaurante.getId());
+		copia.setNome(restaurante.getNome());
+		copia.setTaxaFrete(restaurante.getTaxaFrete());
+		copia.setCozinha(restaurante.getCozinha());
+		copia.setAtivo(restaurante.getAtivo());
+		copia.setAberto(aberto);
+		copia.setEndereco(restaurante.getEndereco());
+		copia.add(restaurante.getLinks());
+		return copia;
+	}
+
+	private String formatarVersao(long versao, long montagem) {
+		return instancia + "-" + versao + "-" + montagem;
+	}
+
+	@AllArgsConstructor
+	private static class Entrada {
+
+		private final long versao;
+		private final OffsetDateTime dataExpiracao;
+		private final CatalogoRestaurante catalogo;
+
+		private boolean isValida(long versaoAtual) {
+			return versao == versaoAtual && OffsetDateTime.now().isBefore(dataExpiracao);
+		}
+
+	}
+
+}
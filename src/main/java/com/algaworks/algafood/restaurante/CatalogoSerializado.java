@@ -0,0 +1,18 @@
+package com.algaworks.algafood.restaurante;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Json de uma listagem do catálogo já serializado com a JsonView, sem compressão e em gzip, junto com a versão
+ * do catálogo de onde veio. Os arrays são compartilhados entre as requisições e não podem ser alterados.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogoSerializado {
+
+	private final String versao;
+	private final byte[] json;
+	private final byte[] jsonGzip;
+
+}
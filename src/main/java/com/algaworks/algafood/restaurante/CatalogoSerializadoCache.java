@@ -0,0 +1,75 @@
+package com.algaworks.algafood.restaurante;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+
+/*
+ * Bytes das listagens com JsonView do catálogo resumido, um por view. Com o catálogo em cache ainda sobrava o
+ * Jackson percorrer a lista e aplicar a view em toda requisição, gerando sempre os mesmos bytes, agora a
+ * serialização e o gzip acontecem uma vez por versão e a resposta é só a cópia do array para o output stream.
+ *
+ * Cada entrada guarda a instância do CatalogoRestaurante usada, quando o CatalogoRestauranteCache devolve outra
+ * instância (alteração ou expiração) a view é serializada de novo, assim não existe uma segunda versão para
+ * invalidar. O json de cada view tem poucas dezenas de KB, por isso fica no heap mesmo.
+ */
+@Component
+public class CatalogoSerializadoCache {
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final Map<Class<?>, Entrada> entradas = new ConcurrentHashMap<>();
+
+	public CatalogoSerializado buscar(CatalogoRestaurante catalogo, Class<?> view) {
+		Entrada entrada = entradas.get(view);
+
+		if (entrada == null || entrada.catalogo != catalogo) {
+			entrada = new Entrada(catalogo, serializar(catalogo, view));
+			entradas.put(view, entrada);
+		}
+
+		return entrada.serializado;
+	}
+
+	/*
+	 * Duas requisições podem serializar a mesma versão ao mesmo tempo, o resultado é igual e fica o último
+	 */
+	private CatalogoSerializado serializar(CatalogoRestaurante catalogo, Class<?> view) {
+		try {
+			byte[] json = objectMapper.writerWithView(view).writeValueAsBytes(catalogo.getRestaurantes());
+			return new CatalogoSerializado(catalogo.getVersao(), json, comprimir(json));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static byte[] comprimir(byte[] json) throws IOException {
+		ByteArrayOutputStream saida = new ByteArrayOutputStream(json.length / 4);
+
+		try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+			gzip.write(json);
+		}
+
+		return saida.toByteArray();
+	}
+
+	@AllArgsConstructor
+	private static class Entrada {
+
+		private final CatalogoRestaurante catalogo;
+		private final CatalogoSerializado serializado;
+
+	}
+
+}
@@ -0,0 +1,286 @@
+package com.algaworks.algafood.restaurante;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+/*
+ * Índice invertido de trigramas (sequências de 3 letras) dos nomes dos restaurantes, usado nas buscas por parte do
+ * nome. O like '%nome%' não usa índice no MySQL e percorria a tabela inteira, com o índice os restaurantes são
+ * encontrados em memória e o banco só recebe um where id in (...).
+ *
+ * Os nomes são guardados sem acento e em minúsculo, para cada trigrama existe a lista ordenada dos ids dos
+ * restaurantes que o contêm (int[]). Os candidatos são a interseção das listas dos trigramas da busca, e cada
+ * candidato é conferido com um contains no nome, assim o resultado é o mesmo do like só que sem diferenciar
+ * acentos e maiúsculas. Buscas com menos de 3 letras não têm trigrama, o candidato seria qualquer restaurante e
+ * a lista de ids iria inteira para o in, por isso ficam com o like do banco (ver isBuscavel).
+ *
+ * É montado na primeira busca e depois atualizado só no restaurante alterado, a cada RestauranteAlteradoEvent.
+ */
+@Component
+public class IndiceNomeRestaurante {
+
+	private static final int TAMANHO_TRIGRAMA = 3;
+	private static final int[] VAZIO = new int[0];
+	private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+
+	private final EntityManager manager;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<Long, int[]> restaurantesPorTrigrama = new HashMap<>();
+
+	private final Map<Integer, String> nomes = new HashMap<>();
+
+	private volatile boolean carregado;
+
+	public IndiceNomeRestaurante(EntityManager manager) {
+		this.manager = manager;
+	}
+
+	/*
+	 * Remove acentos e diferença entre maiúsculas e minúsculas, "Açaí" e "acai" ficam iguais
+	 */
+	public static String normalizar(String texto) {
+		String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+		return semAcentos.toLowerCase(Locale.ROOT).trim();
+	}
+
+	/*
+	 * Se o termo tem ao menos um trigrama, sem ele a busca tem que ir para o banco
+	 */
+	public static boolean isBuscavel(String nome) {
+		return nome != null && normalizar(nome).length() >= TAMANHO_TRIGRAMA;
+	}
+
+	/*
+	 * Ordem de relevância usada no buscar, para os resultados do like do banco saírem na mesma ordem: nome que começa
+	 * com o termo, depois termo no começo de uma palavra, depois no meio, e em cada grupo os nomes mais curtos.
+	 */
+	public static Comparator<String> comparadorRelevancia(String nome) {
+		String termo = normalizar(nome);
+
+		return Comparator.<String, String>comparing(IndiceNomeRestaurante::normalizar,
+						Comparator.<String>comparingInt(nomeNormalizado -> relevancia(nomeNormalizado, termo))
+									.thenComparingInt(String::length));
+	}
+
+	/*
+	 * Ids dos restaurantes que contêm o nome informado, os mais relevantes primeiro (comparadorRelevancia) e com
+	 * empate pelo id. O termo precisa ser buscável (isBuscavel).
+	 */
+	public List<Long> buscar(String nome) {
+		if (!isBuscavel(nome)) {
+			throw new IllegalArgumentException(nome);
+		}
+
+		carregarSeNecessario();
+
+		String termo = normalizar(nome);
+
+		lock.readLock().lock();
+		try {
+			return Arrays.stream(buscarCandidatos(termo))
+							.filter(id -> nomes.get(id).contains(termo))
+							.boxed()
+							.sorted(Comparator.<Integer>comparingInt(id -> relevancia(nomes.get(id), termo))
+												.thenComparingInt(id -> nomes.get(id).length())
+												.thenComparingInt(id -> id))
+							.map(Integer::longValue)
+							.collect(Collectors.toList());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Só o restaurante alterado é atualizado, com o nome lido do banco depois do commit. Restaurante removido
+	 * não volta na consulta e sai do índice. Se o índice ainda não foi montado não há o que atualizar.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void restauranteAlterado(RestauranteAlteradoEvent event) {
+		lock.writeLock().lock();
+		try {
+			if (!carregado) {
+				return;
+			}
+
+			if (event.getRestauranteId() == null) {
+				carregar();
+				return;
+			}
+
+			int id = Math.toIntExact(event.getRestauranteId());
+			remover(id);
+
+			manager.createQuery("select r.nome from Restaurante r where r.id = :id", String.class)
+					.setParameter("id", event.getRestauranteId())
+					.getResultList()
+					.forEach(novoNome -> adicionar(id, novoNome));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * A montagem acontece com o lock de escrita, uma alteração que chegar durante a montagem espera e é aplicada
+	 * depois, mesmo que a consulta da montagem tenha sido feita antes do commit dela.
+	 */
+	private void carregarSeNecessario() {
+		if (carregado) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (!carregado) {
+				carregar();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void carregar() {
+		restaurantesPorTrigrama.clear();
+		nomes.clear();
+
+		manager.createQuery("select r.id, r.nome from Restaurante r", Object[].class)
+				.getResultList()
+				.forEach(linha -> adicionar(Math.toIntExact((Long) linha[0]), (String) linha[1]));
+
+		carregado = true;
+	}
+
+	private void adicionar(int id, String nome) {
+		String nomeNormalizado = normalizar(nome);
+		nomes.put(id, nomeNormalizado);
+
+		for (long trigrama : trigramas(nomeNormalizado)) {
+			int[] ids = restaurantesPorTrigrama.getOrDefault(trigrama, VAZIO);
+			int posicao = Arrays.binarySearch(ids, id);
+
+			if (posicao < 0) {
+				posicao = -posicao - 1;
+				int[] novosIds = new int[ids.length + 1];
+				System.arraycopy(ids, 0, novosIds, 0, posicao);
+				novosIds[posicao] = id;
+				System.arraycopy(ids, posicao, novosIds, posicao + 1, ids.length - posicao);
+				restaurantesPorTrigrama.put(trigrama, novosIds);
+			}
+		}
+	}
+
+	private void remover(int id) {
+		String nomeAnterior = nomes.remove(id);
+
+		if (nomeAnterior == null) {
+			return;
+		}
+
+		for (long trigrama : trigramas(nomeAnterior)) {
+			int[] ids = restaurantesPorTrigrama.getOrDefault(trigrama, VAZIO);
+			int posicao = Arrays.binarySearch(ids, id);
+
+			if (posicao < 0) {
+				continue;
+			}
+
+			if (ids.length == 1) {
+				restaurantesPorTrigrama.remove(trigrama);
+			} else {
+				int[] novosIds = new int[ids.length - 1];
+				System.arraycopy(ids, 0, novosIds, 0, posicao);
+				System.arraycopy(ids, posicao + 1, novosIds, posicao, ids.length - posicao - 1);
+				restaurantesPorTrigrama.put(trigrama, novosIds);
+			}
+		}
+	}
+
+	/*
+	 * Interseção das listas começando pela menor, cada passo só pode diminuir o resultado
+	 */
+	private int[] buscarCandidatos(String termo) {
+		List<int[]> listas = new ArrayList<>();
+
+		for (long trigrama : trigramas(termo)) {
+			int[] ids = restaurantesPorTrigrama.get(trigrama);
+
+			if (ids == null) {
+				return VAZIO;
+			}
+
+			listas.add(ids);
+		}
+
+		listas.sort(Comparator.comparingInt(ids -> ids.length));
+
+		int[] resultado = listas.get(0);
+
+		for (int i = 1; i < listas.size() && resultado.length > 0; i++) {
+			resultado = intersecao(resultado, listas.get(i));
+		}
+
+		return resultado;
+	}
+
+	private static int[] intersecao(int[] a, int[] b) {
+		int[] resultado = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, tamanho = 0;
+
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				resultado[tamanho++] = a[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(resultado, tamanho);
+	}
+
+	/*
+	 * Cada trigrama é guardado como um long com os 3 caracteres de 16 bits, sem criar Strings
+	 */
+	private static Set<Long> trigramas(String texto) {
+		Set<Long> trigramas = new LinkedHashSet<>();
+
+		for (int i = 0; i + TAMANHO_TRIGRAMA <= texto.length(); i++) {
+			trigramas.add(((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2));
+		}
+
+		return trigramas;
+	}
+
+	private static int relevancia(String nome, String termo) {
+		if (nome.startsWith(termo)) {
+			return 0;
+		}
+
+		return nome.contains(" " + termo) ? 1 : 2;
+	}
+
+}
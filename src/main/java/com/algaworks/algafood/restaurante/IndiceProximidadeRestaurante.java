@@ -0,0 +1,241 @@
+package com.algaworks.algafood.restaurante;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.dto.CozinhaDTO;
+import com.algaworks.algafood.dto.RestauranteProximoDTO;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+import lombok.AllArgsConstructor;
+
+/*
+ * Grade uniforme com os restaurantes ativos que têm latitude e longitude, usada na busca de restaurantes
+ * próximos. Só os abertos entram no resultado, conferidos no RestaurantesAbertos na hora da busca, assim a abertura
+ * e o fechamento pelos horários de funcionamento não alteram a grade. Cada célula tem tamanhoCelula graus de lado e guarda os restaurantes que estão dentro dela, a busca só
+ * olha as células que cobrem o raio e calcula a distância (haversine) desses restaurantes, sem ir ao banco.
+ *
+ * Junto com as coordenadas ficam os dados da resposta (nome, taxa de frete e cozinha), lidos na montagem e a cada
+ * RestauranteAlteradoEvent do restaurante. O nome da cozinha é atualizado na próxima alteração do restaurante.
+ *
+ * Igual ao IndiceNomeRestaurante, é montado na primeira busca e sem id no evento (alteração em massa) é remontado.
+ */
+@Component
+public class IndiceProximidadeRestaurante {
+
+	private static final double RAIO_TERRA_KM = 6371.0088;
+	private static final double KM_POR_GRAU = Math.PI * RAIO_TERRA_KM / 180;
+
+	private static final String CONSULTA = "select r.id, r.nome, r.taxaFrete, c.id, c.nome, r.endereco.latitude, r.endereco.longitude "
+										 + "from Restaurante r join r.cozinha c "
+										 + "where r.ativo = true "
+										 + "and r.endereco.latitude is not null and r.endereco.longitude is not null";
+
+	private final EntityManager manager;
+
+	private final RestauranteProperties restauranteProperties;
+
+	private final RestaurantesAbertos restaurantesAbertos;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<Long, List<Localizacao>> celulas = new HashMap<>();
+
+	private final Map<Long, Localizacao> localizacoes = new HashMap<>();
+
+	private volatile boolean carregado;
+
+	public IndiceProximidadeRestaurante(EntityManager manager, RestauranteProperties restauranteProperties,
+			RestaurantesAbertos restaurantesAbertos) {
+		this.manager = manager;
+		this.restauranteProperties = restauranteProperties;
+		this.restaurantesAbertos = restaurantesAbertos;
+	}
+
+	/*
+	 * Restaurantes até raioKm da coordenada, do mais próximo para o mais distante, no máximo quantidadeMaxima
+	 */
+	public List<RestauranteProximoDTO> buscar(double latitude, double longitude, double raioKm) {
+		carregarSeNecessario();
+
+		double tamanhoCelula = restauranteProperties.getProximidade().getTamanhoCelula();
+		double grausLatitude = raioKm / KM_POR_GRAU;
+		double grausLongitude = Math.min(180, raioKm / (KM_POR_GRAU * Math.max(Math.cos(Math.toRadians(latitude)), 1e-6)));
+
+		long linhaInicial = celula(latitude - grausLatitude, tamanhoCelula);
+		long linhaFinal = celula(latitude + grausLatitude, tamanhoCelula);
+		long colunaInicial = celula(longitude - grausLongitude, tamanhoCelula);
+		long colunaFinal = celula(longitude + grausLongitude, tamanhoCelula);
+
+		List<Distancia> encontrados = new ArrayList<>();
+
+		lock.readLock().lock();
+		try {
+			for (long linha = linhaInicial; linha <= linhaFinal; linha++) {
+				for (long coluna = colunaInicial; coluna <= colunaFinal; coluna++) {
+					List<Localizacao> celula = celulas.get(chave(linha, coluna));
+
+					if (celula == null) {
+						continue;
+					}
+
+					for (Localizacao localizacao : celula) {
+						double distanciaKm = distanciaKm(latitude, longitude, localizacao.latitude, localizacao.longitude);
+
+						if (distanciaKm <= raioKm && restaurantesAbertos.isAberto(localizacao.id)) {
+							encontrados.add(new Distancia(localizacao, distanciaKm));
+						}
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		return encontrados.stream()
+							.sorted(Comparator.comparingDouble((Distancia encontrado) -> encontrado.km)
+												.thenComparingLong(encontrado -> encontrado.localizacao.id))
+							.limit(restauranteProperties.getProximidade().getQuantidadeMaxima())
+							.map(Distancia::paraDTO)
+							.collect(Collectors.toList());
+	}
+
+	/*
+	 * O restaurante sai da grade e volta se ainda estiver ativo e com coordenadas depois do commit
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void restauranteAlterado(RestauranteAlteradoEvent event) {
+		lock.writeLock().lock();
+		try {
+			if (!carregado) {
+				return;
+			}
+
+			if (event.getRestauranteId() == null) {
+				carregar();
+				return;
+			}
+
+			remover(event.getRestauranteId());
+
+			manager.createQuery(CONSULTA + " and r.id = :id", Object[].class)
+					.setParameter("id", event.getRestauranteId())
+					.getResultList()
+					.forEach(this::adicionar);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void carregarSeNecessario() {
+		if (carregado) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (!carregado) {
+				carregar();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void carregar() {
+		celulas.clear();
+		localizacoes.clear();
+
+		manager.createQuery(CONSULTA, Object[].class)
+				.getResultList()
+				.forEach(this::adicionar);
+
+		carregado = true;
+	}
+
+	private void adicionar(Object[] linha) {
+		double latitude = ((BigDecimal) linha[5]).doubleValue();
+		double longitude = ((BigDecimal) linha[6]).doubleValue();
+		double tamanhoCelula = restauranteProperties.getProximidade().getTamanhoCelula();
+
+		Localizacao localizacao = new Localizacao((Long) linha[0], (String) linha[1], (BigDecimal) linha[2], (Long) linha[3], (String) linha[4],
+				latitude, longitude, chave(celula(latitude, tamanhoCelula), celula(longitude, tamanhoCelula)));
+
+		localizacoes.put(localizacao.id, localizacao);
+		celulas.computeIfAbsent(localizacao.celula, celula -> new ArrayList<>()).add(localizacao);
+	}
+
+	private void remover(Long id) {
+		Localizacao localizacao = localizacoes.remove(id);
+
+		if (localizacao == null) {
+			return;
+		}
+
+		List<Localizacao> celula = celulas.get(localizacao.celula);
+		celula.remove(localizacao);
+
+		if (celula.isEmpty()) {
+			celulas.remove(localizacao.celula);
+		}
+	}
+
+	private static long celula(double graus, double tamanhoCelula) {
+		return (long) Math.floor(graus / tamanhoCelula);
+	}
+
+	private static long chave(long linha, long coluna) {
+		return (linha << 32) | (coluna & 0xFFFFFFFFL);
+	}
+
+	private static double distanciaKm(double latitude, double longitude, double outraLatitude, double outraLongitude) {
+		double senoLatitude = Math.sin(Math.toRadians(outraLatitude - latitude) / 2);
+		double senoLongitude = Math.sin(Math.toRadians(outraLongitude - longitude) / 2);
+
+		double a = senoLatitude * senoLatitude
+				 + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(outraLatitude)) * senoLongitude * senoLongitude;
+
+		return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	@AllArgsConstructor
+	private static class Localizacao {
+
+		private final Long id;
+		private final String nome;
+		private final BigDecimal taxaFrete;
+		private final Long cozinhaId;
+		private final String cozinhaNome;
+		private final double latitude;
+		private final double longitude;
+		private final long celula;
+
+	}
+
+	@AllArgsConstructor
+	private static class Distancia {
+
+		private final Localizacao localizacao;
+		private final double km;
+
+		private RestauranteProximoDTO paraDTO() {
+			return new RestauranteProximoDTO(localizacao.id, localizacao.nome, localizacao.taxaFrete,
+					new CozinhaDTO(localizacao.cozinhaId, localizacao.cozinhaNome), Math.round(km * 1000));
+		}
+
+	}
+
+}
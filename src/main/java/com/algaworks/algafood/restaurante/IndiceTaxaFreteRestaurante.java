@@ -0,0 +1,201 @@
+package com.algaworks.algafood.restaurante;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+import com.algaworks.algafood.util.Centavos;
+
+import lombok.AllArgsConstructor;
+
+/*
+ * Índice ordenado das taxas de frete dos restaurantes, usado nas buscas por faixa de frete e de frete grátis. A
+ * coluna taxa_frete não tinha índice no banco e cada busca percorria a tabela inteira, aqui a faixa é encontrada com
+ * duas buscas binárias e o banco só recebe um where id in (...) com os restaurantes encontrados. O índice
+ * idx_restaurante_taxa_frete_id criado depois atende a listagem por cursor, não estas buscas.
+ *
+ * São dois arrays paralelos, as taxas em centavos (long) e os ids (int), ordenados por taxa e depois por id. Cada
+ * alteração monta arrays novos e troca a referência, assim as buscas não usam lock e sempre enxergam um estado
+ * completo. As alterações são poucas e a cópia dos arrays custa menos que uma consulta.
+ *
+ * Igual ao IndiceNomeRestaurante, é montado na primeira busca e atualizado a cada RestauranteAlteradoEvent.
+ */
+@Component
+public class IndiceTaxaFreteRestaurante {
+
+	private static final Posicoes VAZIO = new Posicoes(new long[0], new int[0]);
+
+	private final EntityManager manager;
+
+	private volatile Posicoes posicoes;
+
+	public IndiceTaxaFreteRestaurante(EntityManager manager) {
+		this.manager = manager;
+	}
+
+	/*
+	 * Ids dos restaurantes com taxa de frete entre as informadas (inclusive), da menor taxa para a maior. Taxa
+	 * null deixa a faixa aberta daquele lado, sem as duas traz todos.
+	 */
+	public List<Long> buscarPorFaixa(BigDecimal taxaInicial, BigDecimal taxaFinal) {
+		long inicial = taxaInicial != null ? Centavos.de(taxaInicial.setScale(2, RoundingMode.CEILING)) : Long.MIN_VALUE;
+		long fim = taxaFinal != null ? Centavos.de(taxaFinal.setScale(2, RoundingMode.FLOOR)) : Long.MAX_VALUE;
+
+		Posicoes atual = carregarSeNecessario();
+
+		if (inicial > fim) {
+			return new ArrayList<>();
+		}
+
+		int de = primeiraPosicao(atual.taxas, inicial);
+		int ate = primeiraPosicao(atual.taxas, fim == Long.MAX_VALUE ? fim : fim + 1);
+
+		List<Long> ids = new ArrayList<>(ate - de);
+
+		for (int i = de; i < ate; i++) {
+			ids.add((long) atual.ids[i]);
+		}
+
+		return ids;
+	}
+
+	public List<Long> buscarComFreteGratis() {
+		return buscarPorFaixa(BigDecimal.ZERO, BigDecimal.ZERO);
+	}
+
+	/*
+	 * Restaurante alterado sai dos arrays e volta com a taxa lida do banco depois do commit, restaurante removido
+	 * não volta. Sem id (alteração em massa) o índice é montado de novo.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public synchronized void restauranteAlterado(RestauranteAlteradoEvent event) {
+		if (posicoes == null) {
+			return;
+		}
+
+		if (event.getRestauranteId() == null) {
+			posicoes = carregar();
+			return;
+		}
+
+		int id = Math.toIntExact(event.getRestauranteId());
+		Posicoes atual = remover(posicoes, id);
+
+		for (BigDecimal taxaFrete : manager.createQuery("select r.taxaFrete from Restaurante r where r.id = :id", BigDecimal.class)
+												.setParameter("id", event.getRestauranteId())
+												.getResultList()) {
+			atual = adicionar(atual, Centavos.de(taxaFrete), id);
+		}
+
+		posicoes = atual;
+	}
+
+	private Posicoes carregarSeNecessario() {
+		Posicoes atual = posicoes;
+
+		if (atual != null) {
+			return atual;
+		}
+
+		synchronized (this) {
+			if (posicoes == null) {
+				posicoes = carregar();
+			}
+
+			return posicoes;
+		}
+	}
+
+	private Posicoes carregar() {
+		List<Object[]> linhas = manager.createQuery("select r.taxaFrete, r.id from Restaurante r order by r.taxaFrete, r.id", Object[].class)
+										.getResultList();
+
+		long[] taxas = new long[linhas.size()];
+		int[] ids = new int[linhas.size()];
+
+		for (int i = 0; i < linhas.size(); i++) {
+			taxas[i] = Centavos.de((BigDecimal) linhas.get(i)[0]);
+			ids[i] = Math.toIntExact((Long) linhas.get(i)[1]);
+		}
+
+		return new Posicoes(taxas, ids);
+	}
+
+	/*
+	 * O id não está ordenado no array inteiro, só dentro de cada taxa, então a posição do id é procurada percorrendo
+	 */
+	private static Posicoes remover(Posicoes atual, int id) {
+		for (int i = 0; i < atual.ids.length; i++) {
+			if (atual.ids[i] == id) {
+				if (atual.ids.length == 1) {
+					return VAZIO;
+				}
+
+				long[] taxas = new long[atual.taxas.length - 1];
+				int[] ids = new int[atual.ids.length - 1];
+				System.arraycopy(atual.taxas, 0, taxas, 0, i);
+				System.arraycopy(atual.taxas, i + 1, taxas, i, taxas.length - i);
+				System.arraycopy(atual.ids, 0, ids, 0, i);
+				System.arraycopy(atual.ids, i + 1, ids, i, ids.length - i);
+				return new Posicoes(taxas, ids);
+			}
+		}
+
+		return atual;
+	}
+
+	private static Posicoes adicionar(Posicoes atual, long taxa, int id) {
+		int posicao = primeiraPosicao(atual.taxas, taxa);
+
+		while (posicao < atual.taxas.length && atual.taxas[posicao] == taxa && atual.ids[posicao] < id) {
+			posicao++;
+		}
+
+		long[] taxas = new long[atual.taxas.length + 1];
+		int[] ids = new int[atual.ids.length + 1];
+		System.arraycopy(atual.taxas, 0, taxas, 0, posicao);
+		System.arraycopy(atual.taxas, posicao, taxas, posicao + 1, atual.taxas.length - posicao);
+		System.arraycopy(atual.ids, 0, ids, 0, posicao);
+		System.arraycopy(atual.ids, posicao, ids, posicao + 1, atual.ids.length - posicao);
+		taxas[posicao] = taxa;
+		ids[posicao] = id;
+		return new Posicoes(taxas, ids);
+	}
+
+	/*
+	 * Primeira posição com taxa maior ou igual à informada, ou o tamanho do array se não existir
+	 */
+	private static int primeiraPosicao(long[] taxas, long taxa) {
+		int inicio = 0;
+		int fim = taxas.length;
+
+		while (inicio < fim) {
+			int meio = (inicio + fim) >>> 1;
+
+			if (taxas[meio] < taxa) {
+				inicio = meio + 1;
+			} else {
+				fim = meio;
+			}
+		}
+
+		return inicio;
+	}
+
+	@AllArgsConstructor
+	private static class Posicoes {
+
+		private final long[] taxas;
+		private final int[] ids;
+
+	}
+
+}
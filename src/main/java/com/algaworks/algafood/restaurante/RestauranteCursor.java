@@ -0,0 +1,73 @@
+package com.algaworks.algafood.restaurante;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.enuns.OrdenacaoRestaurante;
+import com.algaworks.algafood.exception.NegocioException;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Posição da listagem de restaurantes por cursor (keyset), igual ao PedidoCursor, mas com a ordenação junto: guarda
+ * o nome ou a taxa de frete e o id do último restaurante entregue. Um cursor gerado em uma ordenação não vale na
+ * outra, porque a posição não teria o mesmo significado.
+ */
+@Getter
+@AllArgsConstructor
+public class RestauranteCursor {
+
+	private static final String MSG_CURSOR_INVALIDO = "O cursor %s informado é inválido";
+
+	private final OrdenacaoRestaurante ordenacao;
+	private final String nome;
+	private final BigDecimal taxaFrete;
+	private final Long id;
+
+	public static RestauranteCursor posicaoDo(Restaurante restaurante, OrdenacaoRestaurante ordenacao) {
+		return new RestauranteCursor(ordenacao, restaurante.getNome(), restaurante.getTaxaFrete(), restaurante.getId());
+	}
+
+	/*
+	 * O valor vai por último porque o nome pode ter dois pontos
+	 */
+	public String codificar() {
+		String valor = ordenacao == OrdenacaoRestaurante.NOME ? nome : taxaFrete.toPlainString();
+		String posicao = ordenacao.name() + ":" + id + ":" + valor;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(posicao.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * Cursor em branco indica a primeira página, por isso devolve null.
+	 */
+	public static RestauranteCursor decodificar(String cursor, OrdenacaoRestaurante ordenacao) {
+		if (StringUtils.isBlank(cursor)) {
+			return null;
+		}
+
+		try {
+			String posicao = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] ordenacaoIdEValor = posicao.split(":", 3);
+
+			if (OrdenacaoRestaurante.valueOf(ordenacaoIdEValor[0]) != ordenacao) {
+				throw new IllegalArgumentException(posicao);
+			}
+
+			Long id = Long.valueOf(ordenacaoIdEValor[1]);
+
+			if (ordenacao == OrdenacaoRestaurante.NOME) {
+				return new RestauranteCursor(ordenacao, ordenacaoIdEValor[2], null, id);
+			}
+
+			return new RestauranteCursor(ordenacao, null, new BigDecimal(ordenacaoIdEValor[2]), id);
+		} catch (RuntimeException e) {
+			throw new NegocioException(String.format(MSG_CURSOR_INVALIDO, cursor), e);
+		}
+	}
+
+}
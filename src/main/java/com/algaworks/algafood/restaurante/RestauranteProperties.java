@@ -0,0 +1,121 @@
+package com.algaworks.algafood.restaurante;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+/*
+    Configurações dos restaurantes definidas no application.properties com o prefixo algafood.restaurante
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("algafood.restaurante")
+public class RestauranteProperties {
+
+    private Catalogo catalogo = new Catalogo();
+
+    private Lote lote = new Lote();
+
+    private Proximidade proximidade = new Proximidade();
+
+    private Funcionamento funcionamento = new Funcionamento();
+
+    private Cursor cursor = new Cursor();
+
+    private Exportacao exportacao = new Exportacao();
+
+    private Vitrine vitrine = new Vitrine();
+
+    private Cardapio cardapio = new Cardapio();
+
+    /*
+        algafood.restaurante.catalogo.tamanhoMaximo - quantidade de listas guardadas, uma por endereço base dos links
+        algafood.restaurante.catalogo.tempoExpiracao - tempo máximo de uma lista no cache mesmo sem alterações
+     */
+    @Getter
+    @Setter
+    public class Catalogo {
+        private int tamanhoMaximo = 4;
+        private Duration tempoExpiracao = Duration.ofMinutes(5);
+    }
+
+    /*
+        algafood.restaurante.lote.tamanhoBloco - quantidade de ids por comando (in (...)) nas alterações em massa
+        e nas buscas por nome e taxa de frete
+     */
+    @Getter
+    @Setter
+    public class Lote {
+        private int tamanhoBloco = 1000;
+    }
+
+    /*
+        algafood.restaurante.proximidade.tamanhoCelula - lado de cada célula da grade do índice, em graus
+        algafood.restaurante.proximidade.raioPadrao - raio em km quando a busca não informa o raio
+        algafood.restaurante.proximidade.raioMaximo - maior raio em km aceito na busca
+        algafood.restaurante.proximidade.quantidadeMaxima - quantidade máxima de restaurantes devolvidos
+     */
+    @Getter
+    @Setter
+    public class Proximidade {
+        private double tamanhoCelula = 0.05;
+        private double raioPadrao = 5;
+        private double raioMaximo = 50;
+        private int quantidadeMaxima = 100;
+    }
+
+    /*
+        algafood.restaurante.funcionamento.fusoHorario - fuso horário dos horários de funcionamento dos restaurantes
+     */
+    @Getter
+    @Setter
+    public class Funcionamento {
+        private ZoneId fusoHorario = ZoneId.of("America/Sao_Paulo");
+    }
+
+    /*
+        algafood.restaurante.cursor.tamanhoMaximoPagina - maior quantidade de restaurantes por página na listagem por cursor
+     */
+    @Getter
+    @Setter
+    public class Cursor {
+        private int tamanhoMaximoPagina = 100;
+    }
+
+    /*
+        algafood.restaurante.exportacao.tamanhoBloco - quantidade de restaurantes lidos e escritos por vez no export em json
+        algafood.restaurante.exportacao.tempoLimite - tempo limite assíncrono da requisição do export
+     */
+    @Getter
+    @Setter
+    public class Exportacao {
+        private int tamanhoBloco = 500;
+        private Duration tempoLimite = Duration.ofMinutes(10);
+    }
+
+    /*
+        algafood.restaurante.vitrine.tamanhoMaximo - quantidade de vitrines guardadas, sai a menos acessada
+        algafood.restaurante.vitrine.tempoExpiracao - tempo máximo de uma vitrine no cache mesmo sem alterações
+     */
+    @Getter
+    @Setter
+    public class Vitrine {
+        private int tamanhoMaximo = 1000;
+        private Duration tempoExpiracao = Duration.ofMinutes(5);
+    }
+
+    /*
+        algafood.restaurante.cardapio.tamanhoMaximo - quantidade de cardápios guardados, sai o menos acessado
+     */
+    @Getter
+    @Setter
+    public class Cardapio {
+        private int tamanhoMaximo = 1000;
+    }
+
+}
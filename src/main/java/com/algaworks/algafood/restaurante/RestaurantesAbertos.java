@@ -0,0 +1,104 @@
+package com.algaworks.algafood.restaurante;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.event.AberturaRestaurantesAlteradaEvent;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+/*
+ * Restaurantes abertos agora, um bit por id, usado pelos filtros de aberto das buscas sem consultar o banco.
+ * Reflete a coluna aberto, alterada pelo abrir/fechar e pelos horários de funcionamento.
+ *
+ * Cada alteração cria um BitSet novo e troca a referência, as consultas não usam lock.
+ */
+@Component
+public class RestaurantesAbertos {
+
+	@PersistenceContext
+	private EntityManager manager;
+
+	private volatile BitSet abertos;
+
+	public boolean isAberto(Long restauranteId) {
+		return carregarSeNecessario().get(Math.toIntExact(restauranteId));
+	}
+
+	/*
+	 * Mantém a ordem dos ids informados
+	 */
+	public List<Long> filtrarAbertos(List<Long> restauranteIds) {
+		BitSet atual = carregarSeNecessario();
+
+		return restauranteIds.stream()
+								.filter(id -> atual.get(Math.toIntExact(id)))
+								.collect(Collectors.toList());
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public synchronized void restauranteAlterado(RestauranteAlteradoEvent event) {
+		if (abertos == null) {
+			return;
+		}
+
+		if (event.getRestauranteId() == null) {
+			abertos = carregar();
+			return;
+		}
+
+		List<Boolean> aberto = manager.createQuery("select r.aberto from Restaurante r where r.id = :id", Boolean.class)
+										.setParameter("id", event.getRestauranteId())
+										.getResultList();
+
+		BitSet novo = (BitSet) abertos.clone();
+		novo.set(Math.toIntExact(event.getRestauranteId()), !aberto.isEmpty() && Boolean.TRUE.equals(aberto.get(0)));
+		abertos = novo;
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public synchronized void aberturaRestaurantesAlterada(AberturaRestaurantesAlteradaEvent event) {
+		if (abertos == null) {
+			return;
+		}
+
+		BitSet novo = (BitSet) abertos.clone();
+		event.getAbertos().forEach(id -> novo.set(Math.toIntExact(id)));
+		event.getFechados().forEach(id -> novo.clear(Math.toIntExact(id)));
+		abertos = novo;
+	}
+
+	private BitSet carregarSeNecessario() {
+		BitSet atual = abertos;
+
+		if (atual != null) {
+			return atual;
+		}
+
+		synchronized (this) {
+			if (abertos == null) {
+				abertos = carregar();
+			}
+
+			return abertos;
+		}
+	}
+
+	private BitSet carregar() {
+		BitSet carregados = new BitSet();
+
+		manager.createQuery("select r.id from Restaurante r where r.aberto = true", Long.class)
+				.getResultList()
+				.forEach(id -> carregados.set(Math.toIntExact(id)));
+
+		return carregados;
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.algaworks.algafood.restaurante;
+
+import com.algaworks.algafood.dto.VitrineRestauranteDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Vitrine de um restaurante junto com a versão e o número da montagem, igual ao CatalogoRestaurante a versão é a ETag
+ * da resposta e sempre corresponde à vitrine devolvida.
+ */
+@Getter
+@AllArgsConstructor
+public class VitrineRestaurante {
+
+	private final String versao;
+	private final VitrineRestauranteDTO vitrine;
+
+}
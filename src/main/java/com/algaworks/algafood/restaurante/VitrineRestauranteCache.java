@@ -0,0 +1,157 @@
+package com.algaworks.algafood.restaurante;
+
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.algaworks.algafood.dto.VitrineRestauranteDTO;
+import com.algaworks.algafood.event.AberturaRestaurantesAlteradaEvent;
+import com.algaworks.algafood.event.CidadeAlteradaEvent;
+import com.algaworks.algafood.event.FormaPagamentoAlteradaEvent;
+import com.algaworks.algafood.event.ProdutosRestauranteAlteradosEvent;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+import lombok.AllArgsConstructor;
+
+/*
+ * Cache das vitrines (GET /restaurantes/{id}/vitrine), uma por restaurante. Segue o CatalogoRestauranteCache, mas a
+ * versão é por restaurante: a alteração de um restaurante ou dos produtos dele só invalida a vitrine dele. Cidade,
+ * forma de pagamento e alterações em massa aparecem em vários restaurantes e incrementam a versão geral.
+ *
+ * As vitrines guardadas ficam limitadas ao tamanhoMaximo, sai a menos acessada, e expiram depois do tempoExpiracao por
+ * causa das alterações que não publicam evento (o nome da cozinha, por exemplo). Por isso a versão devolvida como ETag
+ * leva também o número da montagem (instância-geral-restaurante-montagem), uma vitrine remontada pela expiração nunca
+ * repete a ETag da anterior.
+ *
+ * A versão de cada restaurante vem de uma sequência única e sai do mapa junto com a vitrine, sem versão o restaurante
+ * fica com 0, que nunca é reaproveitado por uma alteração.
+ */
+@Component
+public class VitrineRestauranteCache {
+
+	@Autowired
+	private RestauranteProperties restauranteProperties;
+
+	private final String instancia = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+	private final AtomicLong versaoGeral = new AtomicLong();
+
+	private final AtomicLong sequencia = new AtomicLong();
+
+	private final AtomicLong montagens = new AtomicLong();
+
+	private final Map<Long, Long> versoes = new ConcurrentHashMap<>();
+
+	private final Map<Long, Entrada> entradas = new LinkedHashMap<Long, Entrada>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Entrada> maisAntiga) {
+			if (size() <= restauranteProperties.getVitrine().getTamanhoMaximo()) {
+				return false;
+			}
+
+			versoes.remove(maisAntiga.getKey());
+			return true;
+		}
+
+	};
+
+	/*
+	 * A versão é lida antes da montagem, se o restaurante for alterado no meio a vitrine já nasce desatualizada e
+	 * é montada de novo na leitura seguinte. A montagem fica fora do lock para não segurar as outras vitrines.
+	 */
+	public VitrineRestaurante buscar(Long restauranteId, Function<Long, VitrineRestauranteDTO> montar) {
+		String versaoAtual = versaoCache(restauranteId);
+		Entrada entrada;
+
+		synchronized (entradas) {
+			entrada = entradas.get(restauranteId);
+		}
+
+		if (entrada == null || !entrada.isValida(versaoAtual)) {
+			VitrineRestauranteDTO vitrine = montar.apply(restauranteId);
+
+			entrada = new Entrada(versaoAtual, OffsetDateTime.now().plus(restauranteProperties.getVitrine().getTempoExpiracao()),
+								  new VitrineRestaurante(versaoAtual + "-" + montagens.incrementAndGet(), vitrine));
+
+			synchronized (entradas) {
+				entradas.put(restauranteId, entrada);
+			}
+		}
+
+		return entrada.vitrine;
+	}
+
+	public void invalidar(Long restauranteId) {
+		versoes.put(restauranteId, sequencia.incrementAndGet());
+
+		synchronized (entradas) {
+			entradas.remove(restauranteId);
+		}
+	}
+
+	public void invalidarTodas() {
+		versaoGeral.incrementAndGet();
+
+		synchronized (entradas) {
+			entradas.clear();
+			versoes.clear();
+		}
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void restauranteAlterado(RestauranteAlteradoEvent event) {
+		if (event.getRestauranteId() == null) {
+			invalidarTodas();
+		} else {
+			invalidar(event.getRestauranteId());
+		}
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void produtosRestauranteAlterados(ProdutosRestauranteAlteradosEvent event) {
+		invalidar(event.getRestauranteId());
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void aberturaRestaurantesAlterada(AberturaRestaurantesAlteradaEvent event) {
+		event.getAbertos().forEach(this::invalidar);
+		event.getFechados().forEach(this::invalidar);
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void cidadeAlterada(CidadeAlteradaEvent event) {
+		invalidarTodas();
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void formaPagamentoAlterada(FormaPagamentoAlteradaEvent event) {
+		invalidarTodas();
+	}
+
+	private String versaoCache(Long restauranteId) {
+		return instancia + "-" + versaoGeral.get() + "-" + versoes.getOrDefault(restauranteId, 0L);
+	}
+
+	@AllArgsConstructor
+	private static class Entrada {
+
+		private final String versaoCache;
+		private final OffsetDateTime dataExpiracao;
+		private final VitrineRestaurante vitrine;
+
+		private boolean isValida(String versaoAtual) {
+			return versaoCache.equals(versaoAtual) && OffsetDateTime.now().isBefore(dataExpiracao);
+		}
+
+	}
+
+}
@@ -9,6 +9,10 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
+
+import javax.servlet.http.HttpServletRequestWrapper;
 
 @Configuration
 @EnableWebSecurity
@@ -22,8 +26,35 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
             .and()
                 .cors() // Habilita o cors para requisicoes externas no resource server
             .and()
-                .oauth2ResourceServer().opaqueToken();
+                .oauth2ResourceServer()
+                    .bearerTokenResolver(bearerTokenResolver())
+                    .opaqueToken();
+
+    }
+
+    /*
+        O DefaultBearerTokenResolver procura o token também no parâmetro access_token, e o getParameterValues faz o
+        Tomcat ler o corpo multipart inteiro antes do controller, o que anula o upload em streaming (foto-stream).
+        Em requisição multipart o token só é aceito no header Authorization.
+     */
+    @Bean
+    public BearerTokenResolver bearerTokenResolver() {
+        DefaultBearerTokenResolver resolver = new DefaultBearerTokenResolver();
+
+        return request -> {
+            if (request.getContentType() == null || !request.getContentType().toLowerCase().startsWith("multipart/")) {
+                return resolver.resolve(request);
+            }
+
+            return resolver.resolve(new HttpServletRequestWrapper(request) {
+
+                @Override
+                public String[] getParameterValues(String name) {
+                    return null;
+                }
 
+            });
+        };
     }
 
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import com.algaworks.algafood.dto.input.CidadeInputDTO;
 import lombok.var;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.hateoas.CollectionModel;
@@ -15,6 +16,7 @@ import com.algaworks.algafood.dto.CidadeDTO;
 import com.algaworks.algafood.dto.conversor.CidadeConversor;
 import com.algaworks.algafood.entity.Cidade;
 import com.algaworks.algafood.entity.Estado;
+import com.algaworks.algafood.event.CidadeAlteradaEvent;
 import com.algaworks.algafood.exception.CidadeNaoEncotradaException;
 import com.algaworks.algafood.exception.EntidadeEmUsoException;
 import com.algaworks.algafood.exception.EntidadeNaoEncotradaException;
@@ -37,6 +39,9 @@ public class CidadeService {
 	@Autowired
 	private CidadeConversor conversor;
 	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
 	public CollectionModel<CidadeDTO> listar() {
 		return conversor.toCollectionModel(repository.findAll());
 	}
@@ -45,6 +50,10 @@ public class CidadeService {
 		return repository.findById(id).orElseThrow(() -> new CidadeNaoEncotradaException(id));
 	}
 	
+	public Cidade buscarReferenciaPorId(Long id) {
+		return repository.getOne(id);
+	}
+	
 	public CidadeDTO buscarDtoPorId(Long id) {
 		Cidade cidade = buscarPorId(id);	
 		return conversor.toModel(cidade);
@@ -59,7 +68,9 @@ public class CidadeService {
 			Cidade cidade = new Cidade();
 			cidade.setNome(dto.getNome());
 			cidade.setEstado(estado);
-			return conversor.toModel(repository.save(cidade));
+			cidade = repository.save(cidade);
+			eventPublisher.publishEvent(new CidadeAlteradaEvent(cidade.getId()));
+			return conversor.toModel(cidade);
 		} catch (EntidadeNaoEncotradaException e) {
 			throw new NegocioException(e.getMessage());
 		}		
@@ -79,6 +90,7 @@ public class CidadeService {
 			}
 			
 			conversor.copiarParaObjeto(dto, cidadeAtual);
+			eventPublisher.publishEvent(new CidadeAlteradaEvent(id));
 			return conversor.toModel(repository.save(cidadeAtual));
 		} catch (EstadoNaoEncotradaException e) {
 			throw new NegocioException(e.getMessage());
@@ -90,6 +102,7 @@ public class CidadeService {
 		try {
 			repository.deleteById(id);
 			repository.flush();
+			eventPublisher.publishEvent(new CidadeAlteradaEvent(id));
 		} catch (EmptyResultDataAccessException e) {
 			throw new CidadeNaoEncotradaException(id);
 		
@@ -7,6 +7,7 @@ import javax.transaction.Transactional;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Service;
 import com.algaworks.algafood.dto.FormaPagamentoDTO;
 import com.algaworks.algafood.dto.conversor.FormaPagamentoConversor;
 import com.algaworks.algafood.entity.FormaPagamento;
+import com.algaworks.algafood.event.FormaPagamentoAlteradaEvent;
 import com.algaworks.algafood.exception.EntidadeEmUsoException;
 import com.algaworks.algafood.exception.FormaPagamentoNaoEncontradaException;
 import com.algaworks.algafood.exception.NegocioException;
@@ -30,6 +32,9 @@ public class FormaPagamentoService {
 	@Autowired
 	private FormaPagamentoConversor conversor;
 	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
 	public List<FormaPagamentoDTO> listar() {		
 		return conversor.converterListaParaDTO(repository.findAll());		
 	}
@@ -42,12 +47,17 @@ public class FormaPagamentoService {
 	public FormaPagamento buscarPorId(Long id) {
 		return repository.findById(id).orElseThrow(() -> new FormaPagamentoNaoEncontradaException(id));
 	}
+	
+	public FormaPagamento buscarReferenciaPorId(Long id) {
+		return repository.getOne(id);
+	}
 
 	@Transactional
 	public FormaPagamentoDTO salvar(FormaPagamentoDTO dto) {
 		try {
-			FormaPagamento formaPagamento = conversor.converterParaObjeto(dto);
-			return conversor.converterParaDTO(repository.save(formaPagamento));
+			FormaPagamento formaPagamento = repository.save(conversor.converterParaObjeto(dto));
+			eventPublisher.publishEvent(new FormaPagamentoAlteradaEvent(formaPagamento.getId()));
+			return conversor.converterParaDTO(formaPagamento);
 		} catch (Exception e) {
 			throw new NegocioException(e.getMessage());
 		}
@@ -58,6 +68,7 @@ public class FormaPagamentoService {
 		try {
 			FormaPagamento formaPagamentoAtual = repository.findById(id).orElseThrow(() -> new FormaPagamentoNaoEncontradaException(id));
 			conversor.copiarParaObjeto(dto, formaPagamentoAtual);
+			eventPublisher.publishEvent(new FormaPagamentoAlteradaEvent(id));
 			return conversor.converterParaDTO(repository.save(formaPagamentoAtual));
 		} catch (Exception e) {
 			throw new NegocioException(e.getMessage());
@@ -69,6 +80,7 @@ public class FormaPagamentoService {
 		try {
 			repository.deleteById(id);
 			repository.flush();
+			eventPublisher.publishEvent(new FormaPagamentoAlteradaEvent(id));
 		} catch (EmptyResultDataAccessException e) {
 			throw new FormaPagamentoNaoEncontradaException(id);
 			
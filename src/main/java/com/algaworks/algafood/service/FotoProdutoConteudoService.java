@@ -0,0 +1,156 @@
+package com.algaworks.algafood.service;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.algaworks.algafood.entity.FotoProduto;
+import com.algaworks.algafood.enuns.SituacaoVariantesFoto;
+import com.algaworks.algafood.event.FotoProdutoRemovidaEvent;
+import com.algaworks.algafood.exception.FotoProdutoNaoEncontradaException;
+import com.algaworks.algafood.repository.FotoProdutoRepository;
+import com.algaworks.algafood.storage.ArmazenamentoProperties;
+import com.algaworks.algafood.storage.ArmazenamentoService;
+import com.algaworks.algafood.storage.ArmazenamentoService.NovaFoto;
+import com.algaworks.algafood.storage.ImagemFotoProduto;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Armazenamento das fotos de produto endereçado pelo conteúdo, ativado com algafood.armazenamento.enderecamentoPorConteudo.
+ * O nome do arquivo é o sha-256 da foto, então a mesma imagem enviada para vários produtos (ex. as franquias de uma
+ * rede) é guardada uma vez só, e como um nome nunca muda de conteúdo a foto é servida em /fotos-produtos/{nome} com
+ * Cache-Control immutable.
+ *
+ * As referências a um arquivo são as linhas de foto_produto com o mesmo nome_arquivo. A foto e as variantes só são
+ * apagadas depois do commit da remoção da última referência. Para um upload não reaproveitar um arquivo que está
+ * sendo apagado, o upload e a remoção travam a linha do arquivo em foto_conteudo (bloquear) antes de conferir as
+ * referências. A trava é do banco, então vale entre as instâncias da api, e só é pega depois que a foto já foi gravada
+ * no armazenamento: o upload a segura só da conferência até o commit da linha de foto_produto.
+ */
+@Slf4j
+@Service
+public class FotoProdutoConteudoService {
+
+	private static final Pattern NOME_POR_CONTEUDO = Pattern.compile("[0-9a-f]{64}");
+	private static final String MSG_FOTO_NAO_ENCONTRADA = "Não existe foto com o nome %s";
+
+	@Autowired
+	private FotoProdutoRepository fotoProdutoRepository;
+
+	@Autowired
+	private ArmazenamentoService armazenamentoService;
+
+	@Autowired
+	private ArmazenamentoProperties armazenamentoProperties;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private VariantesFotoProdutoService variantesFotoProdutoService;
+
+	private TransactionTemplate transactionTemplate;
+
+	@PostConstruct
+	public void inicializar() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	public boolean isAtivo() {
+		return armazenamentoProperties.isEnderecamentoPorConteudo();
+	}
+
+	/*
+	 * Trava a foto até o fim da transação atual (tem que ser chamado dentro de uma). O upload chama depois de gravar a
+	 * foto e antes de conferir se ela ainda existe, a remoção antes de contar as referências; quem chegar depois espera
+	 * o commit do outro e já enxerga a linha de foto_produto gravada ou o arquivo apagado.
+	 */
+	public void bloquear(String nomeArquivo) {
+		fotoProdutoRepository.bloquearConteudo(nomeArquivo);
+	}
+
+	public String armazenar(NovaFoto novaFoto) {
+		return armazenamentoService.armazenarFotoPorConteudo(novaFoto);
+	}
+
+	/*
+	 * A foto é buscada por qualquer produto que a use, o content type e as variantes são os mesmos para todos. Só é
+	 * imutável o que foi pedido exatamente: a original, ou a variante depois de concluída (antes disso a original é
+	 * enviada no lugar da variante e não pode ficar no cache como se fosse ela).
+	 */
+	public ImagemFotoProduto buscarImagem(String nomeArquivo, Integer largura) {
+		if (!isAtivo() || !NOME_POR_CONTEUDO.matcher(nomeArquivo).matches()) {
+			throw new FotoProdutoNaoEncontradaException(String.format(MSG_FOTO_NAO_ENCONTRADA, nomeArquivo));
+		}
+
+		Optional<FotoProduto> comVariantes = largura != null
+				? fotoProdutoRepository.findFirstByNomeArquivoAndSituacaoVariantes(nomeArquivo, SituacaoVariantesFoto.CONCLUIDA)
+				: Optional.empty();
+
+		FotoProduto fotoProduto = comVariantes.map(Optional::of)
+				.orElseGet(() -> fotoProdutoRepository.findFirstByNomeArquivo(nomeArquivo))
+				.orElseThrow(() -> new FotoProdutoNaoEncontradaException(String.format(MSG_FOTO_NAO_ENCONTRADA, nomeArquivo)));
+
+		boolean imutavel = largura == null || fotoProduto.getSituacaoVariantes() == SituacaoVariantesFoto.CONCLUIDA;
+		String nomeEnviado = variantesFotoProdutoService.buscarNomeArquivo(fotoProduto, largura);
+
+		return new ImagemFotoProduto(MediaType.parseMediaType(fotoProduto.getContentType()),
+				armazenamentoService.recuperarFoto(nomeEnviado), imutavel);
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void fotoRemovida(FotoProdutoRemovidaEvent event) {
+		removerSeSemReferencia(event.getNomeArquivo());
+	}
+
+	/*
+	 * Apaga a foto e as variantes (nas larguras configuradas) quando nenhum produto usa mais a foto. Também recebe o
+	 * evento do VariantesFotoProdutoService quando a foto é trocada durante a geração das variantes.
+	 *
+	 * As referências são contadas numa transação nova que começa pela trava, então a contagem já enxerga os uploads
+	 * que fizeram commit enquanto ela esperava. A trava fica até os arquivos serem apagados, um upload com a mesma foto
+	 * que chegar nesse meio tempo espera e depois grava a foto de novo.
+	 */
+	public void removerSeSemReferencia(String nomeArquivo) {
+		try {
+			transactionTemplate.execute(status -> {
+				bloquear(nomeArquivo);
+
+				if (fotoProdutoRepository.countByNomeArquivo(nomeArquivo) > 0) {
+					return null;
+				}
+
+				Set<String> arquivos = new TreeSet<>();
+				arquivos.add(nomeArquivo);
+
+				for (Integer largura : armazenamentoProperties.getVariantes().getLarguras()) {
+					arquivos.add(armazenamentoService.gerarNomeVariante(nomeArquivo, largura));
+				}
+
+				for (String arquivo : arquivos) {
+					armazenamentoService.removerFotoAnterior(arquivo);
+				}
+
+				fotoProdutoRepository.removerConteudo(nomeArquivo);
+				return null;
+			});
+		} catch (Exception e) {
+			log.warn("Não foi possível remover a foto {} sem referências", nomeArquivo, e);
+		}
+	}
+
+}
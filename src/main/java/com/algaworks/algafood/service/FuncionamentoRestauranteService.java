@@ -0,0 +1,107 @@
+package com.algaworks.algafood.service;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.algaworks.algafood.event.AberturaRestaurantesAlteradaEvent;
+import com.algaworks.algafood.repository.RestauranteRepository;
+import com.algaworks.algafood.restaurante.AgendaFuncionamentoRestaurante;
+import com.algaworks.algafood.restaurante.RestauranteProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Abre e fecha os restaurantes nos horários de funcionamento. A cada minuto são buscadas na AgendaFuncionamentoRestaurante
+ * as transições dos minutos que passaram desde a execução anterior, e os restaurantes são alterados com um update
+ * para os que abrem e outro para os que fecham.
+ *
+ * O abrir/fechar manual continua valendo até a próxima transição do restaurante, ex: fechado mais cedo num dia fica
+ * fechado até o próximo horário de abertura. Na primeira execução depois de subir a api todos os restaurantes com
+ * horários recebem a situação esperada para o minuto atual.
+ *
+ * Igual ao envio das notificações de pedido, considera uma única instância da api.
+ */
+@Slf4j
+@Service
+public class FuncionamentoRestauranteService {
+
+	@Autowired
+	private AgendaFuncionamentoRestaurante agenda;
+
+	@Autowired
+	private RestauranteRepository repository;
+
+	@Autowired
+	private RestauranteProperties restauranteProperties;
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private int ultimoMinuto = -1;
+
+	@PostConstruct
+	public void inicializar() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Scheduled(cron = "0 * * * * *")
+	public void aplicarHorarios() {
+		int minuto = agenda.minutoAtual();
+		Map<Long, Boolean> situacoes = ultimoMinuto < 0 ? agenda.buscarSituacoes(minuto) : agenda.buscarTransicoes(ultimoMinuto, minuto);
+
+		if (situacoes.isEmpty()) {
+			ultimoMinuto = minuto;
+			return;
+		}
+
+		List<Long> abrem = filtrar(situacoes, true);
+		List<Long> fecham = filtrar(situacoes, false);
+
+		transactionTemplate.execute(status -> {
+			OffsetDateTime dataAtualizacao = OffsetDateTime.now();
+
+			alterarAberto(abrem, true, dataAtualizacao);
+			alterarAberto(fecham, false, dataAtualizacao);
+
+			publisher.publishEvent(new AberturaRestaurantesAlteradaEvent(abrem, fecham));
+			return null;
+		});
+
+		// Só avança depois do commit, se os updates falharem a próxima execução busca de novo as mesmas transições
+		ultimoMinuto = minuto;
+
+		log.info("Horários de funcionamento aplicados: {} restaurantes abertos e {} fechados", abrem.size(), fecham.size());
+	}
+
+	private void alterarAberto(List<Long> ids, boolean aberto, OffsetDateTime dataAtualizacao) {
+		int tamanhoBloco = restauranteProperties.getLote().getTamanhoBloco();
+
+		for (int inicio = 0; inicio < ids.size(); inicio += tamanhoBloco) {
+			repository.alterarAbertoEmMassa(ids.subList(inicio, Math.min(inicio + tamanhoBloco, ids.size())), aberto, dataAtualizacao);
+		}
+	}
+
+	private static List<Long> filtrar(Map<Long, Boolean> situacoes, boolean aberto) {
+		return situacoes.entrySet().stream()
+									.filter(situacao -> situacao.getValue() == aberto)
+									.map(Map.Entry::getKey)
+									.collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.algaworks.algafood.service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.algaworks.algafood.entity.NotificacaoPedido;
+import com.algaworks.algafood.entity.Pedido;
+import com.algaworks.algafood.enuns.StatusNotificacaoPedido;
+import com.algaworks.algafood.enuns.TipoNotificacaoPedido;
+import com.algaworks.algafood.mail.Email;
+import com.algaworks.algafood.mail.EnvioEmailService;
+import com.algaworks.algafood.pedido.PedidoProperties;
+import com.algaworks.algafood.repository.NotificacaoPedidoRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Envio das notificações de pedido pelo outbox (tabela notificacao_pedido). Os listeners de pedido confirmado e
+ * cancelado só gravam a notificação na transação do pedido, a montagem do template e o envio do e-mail acontecem
+ * aqui, no agendamento, sem segurar a conexão nem os locks do pedido durante o SMTP.
+ *
+ * Cada execução usa duas transações curtas: uma somente leitura para buscar o lote e outra para gravar o resultado.
+ * O envio fica entre as duas, sem conexão aberta. O agendamento considera uma única instância da api, com mais de
+ * uma seria preciso reservar as notificações (ex: select ... for update skip locked no MySQL 8) para não duplicar envios.
+ */
+@Slf4j
+@Service
+public class NotificacaoPedidoService {
+
+	@Autowired
+	private NotificacaoPedidoRepository repository;
+
+	@Autowired
+	private EnvioEmailService envioEmailService;
+
+	@Autowired
+	private PedidoProperties pedidoProperties;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private TransactionTemplate transactionTemplateSomenteLeitura;
+
+	@PostConstruct
+	public void inicializar() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+
+		transactionTemplateSomenteLeitura = new TransactionTemplate(transactionManager);
+		transactionTemplateSomenteLeitura.setReadOnly(true);
+	}
+
+	/*
+	 * Chamado pelos listeners no BEFORE_COMMIT, dentro da transação do pedido, é só um insert.
+	 */
+	public void registrar(Pedido pedido, TipoNotificacaoPedido tipo) {
+		repository.save(NotificacaoPedido.pendente(pedido, tipo));
+	}
+
+	@Scheduled(fixedDelayString = "${algafood.pedido.notificacao.intervaloEnvio:5000}")
+	public void enviarPendentes() {
+		List<NotificacaoPedido> notificacoes;
+
+		do {
+			notificacoes = transactionTemplateSomenteLeitura.execute(status -> buscarProntasParaEnvio());
+			enviar(notificacoes);
+		} while (notificacoes.size() == pedidoProperties.getNotificacao().getTamanhoLote());
+	}
+
+	@Scheduled(cron = "0 0 3 * * *")
+	public void removerEnviadas() {
+		OffsetDateTime limite = OffsetDateTime.now().minusDays(pedidoProperties.getNotificacao().getDiasRetencao());
+		Integer removidas = transactionTemplate.execute(status -> repository.removerEnviadasAntesDe(StatusNotificacaoPedido.ENVIADA, limite));
+
+		log.info("Removidas {} notificações de pedido enviadas antes de {}", removidas, limite);
+	}
+
+	/*
+	 * Os itens e produtos usados nos templates são carregados aqui, com a transação aberta, depois disso as
+	 * entidades ficam desanexadas e o template é processado sem acessar o banco.
+	 */
+	private List<NotificacaoPedido> buscarProntasParaEnvio() {
+		List<NotificacaoPedido> notificacoes = repository.buscarProntasParaEnvio(StatusNotificacaoPedido.PENDENTE, OffsetDateTime.now(),
+				PageRequest.of(0, pedidoProperties.getNotificacao().getTamanhoLote()));
+
+		notificacoes.forEach(notificacao -> Hibernate.initialize(notificacao.getPedido().getItens()));
+
+		return notificacoes;
+	}
+
+	/*
+	 * Se uma notificação do pedido falhar as seguintes do mesmo pedido no lote não são enviadas, continuam pendentes
+	 * e só saem depois que a anterior for enviada, mantendo a ordem por pedido.
+	 */
+	private void enviar(List<NotificacaoPedido> notificacoes) {
+		if (notificacoes.isEmpty()) {
+			return;
+		}
+
+		List<Long> enviadas = new ArrayList<>();
+		Map<Long, String> falhas = new HashMap<>();
+		Set<Long> pedidosComFalha = new HashSet<>();
+
+		for (NotificacaoPedido notificacao : notificacoes) {
+			Long pedidoId = notificacao.getPedido().getId();
+
+			if (pedidosComFalha.contains(pedidoId)) {
+				continue;
+			}
+
+			try {
+				envioEmailService.enviar(montarEmail(notificacao));
+				enviadas.add(notificacao.getId());
+			} catch (Exception e) {
+				log.warn("Falha ao enviar a notificação {} do pedido {}", notificacao.getId(), notificacao.getPedido().getCodigo(), e);
+				falhas.put(notificacao.getId(), e.getMessage());
+				pedidosComFalha.add(pedidoId);
+			}
+		}
+
+		registrarResultado(enviadas, falhas);
+	}
+
+	private void registrarResultado(List<Long> enviadas, Map<Long, String> falhas) {
+		PedidoProperties.Notificacao configuracao = pedidoProperties.getNotificacao();
+		OffsetDateTime agora = OffsetDateTime.now();
+
+		List<Long> ids = new ArrayList<>(enviadas);
+		ids.addAll(falhas.keySet());
+
+		transactionTemplate.execute(status -> {
+			for (NotificacaoPedido notificacao : repository.findAllById(ids)) {
+				if (falhas.containsKey(notificacao.getId())) {
+					notificacao.registrarFalha(falhas.get(notificacao.getId()), agora, configuracao.getMaximoTentativas(),
+							configuracao.getIntervaloRetentativa());
+				} else {
+					notificacao.registrarEnvio(agora);
+				}
+			}
+			return null;
+		});
+	}
+
+	private Email montarEmail(NotificacaoPedido notificacao) {
+		Pedido pedido = notificacao.getPedido();
+		TipoNotificacaoPedido tipo = notificacao.getTipo();
+
+		return Email.builder()
+				.assunto(pedido.getRestaurante().getNome() + tipo.getAssunto())
+				.corpo(tipo.getTemplate())
+				.variavel("pedido", pedido)
+				.destinatario(pedido.getUsuarioCliente().getEmail())
+				.build();
+	}
+
+}
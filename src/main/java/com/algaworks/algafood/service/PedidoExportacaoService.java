@@ -0,0 +1,170 @@
+package com.algaworks.algafood.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.algaworks.algafood.dto.PedidoDTO;
+import com.algaworks.algafood.dto.conversor.PedidoConversor;
+import com.algaworks.algafood.pedido.PedidoProperties;
+import com.algaworks.algafood.repository.PedidoRepository;
+import com.algaworks.algafood.web.TempoLimiteAssincrono;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Exportação dos pedidos completos em NDJSON (um json por linha), escrita direto na resposta conforme os pedidos
+ * são lidos do banco, sem montar a lista inteira de entidades e DTOs em memória como o listarCompleto.
+ *
+ * O banco só entrega as linhas aos poucos com o useCursorFetch=true, que faz o driver usar prepared statements no
+ * servidor e cursor em toda consulta da conexão. Por isso ele não fica na url do datasource da aplicação: o export
+ * tem um pool próprio e pequeno com a mesma url mais o useCursorFetch, e uma sessão do Hibernate aberta em cima de
+ * uma conexão desse pool, usada na consulta principal e nos itens carregados depois (um result set em streaming sem
+ * cursor não permitiria outras consultas na mesma conexão).
+ *
+ * O pool do export recebe as mesmas configurações do pool da aplicação (spring.datasource.hikari.*, ex. timeouts e
+ * leak detection), menos o nome e o tamanho, e qualquer uma pode ser trocada só para ele em
+ * algafood.pedido.exportacao.datasource.hikari.*.
+ */
+@Service
+public class PedidoExportacaoService {
+
+	private static final byte QUEBRA_LINHA = '\n';
+	private static final String PREFIXO_HIKARI = "spring.datasource.hikari";
+	private static final String PREFIXO_HIKARI_EXPORTACAO = "algafood.pedido.exportacao.datasource.hikari";
+
+	@Autowired
+	private PedidoRepository repository;
+
+	@Autowired
+	private PedidoConversor conversor;
+
+	@Autowired
+	private PedidoProperties pedidoProperties;
+
+	@Autowired
+	private DataSourceProperties dataSourceProperties;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private LinkRelationProvider linkRelationProvider;
+
+	private ObjectWriter pedidoWriter;
+
+	private HikariDataSource dataSourceCursor;
+
+	/*
+	 * O ObjectMapper injetado é o da aplicação, que não conhece o formato HAL. Aqui é criada uma cópia com o módulo
+	 * HAL do Spring HATEOAS para que os links de cada linha saiam iguais aos do retorno em json (_links).
+	 */
+	@PostConstruct
+	public void inicializar() {
+		ObjectMapper halObjectMapper = objectMapper.copy().registerModule(new Jackson2HalModule());
+		halObjectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(linkRelationProvider, CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+
+		pedidoWriter = halObjectMapper.writerFor(PedidoDTO.class);
+
+		dataSourceCursor = dataSourceProperties.initializeDataSourceBuilder()
+												.type(HikariDataSource.class)
+												.url(comCursorFetch(dataSourceProperties.determineUrl()))
+												.build();
+
+		Binder binder = Binder.get(environment);
+		binder.bind(PREFIXO_HIKARI, Bindable.ofInstance(dataSourceCursor));
+
+		dataSourceCursor.setPoolName("exportacao-pedidos");
+		dataSourceCursor.setMaximumPoolSize(pedidoProperties.getExportacao().getConexoes());
+		dataSourceCursor.setMinimumIdle(0);
+
+		binder.bind(PREFIXO_HIKARI_EXPORTACAO, Bindable.ofInstance(dataSourceCursor));
+	}
+
+	@PreDestroy
+	public void finalizar() {
+		dataSourceCursor.close();
+	}
+
+	/*
+	 * O StreamingResponseBody é executado em outra thread depois que o controller retorna, por isso os atributos
+	 * da requisição são repassados para ela, senão os links seriam gerados sem host. A conexão fica numa transação
+	 * somente leitura e a sessão aberta enquanto o resultado é percorrido. O tempo limite maior vale só para esta
+	 * requisição.
+	 */
+	public StreamingResponseBody exportarCompleto() {
+		RequestAttributes requisicao = RequestContextHolder.currentRequestAttributes();
+		TempoLimiteAssincrono.definir(requisicao, pedidoProperties.getExportacao().getTempoLimite());
+
+		return saida -> {
+			RequestContextHolder.setRequestAttributes(requisicao);
+
+			try (Connection conexao = dataSourceCursor.getConnection()) {
+				conexao.setReadOnly(true);
+				conexao.setAutoCommit(false);
+
+				try (Session sessao = entityManagerFactory.unwrap(SessionFactory.class).withOptions().connection(conexao).openSession()) {
+					sessao.setDefaultReadOnly(true);
+					repository.percorrerCompletos(sessao, pedidos -> escreverBloco(saida, conversor.toCollectionModel(pedidos)));
+				} finally {
+					conexao.rollback();
+				}
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			} catch (SQLException e) {
+				throw new DataAccessResourceFailureException("Não foi possível usar a conexão do export de pedidos", e);
+			} finally {
+				RequestContextHolder.resetRequestAttributes();
+			}
+		};
+	}
+
+	private static String comCursorFetch(String url) {
+		return url + (url.contains("?") ? "&" : "?") + "useCursorFetch=true";
+	}
+
+	private void escreverBloco(OutputStream saida, List<PedidoDTO> pedidos) {
+		try {
+			for (PedidoDTO pedido : pedidos) {
+				saida.write(pedidoWriter.writeValueAsBytes(pedido));
+				saida.write(QUEBRA_LINHA);
+			}
+
+			saida.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -1,29 +1,61 @@
 package com.algaworks.algafood.service;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.transaction.Transactional;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.stereotype.Service;
 
+import com.algaworks.algafood.dto.ItemPedidoDTO;
 import com.algaworks.algafood.dto.PedidoDTO;
+import com.algaworks.algafood.dto.PedidoLoteResultadoDTO;
+import com.algaworks.algafood.dto.PedidoLoteRetornoDTO;
 import com.algaworks.algafood.dto.PedidoResumoDTO;
+import com.algaworks.algafood.dto.RecebimentoPedidoDTO;
 import com.algaworks.algafood.dto.conversor.PedidoConversor;
 import com.algaworks.algafood.dto.conversor.PedidoResumoConversor;
-import com.algaworks.algafood.entity.Cidade;
-import com.algaworks.algafood.entity.FormaPagamento;
+import com.algaworks.algafood.entity.ItemPedido;
 import com.algaworks.algafood.entity.Pedido;
 import com.algaworks.algafood.entity.Produto;
-import com.algaworks.algafood.entity.Restaurante;
 import com.algaworks.algafood.entity.Usuario;
+import com.algaworks.algafood.enuns.StatusPedido;
+import com.algaworks.algafood.event.PedidoCanceladoEvent;
+import com.algaworks.algafood.event.PedidoConfirmadoEvent;
+import com.algaworks.algafood.exception.CidadeNaoEncotradaException;
+import com.algaworks.algafood.exception.FormaPagamentoNaoEncontradaException;
 import com.algaworks.algafood.exception.FormaPagamentoNaoValidadaException;
+import com.algaworks.algafood.exception.NegocioException;
 import com.algaworks.algafood.exception.PedidoNaoEncontradoException;
+import com.algaworks.algafood.exception.ProdutoNaoValidadoException;
+import com.algaworks.algafood.exception.RestauranteNaoEncotradoException;
+import com.algaworks.algafood.links.LinkManager;
+import com.algaworks.algafood.pedido.GeradorCodigoPedido;
+import com.algaworks.algafood.pedido.PedidoCursor;
+import com.algaworks.algafood.pedido.PedidoProperties;
+import com.algaworks.algafood.pedido.RecebimentoPedido;
+import com.algaworks.algafood.pedido.RecebimentoPedidoPipeline;
+import com.algaworks.algafood.pedido.ValidacaoPedidoCache;
+import com.algaworks.algafood.pedido.ValidacaoPedidoCache.RestauranteValidacao;
 import com.algaworks.algafood.repository.PedidoRepository;
 import com.algaworks.algafood.filtro.PedidoFiltro;
 import com.algaworks.algafood.repository.spec.PedidoSpecs;
@@ -31,6 +63,15 @@ import com.algaworks.algafood.repository.spec.PedidoSpecs;
 @Service
 public class PedidoService {
 	
+	private static final String MSG_LOTE_EXCEDIDO = "O lote possui %d pedidos, o máximo permitido é %d";
+	private static final String MSG_PEDIDO_SEM_DADOS = "Pedido sem %s informado";
+	private static final String MSG_PRODUTO_REPETIDO = "O produto %d foi informado mais de uma vez no pedido";
+	private static final String MSG_TAMANHO_PAGINA_INVALIDO = "O tamanho da página deve estar entre 1 e %d";
+	private static final String MSG_PEDIDOS_NAO_ENCONTRADOS = "Não existem pedidos com os códigos %s";
+	private static final String MSG_TRANSICAO_INVALIDA = "Status dos pedidos não pode ser alterado para %s: %s";
+	private static final String MSG_PEDIDOS_ALTERADOS = "Pedidos foram alterados durante a operação, nenhum status foi alterado, tente novamente";
+	private static final String MSG_RESTAURANTE_INATIVO = "O restaurante %s está inativo e não pode receber pedidos";
+	
 	@Autowired
 	private PedidoRepository repository;
 	
@@ -58,6 +99,56 @@ public class PedidoService {
 	@Autowired
 	private PagedResourcesAssembler<Pedido> pagedResourcesAssembler;
 
+	@Autowired
+	private PedidoProperties pedidoProperties;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private ValidacaoPedidoCache validacaoPedidoCache;
+
+	@Autowired
+	private LinkManager linkManager;
+
+	@Autowired
+	private GeradorCodigoPedido geradorCodigoPedido;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	private RecebimentoPedidoPipeline recebimentoPedidoPipeline;
+
+	/*
+	 * O pipeline de recebimento assíncrono usa as mesmas etapas do criarPedido, só que cada uma no seu pool de threads
+	 */
+	@PostConstruct
+	public void inicializar() {
+		recebimentoPedidoPipeline = new RecebimentoPedidoPipeline(new RecebimentoPedidoPipeline.Etapas() {
+
+			@Override
+			public RestauranteValidacao validar(Pedido pedido) {
+				return validarNovoPedido(pedido);
+			}
+
+			@Override
+			public void precificar(Pedido pedido, RestauranteValidacao restaurante) {
+				precificarPedido(pedido, restaurante);
+			}
+
+			@Override
+			public void gravar(Pedido pedido) {
+				repository.save(pedido);
+			}
+
+		}, pedidoProperties.getRecebimento());
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		recebimentoPedidoPipeline.encerrar();
+	}
+
 	public Pedido buscarPorCodigo(String codigo) {
 		return repository.findByCodigo(codigo).orElseThrow(() -> new PedidoNaoEncontradoException(codigo));
 	}
@@ -73,6 +164,30 @@ public class PedidoService {
 		return pedidosDTOPaginado;
 	}
 
+	/*
+	 * É buscado um registro a mais do que o tamanho da página só para saber se existe próxima página,
+	 * dessa forma não é preciso o count(*) que o findAll(pageable) executa a cada página.
+	 */
+	public CollectionModel<PedidoResumoDTO> listarResumidoPorCursor(String cursor, int size) {
+		int tamanhoMaximo = pedidoProperties.getCursor().getTamanhoMaximoPagina();
+
+		if (size < 1 || size > tamanhoMaximo) {
+			throw new NegocioException(String.format(MSG_TAMANHO_PAGINA_INVALIDO, tamanhoMaximo));
+		}
+
+		List<Pedido> pedidos = repository.buscarAposCursor(PedidoCursor.decodificar(cursor), size + 1);
+		String proximoCursor = null;
+
+		if (pedidos.size() > size) {
+			pedidos = pedidos.subList(0, size);
+			proximoCursor = PedidoCursor.posicaoDo(pedidos.get(size - 1)).codificar();
+		}
+
+		// O cast escolhe o toCollectionModel do assembler, que devolve o CollectionModel e não a lista
+		CollectionModel<PedidoResumoDTO> pedidosDTO = pedidoResumoConversor.toCollectionModel((Iterable<Pedido>) pedidos);
+		return linkManager.linkToPedidosResumidosPorCursor(pedidosDTO, cursor, proximoCursor, size);
+	}
+
 	public List<PedidoDTO> listarCompleto() {
 		List<Pedido> pedidos = repository.findAll();
 		return conversor.toCollectionModel(pedidos);
@@ -88,18 +203,98 @@ public class PedidoService {
 		return pedidoResumoConversor.toModel(pedido);
 	}
 	
+	/*
+	 * O código é gerado antes de entrar na fila para o cliente já poder acompanhar o pedido, a validação, o cálculo
+	 * e a gravação acontecem depois no RecebimentoPedidoPipeline. Sem vaga no pipeline é lançada a
+	 * CapacidadeExcedidaException, que vira 429 com Retry-After.
+	 */
+	public RecebimentoPedidoDTO criarPedidoAssincrono(PedidoDTO dto) {
+		Pedido pedido = conversor.converterParaObjeto(dto);
+		pedido.setCodigo(geradorCodigoPedido.gerar());
+		
+		return toRecebimentoDTO(recebimentoPedidoPipeline.enfileirar(pedido));
+	}
+	
+	/*
+	 * Depois do tempo de retenção a situação sai da memória, se o pedido existir no banco ele foi criado
+	 */
+	public RecebimentoPedidoDTO buscarRecebimento(String codigo) {
+		RecebimentoPedido recebimento = recebimentoPedidoPipeline.buscar(codigo);
+		
+		if (recebimento == null) {
+			recebimento = repository.findByCodigo(codigo)
+									.map(pedido -> RecebimentoPedido.criado(pedido.getCodigo()))
+									.orElseThrow(() -> new PedidoNaoEncontradoException(codigo));
+		}
+		
+		return toRecebimentoDTO(recebimento);
+	}
+	
+	private RecebimentoPedidoDTO toRecebimentoDTO(RecebimentoPedido recebimento) {
+		RecebimentoPedidoDTO dto = new RecebimentoPedidoDTO(recebimento.getCodigo(), recebimento.getSituacao(),
+															 recebimento.getMotivo(), recebimento.getDataAtualizacao());
+		return linkManager.linkToRecebimentoPedido(dto);
+	}
+	
+	/*
+	 * Cada pedido do lote é validado separadamente, os que falharem são devolvidos como rejeitados com o motivo
+	 * e os válidos são gravados todos juntos na mesma transação com os inserts agrupados em batch JDBC,
+	 * assim um lote com muitos pedidos não precisa de uma transação e um insert por item para cada pedido.
+	 */
+	@Transactional
+	public PedidoLoteRetornoDTO criarPedidosEmLote(List<PedidoDTO> dtos) {
+		int tamanhoMaximo = pedidoProperties.getLote().getTamanhoMaximo();
+
+		if (dtos.size() > tamanhoMaximo) {
+			throw new NegocioException(String.format(MSG_LOTE_EXCEDIDO, dtos.size(), tamanhoMaximo));
+		}
+
+		PedidoLoteRetornoDTO retorno = new PedidoLoteRetornoDTO();
+		List<Pedido> pedidosValidos = new ArrayList<>();
+		Map<Long, Produto> produtosCarregados = new HashMap<>();
+		OffsetDateTime dataCriacao = OffsetDateTime.now();
+
+		for (int indice = 0; indice < dtos.size(); indice++) {
+			try {
+				Pedido pedido = prepararPedidoDoLote(dtos.get(indice), produtosCarregados);
+				pedido.setDataCriacao(dataCriacao);
+				pedidosValidos.add(pedido);
+				retorno.adicionarResultado(PedidoLoteResultadoDTO.criado(indice, pedido.getCodigo()));
+			} catch (NegocioException e) {
+				retorno.adicionarResultado(PedidoLoteResultadoDTO.rejeitado(indice, e.getMessage()));
+			}
+		}
+
+		repository.inserirEmLote(pedidosValidos);
+
+		retorno.setTotalRecebidos(dtos.size());
+		retorno.setTotalCriados(pedidosValidos.size());
+		retorno.setTotalRejeitados(dtos.size() - pedidosValidos.size());
+
+		return retorno;
+	}
+	
 	@Transactional
 	private Pedido emitirPedido(Pedido pedido) {
 		
-		validaPedido(pedido);
-		validaItens(pedido);
-
-		pedido.setTaxaFrete(pedido.getRestaurante().getTaxaFrete());
-		pedido.calcularValorTotal();		
+		RestauranteValidacao restaurante = validarNovoPedido(pedido);
+		precificarPedido(pedido, restaurante);
+		pedido.setCodigo(geradorCodigoPedido.gerar());
 		
 		return repository.save(pedido);
 	}
 	
+	private RestauranteValidacao validarNovoPedido(Pedido pedido) {
+		RestauranteValidacao restaurante = validaPedido(pedido);
+		validaItens(pedido, restaurante);
+		return restaurante;
+	}
+	
+	private void precificarPedido(Pedido pedido, RestauranteValidacao restaurante) {
+		pedido.setTaxaFrete(restaurante.getTaxaFrete());
+		pedido.calcularValorTotal();
+	}
+	
 	/*
 	 * Como a operação está dentro de um transactional já vai ser feito o commit, não precisa de save
 	 */
@@ -125,30 +320,150 @@ public class PedidoService {
 		repository.save(pedido);
 	}
 
-	private void validaPedido(Pedido pedido) {
+	@Transactional
+	public void confirmarPedidos(List<String> codigos) {
+		List<Pedido> pedidos = alterarStatusEmMassa(codigos, StatusPedido.CONFIRMADO);
+		pedidos.forEach(pedido -> eventPublisher.publishEvent(new PedidoConfirmadoEvent(pedido)));
+	}
+	
+	@Transactional
+	public void confirmarEntregas(List<String> codigos) {
+		alterarStatusEmMassa(codigos, StatusPedido.ENTREGUE);
+	}
+	
+	@Transactional
+	public void cancelarPedidos(List<String> codigos) {
+		List<Pedido> pedidos = alterarStatusEmMassa(codigos, StatusPedido.CANCELADO);
+		pedidos.forEach(pedido -> eventPublisher.publishEvent(new PedidoCanceladoEvent(pedido)));
+	}
+	
+	/*
+	 * Os pedidos são buscados de uma vez só para validar a transição pela matriz do StatusPedido e depois todos
+	 * são alterados por um único update. A operação é tudo ou nada, qualquer código inexistente ou com transição
+	 * inválida faz todo o lote ser recusado, e se o update não alterar todos os pedidos validados (alteração
+	 * concorrente) a transação sofre rollback.
+	 * 
+	 * Os pedidos retornados são usados para disparar os eventos, os mesmos que o save dispara na alteração de um pedido.
+	 * Eles foram lidos antes do update, então recebem o novo status e a mesma data gravada pelo update, senão os
+	 * listeners veriam o status anterior e a data de confirmação ou cancelamento vazia.
+	 */
+	private List<Pedido> alterarStatusEmMassa(List<String> codigos, StatusPedido novoStatus) {
+		Set<String> codigosUnicos = new LinkedHashSet<>(codigos);
+		int tamanhoMaximo = pedidoProperties.getLote().getTamanhoMaximo();
+
+		if (codigosUnicos.size() > tamanhoMaximo) {
+			throw new NegocioException(String.format(MSG_LOTE_EXCEDIDO, codigosUnicos.size(), tamanhoMaximo));
+		}
+
+		if (codigosUnicos.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		List<Pedido> pedidos = repository.buscarPorCodigosSomenteLeitura(codigosUnicos);
+
+		if (pedidos.size() != codigosUnicos.size()) {
+			pedidos.forEach(pedido -> codigosUnicos.remove(pedido.getCodigo()));
+			throw new NegocioException(String.format(MSG_PEDIDOS_NAO_ENCONTRADOS, String.join(", ", codigosUnicos)));
+		}
+
+		String transicoesInvalidas = pedidos.stream()
+												.filter(pedido -> !pedido.getStatus().podeAlterarPara(novoStatus))
+												.map(pedido -> pedido.getCodigo() + " (" + pedido.getStatus().getDescricao() + ")")
+												.collect(Collectors.joining(", "));
+
+		if (!transicoesInvalidas.isEmpty()) {
+			throw new NegocioException(String.format(MSG_TRANSICAO_INVALIDA, novoStatus.getDescricao(), transicoesInvalidas));
+		}
+
+		OffsetDateTime dataAlteracao = OffsetDateTime.now();
+		int alterados = repository.alterarStatusEmMassa(codigosUnicos, novoStatus, dataAlteracao);
+
+		if (alterados != pedidos.size()) {
+			throw new NegocioException(MSG_PEDIDOS_ALTERADOS);
+		}
+
+		pedidos.forEach(pedido -> pedido.aplicarStatusAlteradoEmMassa(novoStatus, dataAlteracao));
+		return pedidos;
+	}
+
+	/*
+	 * Restaurante, cidade e forma de pagamento são validados contra o snapshot em memória do ValidacaoPedidoCache,
+	 * sem selects e sem carregar a coleção de formas de pagamento do restaurante. Depois de validados só as
+	 * referências (proxies) são associadas ao pedido, que é o suficiente para gravar as chaves estrangeiras.
+	 */
+	private RestauranteValidacao validaPedido(Pedido pedido) {
 		
 		// TODO: buscar o cliente logado
 		Usuario usuarioCliente = usuarioService.buscarPorId(1L);		
 		pedido.setUsuarioCliente(usuarioCliente);
 		
-		Cidade cidade = cidadeService.buscarPorId(pedido.getEnderecoEntrega().getCidade().getId());
-		Restaurante restaurante = restauranteService.buscarPorId(pedido.getRestaurante().getId());
-		FormaPagamento formaPagamento = formaPagamentoService.buscarPorId(pedido.getFormaPagamento().getId());
+		ValidacaoPedidoCache.Snapshot snapshot = validacaoPedidoCache.getSnapshot();
+		
+		Long restauranteId = pedido.getRestaurante().getId();
+		Long cidadeId = pedido.getEnderecoEntrega().getCidade().getId();
+		Long formaPagamentoId = pedido.getFormaPagamento().getId();
 		
-		pedido.getEnderecoEntrega().setCidade(cidade);
-		pedido.setRestaurante(restaurante);
-		pedido.setFormaPagamento(formaPagamento);
+		RestauranteValidacao restaurante = snapshot.buscarRestaurante(restauranteId);
+		
+		if (restaurante == null) {
+			throw new RestauranteNaoEncotradoException(restauranteId);
+		}
 		
-		if (!restaurante.validaFormaDePagamento(formaPagamento)) {
-			throw new FormaPagamentoNaoValidadaException(restaurante, formaPagamento);
+		if (!snapshot.existeCidade(cidadeId)) {
+			throw new CidadeNaoEncotradaException(cidadeId);
 		}
 		
+		String descricaoFormaPagamento = snapshot.buscarDescricaoFormaPagamento(formaPagamentoId);
+		
+		if (descricaoFormaPagamento == null) {
+			throw new FormaPagamentoNaoEncontradaException(formaPagamentoId);
+		}
+		
+		if (!restaurante.isAtivo()) {
+			throw new NegocioException(String.format(MSG_RESTAURANTE_INATIVO, restaurante.getNome()));
+		}
+		
+		if (!restaurante.aceitaFormaPagamento(formaPagamentoId)) {
+			throw new FormaPagamentoNaoValidadaException(restaurante.getNome(), descricaoFormaPagamento);
+		}
+		
+		pedido.getEnderecoEntrega().setCidade(cidadeService.buscarReferenciaPorId(cidadeId));
+		pedido.setRestaurante(restauranteService.buscarReferenciaPorId(restauranteId));
+		pedido.setFormaPagamento(formaPagamentoService.buscarReferenciaPorId(formaPagamentoId));
+		
+		return restaurante;
 	}
 	
-	private void validaItens(Pedido pedido) {
+	private void validaItens(Pedido pedido, RestauranteValidacao restaurante) {
+		validaItens(pedido, restaurante, new HashMap<>());
+	}
+	
+	/*
+	 * Ao invés de um select por item, todos os produtos do pedido que ainda não estão no mapa são buscados em uma
+	 * única consulta, já filtrando pelo restaurante do pedido e pelos ativos. O mapa funciona como um cache
+	 * da requisição, um produto repetido, ou já carregado por outro pedido do mesmo lote, não gera nova consulta.
+	 */
+	private void validaItens(Pedido pedido, RestauranteValidacao restaurante, Map<Long, Produto> produtosCarregados) {
+		
+		Set<Long> produtosNaoCarregados = pedido.getItens().stream()
+														.map(item -> item.getProduto().getId())
+														.filter(produtoId -> !produtosCarregados.containsKey(produtoId))
+														.collect(Collectors.toSet());
+		
+		if (!produtosNaoCarregados.isEmpty()) {
+			produtoService.buscarAtivosPorRestaurante(restaurante.getId(), produtosNaoCarregados)
+							.forEach(produto -> produtosCarregados.put(produto.getId(), produto));
+		}
 		
 		pedido.getItens().forEach(item -> {
-			Produto produto = produtoService.buscarPorId(item.getProduto().getId());
+			Long produtoId = item.getProduto().getId();
+			Produto produto = produtosCarregados.get(produtoId);
+			
+			// O produto pode estar no mapa por ter sido carregado por um pedido de outro restaurante do lote
+			if (produto == null || !produto.getRestaurante().getId().equals(restaurante.getId())) {
+				throw new ProdutoNaoValidadoException(produtoId, restaurante.getNome());
+			}
+			
 			item.setPedido(pedido);
 			item.setProduto(produto);
 			item.setPrecoUnitario(produto.getPreco());
@@ -156,4 +471,70 @@ public class PedidoService {
 		
 	}
 	
+	private Pedido prepararPedidoDoLote(PedidoDTO dto, Map<Long, Produto> produtosCarregados) {
+		validaDadosObrigatorios(dto);
+
+		Pedido pedido = conversor.converterParaObjeto(dto);
+		RestauranteValidacao restaurante = validaPedido(pedido);
+		validaItens(pedido, restaurante, produtosCarregados);
+		validaProdutosRepetidos(pedido);
+
+		pedido.setTaxaFrete(restaurante.getTaxaFrete());
+		pedido.calcularValorTotal();
+
+		pedido.setCodigo(geradorCodigoPedido.gerar());
+
+		return pedido;
+	}
+	
+	/*
+	 * No endpoint de pedido único o @Valid do controller faz essa validação, no lote cada pedido é validado
+	 * aqui para que um pedido inválido seja rejeitado sem derrubar os demais.
+	 */
+	private void validaDadosObrigatorios(PedidoDTO dto) {
+		if (dto == null) {
+			throw new NegocioException(String.format(MSG_PEDIDO_SEM_DADOS, "conteúdo"));
+		}
+
+		Set<ConstraintViolation<PedidoDTO>> violacoes = validator.validate(dto);
+
+		if (!violacoes.isEmpty()) {
+			throw new NegocioException(violacoes.stream()
+													.map(violacao -> violacao.getPropertyPath() + " " + violacao.getMessage())
+													.collect(Collectors.joining("; ")));
+		}
+
+		if (dto.getRestaurante() == null || dto.getRestaurante().getId() == null) {
+			throw new NegocioException(String.format(MSG_PEDIDO_SEM_DADOS, "restaurante"));
+		}
+
+		if (dto.getFormaPagamento() == null || dto.getFormaPagamento().getId() == null) {
+			throw new NegocioException(String.format(MSG_PEDIDO_SEM_DADOS, "forma de pagamento"));
+		}
+
+		if (dto.getEnderecoEntrega() == null || dto.getEnderecoEntrega().getCidade() == null || dto.getEnderecoEntrega().getCidade().getId() == null) {
+			throw new NegocioException(String.format(MSG_PEDIDO_SEM_DADOS, "endereço de entrega"));
+		}
+
+		for (ItemPedidoDTO item : dto.getItens()) {
+			if (item == null || item.getProdutoId() == null || item.getQuantidade() == null || item.getQuantidade() <= 0) {
+				throw new NegocioException(String.format(MSG_PEDIDO_SEM_DADOS, "produto ou quantidade do item"));
+			}
+		}
+	}
+	
+	/*
+	 * A tabela item_pedido tem a uk_item_pedido_produto (pedido_id, produto_id), no lote um produto repetido
+	 * faria o batch inteiro falhar, por isso o pedido é rejeitado antes de ir para o banco.
+	 */
+	private void validaProdutosRepetidos(Pedido pedido) {
+		Set<Long> produtos = new HashSet<>();
+
+		for (ItemPedido item : pedido.getItens()) {
+			if (!produtos.add(item.getProduto().getId())) {
+				throw new NegocioException(String.format(MSG_PRODUTO_REPETIDO, item.getProduto().getId()));
+			}
+		}
+	}
+	
 }
@@ -1,21 +1,24 @@
 package com.algaworks.algafood.service;
 
-import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import com.algaworks.algafood.entity.FotoProduto;
 import com.algaworks.algafood.entity.Produto;
 import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.event.FotoProdutoRemovidaEvent;
 import com.algaworks.algafood.exception.FotoProdutoNaoEncontradaException;
 import com.algaworks.algafood.exception.ProdutoNaoEncontradoException;
 import com.algaworks.algafood.repository.FotoProdutoRepository;
 import com.algaworks.algafood.repository.ProdutoRepository;
 import com.algaworks.algafood.storage.ArmazenamentoService;
+import com.algaworks.algafood.storage.ArmazenamentoService.FotoRecuperada;
 import com.algaworks.algafood.storage.ArmazenamentoService.NovaFoto;
 
 import lombok.var;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,6 +35,15 @@ public class ProdutoService {
 	@Autowired
 	private ArmazenamentoService armazenamentoArquivosService;
 
+	@Autowired
+	private VariantesFotoProdutoService variantesFotoProdutoService;
+
+	@Autowired
+	private FotoProdutoConteudoService fotoProdutoConteudoService;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	public Produto buscarPorId(Long id) {
 		return repository.findById(id).orElseThrow(() -> new ProdutoNaoEncontradoException(id)); 
 	}
@@ -56,10 +68,22 @@ public class ProdutoService {
 		return repository.buscaApenasAtivosPorRestaurante(restaurante);
 	}
 
+	public List<Produto> buscarAtivosPorRestaurante(Long restauranteId, Collection<Long> produtosIds) {
+		return repository.buscarAtivosPorRestauranteEIds(restauranteId, produtosIds);
+	}
+
 	@Transactional
 	public FotoProduto salvarFotoProduto(FotoProduto fotoProduto) {
 		var novoNomeArquivo = armazenamentoArquivosService.gerarNovoNome(fotoProduto.getNomeArquivo());
 		fotoProduto.setNomeArquivo(novoNomeArquivo);
+		return gravarFotoProduto(fotoProduto);
+	}
+
+	/*
+	 * Grava a foto com o nome que ela já tem, usado quando a foto foi armazenada pelo conteúdo (FotoProdutoConteudoService)
+	 */
+	@Transactional
+	public FotoProduto gravarFotoProduto(FotoProduto fotoProduto) {
 		var fotoSalva = repository.salvarFotoProduto(fotoProduto);
 
 		// Informa ao JPA para descarregar tudo o que estiver na fila para a base
@@ -74,8 +98,12 @@ public class ProdutoService {
 
     public void apagaFotoProduto(FotoProduto fotoProduto) {
 		var nomeFotoAntiga = fotoProduto.getNomeArquivo();
-		if (nomeFotoAntiga != null) {
+		if (nomeFotoAntiga != null && fotoProdutoConteudoService.isAtivo()) {
+			// A mesma foto pode ser de outros produtos, só é apagada depois do commit se não tiver mais referências
+			eventPublisher.publishEvent(new FotoProdutoRemovidaEvent(nomeFotoAntiga));
+		} else if (nomeFotoAntiga != null) {
 			armazenamentoArquivosService.removerFotoAnterior(fotoProduto.getNomeArquivo());
+			variantesFotoProdutoService.removerVariantes(fotoProduto);
 		}
 
 		repository.apagaFotoProduto(fotoProduto);
@@ -90,9 +118,8 @@ public class ProdutoService {
 		return fotoProdutoRepository.findById(produtoId).orElseThrow(() -> new FotoProdutoNaoEncontradaException(produtoId));
 	}
 
-	public InputStream recuperarFoto(String nomeFoto) {
-		var foto = armazenamentoArquivosService.recuperarFoto(nomeFoto);
-		return foto.getInputStream();
+	public FotoRecuperada recuperarFoto(String nomeFoto) {
+		return armazenamentoArquivosService.recuperarFoto(nomeFoto);
 	}
 
 }
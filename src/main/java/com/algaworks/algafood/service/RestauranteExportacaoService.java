@@ -0,0 +1,129 @@
+package com.algaworks.algafood.service;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.algaworks.algafood.dto.RestauranteRetornoDTO;
+import com.algaworks.algafood.dto.conversor.RestauranteConversor;
+import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.enuns.OrdenacaoRestaurante;
+import com.algaworks.algafood.repository.RestauranteRepository;
+import com.algaworks.algafood.restaurante.RestauranteCursor;
+import com.algaworks.algafood.restaurante.RestauranteProperties;
+import com.algaworks.algafood.web.TempoLimiteAssincrono;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/*
+ * Exportação de todos os restaurantes em um array json escrito direto na resposta conforme os restaurantes são lidos
+ * do banco, para o back-office. Ao contrário do PedidoExportacaoService não usa um ScrollableResults: os restaurantes
+ * são lidos por keyset em blocos, cada bloco na sua transação, assim a conexão não fica presa enquanto o cliente
+ * recebe os dados e a memória usada não depende da quantidade de restaurantes.
+ */
+@Service
+public class RestauranteExportacaoService {
+
+	@Autowired
+	private RestauranteRepository repository;
+
+	@Autowired
+	private RestauranteConversor conversor;
+
+	@Autowired
+	private RestauranteProperties restauranteProperties;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private LinkRelationProvider linkRelationProvider;
+
+	private ObjectMapper halObjectMapper;
+
+	private ObjectWriter restauranteWriter;
+
+	private TransactionTemplate transactionTemplate;
+
+	/*
+	 * Igual ao PedidoExportacaoService, a cópia do ObjectMapper com o módulo HAL deixa os links iguais aos do retorno
+	 * em json. O flush fica por conta de cada bloco e não de cada restaurante escrito.
+	 */
+	@PostConstruct
+	public void inicializar() {
+		halObjectMapper = objectMapper.copy().registerModule(new Jackson2HalModule());
+		halObjectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(linkRelationProvider, CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+
+		restauranteWriter = halObjectMapper.writerFor(RestauranteRetornoDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(true);
+	}
+
+	/*
+	 * Os atributos da requisição são repassados para a thread do StreamingResponseBody por causa dos links, como no
+	 * export de pedidos, e o tempo limite também é só desta requisição. Um erro no meio deixa o array incompleto, o
+	 * cliente percebe pelo json inválido.
+	 */
+	public StreamingResponseBody exportar() {
+		RequestAttributes requisicao = RequestContextHolder.currentRequestAttributes();
+		int tamanhoBloco = restauranteProperties.getExportacao().getTamanhoBloco();
+		TempoLimiteAssincrono.definir(requisicao, restauranteProperties.getExportacao().getTempoLimite());
+
+		return saida -> {
+			RequestContextHolder.setRequestAttributes(requisicao);
+
+			try (JsonGenerator gerador = halObjectMapper.getFactory().createGenerator(saida)) {
+				gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				gerador.writeStartArray();
+
+				RestauranteCursor cursor = null;
+				List<RestauranteRetornoDTO> bloco;
+
+				do {
+					RestauranteCursor posicao = cursor;
+					List<Restaurante> restaurantes = transactionTemplate.execute(status ->
+							repository.buscarAposCursor(OrdenacaoRestaurante.NOME, posicao, tamanhoBloco));
+
+					bloco = conversor.toCollectionModel(restaurantes);
+					escreverBloco(gerador, bloco);
+
+					if (!restaurantes.isEmpty()) {
+						cursor = RestauranteCursor.posicaoDo(restaurantes.get(restaurantes.size() - 1), OrdenacaoRestaurante.NOME);
+					}
+				} while (bloco.size() == tamanhoBloco);
+
+				gerador.writeEndArray();
+			} finally {
+				RequestContextHolder.resetRequestAttributes();
+			}
+		};
+	}
+
+	private void escreverBloco(JsonGenerator gerador, List<RestauranteRetornoDTO> restaurantes) throws IOException {
+		for (RestauranteRetornoDTO restaurante : restaurantes) {
+			restauranteWriter.writeValue(gerador, restaurante);
+		}
+
+		gerador.flush();
+	}
+
+}
@@ -10,26 +10,57 @@ import com.algaworks.algafood.dto.conversor.RestauranteConversor;
 import com.algaworks.algafood.entity.FotoProduto;
 import com.algaworks.algafood.entity.Produto;
 import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.enuns.SituacaoVariantesFoto;
+import com.algaworks.algafood.event.FotoProdutoArmazenadaEvent;
+import com.algaworks.algafood.event.ProdutosRestauranteAlteradosEvent;
+import com.algaworks.algafood.exception.ArmazenamentoException;
+import com.algaworks.algafood.exception.NegocioException;
 import com.algaworks.algafood.exception.RestauranteNaoEncotradoException;
 import com.algaworks.algafood.repository.RestauranteRepository;
+import com.algaworks.algafood.restaurante.CardapioRestaurante;
+import com.algaworks.algafood.restaurante.CardapioRestauranteCache;
+import com.algaworks.algafood.storage.ArmazenamentoProperties;
+import com.algaworks.algafood.storage.ArmazenamentoService;
 import com.algaworks.algafood.storage.ArmazenamentoService.NovaFoto;
+import com.algaworks.algafood.storage.ImagemFotoProduto;
+import com.algaworks.algafood.web.EntradaFotoValidada;
+import com.algaworks.algafood.web.LeitorMultipart;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class RestauranteProdutoService {
 
+    public static final String CAMPO_ARQUIVO = "arquivo";
+    public static final String CAMPO_DESCRICAO = "descricao";
+
+    private static final int TAMANHO_MAXIMO_DESCRICAO = 150;
+    private static final String MSG_ARQUIVO_OBRIGATORIO = "O campo arquivo é obrigatório";
+    private static final String MSG_DESCRICAO_OBRIGATORIA = "O campo descricao é obrigatório";
+    private static final String MSG_DESCRICAO_EXCEDIDA = "O campo descricao passa de %d caracteres";
+    private static final String MSG_FOTO_REMOVIDA = "A foto enviada foi removida do armazenamento antes de ser gravada, envie novamente";
+
     @Autowired
     private RestauranteRepository repository;
 
@@ -45,6 +76,34 @@ public class RestauranteProdutoService {
     @Autowired
     private FotoProdutoConversor fotoProdutoConversor;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CardapioRestauranteCache cardapioCache;
+
+    @Autowired
+    private VariantesFotoProdutoService variantesFotoProdutoService;
+
+    @Autowired
+    private FotoProdutoConteudoService fotoProdutoConteudoService;
+
+    @Autowired
+    private ArmazenamentoService armazenamentoService;
+
+    @Autowired
+    private ArmazenamentoProperties armazenamentoProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void inicializar() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     public RestauranteRetornoDTO buscarDtoPorId(Long id) {
         Restaurante restaurante = buscarPorId(id);
         return conversor.toModel(restaurante);
@@ -54,24 +113,35 @@ public class RestauranteProdutoService {
         return repository.findById(id).orElseThrow(() -> new RestauranteNaoEncotradoException(id) );
     }
 
+    /*
+        Os cardápios vêm do CardapioRestauranteCache, o restaurante e os produtos só são buscados quando algum
+        produto ou foto do restaurante mudou desde a última montagem. As listas devolvidas não podem ser alteradas.
+     */
     public List<ProdutoDTO> listarProdutos(Long restauranteId) {
-        Restaurante restaurante = buscarPorId(restauranteId);
-        List<Produto> produtos = produtoService.buscaApenasAtivosPorRestaurante(restaurante);
-        return produtoConversor.converterListaParaDTO(produtos);
+        return buscarCardapio(restauranteId).getAtivos();
     }
 
     public List<ProdutoDTO> listarProdutosOpcaoInativo(Long restauranteId, boolean incluirInativos) {
-        List<Produto> todosProdutos = new ArrayList<>();
+        CardapioRestaurante cardapio = buscarCardapio(restauranteId);
+        return incluirInativos ? cardapio.getTodos() : cardapio.getAtivos();
+    }
+
+    private CardapioRestaurante buscarCardapio(Long restauranteId) {
+        return cardapioCache.buscar(restauranteId, this::montarCardapio);
+    }
+
+    /*
+        Uma consulta só para os dois cardápios, os ativos são separados da lista completa já convertida
+     */
+    private CardapioRestaurante montarCardapio(Long restauranteId) {
         Restaurante restaurante = buscarPorId(restauranteId);
+        List<ProdutoDTO> todos = produtoConversor.converterListaParaDTO(produtoService.buscarPorRestaurante(restaurante));
 
-        if (incluirInativos) {
-            todosProdutos = produtoService.buscarPorRestaurante(restaurante);
-        }
-        else {
-            todosProdutos = produtoService.buscaApenasAtivosPorRestaurante(restaurante);
-        }
+        List<ProdutoDTO> ativos = todos.stream()
+                                        .filter(produto -> Boolean.TRUE.equals(produto.getAtivo()))
+                                        .collect(Collectors.toList());
 
-        return produtoConversor.converterListaParaDTO(todosProdutos);
+        return new CardapioRestaurante(Collections.unmodifiableList(ativos), Collections.unmodifiableList(todos));
     }
 
     public ProdutoDTO buscarProdutoDTOPorRestaurante(Long restauranteId, Long produtoId) {
@@ -86,13 +156,19 @@ public class RestauranteProdutoService {
         FotoProduto fotoProduto = produtoService.buscarFotoPorProduto(produto.getId());
         return fotoProdutoConversor.converterParaDTO(fotoProduto);
     }
-    public InputStream buscarImagemFotoProdutoPorRestaurante(Long restauranteId, Long produtoId, String mediasAceitasHeader) throws HttpMediaTypeNotAcceptableException {
+
+    /*
+        Com a largura informada é enviada a variante mais próxima (VariantesFotoProdutoService), as variantes têm o
+        mesmo formato da original
+     */
+    public ImagemFotoProduto buscarImagemFotoProdutoPorRestaurante(Long restauranteId, Long produtoId, String mediasAceitasHeader, Integer largura) throws HttpMediaTypeNotAcceptableException {
         Restaurante restaurante = buscarPorId(restauranteId);
         Produto produto = produtoService.buscarProdutoPorRestaurante(restaurante, produtoId);
         FotoProduto fotoProduto = produtoService.buscarFotoPorProduto(produto.getId());
         MediaType mediaTypeFoto = MediaType.parseMediaType(fotoProduto.getContentType());
         verificarCompatibilidade(mediaTypeFoto, mediasAceitasHeader);
-        return produtoService.recuperarFoto(fotoProduto.getNomeArquivo());
+        String nomeArquivo = variantesFotoProdutoService.buscarNomeArquivo(fotoProduto, largura);
+        return new ImagemFotoProduto(mediaTypeFoto, produtoService.recuperarFoto(nomeArquivo), false);
     }
 
     public Produto buscarProdutoPorRestaurante(Long restauranteId, Long produtoId) {
@@ -107,6 +183,7 @@ public class RestauranteProdutoService {
         produto.setRestaurante(restaurante);
         produtoService.salvar(produto);
         restaurante.adicionarProduto(produto);
+        publicarAlteracaoProdutos(restauranteId);
         return produtoConversor.converterParaDTO(produto);
     }
 
@@ -115,21 +192,178 @@ public class RestauranteProdutoService {
         Restaurante restaurante = buscarPorId(restauranteId);
         Produto produto = produtoService.buscarProdutoPorRestaurante(restaurante, produtoId);
         produtoConversor.copiarParaObjeto(produtoDTO, produto);
+        publicarAlteracaoProdutos(restauranteId);
         return produtoConversor.converterParaDTO(produto);
     }
 
     @Transactional
     public FotoProdutoDTO salvarFotoProduto(Long restauranteId, Long produtoId, FotoProdutoPutDTO fotoProdutoPutDTO) throws IOException {
+        FotoProduto fotoProduto;
+
+        if (fotoProdutoConteudoService.isAtivo()) {
+            fotoProduto = salvaFotoPorConteudo(restauranteId, produtoId, fotoProdutoPutDTO);
+        } else {
+            apagaFotoExistente(restauranteId, produtoId);
+            fotoProduto = salvaFotoNova(restauranteId, produtoId, fotoProdutoPutDTO);
+            InputStream dadosAquivo = fotoProdutoPutDTO.getArquivo().getInputStream();
+            armazenarFoto(fotoProduto, dadosAquivo);
+        }
+
+        publicarAlteracaoProdutos(restauranteId);
+        eventPublisher.publishEvent(new FotoProdutoArmazenadaEvent(restauranteId, produtoId, fotoProduto.getNomeArquivo(), fotoProduto.getContentType()));
+        return fotoProdutoConversor.converterParaDTO(fotoProduto);
+    }
+
+    /*
+        Upload em streaming (foto-stream): o arquivo vai do corpo da requisição direto para o armazenamento, sem o
+        MultipartFile guardar a foto antes em disco, e o tipo e o tamanho são conferidos enquanto os bytes passam
+        (EntradaFotoValidada). Só o buffer do LeitorMultipart fica em memória, mais uma parte de até 5MB no S3, que
+        envia em multipart quando o tamanho não é conhecido (ArmazenamentoAmazonS3Service), qualquer que seja o
+        tamanho do corpo.
+
+        Não tem @Transactional: a foto é gravada antes de qualquer acesso ao banco e só depois vem uma transação
+        curta com a linha de foto_produto. Com o open-in-view a conexão fica presa à requisição depois do primeiro
+        acesso ao banco, então buscar o produto antes deixaria a conexão parada durante todo o upload. O produto só
+        é conferido na transação, e a foto já gravada é apagada se alguma coisa falhar.
+     */
+    public FotoProdutoDTO salvarFotoProdutoStreaming(Long restauranteId, Long produtoId, LeitorMultipart leitor) throws IOException {
+        FotoEnviada fotoEnviada = null;
+        String descricao = null;
+
+        try {
+            LeitorMultipart.Parte parte;
+
+            while ((parte = leitor.proximaParte()) != null) {
+                if (CAMPO_DESCRICAO.equals(parte.getNome()) && !parte.isArquivo()) {
+                    descricao = parte.lerTexto(TAMANHO_MAXIMO_DESCRICAO * 4);
+                } else if (CAMPO_ARQUIVO.equals(parte.getNome()) && parte.isArquivo() && fotoEnviada == null) {
+                    fotoEnviada = armazenarFotoEnviada(parte);
+                }
+            }
+
+            if (fotoEnviada == null) {
+                throw new NegocioException(MSG_ARQUIVO_OBRIGATORIO);
+            }
+
+            if (!StringUtils.hasText(descricao)) {
+                throw new NegocioException(MSG_DESCRICAO_OBRIGATORIA);
+            }
+
+            if (descricao.length() > TAMANHO_MAXIMO_DESCRICAO) {
+                throw new NegocioException(String.format(MSG_DESCRICAO_EXCEDIDA, TAMANHO_MAXIMO_DESCRICAO));
+            }
+
+            FotoEnviada foto = fotoEnviada;
+            String descricaoFoto = descricao;
+            return transactionTemplate.execute(status -> gravarFotoEnviada(restauranteId, produtoId, foto, descricaoFoto));
+        } catch (IOException | RuntimeException e) {
+            descartarFotoEnviada(fotoEnviada);
+            throw e;
+        }
+    }
+
+    /*
+        Sem endereçamento pelo conteúdo o nome já é gerado antes e o arquivo é gravado direto no lugar final
+     */
+    private FotoEnviada armazenarFotoEnviada(LeitorMultipart.Parte parte) throws IOException {
+        EntradaFotoValidada entrada = EntradaFotoValidada.abrir(parte.getInputStream(), armazenamentoProperties.getTamanhoMaximoFoto().toBytes());
+        boolean porConteudo = fotoProdutoConteudoService.isAtivo();
+        String nomeArquivo = porConteudo ? null : armazenamentoService.gerarNovoNome(limparNomeArquivo(parte.getNomeArquivo()));
+
+        NovaFoto novaFoto = NovaFoto.builder()
+                                        .nomeArquivo(nomeArquivo)
+                                        .inputStream(entrada)
+                                        .contentType(entrada.getContentType().toString())
+                                    .build();
+
+        try {
+            if (porConteudo) {
+                nomeArquivo = fotoProdutoConteudoService.armazenar(novaFoto);
+            } else {
+                produtoService.armazenarFoto(novaFoto);
+            }
+        } catch (ArmazenamentoException e) {
+            if (!porConteudo) {
+                descartarFotoEnviada(new FotoEnviada(nomeArquivo, null, 0));
+            }
+
+            throw causaNegocio(e).orElseThrow(() -> e);
+        }
+
+        return new FotoEnviada(nomeArquivo, entrada.getContentType().toString(), entrada.getLidos());
+    }
+
+    /*
+        Pelo conteúdo a foto é travada (FotoProdutoConteudoService.bloquear) antes de qualquer alteração e precisa
+        ainda existir, uma remoção de outro produto com a mesma foto pode ter apagado o arquivo depois da gravação
+     */
+    private FotoProdutoDTO gravarFotoEnviada(Long restauranteId, Long produtoId, FotoEnviada fotoEnviada, String descricao) {
+        if (fotoProdutoConteudoService.isAtivo()) {
+            fotoProdutoConteudoService.bloquear(fotoEnviada.getNomeArquivo());
+
+            if (!armazenamentoService.existeFoto(fotoEnviada.getNomeArquivo())) {
+                throw new NegocioException(MSG_FOTO_REMOVIDA);
+            }
+        }
+
+        Produto produto = buscarProdutoPorRestaurante(restauranteId, produtoId);
         apagaFotoExistente(restauranteId, produtoId);
-        FotoProduto fotoProduto = salvaFotoNova(restauranteId, produtoId, fotoProdutoPutDTO);
-        InputStream dadosAquivo = fotoProdutoPutDTO.getArquivo().getInputStream();
-        armazenarFoto(fotoProduto, dadosAquivo);
+
+        FotoProduto fotoProduto = criarFotoProduto(produto, descricao, fotoEnviada.getContentType(), fotoEnviada.getTamanho());
+        fotoProduto.setNomeArquivo(fotoEnviada.getNomeArquivo());
+        fotoProduto = produtoService.gravarFotoProduto(fotoProduto);
+
+        publicarAlteracaoProdutos(restauranteId);
+        eventPublisher.publishEvent(new FotoProdutoArmazenadaEvent(restauranteId, produtoId, fotoProduto.getNomeArquivo(), fotoProduto.getContentType()));
         return fotoProdutoConversor.converterParaDTO(fotoProduto);
     }
 
+    /*
+        Pelo conteúdo a foto pode ser de outros produtos também, só é apagada se ninguém usar
+     */
+    private void descartarFotoEnviada(FotoEnviada fotoEnviada) {
+        if (fotoEnviada == null || fotoEnviada.getNomeArquivo() == null) {
+            return;
+        }
+
+        try {
+            if (fotoProdutoConteudoService.isAtivo()) {
+                fotoProdutoConteudoService.removerSeSemReferencia(fotoEnviada.getNomeArquivo());
+            } else {
+                armazenamentoService.removerFotoAnterior(fotoEnviada.getNomeArquivo());
+            }
+        } catch (Exception e) {
+            log.warn("Não foi possível remover a foto {} do upload que falhou", fotoEnviada.getNomeArquivo(), e);
+        }
+    }
+
+    /*
+        O limite de tamanho e o corpo inválido vêm como NegocioException de dentro do stream, e o armazenamento
+        embrulha em ArmazenamentoException (o S3 ainda em SdkClientException)
+     */
+    private static Optional<NegocioException> causaNegocio(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof NegocioException) {
+                return Optional.of((NegocioException) causa);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /*
+        Alguns navegadores mandam o caminho inteiro do arquivo, fica só o nome e sem caracteres de caminho
+     */
+    private static String limparNomeArquivo(String nomeArquivo) {
+        String nome = StringUtils.getFilename(StringUtils.cleanPath(nomeArquivo.replace('\\', '/')));
+        nome = nome != null ? nome.replaceAll("[^\\w.-]", "_") : "";
+        return nome.isEmpty() || nome.startsWith(".") ? "foto" + nome : nome;
+    }
+
     @Transactional
     public void deletarFotoProduto(Long restauranteId, Long produtoId) {
         apagaFotoExistente(restauranteId, produtoId);
+        publicarAlteracaoProdutos(restauranteId);
     }
 
     private void apagaFotoExistente(Long restauranteId, Long produtoId) {
@@ -140,18 +374,60 @@ public class RestauranteProdutoService {
     }
 
     private FotoProduto salvaFotoNova(Long restauranteId, Long produtoId, FotoProdutoPutDTO fotoProdutoPutDTO) {
+        FotoProduto fotoProduto = criarFotoProduto(restauranteId, produtoId, fotoProdutoPutDTO);
+        return produtoService.salvarFotoProduto(fotoProduto);
+    }
+
+    /*
+        Pelo conteúdo a foto é armazenada antes da linha de foto_produto, o nome do arquivo só é conhecido depois
+        do hash, que é calculado enquanto o upload é gravado. A trava só é pega depois da gravação; se uma remoção
+        apagou o arquivo nesse meio tempo ele é gravado de novo, o MultipartFile ainda tem o conteúdo
+     */
+    private FotoProduto salvaFotoPorConteudo(Long restauranteId, Long produtoId, FotoProdutoPutDTO fotoProdutoPutDTO) throws IOException {
+        FotoProduto fotoProduto = criarFotoProduto(restauranteId, produtoId, fotoProdutoPutDTO);
+        MultipartFile arquivo = fotoProdutoPutDTO.getArquivo();
+
+        String nomeArquivo = fotoProdutoConteudoService.armazenar(criarNovaFoto(arquivo));
+        fotoProdutoConteudoService.bloquear(nomeArquivo);
+
+        if (!armazenamentoService.existeFoto(nomeArquivo)) {
+            fotoProdutoConteudoService.armazenar(criarNovaFoto(arquivo));
+        }
+
+        apagaFotoExistente(restauranteId, produtoId);
+        fotoProduto.setNomeArquivo(nomeArquivo);
+        return produtoService.gravarFotoProduto(fotoProduto);
+    }
+
+    private NovaFoto criarNovaFoto(MultipartFile arquivo) throws IOException {
+        return NovaFoto.builder()
+                            .nomeArquivo(arquivo.getOriginalFilename())
+                            .inputStream(arquivo.getInputStream())
+                            .contentType(arquivo.getContentType())
+                            .tamanho(arquivo.getSize())
+                        .build();
+    }
+
+    private FotoProduto criarFotoProduto(Long restauranteId, Long produtoId, FotoProdutoPutDTO fotoProdutoPutDTO) {
         Produto produto = buscarProdutoPorRestaurante(restauranteId, produtoId);
 
         MultipartFile arquivo = fotoProdutoPutDTO.getArquivo();
 
+        FotoProduto fotoProduto = criarFotoProduto(produto, fotoProdutoPutDTO.getDescricao(), arquivo.getContentType(), arquivo.getSize());
+        fotoProduto.setNomeArquivo(arquivo.getOriginalFilename());
+
+        return fotoProduto;
+    }
+
+    private FotoProduto criarFotoProduto(Produto produto, String descricao, String contentType, long tamanho) {
         FotoProduto fotoProduto = new FotoProduto();
         fotoProduto.setProduto(produto);
-        fotoProduto.setDescricao(fotoProdutoPutDTO.getDescricao());
-        fotoProduto.setContentType(arquivo.getContentType());
-        fotoProduto.setTamanho(arquivo.getSize());
-        fotoProduto.setNomeArquivo(arquivo.getOriginalFilename());
+        fotoProduto.setDescricao(descricao);
+        fotoProduto.setContentType(contentType);
+        fotoProduto.setTamanho(tamanho);
+        fotoProduto.setSituacaoVariantes(SituacaoVariantesFoto.PENDENTE);
 
-        return produtoService.salvarFotoProduto(fotoProduto);
+        return fotoProduto;
     }
 
     private void armazenarFoto(FotoProduto fotoProduto, InputStream dadosArquivo) {
@@ -165,6 +441,21 @@ public class RestauranteProdutoService {
 
     }
 
+    /*
+        Os caches com produtos do restaurante (ex.: VitrineRestauranteCache) só tratam o evento depois do commit
+     */
+    private void publicarAlteracaoProdutos(Long restauranteId) {
+        eventPublisher.publishEvent(new ProdutosRestauranteAlteradosEvent(restauranteId));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class FotoEnviada {
+        private final String nomeArquivo;
+        private final String contentType;
+        private final long tamanho;
+    }
+
     private void verificarCompatibilidade(MediaType mediaTypeFoto, String mediasAceitasHeader) throws HttpMediaTypeNotAcceptableException {
         List<MediaType> mediaTypesAceitas = MediaType.parseMediaTypes(mediasAceitasHeader);
         boolean mediaCompativel = mediaTypesAceitas.stream().anyMatch(mediaTypeAceita -> mediaTypeAceita.isCompatibleWith(mediaTypeFoto));
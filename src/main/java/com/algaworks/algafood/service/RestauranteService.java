@@ -1,13 +1,17 @@
 package com.algaworks.algafood.service;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.algaworks.algafood.controller.RestauranteUsuarioResponsavelController;
 import com.algaworks.algafood.dto.*;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.hateoas.CollectionModel;
@@ -17,14 +21,18 @@ import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.algaworks.algafood.dto.conversor.HorarioFuncionamentoConversor;
 import com.algaworks.algafood.dto.conversor.ProdutoConversor;
 import com.algaworks.algafood.dto.conversor.RestauranteConversor;
 import com.algaworks.algafood.dto.conversor.UsuarioConversor;
 import com.algaworks.algafood.entity.Cidade;
 import com.algaworks.algafood.entity.Cozinha;
 import com.algaworks.algafood.entity.FormaPagamento;
+import com.algaworks.algafood.entity.HorarioFuncionamento;
 import com.algaworks.algafood.entity.Restaurante;
 import com.algaworks.algafood.entity.Usuario;
+import com.algaworks.algafood.enuns.OrdenacaoRestaurante;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
 import com.algaworks.algafood.exception.CidadeNaoEncotradaException;
 import com.algaworks.algafood.exception.CozinhaNaoEncotradaException;
 import com.algaworks.algafood.exception.EntidadeEmUsoException;
@@ -33,7 +41,16 @@ import com.algaworks.algafood.exception.NegocioException;
 import com.algaworks.algafood.exception.RestauranteNaoEncotradoException;
 import com.algaworks.algafood.repository.CidadeRepository;
 import com.algaworks.algafood.repository.CozinhaRepository;
+import com.algaworks.algafood.links.LinkManager;
 import com.algaworks.algafood.repository.RestauranteRepository;
+import com.algaworks.algafood.restaurante.AgendaFuncionamentoRestaurante;
+import com.algaworks.algafood.restaurante.CatalogoRestaurante;
+import com.algaworks.algafood.restaurante.CatalogoRestauranteCache;
+import com.algaworks.algafood.restaurante.CatalogoSerializado;
+import com.algaworks.algafood.restaurante.CatalogoSerializadoCache;
+import com.algaworks.algafood.restaurante.IndiceProximidadeRestaurante;
+import com.algaworks.algafood.restaurante.RestauranteCursor;
+import com.algaworks.algafood.restaurante.RestauranteProperties;
 import com.algaworks.algafood.view.RestauranteView;
 
 // TODO: Apos terminar o curso, mover todos os métodos para os services, chamar apenas services aqui o único repository deve ser o do Restaurante.
@@ -41,6 +58,10 @@ import com.algaworks.algafood.view.RestauranteView;
 public class RestauranteService {
 	
 	private static final String MSG_RESTAURANTE_EM_USO = "	Restaurante id %d não pode ser removida, está em uso!";
+	private static final String MSG_RESTAURANTES_NAO_ENCONTRADOS = "Não existem restaurantes com os ids %s";
+	private static final String MSG_COORDENADAS_INVALIDAS = "A latitude deve estar entre -90 e 90 e a longitude entre -180 e 180";
+	private static final String MSG_RAIO_INVALIDO = "O raio deve ser maior que zero e no máximo %s km";
+	private static final String MSG_TAMANHO_PAGINA_INVALIDO = "O tamanho da página deve ser entre 1 e %d";
 	
 	@Autowired
 	private RestauranteRepository repository;
@@ -69,32 +90,111 @@ public class RestauranteService {
 	@Autowired
 	private UsuarioService usuarioService;
 	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	private CatalogoRestauranteCache catalogoCache;
+	
+	@Autowired
+	private RestauranteProperties restauranteProperties;
+	
+	@Autowired
+	private CatalogoSerializadoCache catalogoSerializadoCache;
+	
+	@Autowired
+	private IndiceProximidadeRestaurante indiceProximidade;
+	
+	@Autowired
+	private AgendaFuncionamentoRestaurante agendaFuncionamento;
+	
+	@Autowired
+	private HorarioFuncionamentoConversor horarioFuncionamentoConversor;
+	
+	@Autowired
+	private LinkManager linkManager;
+	
 	public List<RestauranteRetornoDTO> listar() {
-		return conversor.toCollectionModel(repository.findAllCustom());
+		return listarCatalogo().getRestaurantes();
+	}
+	
+	/*
+	 * A lista vem do CatalogoRestauranteCache, o findAllCustom e a conversão só são executados quando algum
+	 * restaurante foi alterado desde a última montagem. A lista devolvida não pode ser alterada.
+	 */
+	public CatalogoRestaurante listarCatalogo() {
+		return catalogoCache.buscar(() -> conversor.toCollectionModel(repository.findAllCustom()));
+	}
+	
+	/*
+	 * Igual à listagem de pedidos por cursor, é buscado um registro a mais do que o tamanho da página só para saber
+	 * se existe próxima página. O tamanho é limitado pelo tamanhoMaximoPagina, nenhuma página traz a tabela inteira.
+	 */
+	@Transactional(readOnly = true)
+	public CollectionModel<RestauranteRetornoDTO> listarPorCursor(String cursor, OrdenacaoRestaurante ordenacao, int size) {
+		int tamanhoMaximo = restauranteProperties.getCursor().getTamanhoMaximoPagina();
+		
+		if (size < 1 || size > tamanhoMaximo) {
+			throw new NegocioException(String.format(MSG_TAMANHO_PAGINA_INVALIDO, tamanhoMaximo));
+		}
+		
+		List<Restaurante> restaurantes = repository.buscarAposCursor(ordenacao, RestauranteCursor.decodificar(cursor, ordenacao), size + 1);
+		String proximoCursor = null;
+		
+		if (restaurantes.size() > size) {
+			restaurantes = restaurantes.subList(0, size);
+			proximoCursor = RestauranteCursor.posicaoDo(restaurantes.get(size - 1), ordenacao).codificar();
+		}
+		
+		// O cast escolhe o toCollectionModel do assembler, que devolve o CollectionModel e não a lista
+		CollectionModel<RestauranteRetornoDTO> restaurantesDTO = conversor.toCollectionModel((Iterable<Restaurante>) restaurantes);
+		return linkManager.linkToRestaurantesPorCursor(restaurantesDTO, cursor, ordenacao, proximoCursor, size);
+	}
+	
+	/*
+	 * Catálogo das listagens com JsonView, só com id, nome, taxa de frete e cozinha vindos da projeção
+	 */
+	public CatalogoRestaurante listarCatalogoResumido() {
+		return catalogoCache.buscarResumo(repository::buscarResumosParaVisao);
 	}
 	
 	public MappingJacksonValue listarEnvelopado(String tipoRetorno) {
-		MappingJacksonValue restaurantesWrapper = new MappingJacksonValue(listar());
+		return listarEnvelopado(listar(), tipoRetorno);
+	}
+	
+	public MappingJacksonValue listarEnvelopado(List<RestauranteRetornoDTO> restaurantes, String tipoRetorno) {
+		MappingJacksonValue restaurantesWrapper = new MappingJacksonValue(restaurantes);
 		
 		/*
 		 * Como o MappingJacksonValue é um Wrapper, ele possui vários métodos que nos permitem customizar o retorno
 		 * de uma forma mais dinâmica, como por exemplo o setSerializationView.
 		 */
-		restaurantesWrapper.setSerializationView(RestauranteView.Resumo.class);
+		restaurantesWrapper.setSerializationView(buscarViewEnvelopado(tipoRetorno));
 		
+		return restaurantesWrapper;
+	}
+	
+	public Class<?> buscarViewEnvelopado(String tipoRetorno) {
 		if (StringUtils.isNotBlank(tipoRetorno)) {			
 			if (tipoRetorno.equals("apenas-nomes")) {
-				restaurantesWrapper.setSerializationView(RestauranteView.ApenasNomes.class);
+				return RestauranteView.ApenasNomes.class;
 			} else if (tipoRetorno.equals("completo")) {
 				/*
-				 * É setado null para que caso seja passado o tipo completo retorne todos os parâmetros na JsonView
+				 * É retornado null para que caso seja passado o tipo completo retorne todos os parâmetros na JsonView
 				 * sem interface específica para isso.
 				 */
-				restaurantesWrapper.setSerializationView(null);
+				return null;
 			}		
 		}		
 		
-		return restaurantesWrapper;
+		return RestauranteView.Resumo.class;
+	}
+	
+	/*
+	 * Json do catálogo resumido já serializado com a view, gerado uma vez por versão do catálogo
+	 */
+	public CatalogoSerializado listarCatalogoSerializado(Class<?> view) {
+		return catalogoSerializadoCache.buscar(listarCatalogoResumido(), view);
 	}
 	
 	public RestauranteRetornoDTO buscarDtoPorId(Long id) {
@@ -106,22 +206,48 @@ public class RestauranteService {
 		return repository.findById(id).orElseThrow(() -> new RestauranteNaoEncotradoException(id) );
 	}
 	
-	public List<RestauranteRetornoDTO> listarPorTaxaFrete(BigDecimal taxaInicial, BigDecimal taxaFinal) {
-		return conversor.toCollectionModel(repository.findByTaxaFreteBetween(taxaInicial, taxaFinal));
+	/*
+	 * Devolve apenas a referência (proxy) do restaurante sem ir ao banco, para quem já validou que ele existe
+	 * e só precisa associá-lo a outra entidade.
+	 */
+	public Restaurante buscarReferenciaPorId(Long id) {
+		return repository.getOne(id);
+	}
+	
+	public List<RestauranteRetornoDTO> listarPorTaxaFrete(BigDecimal taxaInicial, BigDecimal taxaFinal, boolean abertoAgora) {
+		return conversor.toCollectionModel(repository.findPorTaxaFrete(taxaInicial, taxaFinal, abertoAgora));
 	}	
 	
-	public List<RestauranteRetornoDTO> listarPorNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal) {
-		return conversor.toCollectionModel(repository.findByNomeTaxaFrete(nome, taxaInicial, taxaFinal));
+	public List<RestauranteRetornoDTO> listarPorNomeTaxaFrete(String nome, BigDecimal taxaInicial, BigDecimal taxaFinal, boolean abertoAgora) {
+		return conversor.toCollectionModel(repository.findByNomeTaxaFrete(nome, taxaInicial, taxaFinal, abertoAgora));
 	}
 	
-	public List<RestauranteRetornoDTO> comFreteGratis(String nome) {	
-		return conversor.toCollectionModel(repository.findComFreteGratis(nome));
+	public List<RestauranteRetornoDTO> comFreteGratis(String nome, boolean abertoAgora) {	
+		return conversor.toCollectionModel(repository.findComFreteGratis(nome, abertoAgora));
 	}
 	
 	public List<RestauranteRetornoDTO> listarPorNomeECozinha(String nome, Long cozinhaId) {
 		return conversor.toCollectionModel(repository.consultarPorNome(nome, cozinhaId));
 	}
 	
+	/*
+	 * Busca no IndiceProximidadeRestaurante, sem consulta ao banco. Sem raio é usado o raioPadrao.
+	 */
+	public List<RestauranteProximoDTO> listarProximos(double latitude, double longitude, Double raioKm) {
+		RestauranteProperties.Proximidade configuracao = restauranteProperties.getProximidade();
+		double raio = raioKm != null ? raioKm : configuracao.getRaioPadrao();
+		
+		if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+			throw new NegocioException(MSG_COORDENADAS_INVALIDAS);
+		}
+		
+		if (!(raio > 0) || raio > configuracao.getRaioMaximo()) {
+			throw new NegocioException(String.format(MSG_RAIO_INVALIDO, configuracao.getRaioMaximo()));
+		}
+		
+		return indiceProximidade.buscar(latitude, longitude, raio);
+	}
+	
 	public RestauranteRetornoDTO buscarPrimeiro() {
 		return conversor.toModel(repository.buscarPrimeiro().get());
 	}
@@ -140,7 +266,10 @@ public class RestauranteService {
 			restaurante.setCozinha(cozinha);
 			restaurante.getEndereco().setCidade(cidade);
 			
-			return conversor.toModel(repository.save(restaurante));
+			restaurante = repository.save(restaurante);
+			publicarAlteracao(restaurante.getId());
+			
+			return conversor.toModel(restaurante);
 		} catch (Exception e) {
 			throw new NegocioException(e.getMessage());
 		}
@@ -164,6 +293,8 @@ public class RestauranteService {
 			}
 			
 			conversor.copiarParaObjeto(dto, restauranteAtual);
+			publicarAlteracao(id);
+			
 			return conversor.toModel(repository.save(restauranteAtual));
 		} catch (EntidadeNaoEncotradaException e) {
 			throw new NegocioException(e.getMessage());
@@ -175,6 +306,7 @@ public class RestauranteService {
 		try {
 			repository.deleteById(id);
 			repository.flush();
+			publicarAlteracao(id);
 		} catch (EmptyResultDataAccessException e) {
 			throw new RestauranteNaoEncotradoException(id);
 		
@@ -194,6 +326,7 @@ public class RestauranteService {
 		 * após esse retorno o próprio spring data JPA jà sincroniza com a base e salva automáticamente por causa do transactional.
 		 */
 		restaurante.ativar();
+		publicarAlteracao(id);
 	}
 	
 	/*
@@ -202,14 +335,8 @@ public class RestauranteService {
 	 * ficam inconsistentes.
 	 */
 	@Transactional
-	public void ativarTodos(List<Long> ids) {
-		
-		try {
-			ids.forEach(this::ativar);			
-		} catch (RestauranteNaoEncotradoException e) {
-			throw new NegocioException(e.getMessage(), e);
-		}
-		
+	public RestauranteAlteracaoEmMassaDTO ativarTodos(List<Long> ids) {
+		return alterarAtivoEmMassa(ids, true);
 	}
 	
 	@Transactional
@@ -222,6 +349,7 @@ public class RestauranteService {
 		 * após esse retorno o próprio spring data JPA jà sincroniza com a base e salva automáticamente por causa do transactional.
 		 */
 		restaurante.desativar();
+		publicarAlteracao(id);
 	}
 	
 	/*
@@ -230,12 +358,43 @@ public class RestauranteService {
 	 * ficam inconsistentes.
 	 */
 	@Transactional
-	public void desativarTodos(List<Long> ids) {
-		try {
-			ids.forEach(this::desativar);			
-		} catch (RestauranteNaoEncotradoException e) {
-			throw new NegocioException(e.getMessage(), e);
+	public RestauranteAlteracaoEmMassaDTO desativarTodos(List<Long> ids) {
+		return alterarAtivoEmMassa(ids, false);
+	}
+	
+	/*
+	 * Ao invés de um findById e um update por restaurante, primeiro todos os ids são conferidos com um select id
+	 * e depois alterados com um único update, os dois em blocos de tamanhoBloco ids para não montar um in (...)
+	 * gigante. Qualquer id inexistente recusa a operação inteira antes de qualquer alteração.
+	 * 
+	 * Um único evento sem id avisa os caches que vários restaurantes mudaram.
+	 */
+	private RestauranteAlteracaoEmMassaDTO alterarAtivoEmMassa(List<Long> ids, boolean ativo) {
+		List<Long> idsUnicos = new ArrayList<>(new LinkedHashSet<>(ids));
+		int tamanhoBloco = restauranteProperties.getLote().getTamanhoBloco();
+		
+		Set<Long> naoEncontrados = new LinkedHashSet<>(idsUnicos);
+		
+		for (int inicio = 0; inicio < idsUnicos.size(); inicio += tamanhoBloco) {
+			naoEncontrados.removeAll(repository.buscarIdsExistentes(idsUnicos.subList(inicio, Math.min(inicio + tamanhoBloco, idsUnicos.size()))));
+		}
+		
+		if (!naoEncontrados.isEmpty()) {
+			throw new NegocioException(String.format(MSG_RESTAURANTES_NAO_ENCONTRADOS, StringUtils.join(naoEncontrados, ", ")));
+		}
+		
+		OffsetDateTime dataAtualizacao = OffsetDateTime.now();
+		int alterados = 0;
+		
+		for (int inicio = 0; inicio < idsUnicos.size(); inicio += tamanhoBloco) {
+			alterados += repository.alterarAtivoEmMassa(idsUnicos.subList(inicio, Math.min(inicio + tamanhoBloco, idsUnicos.size())), ativo, dataAtualizacao);
+		}
+		
+		if (alterados > 0) {
+			publicarAlteracao(null);
 		}
+		
+		return new RestauranteAlteracaoEmMassaDTO(idsUnicos.size(), alterados);
 	}
 	
 	@Transactional
@@ -249,6 +408,7 @@ public class RestauranteService {
 		 * gerenciador do Spring Data JPA quando for sincronizar as informações.
 		 */
 		restaurante.desvincularFormaPagamento(formaPagamento);
+		publicarAlteracao(restauranteId);
 	}
 	
 	// TODO: não está com idempotencia, verificar
@@ -263,18 +423,57 @@ public class RestauranteService {
 		 * gerenciador do Spring Data JPA quando for sincronizar as informações.
 		 */
 		restaurante.vincularFormaPagamento(formaPagamento);
+		publicarAlteracao(restauranteId);
 	}
 
 	@Transactional
 	public void abrir(Long id) {
 		Restaurante restaurante = buscarPorId(id);
 		restaurante.abrir();
+		publicarAlteracao(id);
 	}
 
 	@Transactional
 	public void fechar(Long id) {
 		Restaurante restaurante = buscarPorId(id);
 		restaurante.fechar();
+		publicarAlteracao(id);
+	}
+	
+	@Transactional(readOnly = true)
+	public AgendaFuncionamentoDTO buscarHorariosFuncionamento(Long restauranteId) {
+		return horarioFuncionamentoConversor.converterParaDTO(buscarPorId(restauranteId).getHorariosFuncionamento());
+	}
+	
+	/*
+	 * Substitui todos os horários do restaurante, uma lista vazia volta para o abrir/fechar manual. Com horários o
+	 * restaurante já fica aberto ou fechado conforme o minuto atual, sem esperar a próxima transição.
+	 */
+	@Transactional
+	public AgendaFuncionamentoDTO atualizarHorariosFuncionamento(Long restauranteId, AgendaFuncionamentoDTO dto) {
+		Restaurante restaurante = buscarPorId(restauranteId);
+		List<HorarioFuncionamento> horarios = horarioFuncionamentoConversor.converterParaObjeto(dto);
+		
+		restaurante.substituirHorariosFuncionamento(horarios);
+		
+		if (!horarios.isEmpty()) {
+			if (AgendaFuncionamentoRestaurante.estaAberto(horarios, agendaFuncionamento.minutoAtual())) {
+				restaurante.abrir();
+			} else {
+				restaurante.fechar();
+			}
+		}
+		
+		publicarAlteracao(restauranteId);
+		return horarioFuncionamentoConversor.converterParaDTO(restaurante.getHorariosFuncionamento());
+	}
+
+	/*
+	 * Avisa quem guarda dados de restaurante em memória (ex.: ValidacaoPedidoCache), os listeners só tratam
+	 * o evento depois do commit, se a transação sofrer rollback nada é invalidado.
+	 */
+	private void publicarAlteracao(Long restauranteId) {
+		eventPublisher.publishEvent(new RestauranteAlteradoEvent(restauranteId));
 	}
 
 	public CollectionModel<UsuarioDTO> listarResponsaveisPorRestaurante(Long restauranteId) {
@@ -302,26 +501,11 @@ public class RestauranteService {
 	}
 
 
-	// TODO: criado dessa forma para testar o client da aula 16.10 necessário melhorar o código
+	/*
+	 * Os DTOs vêm prontos da projeção, nenhuma entidade é carregada. O readOnly deixa a sessão sem flush.
+	 */
+	@Transactional(readOnly = true)
 	public List<RestauranteResumoDTO> listarResumo() {
-		List<Restaurante> restaurantes = repository.findAll();
-		List<RestauranteResumoDTO> listaResumo = new ArrayList<>();
-
-		restaurantes.forEach(restaurante -> {
-			RestauranteResumoDTO restauranteResumoDTO = new RestauranteResumoDTO();
-			restauranteResumoDTO.setId(restaurante.getId());
-			restauranteResumoDTO.setNome(restaurante.getNome());
-			restauranteResumoDTO.setTaxaFrete(restaurante.getTaxaFrete());
-
-			CozinhaDTO cozinhaDTO = new CozinhaDTO();
-			cozinhaDTO.setId(restaurante.getCozinha().getId());
-			cozinhaDTO.setNome(restaurante.getCozinha().getNome());
-
-			restauranteResumoDTO.setCozinha(cozinhaDTO);
-			listaResumo.add(restauranteResumoDTO);
-		});
-
-		return listaResumo;
-
+		return repository.buscarResumos();
 	}
 }
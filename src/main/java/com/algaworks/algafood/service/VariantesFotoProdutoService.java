@@ -0,0 +1,315 @@
+package com.algaworks.algafood.service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.algaworks.algafood.entity.FotoProduto;
+import com.algaworks.algafood.enuns.SituacaoVariantesFoto;
+import com.algaworks.algafood.event.FotoProdutoArmazenadaEvent;
+import com.algaworks.algafood.event.FotoProdutoRemovidaEvent;
+import com.algaworks.algafood.event.ProdutosRestauranteAlteradosEvent;
+import com.algaworks.algafood.exception.NegocioException;
+import com.algaworks.algafood.repository.FotoProdutoRepository;
+import com.algaworks.algafood.storage.ArmazenamentoProperties;
+import com.algaworks.algafood.storage.ArmazenamentoService;
+import com.algaworks.algafood.storage.ArmazenamentoService.NovaFoto;
+import com.algaworks.algafood.util.RedimensionadorImagem;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Variantes das fotos de produto, cópias menores da foto original nas larguras configuradas em
+ * algafood.armazenamento.variantes.larguras, para que os apps não baixem a foto original só para mostrar uma miniatura.
+ *
+ * O upload continua gravando só a original e responde na hora, a geração acontece depois do commit num pool de
+ * threads próprio com fila limitada. As variantes são gravadas pelo ArmazenamentoService junto da original, então
+ * funcionam tanto no armazenamento local quanto no S3. Se a foto for trocada ou removida durante a geração, as
+ * variantes que já foram gravadas são apagadas.
+ *
+ * Fotos que estavam na fila ou sendo processadas quando a api é parada ficam PENDENTE ou PROCESSANDO, sem variantes, e
+ * continuam sendo servidas pela original até a api subir de novo, quando a geração delas é retomada (retomarInterrompidas).
+ */
+@Slf4j
+@Service
+public class VariantesFotoProdutoService {
+
+	private static final String MSG_LARGURA_INVALIDA = "A largura %d informada é inválida, informe um valor maior que zero";
+
+	@Autowired
+	private FotoProdutoRepository fotoProdutoRepository;
+
+	@Autowired
+	private ArmazenamentoService armazenamentoService;
+
+	@Autowired
+	private ArmazenamentoProperties armazenamentoProperties;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	private TransactionTemplate transactionTemplate;
+	private ExecutorService geracao;
+
+	/*
+	 * Da maior para a menor, cada variante é reduzida a partir da anterior e não da original
+	 */
+	private List<Integer> largurasDecrescentes;
+
+	/*
+	 * REQUIRES_NEW porque a atualização da situação também acontece dentro do AFTER_COMMIT da transação do upload
+	 */
+	@PostConstruct
+	public void inicializar() {
+		ArmazenamentoProperties.Variantes variantes = armazenamentoProperties.getVariantes();
+
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		largurasDecrescentes = variantes.getLarguras().stream()
+										.filter(largura -> largura > 0)
+										.distinct()
+										.sorted(Collections.reverseOrder())
+										.collect(Collectors.toList());
+
+		geracao = new ThreadPoolExecutor(variantes.getThreads(), variantes.getThreads(), 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(variantes.getCapacidadeFila()), new CustomizableThreadFactory("foto-variantes-"));
+	}
+
+	/*
+	 * Com a api recém iniciada a fila está vazia, toda foto PENDENTE ou PROCESSANDO ficou da execução anterior. As fotos
+	 * são enfileiradas por uma thread própria para não atrasar a subida, e quando a fila enche a própria thread gera as
+	 * variantes da foto, assim nenhuma fica para trás e as novas fotos continuam tendo vaga na fila.
+	 *
+	 * Igual ao agendamento dos horários de funcionamento, considera uma única instância da api.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void retomarInterrompidas() {
+		List<FotoProdutoArmazenadaEvent> interrompidas = fotoProdutoRepository
+				.buscarPorSituacoesVariantes(Arrays.asList(SituacaoVariantesFoto.PENDENTE, SituacaoVariantesFoto.PROCESSANDO)).stream()
+				.map(linha -> new FotoProdutoArmazenadaEvent((Long) linha[0], (Long) linha[1], (String) linha[2], (String) linha[3]))
+				.collect(Collectors.toList());
+
+		if (interrompidas.isEmpty()) {
+			return;
+		}
+
+		log.info("Retomando a geração de variantes de {} fotos interrompidas", interrompidas.size());
+
+		Thread retomada = new CustomizableThreadFactory("foto-variantes-retomada-").newThread(() -> {
+			for (FotoProdutoArmazenadaEvent event : interrompidas) {
+				try {
+					geracao.execute(() -> gerarVariantes(event));
+				} catch (RejectedExecutionException e) {
+					// Recusada também quando a api está sendo parada, aí o restante fica para a próxima subida
+					if (geracao.isShutdown()) {
+						return;
+					}
+
+					gerarVariantes(event);
+				}
+			}
+		});
+
+		retomada.setDaemon(true);
+		retomada.start();
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		List<Runnable> pendentes = geracao.shutdownNow();
+		log.info("Geração de variantes de fotos encerrada com {} fotos na fila", pendentes.size());
+	}
+
+	/*
+	 * Com a fila cheia a foto fica como FALHA na hora, a requisição do upload não espera por uma vaga
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void fotoArmazenada(FotoProdutoArmazenadaEvent event) {
+		try {
+			geracao.execute(() -> gerarVariantes(event));
+		} catch (RejectedExecutionException e) {
+			log.warn("Fila de variantes de fotos cheia, a foto {} vai ficar sem variantes", event.getNomeArquivo());
+			atualizarSituacao(event, SituacaoVariantesFoto.FALHA, Collections.emptyList());
+		}
+	}
+
+	/*
+	 * Nome do arquivo a ser enviado para a largura pedida, a menor variante com largura maior ou igual. Sem largura,
+	 * sem variantes prontas ou com largura maior que todas as variantes vai a original, que é maior que qualquer variante.
+	 */
+	public String buscarNomeArquivo(FotoProduto fotoProduto, Integer largura) {
+		if (largura == null) {
+			return fotoProduto.getNomeArquivo();
+		}
+
+		if (largura <= 0) {
+			throw new NegocioException(String.format(MSG_LARGURA_INVALIDA, largura));
+		}
+
+		if (fotoProduto.getSituacaoVariantes() != SituacaoVariantesFoto.CONCLUIDA) {
+			return fotoProduto.getNomeArquivo();
+		}
+
+		return fotoProduto.getLargurasVariantes().stream()
+							.filter(larguraVariante -> larguraVariante >= largura)
+							.findFirst()
+							.map(larguraVariante -> armazenamentoService.gerarNomeVariante(fotoProduto.getNomeArquivo(), larguraVariante))
+							.orElse(fotoProduto.getNomeArquivo());
+	}
+
+	/*
+	 * Remove as variantes nas larguras configuradas e nas que constam na foto, assim também são apagadas as variantes
+	 * gravadas por uma geração que ainda não tinha terminado
+	 */
+	public void removerVariantes(FotoProduto fotoProduto) {
+		Set<Integer> larguras = new TreeSet<>(largurasDecrescentes);
+		larguras.addAll(fotoProduto.getLargurasVariantes());
+		removerArquivos(fotoProduto.getNomeArquivo(), larguras);
+	}
+
+	private void gerarVariantes(FotoProdutoArmazenadaEvent event) {
+		if (!atualizarSituacao(event, SituacaoVariantesFoto.PROCESSANDO, Collections.emptyList())) {
+			return;
+		}
+
+		if (reaproveitarVariantes(event)) {
+			return;
+		}
+
+		List<Integer> geradas = new ArrayList<>();
+
+		try {
+			BufferedImage imagem;
+
+			try (InputStream entrada = armazenamentoService.lerFoto(event.getNomeArquivo())) {
+				imagem = RedimensionadorImagem.ler(entrada, armazenamentoProperties.getVariantes().getMaximoPixels());
+			}
+
+			String formato = MediaType.IMAGE_PNG.equalsTypeAndSubtype(MediaType.parseMediaType(event.getContentType())) ? "png" : "jpeg";
+
+			for (Integer largura : largurasDecrescentes) {
+				if (largura >= imagem.getWidth()) {
+					continue;
+				}
+
+				imagem = RedimensionadorImagem.redimensionar(imagem, largura);
+				byte[] variante = RedimensionadorImagem.codificar(imagem, formato);
+
+				armazenamentoService.armazenarFoto(NovaFoto.builder()
+														.nomeArquivo(armazenamentoService.gerarNomeVariante(event.getNomeArquivo(), largura))
+														.inputStream(new ByteArrayInputStream(variante))
+													.build());
+				geradas.add(largura);
+			}
+		} catch (Exception e) {
+			log.error("Erro ao gerar as variantes da foto {}", event.getNomeArquivo(), e);
+
+			if (!atualizarSituacao(event, SituacaoVariantesFoto.FALHA, Collections.emptyList())) {
+				descartarVariantes(event.getNomeArquivo(), geradas);
+			}
+
+			return;
+		}
+
+		Collections.sort(geradas);
+
+		if (!atualizarSituacao(event, SituacaoVariantesFoto.CONCLUIDA, geradas)) {
+			descartarVariantes(event.getNomeArquivo(), geradas);
+		}
+	}
+
+	/*
+	 * Com o endereçamento por conteúdo outro produto pode já ter a mesma foto com as variantes prontas, que são os
+	 * mesmos arquivos
+	 */
+	private boolean reaproveitarVariantes(FotoProdutoArmazenadaEvent event) {
+		if (!armazenamentoProperties.isEnderecamentoPorConteudo()) {
+			return false;
+		}
+
+		return fotoProdutoRepository.findFirstByNomeArquivoAndSituacaoVariantes(event.getNomeArquivo(), SituacaoVariantesFoto.CONCLUIDA)
+									.map(foto -> atualizarSituacao(event, SituacaoVariantesFoto.CONCLUIDA, foto.getLargurasVariantes()))
+									.orElse(false);
+	}
+
+	/*
+	 * Variantes de uma foto que foi trocada ou removida durante a geração. Com o endereçamento por conteúdo os
+	 * arquivos podem ser de outro produto também, quem confere as referências é o FotoProdutoConteudoService.
+	 */
+	private void descartarVariantes(String nomeFoto, List<Integer> geradas) {
+		if (armazenamentoProperties.isEnderecamentoPorConteudo()) {
+			eventPublisher.publishEvent(new FotoProdutoRemovidaEvent(nomeFoto));
+		} else {
+			removerArquivos(nomeFoto, geradas);
+		}
+	}
+
+	/*
+	 * Só atualiza se a foto do produto ainda for a mesma do evento, devolve false quando ela foi trocada ou removida.
+	 * Os caches com a foto do produto (vitrine) são avisados pelo ProdutosRestauranteAlteradosEvent.
+	 */
+	private boolean atualizarSituacao(FotoProdutoArmazenadaEvent event, SituacaoVariantesFoto situacao, List<Integer> larguras) {
+		try {
+			return transactionTemplate.execute(status -> {
+				Optional<FotoProduto> fotoProduto = fotoProdutoRepository.findById(event.getProdutoId())
+																		.filter(foto -> event.getNomeArquivo().equals(foto.getNomeArquivo()));
+
+				if (!fotoProduto.isPresent()) {
+					return false;
+				}
+
+				fotoProduto.get().setSituacaoVariantes(situacao);
+				fotoProduto.get().setLargurasVariantes(new ArrayList<>(larguras));
+				eventPublisher.publishEvent(new ProdutosRestauranteAlteradosEvent(event.getRestauranteId()));
+				return true;
+			});
+		} catch (Exception e) {
+			log.error("Erro ao atualizar a situação das variantes da foto {}", event.getNomeArquivo(), e);
+			return false;
+		}
+	}
+
+	private void removerArquivos(String nomeFoto, Iterable<Integer> larguras) {
+		for (Integer largura : larguras) {
+			try {
+				armazenamentoService.removerFotoAnterior(armazenamentoService.gerarNomeVariante(nomeFoto, largura));
+			} catch (Exception e) {
+				log.warn("Não foi possível remover a variante {} da foto {}", largura, nomeFoto, e);
+			}
+		}
+	}
+
+}
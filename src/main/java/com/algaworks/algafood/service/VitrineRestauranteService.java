@@ -0,0 +1,75 @@
+package com.algaworks.algafood.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.algaworks.algafood.dto.VitrineRestauranteDTO;
+import com.algaworks.algafood.dto.conversor.VitrineRestauranteConversor;
+import com.algaworks.algafood.entity.FotoProduto;
+import com.algaworks.algafood.entity.Produto;
+import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.exception.RestauranteNaoEncotradoException;
+import com.algaworks.algafood.repository.ProdutoRepository;
+import com.algaworks.algafood.repository.RestauranteRepository;
+import com.algaworks.algafood.restaurante.VitrineRestaurante;
+import com.algaworks.algafood.restaurante.VitrineRestauranteCache;
+
+@Service
+public class VitrineRestauranteService {
+
+	@Autowired
+	private RestauranteRepository restauranteRepository;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private VitrineRestauranteConversor conversor;
+
+	@Autowired
+	private VitrineRestauranteCache cache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	@PostConstruct
+	public void inicializar() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(true);
+	}
+
+	public VitrineRestaurante buscar(Long restauranteId) {
+		return cache.buscar(restauranteId, this::montar);
+	}
+
+	/*
+	 * Sempre três selects, qualquer que seja a quantidade de produtos: o restaurante com cozinha, endereço e formas
+	 * de pagamento, os produtos ativos e as fotos deles. O restaurante de cada produto já está no contexto de
+	 * persistência pelo primeiro select, por isso a montagem roda em uma transação somente leitura.
+	 */
+	private VitrineRestauranteDTO montar(Long restauranteId) {
+		return transactionTemplate.execute(status -> {
+			Restaurante restaurante = restauranteRepository.buscarParaVitrine(restauranteId)
+															.orElseThrow(() -> new RestauranteNaoEncotradoException(restauranteId));
+
+			List<Produto> produtos = produtoRepository.buscarAtivosPorRestauranteId(restauranteId);
+
+			Map<Long, FotoProduto> fotosPorProduto = produtoRepository.buscarFotosDosAtivosPorRestauranteId(restauranteId).stream()
+																	.collect(Collectors.toMap(FotoProduto::getProdutoId, Function.identity()));
+
+			return conversor.converterParaDTO(restaurante, produtos, fotosPorProduto);
+		});
+	}
+
+}
@@ -2,14 +2,28 @@ package com.algaworks.algafood.storage;
 
 import com.algaworks.algafood.exception.ArmazenamentoException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CannedAccessControlList;
-import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import lombok.var;
-import org.springframework.beans.factory.annotation.Autowired;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 /*
     Deixei o service comentado porque não criei a conta da Amazon, apenas acompanhei as aulas
@@ -18,11 +32,21 @@ import java.net.URL;
  */
 public class ArmazenamentoAmazonS3Service implements ArmazenamentoService{
 
-    @Autowired
-    private AmazonS3 amazonS3;
+    private static final String CACHE_CONTROL_IMUTAVEL = "public, max-age=31536000, immutable";
 
-    @Autowired
-    private ArmazenamentoProperties armazenamentoProperties;
+    /*
+        Menor parte aceita pelo S3 num upload multipart (só a última pode ser menor)
+     */
+    private static final int TAMANHO_PARTE = 5 * 1024 * 1024;
+
+    private final AmazonS3 amazonS3;
+
+    private final ArmazenamentoProperties armazenamentoProperties;
+
+    public ArmazenamentoAmazonS3Service(AmazonS3 amazonS3, ArmazenamentoProperties armazenamentoProperties) {
+        this.amazonS3 = amazonS3;
+        this.armazenamentoProperties = armazenamentoProperties;
+    }
 
     @Override
     public void armazenarFoto(NovaFoto novaFoto) {
@@ -32,13 +56,12 @@ public class ArmazenamentoAmazonS3Service implements ArmazenamentoService{
 
             var objectMetadata = new ObjectMetadata();
 
-            var putObjectRequest = new PutObjectRequest(
-                    armazenamentoProperties.getAmazonS3().getNomeBucket(),
-                    caminhoArquivo, novaFoto.getInputStream(),
-                    objectMetadata)
-                .withCannedAcl(CannedAccessControlList.PublicRead);
+            if (novaFoto.getTamanho() != null) {
+                objectMetadata.setContentLength(novaFoto.getTamanho());
+            }
 
-            amazonS3.putObject(putObjectRequest);
+            enviar(armazenamentoProperties.getAmazonS3().getNomeBucket(), caminhoArquivo, novaFoto.getInputStream(),
+                    objectMetadata, CannedAccessControlList.PublicRead);
         }
         catch (Exception e) {
             throw new ArmazenamentoException("Não foi possível enviar o arquivo para a Amazon S3.", e);
@@ -46,12 +69,69 @@ public class ArmazenamentoAmazonS3Service implements ArmazenamentoService{
 
     }
 
+    /*
+        O S3 precisa da chave antes do envio, então a foto vai para uma chave temporária enquanto o hash é calculado e
+        depois é copiada dentro do próprio S3 para a chave pelo conteúdo, sem passar de novo pela api. O envio é pelo
+        enviar, que sem o tamanho informado não deixa o SDK guardar a foto inteira em memória.
+     */
+    @Override
+    public String armazenarFotoPorConteudo(NovaFoto novaFoto) {
+        String bucket = armazenamentoProperties.getAmazonS3().getNomeBucket();
+        String caminhoTemporario = getCaminhoArquivo(".upload-" + UUID.randomUUID());
+
+        try {
+            var objectMetadata = new ObjectMetadata();
+            objectMetadata.setCacheControl(CACHE_CONTROL_IMUTAVEL);
+
+            if (novaFoto.getContentType() != null) {
+                objectMetadata.setContentType(novaFoto.getContentType());
+            }
+
+            if (novaFoto.getTamanho() != null) {
+                objectMetadata.setContentLength(novaFoto.getTamanho());
+            }
+
+            MessageDigest digest = criarDigestConteudo();
+
+            try (InputStream entrada = new DigestInputStream(novaFoto.getInputStream(), digest)) {
+                enviar(bucket, caminhoTemporario, entrada, objectMetadata, null);
+            }
+
+            String nomeArquivo = gerarNomePorConteudo(digest.digest());
+            String caminhoArquivo = getCaminhoArquivo(nomeArquivo);
+
+            if (!amazonS3.doesObjectExist(bucket, caminhoArquivo)) {
+                amazonS3.copyObject(new CopyObjectRequest(bucket, caminhoTemporario, bucket, caminhoArquivo)
+                        .withCannedAccessControlList(CannedAccessControlList.PublicRead));
+            }
+
+            return nomeArquivo;
+        }
+        catch (Exception e) {
+            throw new ArmazenamentoException("Não foi possível enviar o arquivo para a Amazon S3.", e);
+        }
+        finally {
+            amazonS3.deleteObject(bucket, caminhoTemporario);
+        }
+    }
+
     @Override
     public void removerFotoAnterior(String nomeFotoAnterior) {
-        String caminhoArquivo = getCaminhoArquivo(nomeFotoAnterior);
-        var objectMetadata = new ObjectMetadata();
-        var deleteObjectRequest = new DeleteObjectRequest(caminhoArquivo, armazenamentoProperties.getAmazonS3().getIdChaveAcesso());
-        amazonS3.deleteObject(deleteObjectRequest);
+        try {
+            String caminhoArquivo = getCaminhoArquivo(nomeFotoAnterior);
+            amazonS3.deleteObject(armazenamentoProperties.getAmazonS3().getNomeBucket(), caminhoArquivo);
+        } catch (Exception e) {
+            throw new ArmazenamentoException("Não foi possível excluir o arquivo na Amazon S3.", e);
+        }
+    }
+
+    @Override
+    public boolean existeFoto(String nomeFoto) {
+        try {
+            return amazonS3.doesObjectExist(armazenamentoProperties.getAmazonS3().getNomeBucket(), getCaminhoArquivo(nomeFoto));
+        } catch (Exception e) {
+            throw new ArmazenamentoException("Não foi possível consultar o arquivo na Amazon S3.", e);
+        }
     }
 
     @Override
@@ -66,6 +146,101 @@ public class ArmazenamentoAmazonS3Service implements ArmazenamentoService{
                 .build();
     }
 
+    @Override
+    public InputStream lerFoto(String nomeFoto) {
+        try {
+            String caminhoArquivo = getCaminhoArquivo(nomeFoto);
+            return amazonS3.getObject(armazenamentoProperties.getAmazonS3().getNomeBucket(), caminhoArquivo).getObjectContent();
+        } catch (Exception e) {
+            throw new ArmazenamentoException("Não foi possível recuperar o arquivo da Amazon S3.", e);
+        }
+    }
+
+    /*
+        Sem o Content-Length o SDK lê o stream inteiro para a memória antes de enviar, o que acontece no upload em
+        streaming, onde o tamanho só é conhecido no fim. Nesse caso a foto é lida em partes de até TAMANHO_PARTE: se
+        couber numa parte vai num putObject com o tamanho da parte, senão num upload multipart, uma parte por vez. A
+        memória usada fica limitada a uma parte por upload, qualquer que seja o tamanho da foto.
+     */
+    private void enviar(String bucket, String caminhoArquivo, InputStream entrada, ObjectMetadata objectMetadata,
+                        CannedAccessControlList acl) throws IOException {
+        if (objectMetadata.getRawMetadataValue(Headers.CONTENT_LENGTH) != null) {
+            amazonS3.putObject(new PutObjectRequest(bucket, caminhoArquivo, entrada, objectMetadata).withCannedAcl(acl));
+            return;
+        }
+
+        ParteEnvio parte = new ParteEnvio();
+
+        if (!parte.preencher(entrada)) {
+            objectMetadata.setContentLength(parte.size());
+            amazonS3.putObject(new PutObjectRequest(bucket, caminhoArquivo, parte.abrir(), objectMetadata).withCannedAcl(acl));
+            return;
+        }
+
+        String uploadId = amazonS3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, caminhoArquivo, objectMetadata)
+                .withCannedACL(acl)).getUploadId();
+
+        try {
+            List<PartETag> partes = new ArrayList<>();
+            boolean temMais = true;
+
+            while (parte.size() > 0) {
+                UploadPartRequest uploadPartRequest = new UploadPartRequest()
+                        .withBucketName(bucket)
+                        .withKey(caminhoArquivo)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partes.size() + 1)
+                        .withInputStream(parte.abrir())
+                        .withPartSize(parte.size());
+
+                partes.add(amazonS3.uploadPart(uploadPartRequest).getPartETag());
+
+                parte.reset();
+                temMais = temMais && parte.preencher(entrada);
+            }
+
+            amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, caminhoArquivo, uploadId, partes));
+        } catch (IOException | RuntimeException e) {
+            try {
+                amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, caminhoArquivo, uploadId));
+            } catch (RuntimeException erroAbort) {
+                e.addSuppressed(erroAbort);
+            }
+
+            throw e;
+        }
+    }
+
+    /*
+        Buffer de uma parte do envio, cresce conforme a foto é lida em vez de reservar TAMANHO_PARTE para fotos pequenas
+     */
+    private static class ParteEnvio extends ByteArrayOutputStream {
+
+        /*
+            Lê até completar a parte ou acabar o stream, devolve true se a parte ficou cheia (pode haver mais dados)
+         */
+        boolean preencher(InputStream entrada) throws IOException {
+            byte[] bloco = new byte[8192];
+
+            while (count < TAMANHO_PARTE) {
+                int lidos = entrada.read(bloco, 0, Math.min(bloco.length, TAMANHO_PARTE - count));
+
+                if (lidos < 0) {
+                    return false;
+                }
+
+                write(bloco, 0, lidos);
+            }
+
+            return true;
+        }
+
+        InputStream abrir() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+    }
+
     private String getCaminhoArquivo(String nomeArquivo) {
         return String.format("%s/%s", armazenamentoProperties.getAmazonS3().getDiretorioFotos(), nomeArquivo);
     }
@@ -39,7 +39,7 @@ public class ArmazenamentoConfiguration {
     @Bean
     public ArmazenamentoService armazenamentoService() {
         if (TipoArmazenamento.S3.equals(armazenamentoProperties.getTipo())) {
-            return new ArmazenamentoAmazonS3Service();
+            return new ArmazenamentoAmazonS3Service(amazonS3(), armazenamentoProperties);
         } else {
             return new ArmazenamentoLocalService();
         }
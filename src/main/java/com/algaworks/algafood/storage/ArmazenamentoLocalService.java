@@ -3,30 +3,83 @@ package com.algaworks.algafood.storage;
 import com.algaworks.algafood.exception.ArmazenamentoException;
 import lombok.var;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.util.FileCopyUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 public class ArmazenamentoLocalService implements ArmazenamentoService {
 
     @Autowired
     ArmazenamentoProperties armazenamentoProperties;
 
+    /*
+        A foto é gravada num temporário do mesmo diretório e só depois renomeada para o nome final. Assim quem lê o
+        arquivo (ex. uma variante servida como immutable) nunca pega uma gravação pela metade, e duas gravações do
+        mesmo nome (ex. a geração das variantes em duas instâncias) só trocam um arquivo completo pelo outro
+     */
     @Override
     public void armazenarFoto(NovaFoto novaFoto) {
+        Path temporario = null;
 
         try {
             // Aqui concatenamos o caminho com o nome do arquivo ex. user/img/nomeArquivo,jpg
             Path caminhoDoArquivo = buscarCaminhoDoArquivo(novaFoto.getNomeArquivo());
-            FileCopyUtils.copy(novaFoto.getInputStream(), Files.newOutputStream(caminhoDoArquivo));
+            temporario = Files.createTempFile(armazenamentoProperties.getLocal().getDiretorioFotos(), ".upload-", ".tmp");
+
+            try (InputStream entrada = novaFoto.getInputStream()) {
+                Files.copy(entrada, temporario, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            Files.move(temporario, caminhoDoArquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temporario = null;
         } catch (Exception e) {
            throw new ArmazenamentoException("Erro ao armazenar arquivo", e);
+        } finally {
+            apagarTemporario(temporario);
         }
 
     }
 
+    @Override
+    public String armazenarFotoPorConteudo(NovaFoto novaFoto) {
+        Path temporario = null;
+
+        try {
+            Path diretorio = armazenamentoProperties.getLocal().getDiretorioFotos();
+            temporario = Files.createTempFile(diretorio, ".upload-", ".tmp");
+
+            MessageDigest digest = criarDigestConteudo();
+            try (InputStream entrada = new DigestInputStream(novaFoto.getInputStream(), digest)) {
+                Files.copy(entrada, temporario, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            String nomeArquivo = gerarNomePorConteudo(digest.digest());
+            Path caminhoDoArquivo = buscarCaminhoDoArquivo(nomeArquivo);
+
+            if (!Files.exists(caminhoDoArquivo)) {
+                try {
+                    Files.move(temporario, caminhoDoArquivo, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Outro upload com o mesmo conteúdo gravou antes, o conteúdo é o mesmo
+                }
+            }
+
+            return nomeArquivo;
+        } catch (Exception e) {
+            throw new ArmazenamentoException("Erro ao armazenar arquivo", e);
+        } finally {
+            apagarTemporario(temporario);
+        }
+    }
+
     @Override
     public void removerFotoAnterior(String nomeFotoAnterior) {
         try {
@@ -37,14 +90,23 @@ public class ArmazenamentoLocalService implements ArmazenamentoService {
         }
     }
 
+    @Override
+    public boolean existeFoto(String nomeFoto) {
+        return Files.exists(buscarCaminhoDoArquivo(nomeFoto));
+    }
+
     @Override
     public FotoRecuperada recuperarFoto(String nomeFoto) {
         try {
             Path caminhoDoArquivo = buscarCaminhoDoArquivo(nomeFoto);
 
+            if (!Files.isReadable(caminhoDoArquivo)) {
+                throw new NoSuchFileException(caminhoDoArquivo.toString());
+            }
+
             FotoRecuperada fotoRecuperada =
                     FotoRecuperada.builder()
-                            .inputStream(Files.newInputStream(caminhoDoArquivo))
+                            .arquivo(caminhoDoArquivo)
                             .build();
 
             return fotoRecuperada;
@@ -53,6 +115,27 @@ public class ArmazenamentoLocalService implements ArmazenamentoService {
         }
     }
 
+    @Override
+    public InputStream lerFoto(String nomeFoto) {
+        try {
+            return Files.newInputStream(buscarCaminhoDoArquivo(nomeFoto));
+        } catch (Exception e) {
+            throw new ArmazenamentoException("Não foi possível recuperar arquivo.", e);
+        }
+    }
+
+    private void apagarTemporario(Path temporario) {
+        if (temporario == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(temporario);
+        } catch (IOException e) {
+            // Fica no diretório um .tmp que não é referenciado por nenhuma foto
+        }
+    }
+
     private Path buscarCaminhoDoArquivo(String nomeArquivo) {
         String diretorioFotos = armazenamentoProperties.getLocal().getDiretorioFotos().toString();
         return FileSystems.getDefault().getPath(diretorioFotos, nomeArquivo);
@@ -6,8 +6,12 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 @Getter
 @Setter
@@ -21,8 +25,20 @@ public class ArmazenamentoProperties {
      */
     private Local local =  new Local();
     private AmazonS3 amazonS3 = new AmazonS3();
+    private Variantes variantes = new Variantes();
     private TipoArmazenamento tipo = TipoArmazenamento.LOCAL;
 
+    /*
+     * algafood.armazenamento.enderecamentoPorConteudo - fotos gravadas com o sha-256 do conteúdo como nome,
+     * ver FotoProdutoConteudoService
+     */
+    private boolean enderecamentoPorConteudo = false;
+
+    /*
+     * algafood.armazenamento.tamanhoMaximoFoto - limite do upload em streaming, conferido enquanto a foto é gravada
+     */
+    private DataSize tamanhoMaximoFoto = DataSize.ofKilobytes(500);
+
     /*
      * É atribuido no bean o caminho porque seque a nomenclatura definida no application.properties
      * algafood.armazenamento.local.diretorioFotos
@@ -32,6 +48,11 @@ public class ArmazenamentoProperties {
     @Setter
     public class Local {
         private Path diretorioFotos;
+
+        /*
+         * algafood.armazenamento.local.tempoCacheFotos - max-age do Cache-Control das fotos servidas do disco
+         */
+        private Duration tempoCacheFotos = Duration.ofDays(1);
     }
 
     /*
@@ -48,4 +69,19 @@ public class ArmazenamentoProperties {
         private String diretorioFotos;
     }
 
+    /*
+     * Variantes das fotos de produto geradas depois do upload, algafood.armazenamento.variantes...
+     * larguras - larguras em pixels das variantes, só as menores que a foto original são geradas
+     * threads e capacidadeFila - pool que gera as variantes, com a fila cheia a foto fica sem variantes (FALHA)
+     * maximoPixels - fotos com mais pixels que isso não são decodificadas, um png de poucos KB pode ter milhões de pixels
+     */
+    @Getter
+    @Setter
+    public class Variantes {
+        private List<Integer> larguras = Arrays.asList(120, 320, 640);
+        private int threads = 2;
+        private int capacidadeFila = 100;
+        private long maximoPixels = 25_000_000L;
+    }
+
 }
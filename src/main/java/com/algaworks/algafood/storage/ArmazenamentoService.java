@@ -4,16 +4,37 @@ import lombok.Builder;
 import lombok.Getter;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
 
 public interface ArmazenamentoService {
 
     void armazenarFoto(NovaFoto novaFoto);
 
+    /*
+        Grava a foto com o nome pelo conteúdo (sha-256, ver gerarNomePorConteudo) e devolve esse nome. O hash é
+        calculado enquanto o stream é gravado, num arquivo temporário que depois é renomeado, sem ler a foto duas vezes
+        nem guardá-la em memória. Se já existir uma foto com o mesmo conteúdo ela é mantida e o temporário descartado.
+     */
+    String armazenarFotoPorConteudo(NovaFoto novaFoto);
+
     void removerFotoAnterior(String nomeFotoAnterior);
 
+    /*
+        Usado pelo upload pelo conteúdo, que grava a foto antes de pegar a trava e confere depois dela se a foto não
+        foi apagada nesse meio tempo
+     */
+    boolean existeFoto(String nomeFoto);
+
     FotoRecuperada recuperarFoto(String nomeFoto);
 
+    /*
+        Conteúdo da foto armazenada, usado na geração das variantes (tanto no local quanto no S3)
+     */
+    InputStream lerFoto(String nomeFoto);
+
     /*
         Default significa que não é só a assinatura do método e sim a implementação também
      */
@@ -21,24 +42,61 @@ public interface ArmazenamentoService {
         return UUID.randomUUID().toString() + "_" + nomeOriginal;
     }
 
+    default String gerarNomePorConteudo(byte[] hash) {
+        StringBuilder nome = new StringBuilder(hash.length * 2);
+
+        for (byte valor : hash) {
+            nome.append(Character.forDigit((valor >> 4) & 0xF, 16))
+                .append(Character.forDigit(valor & 0xF, 16));
+        }
+
+        return nome.toString();
+    }
+
+    default MessageDigest criarDigestConteudo() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+        As variantes ficam junto da foto original, com a largura na frente do nome, ex. 320w_<uuid>_foto.jpg
+     */
+    default String gerarNomeVariante(String nomeFoto, int largura) {
+        return largura + "w_" + nomeFoto;
+    }
+
     // Classe interna para pegar so dados da foto
     @Builder
     @Getter
     class NovaFoto {
         private String nomeArquivo;
         private InputStream inputStream;
+        private String contentType;
+        private Long tamanho;
     }
 
+    /*
+        O armazenamento local devolve o arquivo e não um InputStream aberto, assim quem envia a foto pode usar o
+        próprio arquivo (sendfile, FileChannel) e ler só o pedaço pedido no Range
+     */
     @Builder
     @Getter
     class FotoRecuperada {
         private InputStream inputStream;
         private String url;
+        private Path arquivo;
 
         public boolean temUrl() {
             return url != null;
         }
 
+        public boolean temArquivo() {
+            return arquivo != null;
+        }
+
         public boolean temInputstream() {
             return inputStream != null;
         }
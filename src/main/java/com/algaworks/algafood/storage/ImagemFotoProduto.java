@@ -0,0 +1,20 @@
+package com.algaworks.algafood.storage;
+
+import com.algaworks.algafood.storage.ArmazenamentoService.FotoRecuperada;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+/*
+    Foto recuperada do armazenamento junto com o content type gravado no FotoProduto. Imutável quando o nome da foto é
+    pelo conteúdo (FotoProdutoConteudoService), a mesma url sempre devolve a mesma foto.
+ */
+@Getter
+@AllArgsConstructor
+public class ImagemFotoProduto {
+
+    private MediaType contentType;
+    private FotoRecuperada foto;
+    private boolean imutavel;
+
+}
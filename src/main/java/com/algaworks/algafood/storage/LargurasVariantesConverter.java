@@ -0,0 +1,44 @@
+package com.algaworks.algafood.storage;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+    As larguras das variantes geradas ficam numa coluna só, separadas por vírgula e em ordem crescente (ex. 120,320,640),
+    sem precisar de uma tabela para poucos números que sempre são lidos junto com a foto
+ */
+@Converter
+public class LargurasVariantesConverter implements AttributeConverter<List<Integer>, String> {
+
+    private static final String SEPARADOR = ",";
+
+    @Override
+    public String convertToDatabaseColumn(List<Integer> larguras) {
+        if (larguras == null || larguras.isEmpty()) {
+            return null;
+        }
+
+        return larguras.stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(SEPARADOR));
+    }
+
+    @Override
+    public List<Integer> convertToEntityAttribute(String larguras) {
+        List<Integer> lista = new ArrayList<>();
+
+        if (larguras == null || larguras.isEmpty()) {
+            return lista;
+        }
+
+        for (String largura : larguras.split(SEPARADOR)) {
+            lista.add(Integer.valueOf(largura.trim()));
+        }
+
+        return lista;
+    }
+
+}
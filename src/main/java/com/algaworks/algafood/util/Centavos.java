@@ -0,0 +1,46 @@
+package com.algaworks.algafood.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import lombok.experimental.UtilityClass;
+
+/*
+* Valores monetários representados como long em centavos (escala fixa de 2 casas, a mesma das colunas decimal(10,2)).
+* No cálculo do pedido as contas são feitas só com long, sem criar um BigDecimal a cada multiplicação ou soma,
+* a conversão de/para BigDecimal acontece apenas na leitura e na gravação dos campos das entidades.
+*
+* As operações usam os métodos exact do Math, se o valor estourar o long é lançada ArithmeticException ao invés
+* de retornar um valor errado.
+* */
+@UtilityClass
+public class Centavos {
+
+    private static final int ESCALA = 2;
+
+    public static long de(BigDecimal valor) {
+        if (valor == null) {
+            return 0L;
+        }
+
+        // Valores vindos das colunas decimal(10,2) já estão na escala 2, não precisam do setScale
+        if (valor.scale() != ESCALA) {
+            valor = valor.setScale(ESCALA, RoundingMode.HALF_EVEN);
+        }
+
+        return valor.unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal paraBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    public static long somar(long centavos, long outrosCentavos) {
+        return Math.addExact(centavos, outrosCentavos);
+    }
+
+    public static long multiplicar(long centavos, int quantidade) {
+        return Math.multiplyExact(centavos, (long) quantidade);
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.algaworks.algafood.web;
+
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Enumeration;
+
+/*
+    Condição dos métodos com @RespostaAssincrona: a requisição precisa ter a preferência respond-async em algum dos
+    cabeçalhos Prefer. Cada cabeçalho é uma lista separada por vírgula de preferências no formato
+    nome[=valor][; parâmetro...], o nome não diferencia maiúsculas e vírgulas dentro de aspas não separam preferências.
+
+    Com a condição atendida o mapeamento ganha do mapeamento sem condição da mesma url (ex. o POST /pedidos síncrono).
+ */
+public class CondicaoRespostaAssincrona implements RequestCondition<CondicaoRespostaAssincrona> {
+
+    public static final String HEADER_PREFER = "Prefer";
+    private static final String RESPOND_ASYNC = "respond-async";
+
+    @Override
+    public CondicaoRespostaAssincrona combine(CondicaoRespostaAssincrona other) {
+        return this;
+    }
+
+    @Override
+    public CondicaoRespostaAssincrona getMatchingCondition(HttpServletRequest request) {
+        if (CorsUtils.isPreFlightRequest(request)) {
+            return this;
+        }
+
+        Enumeration<String> valores = request.getHeaders(HEADER_PREFER);
+
+        while (valores != null && valores.hasMoreElements()) {
+            if (contemRespondAsync(valores.nextElement())) {
+                return this;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int compareTo(CondicaoRespostaAssincrona other, HttpServletRequest request) {
+        return 0;
+    }
+
+    static boolean contemRespondAsync(String valor) {
+        int inicio = 0;
+        boolean entreAspas = false;
+
+        for (int i = 0; i <= valor.length(); i++) {
+            char caractere = i < valor.length() ? valor.charAt(i) : ',';
+
+            if (caractere == '"') {
+                entreAspas = !entreAspas;
+            } else if (caractere == ',' && !entreAspas) {
+                if (RESPOND_ASYNC.equalsIgnoreCase(nomePreferencia(valor.substring(inicio, i)))) {
+                    return true;
+                }
+
+                inicio = i + 1;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+        Nome da preferência, sem o valor e sem os parâmetros
+     */
+    private static String nomePreferencia(String preferencia) {
+        int fim = preferencia.length();
+
+        for (int i = 0; i < preferencia.length(); i++) {
+            char caractere = preferencia.charAt(i);
+
+            if (caractere == '=' || caractere == ';') {
+                fim = i;
+                break;
+            }
+        }
+
+        return preferencia.substring(0, fim).trim();
+    }
+
+}
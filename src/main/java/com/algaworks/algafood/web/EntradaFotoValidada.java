@@ -0,0 +1,126 @@
+package com.algaworks.algafood.web;
+
+import com.algaworks.algafood.exception.NegocioException;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+    Arquivo do upload em streaming conferido enquanto passa: o tipo vem dos primeiros bytes (assinatura do jpeg e do
+    png) e não do Content-Type informado pelo cliente, e a leitura é interrompida assim que passa do tamanho máximo.
+    Os primeiros bytes já são lidos no abrir, então um arquivo de outro tipo é recusado antes de gravar qualquer coisa.
+ */
+public class EntradaFotoValidada extends FilterInputStream {
+
+    private static final byte[] ASSINATURA_JPEG = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF };
+    private static final byte[] ASSINATURA_PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private static final String MSG_TIPO_INVALIDO = "O arquivo enviado não é uma imagem jpeg ou png";
+    private static final String MSG_TAMANHO_EXCEDIDO = "O arquivo enviado passa do tamanho máximo de %d KB";
+
+    private final byte[] inicio;
+    private final int tamanhoInicio;
+    private final long tamanhoMaximo;
+
+    private int posicaoInicio;
+
+    @Getter
+    private final MediaType contentType;
+
+    @Getter
+    private long lidos;
+
+    private EntradaFotoValidada(InputStream entrada, byte[] inicio, int tamanhoInicio, long tamanhoMaximo, MediaType contentType) {
+        super(entrada);
+        this.inicio = inicio;
+        this.tamanhoInicio = tamanhoInicio;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.contentType = contentType;
+    }
+
+    public static EntradaFotoValidada abrir(InputStream entrada, long tamanhoMaximo) throws IOException {
+        byte[] inicio = new byte[ASSINATURA_PNG.length];
+        int tamanhoInicio = 0;
+        int quantidade;
+
+        while (tamanhoInicio < inicio.length && (quantidade = entrada.read(inicio, tamanhoInicio, inicio.length - tamanhoInicio)) != -1) {
+            tamanhoInicio += quantidade;
+        }
+
+        MediaType contentType = comecaCom(inicio, tamanhoInicio, ASSINATURA_JPEG) ? MediaType.IMAGE_JPEG
+                : comecaCom(inicio, tamanhoInicio, ASSINATURA_PNG) ? MediaType.IMAGE_PNG
+                : null;
+
+        if (contentType == null) {
+            throw new NegocioException(MSG_TIPO_INVALIDO);
+        }
+
+        return new EntradaFotoValidada(entrada, inicio, tamanhoInicio, tamanhoMaximo, contentType);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] valor = new byte[1];
+        return read(valor, 0, 1) == -1 ? -1 : valor[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] destino, int posicao, int quantidade) throws IOException {
+        if (quantidade == 0) {
+            return 0;
+        }
+
+        int copiados;
+
+        if (posicaoInicio < tamanhoInicio) {
+            copiados = Math.min(quantidade, tamanhoInicio - posicaoInicio);
+            System.arraycopy(inicio, posicaoInicio, destino, posicao, copiados);
+            posicaoInicio += copiados;
+        } else {
+            copiados = super.read(destino, posicao, quantidade);
+        }
+
+        if (copiados > 0) {
+            lidos += copiados;
+
+            if (lidos > tamanhoMaximo) {
+                throw new NegocioException(String.format(MSG_TAMANHO_EXCEDIDO, tamanhoMaximo / 1024));
+            }
+        }
+
+        return copiados;
+    }
+
+    @Override
+    public long skip(long quantidade) {
+        return 0;
+    }
+
+    @Override
+    public int available() {
+        return tamanhoInicio - posicaoInicio;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private static boolean comecaCom(byte[] inicio, int tamanhoInicio, byte[] assinatura) {
+        if (tamanhoInicio < assinatura.length) {
+            return false;
+        }
+
+        for (int i = 0; i < assinatura.length; i++) {
+            if (inicio[i] != assinatura[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,371 @@
+package com.algaworks.algafood.web;
+
+import com.algaworks.algafood.exception.NegocioException;
+import lombok.Getter;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Leitura de um corpo multipart/form-data direto do InputStream da requisição, uma parte de cada vez e sem guardar
+    as partes em memória ou em disco como o MultipartFile. O corpo de cada parte é um InputStream que termina no
+    próximo delimitador, então o arquivo pode ir direto para o armazenamento enquanto é recebido.
+
+    Usa um buffer fixo de 16KB: os bytes do corpo só são entregues depois de conferido que não são o começo do
+    delimitador, por isso os últimos (tamanho do delimitador - 1) bytes do buffer ficam esperando a próxima leitura.
+    O tamanho total do corpo é limitado, uma parte que não interessa é descartada mas ainda precisa ser lida.
+ */
+public class LeitorMultipart {
+
+    private static final int TAMANHO_BUFFER = 16 * 1024;
+    private static final int TAMANHO_MAXIMO_CABECALHOS = 8 * 1024;
+
+    private static final String MSG_CONTENT_TYPE_INVALIDO = "A requisição precisa ser multipart/form-data com o boundary informado";
+    private static final String MSG_CORPO_INVALIDO = "O corpo multipart da requisição é inválido";
+    private static final String MSG_CABECALHOS_EXCEDIDOS = "Os cabeçalhos de uma parte do corpo multipart passam de %d bytes";
+    private static final String MSG_CORPO_EXCEDIDO = "O corpo da requisição passa do tamanho máximo de %d bytes";
+    private static final String MSG_CAMPO_EXCEDIDO = "O campo %s passa do tamanho máximo de %d bytes";
+
+    private final InputStream entrada;
+    private final byte[] delimitador;
+    private final byte[] buffer;
+    private final long tamanhoMaximo;
+
+    private int inicio;
+    private int fim;
+    private boolean fimEntrada;
+    private long lidos;
+
+    /*
+        Resultado da última procura pelo delimitador, para não percorrer o buffer de novo a cada leitura pequena
+     */
+    private int delimitadorEm = -1;
+    private int procuradoAte;
+
+    private Parte parteAtual;
+    private boolean terminado;
+
+    public LeitorMultipart(InputStream entrada, String boundary, long tamanhoMaximo) {
+        this.entrada = entrada;
+        this.delimitador = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[Math.max(TAMANHO_BUFFER, delimitador.length * 2)];
+        this.tamanhoMaximo = tamanhoMaximo;
+
+        // O corpo começa com --boundary sem o \r\n, assim o primeiro delimitador fica igual aos outros
+        buffer[fim++] = '\r';
+        buffer[fim++] = '\n';
+    }
+
+    public static LeitorMultipart de(HttpServletRequest request, long tamanhoMaximo) throws IOException {
+        String boundary;
+
+        try {
+            MediaType contentType = MediaType.parseMediaType(request.getContentType());
+            boundary = MediaType.MULTIPART_FORM_DATA.includes(contentType) ? contentType.getParameter("boundary") : null;
+        } catch (InvalidMediaTypeException e) {
+            boundary = null;
+        }
+
+        if (boundary != null && boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+
+        if (boundary == null || boundary.isEmpty()) {
+            throw new NegocioException(MSG_CONTENT_TYPE_INVALIDO);
+        }
+
+        return new LeitorMultipart(request.getInputStream(), boundary, tamanhoMaximo);
+    }
+
+    /*
+        Próxima parte do corpo, o que não foi lido da parte anterior é descartado. Devolve null no fim do corpo.
+     */
+    public Parte proximaParte() throws IOException {
+        if (terminado) {
+            return null;
+        }
+
+        descartarCorpo();
+
+        inicio += delimitador.length;
+        delimitadorEm = -1;
+        procuradoAte = inicio;
+
+        garantir(2);
+
+        if (fim - inicio < 2) {
+            throw new NegocioException(MSG_CORPO_INVALIDO);
+        }
+
+        if (buffer[inicio] == '-' && buffer[inicio + 1] == '-') {
+            terminado = true;
+            parteAtual = null;
+            return null;
+        }
+
+        // Depois do delimitador só pode vir espaço (transport padding) até o fim da linha
+        if (!lerLinha(new int[1]).trim().isEmpty()) {
+            throw new NegocioException(MSG_CORPO_INVALIDO);
+        }
+
+        parteAtual = new Parte(lerCabecalhos());
+        return parteAtual;
+    }
+
+    private void descartarCorpo() throws IOException {
+        if (parteAtual != null) {
+            parteAtual.descartar();
+            return;
+        }
+
+        // Antes da primeira parte: o preâmbulo, se existir
+        byte[] descarte = new byte[TAMANHO_BUFFER];
+
+        while (lerCorpo(descarte, 0, descarte.length) != -1) {
+            // descarta
+        }
+    }
+
+    private Map<String, String> lerCabecalhos() throws IOException {
+        Map<String, String> cabecalhos = new HashMap<>();
+        int[] tamanhoCabecalhos = new int[1];
+        String linha;
+
+        while (!(linha = lerLinha(tamanhoCabecalhos)).isEmpty()) {
+            int separador = linha.indexOf(':');
+
+            if (separador <= 0) {
+                throw new NegocioException(MSG_CORPO_INVALIDO);
+            }
+
+            cabecalhos.put(linha.substring(0, separador).trim().toLowerCase(), linha.substring(separador + 1).trim());
+        }
+
+        return cabecalhos;
+    }
+
+    /*
+        Linha terminada em \r\n, o tamanho é somado em tamanhoCabecalhos para limitar todos os cabeçalhos da parte
+     */
+    private String lerLinha(int[] tamanhoCabecalhos) throws IOException {
+        int procurado = 0;
+
+        while (true) {
+            for (int i = inicio + procurado; i + 1 < fim; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String linha = new String(buffer, inicio, i - inicio, StandardCharsets.UTF_8);
+                    tamanhoCabecalhos[0] += i + 2 - inicio;
+                    inicio = i + 2;
+                    procuradoAte = inicio;
+                    return linha;
+                }
+            }
+
+            if (tamanhoCabecalhos[0] + fim - inicio >= TAMANHO_MAXIMO_CABECALHOS) {
+                throw new NegocioException(String.format(MSG_CABECALHOS_EXCEDIDOS, TAMANHO_MAXIMO_CABECALHOS));
+            }
+
+            if (fimEntrada) {
+                throw new NegocioException(MSG_CORPO_INVALIDO);
+            }
+
+            procurado = Math.max(0, fim - inicio - 1);
+            garantir(fim - inicio + 1);
+        }
+    }
+
+    /*
+        Lê o corpo da parte atual até o delimitador, devolve -1 quando chega nele
+     */
+    private int lerCorpo(byte[] destino, int posicao, int quantidade) throws IOException {
+        garantir(delimitador.length);
+
+        int encontrado = procurarDelimitador();
+        int disponiveis;
+
+        if (encontrado >= 0) {
+            disponiveis = encontrado - inicio;
+        } else if (fimEntrada) {
+            throw new NegocioException(MSG_CORPO_INVALIDO);
+        } else {
+            disponiveis = fim - inicio - (delimitador.length - 1);
+        }
+
+        if (disponiveis == 0) {
+            return -1;
+        }
+
+        int copiados = Math.min(quantidade, disponiveis);
+        System.arraycopy(buffer, inicio, destino, posicao, copiados);
+        inicio += copiados;
+        return copiados;
+    }
+
+    private int procurarDelimitador() {
+        if (delimitadorEm >= 0) {
+            return delimitadorEm;
+        }
+
+        int ultimo = fim - delimitador.length;
+        byte primeiro = delimitador[0];
+
+        for (int i = Math.max(inicio, procuradoAte); i <= ultimo; i++) {
+            if (buffer[i] != primeiro) {
+                continue;
+            }
+
+            int j = 1;
+
+            while (j < delimitador.length && buffer[i + j] == delimitador[j]) {
+                j++;
+            }
+
+            if (j == delimitador.length) {
+                delimitadorEm = i;
+                return i;
+            }
+        }
+
+        procuradoAte = Math.max(inicio, ultimo + 1);
+        return -1;
+    }
+
+    /*
+        Garante pelo menos a quantidade de bytes no buffer, a não ser no fim da entrada. O que ainda não foi lido
+        vai para o começo do buffer antes de ler mais.
+     */
+    private void garantir(int quantidade) throws IOException {
+        if (fim - inicio >= quantidade || fimEntrada) {
+            return;
+        }
+
+        if (inicio > 0) {
+            System.arraycopy(buffer, inicio, buffer, 0, fim - inicio);
+            fim -= inicio;
+            procuradoAte = Math.max(0, procuradoAte - inicio);
+            delimitadorEm = delimitadorEm >= 0 ? delimitadorEm - inicio : -1;
+            inicio = 0;
+        }
+
+        while (fim - inicio < quantidade && !fimEntrada) {
+            int quantidadeLida = entrada.read(buffer, fim, buffer.length - fim);
+
+            if (quantidadeLida == -1) {
+                fimEntrada = true;
+            } else {
+                fim += quantidadeLida;
+                lidos += quantidadeLida;
+
+                if (lidos > tamanhoMaximo) {
+                    throw new NegocioException(String.format(MSG_CORPO_EXCEDIDO, tamanhoMaximo));
+                }
+            }
+        }
+    }
+
+    @Getter
+    public class Parte {
+
+        private final String nome;
+        private final String nomeArquivo;
+        private final String contentType;
+        private final InputStream inputStream = new CorpoParte();
+
+        private Parte(Map<String, String> cabecalhos) {
+            String disposicao = cabecalhos.get(HttpHeaders.CONTENT_DISPOSITION.toLowerCase());
+
+            if (disposicao == null) {
+                throw new NegocioException(MSG_CORPO_INVALIDO);
+            }
+
+            ContentDisposition contentDisposition;
+
+            try {
+                contentDisposition = ContentDisposition.parse(disposicao);
+            } catch (IllegalArgumentException e) {
+                throw new NegocioException(MSG_CORPO_INVALIDO);
+            }
+
+            this.nome = contentDisposition.getName();
+            this.nomeArquivo = contentDisposition.getFilename();
+            this.contentType = cabecalhos.get(HttpHeaders.CONTENT_TYPE.toLowerCase());
+        }
+
+        public boolean isArquivo() {
+            return nomeArquivo != null;
+        }
+
+        /*
+            Campo de texto do formulário, em UTF-8
+         */
+        public String lerTexto(int tamanhoMaximo) throws IOException {
+            ByteArrayOutputStream texto = new ByteArrayOutputStream();
+            byte[] bloco = new byte[Math.min(tamanhoMaximo + 1, 1024)];
+            int quantidade;
+
+            while ((quantidade = inputStream.read(bloco)) != -1) {
+                texto.write(bloco, 0, quantidade);
+
+                if (texto.size() > tamanhoMaximo) {
+                    throw new NegocioException(String.format(MSG_CAMPO_EXCEDIDO, nome, tamanhoMaximo));
+                }
+            }
+
+            return new String(texto.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private void descartar() throws IOException {
+            byte[] descarte = new byte[TAMANHO_BUFFER];
+
+            while (inputStream.read(descarte) != -1) {
+                // descarta
+            }
+        }
+
+    }
+
+    /*
+        O close não fecha a requisição, o que sobrar da parte é descartado no proximaParte
+     */
+    private class CorpoParte extends InputStream {
+
+        private boolean terminado;
+
+        @Override
+        public int read() throws IOException {
+            byte[] valor = new byte[1];
+            return read(valor, 0, 1) == -1 ? -1 : valor[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int posicao, int quantidade) throws IOException {
+            if (terminado) {
+                return -1;
+            }
+
+            if (quantidade == 0) {
+                return 0;
+            }
+
+            int lidos = lerCorpo(destino, posicao, quantidade);
+            terminado = lidos == -1;
+            return lidos;
+        }
+
+        @Override
+        public void close() {
+            // a requisição continua aberta para as próximas partes
+        }
+
+    }
+
+}
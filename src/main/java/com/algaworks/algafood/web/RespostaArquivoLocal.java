@@ -0,0 +1,187 @@
+package com.algaworks.algafood.web;
+
+import com.algaworks.algafood.exception.ArmazenamentoException;
+import com.algaworks.algafood.storage.ArmazenamentoProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Envio de um arquivo do disco (fotos do armazenamento local) com ETag, Last-Modified, Range e Cache-Control.
+
+    Quando o Tomcat suporta sendfile o corpo não passa pela aplicação: os atributos org.apache.tomcat.sendfile.*
+    informam o arquivo e o trecho, e o próprio Tomcat envia direto do page cache para o socket depois que o controller
+    retorna, sem cópia para a heap. Sem sendfile o trecho é copiado pelo FileChannel.transferTo.
+
+    Só um intervalo por requisição, um Range com vários intervalos recebe o arquivo inteiro, como a RFC 7233 permite.
+ */
+@Component
+public class RespostaArquivoLocal {
+
+    private static final String SENDFILE_SUPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARQUIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIM = "org.apache.tomcat.sendfile.end";
+
+    // O CacheControl do Spring 5.2 ainda não tem o immutable
+    public static final String CACHE_CONTROL_IMUTAVEL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable";
+
+    @Autowired
+    private ArmazenamentoProperties armazenamentoProperties;
+
+    /*
+        O ShallowEtagHeaderFilter é desabilitado para o arquivo não ser copiado para a memória só para calcular a
+        ETag, a ETag aqui vem da data de modificação e do tamanho do arquivo, igual à dos servidores de arquivos
+        estáticos. O checkNotModified confere o If-None-Match e o If-Modified-Since e já grava a ETag e o
+        Last-Modified na resposta.
+
+        Arquivo imutável (nome pelo conteúdo) vai com max-age de um ano e immutable, o navegador nem revalida.
+     */
+    public ResponseEntity<?> responder(ServletWebRequest request, Path arquivo, MediaType contentType, boolean imutavel) {
+        ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+
+        BasicFileAttributes atributos = lerAtributos(arquivo);
+        long tamanho = atributos.size();
+        long ultimaModificacao = atributos.lastModifiedTime().toMillis() / 1000 * 1000;
+        String eTag = "\"" + Long.toHexString(ultimaModificacao) + "-" + Long.toHexString(tamanho) + "\"";
+
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, imutavel ? CACHE_CONTROL_IMUTAVEL : CacheControl
+                .maxAge(armazenamentoProperties.getLocal().getTempoCacheFotos().getSeconds(), TimeUnit.SECONDS)
+                .cachePublic()
+                .getHeaderValue());
+
+        if (request.checkNotModified(eTag, ultimaModificacao)) {
+            return null;
+        }
+
+        long inicio = 0;
+        long fim = tamanho - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        List<HttpRange> intervalos = buscarIntervalos(request, eTag, ultimaModificacao);
+
+        if (intervalos.size() == 1) {
+            HttpRange intervalo = intervalos.get(0);
+
+            if (tamanho == 0 || intervalo.getRangeStart(tamanho) >= tamanho) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanho)
+                                        .build();
+            }
+
+            inicio = intervalo.getRangeStart(tamanho);
+            fim = intervalo.getRangeEnd(tamanho);
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+
+        long quantidade = fim - inicio + 1;
+
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.status(status)
+                                                            .contentType(contentType)
+                                                            .contentLength(quantidade)
+                                                            .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            resposta.header(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fim + "/" + tamanho);
+        }
+
+        HttpServletRequest servletRequest = request.getRequest();
+
+        if (HttpMethod.HEAD.matches(servletRequest.getMethod()) || quantidade == 0) {
+            return resposta.build();
+        }
+
+        if (Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SUPORTADO))) {
+            servletRequest.setAttribute(SENDFILE_ARQUIVO, arquivo.toAbsolutePath().toString());
+            servletRequest.setAttribute(SENDFILE_INICIO, inicio);
+            servletRequest.setAttribute(SENDFILE_FIM, fim + 1);
+            return resposta.build();
+        }
+
+        long posicao = inicio;
+        return resposta.body((StreamingResponseBody) saida -> copiar(arquivo, posicao, quantidade, saida));
+    }
+
+    /*
+        Um Range inválido é ignorado e vai o arquivo inteiro
+     */
+    private List<HttpRange> buscarIntervalos(ServletWebRequest request, String eTag, long ultimaModificacao) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (range == null || (ifRange != null && !atendeIfRange(request, ifRange, eTag, ultimaModificacao))) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /*
+        O If-Range traz a ETag ou a data que o cliente já tem, se o arquivo mudou o Range não vale mais
+     */
+    private boolean atendeIfRange(ServletWebRequest request, String ifRange, String eTag, long ultimaModificacao) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+
+        try {
+            return request.getRequest().getDateHeader(HttpHeaders.IF_RANGE) == ultimaModificacao;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private BasicFileAttributes lerAtributos(Path arquivo) {
+        try {
+            return Files.readAttributes(arquivo, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new ArmazenamentoException("Não foi possível recuperar arquivo.", e);
+        }
+    }
+
+    private void copiar(Path arquivo, long inicio, long quantidade, OutputStream saida) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            WritableByteChannel destino = Channels.newChannel(saida);
+            long enviados = 0;
+
+            while (enviados < quantidade) {
+                long transferidos = canal.transferTo(inicio + enviados, quantidade - enviados, destino);
+
+                if (transferidos <= 0) {
+                    throw new EOFException(arquivo.toString());
+                }
+
+                enviados += transferidos;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.algaworks.algafood.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+    Mapeamento escolhido quando a requisição pede Prefer: respond-async (RFC 7240), mesmo junto de outras
+    preferências (ex. Prefer: respond-async, wait=10). O headers = "Prefer=respond-async" do @RequestMapping compara o
+    valor inteiro do cabeçalho, ver CondicaoRespostaAssincrona.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RespostaAssincrona {
+
+}
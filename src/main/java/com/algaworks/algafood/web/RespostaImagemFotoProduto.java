@@ -0,0 +1,50 @@
+package com.algaworks.algafood.web;
+
+import com.algaworks.algafood.storage.ArmazenamentoService.FotoRecuperada;
+import com.algaworks.algafood.storage.ImagemFotoProduto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/*
+    Resposta com a imagem de uma foto de produto, usada pelo foto-imagem do produto e pelo /fotos-produtos
+ */
+@Component
+public class RespostaImagemFotoProduto {
+
+    @Autowired
+    private RespostaArquivoLocal respostaArquivoLocal;
+
+    /*
+        No S3 a foto é baixada direto da url pública do bucket, no armazenamento local o arquivo é enviado
+        pelo RespostaArquivoLocal, com Range, ETag e sendfile. O redirecionamento para uma foto imutável também
+        nunca muda, então pode ficar no cache.
+     */
+    public ResponseEntity<?> responder(ServletWebRequest request, ImagemFotoProduto imagem) {
+        FotoRecuperada foto = imagem.getFoto();
+
+        if (foto.temUrl()) {
+            ResponseEntity.BodyBuilder resposta = ResponseEntity.status(HttpStatus.FOUND)
+                                                                .header(HttpHeaders.LOCATION, foto.getUrl());
+
+            if (imagem.isImutavel()) {
+                resposta.header(HttpHeaders.CACHE_CONTROL, RespostaArquivoLocal.CACHE_CONTROL_IMUTAVEL);
+            }
+
+            return resposta.build();
+        }
+
+        if (foto.temArquivo()) {
+            return respostaArquivoLocal.responder(request, foto.getArquivo(), imagem.getContentType(), imagem.isImutavel());
+        }
+
+        return ResponseEntity.ok()
+                .contentType(imagem.getContentType())
+                .body(new InputStreamResource(foto.getInputStream()));
+    }
+
+}
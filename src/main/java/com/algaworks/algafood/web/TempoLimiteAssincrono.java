@@ -0,0 +1,43 @@
+package com.algaworks.algafood.web;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/*
+    Tempo limite do processamento assíncrono só da requisição atual, para os exports com StreamingResponseBody, que
+    podem demorar minutos, sem aumentar o spring.mvc.async.request-timeout de todos os endpoints. O StreamingResponseBody
+    não tem tempo limite próprio como o ResponseBodyEmitter, então o tempo é aplicado pelo interceptor do WebAsyncManager,
+    chamado logo antes do início do processamento assíncrono.
+ */
+public final class TempoLimiteAssincrono {
+
+    private static final String CHAVE = TempoLimiteAssincrono.class.getName();
+
+    private TempoLimiteAssincrono() {
+    }
+
+    /*
+        Chamado na thread da requisição, antes do controller retornar
+     */
+    public static void definir(RequestAttributes requisicao, Duration tempoLimite) {
+        long milissegundos = tempoLimite.toMillis();
+
+        WebAsyncUtils.getAsyncManager(((ServletRequestAttributes) requisicao).getRequest())
+                .registerCallableInterceptor(CHAVE, new CallableProcessingInterceptor() {
+
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                        ((AsyncWebRequest) request).setTimeout(milissegundos);
+                    }
+
+                });
+    }
+
+}
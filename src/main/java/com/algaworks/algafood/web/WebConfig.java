@@ -1,12 +1,16 @@
 package com.algaworks.algafood.web;
 
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.filter.ShallowEtagHeaderFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
 import javax.servlet.Filter;
+import java.lang.reflect.Method;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -37,5 +41,28 @@ public class WebConfig implements WebMvcConfigurer {
         return new ShallowEtagHeaderFilter();
     }
 
+    /*
+        Os métodos com @RespostaAssincrona recebem a CondicaoRespostaAssincrona como condição customizada do
+        mapeamento, o resto do mapeamento continua o padrão do Spring
+     */
+    @Bean
+    public WebMvcRegistrations webMvcRegistrations() {
+        return new WebMvcRegistrations() {
+
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                return new RequestMappingHandlerMapping() {
+
+                    @Override
+                    protected RequestCondition<?> getCustomMethodCondition(Method method) {
+                        return method.isAnnotationPresent(RespostaAssincrona.class) ? new CondicaoRespostaAssincrona() : null;
+                    }
+
+                };
+            }
+
+        };
+    }
+
 
 }
@@ -0,0 +1 @@
+create index idx_pedido_data_criacao_id on pedido (data_criacao, id);
\ No newline at end of file
@@ -0,0 +1,18 @@
+CREATE TABLE notificacao_pedido (
+	id BIGINT NOT NULL AUTO_INCREMENT,
+	pedido_id BIGINT NOT NULL,
+	tipo varchar(20) NOT NULL,
+	status varchar(10) NOT NULL,
+	tentativas integer NOT NULL DEFAULT 0,
+	ultimo_erro varchar(255),
+	data_criacao datetime NOT NULL,
+	data_proxima_tentativa datetime NOT NULL,
+	data_envio datetime,
+	primary key (id),
+	KEY idx_notificacao_pedido_status_proxima_tentativa (status, data_proxima_tentativa),
+	KEY idx_notificacao_pedido_pedido_status (pedido_id, status),
+	CONSTRAINT fk_notificacao_pedido_pedido foreign key (pedido_id) references pedido (id)
+)
+ENGINE=InnoDB
+DEFAULT CHARSET=utf8
+COLLATE=utf8_general_ci;
@@ -0,0 +1,2 @@
+alter table restaurante add latitude decimal(9,6), add longitude decimal(9,6);
+alter table pedido add latitude decimal(9,6), add longitude decimal(9,6);
\ No newline at end of file
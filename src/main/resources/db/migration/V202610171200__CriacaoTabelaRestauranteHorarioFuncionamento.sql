@@ -0,0 +1,11 @@
+CREATE TABLE restaurante_horario_funcionamento (
+	restaurante_id BIGINT NOT NULL,
+	dia_semana varchar(10) NOT NULL,
+	hora_abertura time NOT NULL,
+	hora_fechamento time NOT NULL,
+	KEY idx_restaurante_horario_funcionamento_restaurante (restaurante_id),
+	CONSTRAINT fk_restaurante_horario_funcionamento_restaurante foreign key (restaurante_id) references restaurante (id)
+)
+ENGINE=InnoDB
+DEFAULT CHARSET=utf8
+COLLATE=utf8_general_ci;
\ No newline at end of file
@@ -0,0 +1,2 @@
+create index idx_restaurante_nome_id on restaurante (nome, id);
+create index idx_restaurante_taxa_frete_id on restaurante (taxa_frete, id);
\ No newline at end of file
@@ -0,0 +1,2 @@
+alter table foto_produto add column situacao_variantes varchar(15);
+alter table foto_produto add column larguras_variantes varchar(100);
@@ -0,0 +1 @@
+create index idx_foto_produto_nome_arquivo on foto_produto (nome_arquivo);
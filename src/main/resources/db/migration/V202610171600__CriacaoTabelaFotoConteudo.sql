@@ -0,0 +1,7 @@
+CREATE TABLE foto_conteudo (
+	nome_arquivo varchar(64) NOT NULL,
+	PRIMARY KEY (nome_arquivo)
+)
+ENGINE=InnoDB
+DEFAULT CHARSET=utf8
+COLLATE=utf8_general_ci;
@@ -10,11 +10,14 @@ DELETE FROM permissao;
 DELETE FROM produto;
 DELETE FROM restaurante;
 DELETE FROM restaurante_forma_pagamento;
+DELETE FROM restaurante_horario_funcionamento;
 DELETE FROM usuario;
 DELETE FROM usuario_grupo;
+DELETE FROM notificacao_pedido;
 DELETE FROM item_pedido;
 DELETE FROM pedido;
 DELETE FROM foto_produto;
+DELETE FROM foto_conteudo;
 
 SET FOREIGN_KEY_CHECKS=1;
 
@@ -38,7 +41,7 @@ INSERT INTO cidade (id, nome, estado_id) VALUES(1, 'Londrina', 1);
 INSERT INTO cidade (id, nome, estado_id) VALUES(2, 'Maringa', 1);
 INSERT INTO cidade (id, nome, estado_id) VALUES(3, 'Campinas', 2);
 
-insert into restaurante (id, nome, taxa_frete, cozinha_id, data_cadastro, data_atualizacao, cidade_id, cep, logradouro, numero, bairro, ativo) values (1, 'Thai Gourmet', 10, 1, utc_timestamp, utc_timestamp, 1, '38400-999', 'Rua João Pinheiro', '1000', 'Centro', true);
+insert into restaurante (id, nome, taxa_frete, cozinha_id, data_cadastro, data_atualizacao, cidade_id, cep, logradouro, numero, bairro, latitude, longitude, ativo) values (1, 'Thai Gourmet', 10, 1, utc_timestamp, utc_timestamp, 1, '38400-999', 'Rua João Pinheiro', '1000', 'Centro', -18.918600, -48.277200, true);
 insert into restaurante (id, nome, taxa_frete, cozinha_id, data_cadastro, data_atualizacao, ativo) values (2, 'Thai Delivery', 20, 1, utc_timestamp, utc_timestamp, true);
 insert into restaurante (id, nome, taxa_frete, cozinha_id, data_cadastro, data_atualizacao, ativo) values (3, 'Tuk Tuk Comida Indiana', 15, 2, utc_timestamp, utc_timestamp, true);
 
@@ -74,17 +77,17 @@ INSERT INTO restaurante_usuario_responsavel (restaurante_id, usuario_id) VALUES(
 INSERT INTO restaurante_usuario_responsavel (restaurante_id, usuario_id) VALUES(2, 1);
 
 INSERT INTO pedido (id, codigo, subtotal, taxa_frete, valor_total, data_criacao, data_confirmacao, data_cancelamento, data_entrega, restaurante_id, forma_pagamento_id, status, cidade_id, cep, logradouro, numero, complemento, bairro, usuario_cliente_id)
-VALUES (1, '8e6588c2-b393-4e04-ba84-0d8a576977ae', 10.0, 5.0, 15.0, utc_timestamp, null, null, null, 1, 1, 'CRIADO', 1, 'cep1', 'logradouro1', 'numero1', 'complemento1', 'bairro1', 1);
+VALUES (1, ${funcaoCodigoPedido}('8e6588c2-b393-4e04-ba84-0d8a576977ae'), 10.0, 5.0, 15.0, utc_timestamp, null, null, null, 1, 1, 'CRIADO', 1, 'cep1', 'logradouro1', 'numero1', 'complemento1', 'bairro1', 1);
 INSERT INTO pedido (id, codigo, subtotal, taxa_frete, valor_total, data_criacao, data_confirmacao, data_cancelamento, data_entrega, restaurante_id, forma_pagamento_id, status, cidade_id, cep, logradouro, numero, complemento, bairro, usuario_cliente_id)
-VALUES (2, '9789d953-cd06-44f9-9c6a-85babac394cf', 30.0, 5.0, 35.0, utc_timestamp, null, null, null, 2, 2, 'CRIADO', 2, 'cep2', 'logradouro2', 'numero2', 'complemento2', 'bairro2', 2);
+VALUES (2, ${funcaoCodigoPedido}('9789d953-cd06-44f9-9c6a-85babac394cf'), 30.0, 5.0, 35.0, utc_timestamp, null, null, null, 2, 2, 'CRIADO', 2, 'cep2', 'logradouro2', 'numero2', 'complemento2', 'bairro2', 2);
 INSERT INTO pedido (id, codigo, subtotal, taxa_frete, valor_total, data_criacao, data_confirmacao, data_cancelamento, data_entrega, restaurante_id, forma_pagamento_id, status, cidade_id, cep, logradouro, numero, complemento, bairro, usuario_cliente_id)
-VALUES (3, 'af134210-74a9-432e-9187-c164002a9f63', 10.0, 5.0, 15.0, utc_timestamp, null, null, null, 1, 1, 'CONFIRMADO', 1, 'cep1', 'logradouro1', 'numero1', 'complemento1', 'bairro1', 1);
+VALUES (3, ${funcaoCodigoPedido}('af134210-74a9-432e-9187-c164002a9f63'), 10.0, 5.0, 15.0, utc_timestamp, null, null, null, 1, 1, 'CONFIRMADO', 1, 'cep1', 'logradouro1', 'numero1', 'complemento1', 'bairro1', 1);
 INSERT INTO pedido (id, codigo, subtotal, taxa_frete, valor_total, data_criacao, data_confirmacao, data_cancelamento, data_entrega, restaurante_id, forma_pagamento_id, status, cidade_id, cep, logradouro, numero, complemento, bairro, usuario_cliente_id)
-VALUES (4, 'ff17e6a7-a9cc-4d35-a3e4-c256b509e8c0', 30.0, 5.0, 35.0, utc_timestamp, null, null, null, 2, 2, 'ENTREGUE', 2, 'cep2', 'logradouro2', 'numero2', 'complemento2', 'bairro2', 2);
+VALUES (4, ${funcaoCodigoPedido}('ff17e6a7-a9cc-4d35-a3e4-c256b509e8c0'), 30.0, 5.0, 35.0, utc_timestamp, null, null, null, 2, 2, 'ENTREGUE', 2, 'cep2', 'logradouro2', 'numero2', 'complemento2', 'bairro2', 2);
 INSERT INTO pedido (id, codigo, subtotal, taxa_frete, valor_total, data_criacao, data_confirmacao, data_cancelamento, data_entrega, restaurante_id, forma_pagamento_id, status, cidade_id, cep, logradouro, numero, complemento, bairro, usuario_cliente_id)
-VALUES (5, '7ca42fd8-c590-422e-b043-d9e116653f5b', 10.0, 5.0, 15.0, utc_timestamp, null, null, null, 1, 1, 'ENTREGUE', 1, 'cep1', 'logradouro1', 'numero1', 'complemento1', 'bairro1', 1);
+VALUES (5, ${funcaoCodigoPedido}('7ca42fd8-c590-422e-b043-d9e116653f5b'), 10.0, 5.0, 15.0, utc_timestamp, null, null, null, 1, 1, 'ENTREGUE', 1, 'cep1', 'logradouro1', 'numero1', 'complemento1', 'bairro1', 1);
 INSERT INTO pedido (id, codigo, subtotal, taxa_frete, valor_total, data_criacao, data_confirmacao, data_cancelamento, data_entrega, restaurante_id, forma_pagamento_id, status, cidade_id, cep, logradouro, numero, complemento, bairro, usuario_cliente_id)
-VALUES (6, 'dae54918-2617-4997-81c4-eb3c6972ccc9', 30.0, 5.0, 35.0, utc_timestamp, null, null, null, 2, 2, 'ENTREGUE', 2, 'cep2', 'logradouro2', 'numero2', 'complemento2', 'bairro2', 2);
+VALUES (6, ${funcaoCodigoPedido}('dae54918-2617-4997-81c4-eb3c6972ccc9'), 30.0, 5.0, 35.0, utc_timestamp, null, null, null, 2, 2, 'ENTREGUE', 2, 'cep2', 'logradouro2', 'numero2', 'complemento2', 'bairro2', 2);
 
 INSERT INTO item_pedido (id, quantidade, preco_unitario, preco_total, observacao, produto_id, pedido_id)
 VALUES(1, 2, 10.0, 0, 'Observacao1', 1, 1);
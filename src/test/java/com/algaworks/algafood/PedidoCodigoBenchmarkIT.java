@@ -0,0 +1,91 @@
+package com.algaworks.algafood;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.algaworks.algafood.pedido.CodigoPedidoBinarioConverter;
+import com.algaworks.algafood.pedido.GeradorCodigoPedido;
+import com.algaworks.algafood.pedido.UuidAleatorioGeradorCodigoPedido;
+import com.algaworks.algafood.pedido.UuidV7GeradorCodigoPedido;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Compara a vazão de inserts numa tabela com índice único no código, igual ao uk_pedido_codigo, usando o UUID
+ * aleatório e o UUID v7 em varchar(36) e o UUID v7 em binary(16). Não roda no build normal por ser demorado:
+ *
+ *   mvn verify -Dit.test=PedidoCodigoBenchmarkIT -Dbenchmark=true -Dbenchmark.quantidade=500000
+ *
+ * A diferença aparece quando o índice fica maior que o buffer pool do MySQL, com poucos registros os tempos são parecidos.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource("/application-test.properties")
+public class PedidoCodigoBenchmarkIT {
+
+	private static final int TAMANHO_BATCH = 1000;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private int quantidade;
+
+	@Before
+	public void setUp() {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		quantidade = Integer.getInteger("benchmark.quantidade", 100_000);
+	}
+
+	@After
+	public void tearDown() {
+		jdbcTemplate.execute("drop table if exists benchmark_codigo_pedido");
+	}
+
+	@Test
+	public void deveCompararVazaoDeInsertsDosGeradoresDeCodigo() {
+		medir("uuid aleatório varchar(36)", new UuidAleatorioGeradorCodigoPedido(), false);
+		medir("uuid v7 varchar(36)", new UuidV7GeradorCodigoPedido(), false);
+		medir("uuid v7 binary(16)", new UuidV7GeradorCodigoPedido(), true);
+	}
+
+	private void medir(String estrategia, GeradorCodigoPedido gerador, boolean binario) {
+		jdbcTemplate.execute("drop table if exists benchmark_codigo_pedido");
+		jdbcTemplate.execute("create table benchmark_codigo_pedido (id bigint not null auto_increment, "
+						   + "codigo " + (binario ? "binary(16)" : "varchar(36)") + " not null, "
+						   + "primary key (id), unique key uk_benchmark_codigo (codigo)) engine=InnoDB");
+
+		long inicio = System.nanoTime();
+
+		for (int inseridos = 0; inseridos < quantidade; inseridos += TAMANHO_BATCH) {
+			List<Object[]> lote = new ArrayList<>(TAMANHO_BATCH);
+
+			for (int i = 0; i < TAMANHO_BATCH && inseridos + i < quantidade; i++) {
+				String codigo = gerador.gerar();
+				lote.add(new Object[] { binario ? CodigoPedidoBinarioConverter.paraBytes(codigo) : codigo });
+			}
+
+			jdbcTemplate.batchUpdate("insert into benchmark_codigo_pedido (codigo) values (?)", lote);
+		}
+
+		long milissegundos = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+
+		log.info(String.format("%-28s %,d inserts em %,d ms (%,d inserts/s)", estrategia, quantidade, milissegundos, quantidade * 1000L / milissegundos));
+
+		assertEquals(Integer.valueOf(quantidade), jdbcTemplate.queryForObject("select count(*) from benchmark_codigo_pedido", Integer.class));
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.algaworks.algafood;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.algaworks.algafood.entity.Restaurante;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+import com.algaworks.algafood.repository.RestauranteRepository;
+import com.algaworks.algafood.restaurante.IndiceTaxaFreteRestaurante;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Compara a busca por faixa de taxa de frete feita pela consulta anterior (findByTaxaFreteBetween, hoje com o
+ * idx_restaurante_taxa_frete_id) com o IndiceTaxaFreteRestaurante, só os ids e com as entidades carregadas pelo findPorTaxaFrete.
+ * Não roda no build normal por ser demorado:
+ *
+ *   mvn verify -Dit.test=RestauranteTaxaFreteBenchmarkIT -Dbenchmark=true -Dbenchmark.quantidade=50000
+ *
+ * As faixas são estreitas (até R$ 0,50), como numa busca de frete real.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource("/application-test.properties")
+public class RestauranteTaxaFreteBenchmarkIT {
+
+	private static final int TAMANHO_BATCH = 1000;
+	private static final int BUSCAS = 500;
+	private static final String PREFIXO_NOME = "Benchmark frete ";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private RestauranteRepository restauranteRepository;
+
+	@Autowired
+	private IndiceTaxaFreteRestaurante indiceTaxaFreteRestaurante;
+
+	private int quantidade;
+
+	@Before
+	public void setUp() {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		quantidade = Integer.getInteger("benchmark.quantidade", 20_000);
+
+		inserirRestaurantes();
+	}
+
+	@After
+	public void tearDown() {
+		if (quantidade > 0) {
+			jdbcTemplate.update("delete from restaurante where nome like ?", PREFIXO_NOME + "%");
+			indiceTaxaFreteRestaurante.restauranteAlterado(new RestauranteAlteradoEvent(null));
+		}
+	}
+
+	@Test
+	public void deveCompararBuscaPorFaixaDeTaxaFrete() {
+		List<BigDecimal[]> faixas = gerarFaixas();
+
+		// Aquecimento e conferência: os dois caminhos precisam trazer os mesmos restaurantes
+		for (BigDecimal[] faixa : faixas.subList(0, 20)) {
+			assertEquals(ids(restauranteRepository.findByTaxaFreteBetween(faixa[0], faixa[1])),
+						 ids(restauranteRepository.findPorTaxaFrete(faixa[0], faixa[1], false)));
+		}
+
+		medir("findByTaxaFreteBetween", faixas, faixa -> restauranteRepository.findByTaxaFreteBetween(faixa[0], faixa[1]).size());
+		medir("índice + findPorTaxaFrete", faixas, faixa -> restauranteRepository.findPorTaxaFrete(faixa[0], faixa[1], false).size());
+		medir("índice (só ids)", faixas, faixa -> indiceTaxaFreteRestaurante.buscarPorFaixa(faixa[0], faixa[1]).size());
+	}
+
+	private void medir(String estrategia, List<BigDecimal[]> faixas, Function<BigDecimal[], Integer> buscar) {
+		long encontrados = 0;
+		long inicio = System.nanoTime();
+
+		for (BigDecimal[] faixa : faixas) {
+			encontrados += buscar.apply(faixa);
+		}
+
+		long microssegundos = Math.max(1, (System.nanoTime() - inicio) / 1_000);
+
+		log.info(String.format("%-28s %,d buscas em %,d ms (%,d µs por busca, %,d restaurantes)", estrategia, faixas.size(),
+				microssegundos / 1000, microssegundos / faixas.size(), encontrados));
+	}
+
+	/*
+	 * Taxas de R$ 0,00 a R$ 30,00, cerca de 10% com frete grátis
+	 */
+	private void inserirRestaurantes() {
+		Long cozinhaId = jdbcTemplate.queryForObject("select min(id) from cozinha", Long.class);
+		Random random = new Random(42);
+
+		for (int inseridos = 0; inseridos < quantidade; inseridos += TAMANHO_BATCH) {
+			List<Object[]> lote = new ArrayList<>(TAMANHO_BATCH);
+
+			for (int i = 0; i < TAMANHO_BATCH && inseridos + i < quantidade; i++) {
+				BigDecimal taxaFrete = random.nextInt(10) == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(random.nextInt(3001), 2);
+				lote.add(new Object[] { PREFIXO_NOME + (inseridos + i), taxaFrete, cozinhaId });
+			}
+
+			jdbcTemplate.batchUpdate("insert into restaurante (nome, taxa_frete, cozinha_id, ativo, aberto, data_cadastro, data_atualizacao) "
+								   + "values (?, ?, ?, true, true, utc_timestamp, utc_timestamp)", lote);
+		}
+
+		indiceTaxaFreteRestaurante.restauranteAlterado(new RestauranteAlteradoEvent(null));
+	}
+
+	private List<BigDecimal[]> gerarFaixas() {
+		Random random = new Random(7);
+		List<BigDecimal[]> faixas = new ArrayList<>(BUSCAS);
+
+		for (int i = 0; i < BUSCAS; i++) {
+			int inicial = random.nextInt(3001);
+			faixas.add(new BigDecimal[] { BigDecimal.valueOf(inicial, 2), BigDecimal.valueOf(inicial + random.nextInt(51), 2) });
+		}
+
+		return faixas;
+	}
+
+	private static HashSet<Long> ids(List<Restaurante> restaurantes) {
+		return restaurantes.stream()
+							.map(Restaurante::getId)
+							.collect(Collectors.toCollection(HashSet::new));
+	}
+
+}
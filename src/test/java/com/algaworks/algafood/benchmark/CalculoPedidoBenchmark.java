@@ -0,0 +1,96 @@
+package com.algaworks.algafood.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.algaworks.algafood.entity.ItemPedido;
+import com.algaworks.algafood.entity.Pedido;
+
+/*
+ * Compara o cálculo do total do pedido como era feito antes, com BigDecimal em cada item, com o cálculo atual
+ * do Pedido.calcularValorTotal em centavos (long). Rodar pelo main, o GCProfiler mostra a alocação por operação
+ * (gc.alloc.rate.norm) além da vazão:
+ *
+ *   mvn test-compile exec:java -Dexec.mainClass=com.algaworks.algafood.benchmark.CalculoPedidoBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculoPedidoBenchmark {
+
+	// Quantidade de itens no carrinho, de um pedido pequeno até um pedido grande
+	@Param({ "1", "5", "20" })
+	private int quantidadeItens;
+
+	private Pedido pedido;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		List<ItemPedido> itens = new ArrayList<>();
+
+		for (int i = 0; i < quantidadeItens; i++) {
+			ItemPedido item = new ItemPedido();
+			item.setQuantidade(1 + random.nextInt(5));
+			item.setPrecoUnitario(BigDecimal.valueOf(500 + random.nextInt(10_000), 2));
+			itens.add(item);
+		}
+
+		pedido = new Pedido();
+		pedido.setItens(itens);
+		pedido.setTaxaFrete(new BigDecimal("7.50"));
+	}
+
+	@Benchmark
+	public BigDecimal calculoComBigDecimal() {
+		pedido.getItens().forEach(CalculoPedidoBenchmark::precoTotalComBigDecimal);
+
+		BigDecimal subtotal = pedido.getItens().stream()
+												.map(CalculoPedidoBenchmark::precoTotalComBigDecimal)
+												.reduce(BigDecimal.ZERO, BigDecimal::add);
+
+		return subtotal.add(pedido.getTaxaFrete());
+	}
+
+	@Benchmark
+	public BigDecimal calculoEmCentavos() {
+		pedido.calcularValorTotal();
+		return pedido.getValorTotal();
+	}
+
+	// Cópia do ItemPedido.getPrecoTotal anterior, que criava dois BigDecimal a cada chamada
+	private static BigDecimal precoTotalComBigDecimal(ItemPedido item) {
+		return item.getPrecoUnitario().multiply(new BigDecimal(item.getQuantidade()));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+						.include(CalculoPedidoBenchmark.class.getSimpleName())
+						.addProfiler(GCProfiler.class)
+						.build())
+			.run();
+	}
+
+}
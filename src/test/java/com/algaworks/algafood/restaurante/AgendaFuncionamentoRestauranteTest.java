@@ -0,0 +1,160 @@
+package com.algaworks.algafood.restaurante;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.algaworks.algafood.entity.HorarioFuncionamento;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+public class AgendaFuncionamentoRestauranteTest {
+
+	private static final LocalDateTime SEGUNDA = LocalDateTime.of(2026, 10, 12, 0, 0);
+
+	/*
+	 * Linhas (restaurante, dia, abertura, fechamento) da montagem
+	 */
+	private List<Object[]> horarios;
+
+	private List<Object[]> horariosAlterados;
+
+	private AgendaFuncionamentoRestaurante agenda;
+
+	@Before
+	public void setUp() {
+		ConsultasRestauranteFalsas consultas = new ConsultasRestauranteFalsas();
+		horarios = consultas.montagem(Object[].class);
+		horariosAlterados = consultas.alteracao(Object[].class);
+
+		agenda = new AgendaFuncionamentoRestaurante(consultas.getManager(), new RestauranteProperties());
+	}
+
+	@Test
+	public void deveContarOsMinutosDaSemanaAPartirDeSegundaTest() {
+		assertEquals(0, AgendaFuncionamentoRestaurante.minutoDaSemana(SEGUNDA));
+		assertEquals(11 * 60 + 30, AgendaFuncionamentoRestaurante.minutoDaSemana(SEGUNDA.withHour(11).withMinute(30)));
+		assertEquals(AgendaFuncionamentoRestaurante.MINUTOS_SEMANA - 1,
+				AgendaFuncionamentoRestaurante.minutoDaSemana(SEGUNDA.plusDays(6).withHour(23).withMinute(59)));
+	}
+
+	@Test
+	public void deveAbrirEFecharNosMinutosDoHorarioTest() {
+		adicionar(1L, DayOfWeek.MONDAY, "11:00", "15:00");
+
+		assertEquals(Collections.singletonMap(1L, true), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "10:59"), minuto(DayOfWeek.MONDAY, "11:00")));
+		assertEquals(Collections.emptyMap(), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "11:00"), minuto(DayOfWeek.MONDAY, "14:59")));
+		assertEquals(Collections.singletonMap(1L, false), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "14:59"), minuto(DayOfWeek.MONDAY, "15:00")));
+	}
+
+	@Test
+	public void deveFecharNoDiaSeguinteQuandoPassaDaMeiaNoiteTest() {
+		adicionar(1L, DayOfWeek.FRIDAY, "22:00", "02:00");
+
+		assertEquals(Collections.emptyMap(), agenda.buscarTransicoes(minuto(DayOfWeek.FRIDAY, "22:00"), minuto(DayOfWeek.SATURDAY, "01:59")));
+		assertEquals(Collections.singletonMap(1L, false), agenda.buscarTransicoes(minuto(DayOfWeek.SATURDAY, "01:59"), minuto(DayOfWeek.SATURDAY, "02:00")));
+		assertTrue(agenda.buscarSituacoes(minuto(DayOfWeek.SATURDAY, "00:30")).get(1L));
+	}
+
+	@Test
+	public void deveFecharNaSegundaQuandoODomingoPassaDaMeiaNoiteTest() {
+		adicionar(1L, DayOfWeek.SUNDAY, "22:00", "02:00");
+
+		assertTrue(agenda.buscarSituacoes(minuto(DayOfWeek.SUNDAY, "23:59")).get(1L));
+		assertTrue(agenda.buscarSituacoes(minuto(DayOfWeek.MONDAY, "01:59")).get(1L));
+		assertFalse(agenda.buscarSituacoes(minuto(DayOfWeek.MONDAY, "02:00")).get(1L));
+
+		// O intervalo da busca também dá a volta na semana
+		assertEquals(Collections.singletonMap(1L, false), agenda.buscarTransicoes(minuto(DayOfWeek.SUNDAY, "23:00"), minuto(DayOfWeek.MONDAY, "03:00")));
+		assertEquals(Collections.singletonMap(1L, true), agenda.buscarTransicoes(minuto(DayOfWeek.SUNDAY, "21:59"), minuto(DayOfWeek.SUNDAY, "22:00")));
+	}
+
+	@Test
+	public void naoDeveFecharEAbrirEntreHorariosEncostadosTest() {
+		adicionar(1L, DayOfWeek.MONDAY, "11:00", "15:00");
+		adicionar(1L, DayOfWeek.MONDAY, "15:00", "23:00");
+		adicionar(2L, DayOfWeek.SUNDAY, "20:00", "00:00");
+		adicionar(2L, DayOfWeek.MONDAY, "00:00", "02:00");
+
+		assertEquals(Collections.emptyMap(), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "14:59"), minuto(DayOfWeek.MONDAY, "15:00")));
+		assertEquals(Collections.emptyMap(), agenda.buscarTransicoes(minuto(DayOfWeek.SUNDAY, "23:59"), minuto(DayOfWeek.MONDAY, "00:00")));
+		assertEquals(Collections.singletonMap(2L, false), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "01:59"), minuto(DayOfWeek.MONDAY, "02:00")));
+	}
+
+	@Test
+	public void deveFicarComAUltimaTransicaoDoIntervaloTest() {
+		adicionar(1L, DayOfWeek.MONDAY, "11:00", "15:00");
+		adicionar(2L, DayOfWeek.MONDAY, "14:00", "18:00");
+
+		Map<Long, Boolean> esperadas = new HashMap<>();
+		esperadas.put(1L, false);
+		esperadas.put(2L, true);
+
+		assertEquals(esperadas, agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "10:00"), minuto(DayOfWeek.MONDAY, "16:00")));
+	}
+
+	@Test
+	public void deveTrazerASituacaoDeTodosOsRestaurantesComHorariosTest() {
+		adicionar(1L, DayOfWeek.MONDAY, "11:00", "15:00");
+		adicionar(2L, DayOfWeek.TUESDAY, "11:00", "15:00");
+
+		Map<Long, Boolean> esperadas = new HashMap<>();
+		esperadas.put(1L, true);
+		esperadas.put(2L, false);
+
+		assertEquals(esperadas, agenda.buscarSituacoes(minuto(DayOfWeek.MONDAY, "12:00")));
+	}
+
+	@Test
+	public void deveTrocarAsTransicoesDoRestauranteAlteradoTest() {
+		adicionar(1L, DayOfWeek.MONDAY, "11:00", "15:00");
+		adicionar(2L, DayOfWeek.MONDAY, "11:00", "15:00");
+		agenda.buscarSituacoes(0);
+
+		horariosAlterados.add(new Object[] { DayOfWeek.MONDAY, LocalTime.parse("18:00"), LocalTime.parse("22:00") });
+		agenda.restauranteAlterado(new RestauranteAlteradoEvent(1L));
+
+		assertEquals(Collections.singletonMap(2L, true), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "10:59"), minuto(DayOfWeek.MONDAY, "11:00")));
+		assertEquals(Collections.singletonMap(1L, true), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "17:59"), minuto(DayOfWeek.MONDAY, "18:00")));
+	}
+
+	@Test
+	public void deveRetirarORestauranteSemHorariosTest() {
+		adicionar(1L, DayOfWeek.MONDAY, "11:00", "15:00");
+		agenda.buscarSituacoes(0);
+
+		agenda.restauranteAlterado(new RestauranteAlteradoEvent(1L));
+
+		assertEquals(Collections.emptyMap(), agenda.buscarTransicoes(minuto(DayOfWeek.MONDAY, "10:59"), minuto(DayOfWeek.MONDAY, "15:00")));
+		assertEquals(Collections.emptyMap(), agenda.buscarSituacoes(minuto(DayOfWeek.MONDAY, "12:00")));
+	}
+
+	@Test
+	public void deveConferirSeEstaAbertoPelosHorariosTest() {
+		List<HorarioFuncionamento> horariosRestaurante = Arrays.asList(
+				new HorarioFuncionamento(DayOfWeek.SUNDAY, LocalTime.parse("22:00"), LocalTime.parse("02:00")));
+
+		assertTrue(AgendaFuncionamentoRestaurante.estaAberto(horariosRestaurante, minuto(DayOfWeek.MONDAY, "00:00")));
+		assertFalse(AgendaFuncionamentoRestaurante.estaAberto(horariosRestaurante, minuto(DayOfWeek.SUNDAY, "21:59")));
+	}
+
+	private void adicionar(Long restauranteId, DayOfWeek diaSemana, String abertura, String fechamento) {
+		horarios.add(new Object[] { restauranteId, diaSemana, LocalTime.parse(abertura), LocalTime.parse(fechamento) });
+	}
+
+	private static int minuto(DayOfWeek diaSemana, String hora) {
+		return AgendaFuncionamentoRestaurante.minutoDaSemana(SEGUNDA.plusDays(diaSemana.getValue() - 1L).with(LocalTime.parse(hora)));
+	}
+
+}
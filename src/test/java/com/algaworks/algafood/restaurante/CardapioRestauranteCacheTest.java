@@ -0,0 +1,132 @@
+package com.algaworks.algafood.restaurante;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.algaworks.algafood.dto.EstatisticasCacheDTO;
+import com.algaworks.algafood.event.ProdutosRestauranteAlteradosEvent;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+public class CardapioRestauranteCacheTest {
+
+	private final List<Long> montados = new ArrayList<>();
+
+	private final Function<Long, CardapioRestaurante> montar = restauranteId -> {
+		montados.add(restauranteId);
+		return new CardapioRestaurante(Collections.emptyList(), Collections.emptyList());
+	};
+
+	private CardapioRestauranteCache cache;
+
+	@Before
+	public void setUp() {
+		RestauranteProperties restauranteProperties = new RestauranteProperties();
+		restauranteProperties.getCardapio().setTamanhoMaximo(2);
+
+		cache = new CardapioRestauranteCache(restauranteProperties);
+	}
+
+	@Test
+	public void deveMontarUmaVezEDevolverOMesmoCardapioTest() {
+		CardapioRestaurante cardapio = cache.buscar(1L, montar);
+
+		assertSame(cardapio, cache.buscar(1L, montar));
+		assertEquals(Collections.singletonList(1L), montados);
+	}
+
+	@Test
+	public void deveTirarOMenosAcessadoQuandoPassaDoTamanhoMaximoTest() {
+		cache.buscar(1L, montar);
+		cache.buscar(2L, montar);
+
+		// O 1 é lido de novo e o 2 passa a ser o menos acessado
+		cache.buscar(1L, montar);
+		cache.buscar(3L, montar);
+
+		montados.clear();
+		cache.buscar(1L, montar);
+		cache.buscar(3L, montar);
+		assertEquals(Collections.emptyList(), montados);
+
+		cache.buscar(2L, montar);
+		assertEquals(Collections.singletonList(2L), montados);
+	}
+
+	@Test
+	public void deveMontarDeNovoDepoisDaAlteracaoDoRestauranteTest() {
+		CardapioRestaurante cardapio = cache.buscar(1L, montar);
+		cache.buscar(2L, montar);
+
+		cache.produtosRestauranteAlterados(new ProdutosRestauranteAlteradosEvent(1L));
+
+		assertNotSame(cardapio, cache.buscar(1L, montar));
+		cache.buscar(2L, montar);
+
+		cache.restauranteAlterado(new RestauranteAlteradoEvent(2L));
+		cache.buscar(2L, montar);
+
+		assertEquals(Arrays.asList(1L, 2L, 1L, 2L), montados);
+	}
+
+	@Test
+	public void naoDeveInvalidarNaAlteracaoEmMassaTest() {
+		cache.buscar(1L, montar);
+
+		cache.restauranteAlterado(new RestauranteAlteradoEvent(null));
+		cache.buscar(1L, montar);
+
+		assertEquals(Collections.singletonList(1L), montados);
+	}
+
+	@Test
+	public void naoDeveGuardarCardapioMontadoDuranteUmaAlteracaoTest() {
+		// A alteração é confirmada enquanto o cardápio é montado com os produtos de antes
+		cache.buscar(1L, restauranteId -> {
+			cache.invalidar(restauranteId);
+			return montar.apply(restauranteId);
+		});
+
+		cache.buscar(1L, montar);
+
+		assertEquals(Arrays.asList(1L, 1L), montados);
+	}
+
+	@Test
+	public void deveContarAcertosFaltasERemocoesTest() {
+		cache.buscar(1L, montar);
+		cache.buscar(1L, montar);
+		cache.buscar(1L, montar);
+		cache.buscar(2L, montar);
+		cache.buscar(3L, montar);
+
+		EstatisticasCacheDTO estatisticas = cache.buscarEstatisticas();
+
+		assertEquals(2, estatisticas.getAcertos());
+		assertEquals(3, estatisticas.getFaltas());
+		assertEquals(0.4, estatisticas.getTaxaAcerto(), 0.0001);
+		assertEquals(1, estatisticas.getRemocoes());
+		assertEquals(2, estatisticas.getTamanho());
+		assertEquals(2, estatisticas.getTamanhoMaximo());
+	}
+
+	@Test
+	public void deveTerTaxaDeAcertoZeroSemLeiturasTest() {
+		EstatisticasCacheDTO estatisticas = cache.buscarEstatisticas();
+
+		assertEquals(0, estatisticas.getAcertos());
+		assertEquals(0, estatisticas.getFaltas());
+		assertEquals(0, estatisticas.getTaxaAcerto(), 0);
+		assertEquals(0, estatisticas.getTamanho());
+	}
+
+}
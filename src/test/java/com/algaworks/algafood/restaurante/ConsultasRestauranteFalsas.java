@@ -0,0 +1,49 @@
+package com.algaworks.algafood.restaurante;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/*
+ * EntityManager dos testes dos índices de restaurantes. Os índices montam tudo com uma consulta sem parâmetro e
+ * atualizam o restaurante alterado com uma consulta por r.id = :id, cada consulta devolve uma cópia da lista que o
+ * teste preenche (montagem e alteracao).
+ */
+class ConsultasRestauranteFalsas {
+
+	private final EntityManager manager = mock(EntityManager.class);
+
+	EntityManager getManager() {
+		return manager;
+	}
+
+	<T> List<T> montagem(Class<T> tipo) {
+		return responder(tipo, false);
+	}
+
+	<T> List<T> alteracao(Class<T> tipo) {
+		return responder(tipo, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> List<T> responder(Class<T> tipo, boolean porId) {
+		List<T> linhas = new ArrayList<>();
+		TypedQuery<T> consulta = mock(TypedQuery.class);
+
+		when(consulta.setParameter(anyString(), any())).thenReturn(consulta);
+		when(consulta.getResultList()).thenAnswer(invocacao -> new ArrayList<>(linhas));
+		when(manager.createQuery(argThat((String jpql) -> jpql != null && jpql.contains(":id") == porId), eq(tipo))).thenReturn(consulta);
+
+		return linhas;
+	}
+
+}
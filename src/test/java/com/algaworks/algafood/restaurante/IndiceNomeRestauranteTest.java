@@ -0,0 +1,133 @@
+package com.algaworks.algafood.restaurante;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+public class IndiceNomeRestauranteTest {
+
+	private List<Object[]> restaurantes;
+
+	private List<String> nomesAlterados;
+
+	private IndiceNomeRestaurante indice;
+
+	@Before
+	public void setUp() {
+		ConsultasRestauranteFalsas consultas = new ConsultasRestauranteFalsas();
+		restaurantes = consultas.montagem(Object[].class);
+		nomesAlterados = consultas.alteracao(String.class);
+
+		indice = new IndiceNomeRestaurante(consultas.getManager());
+	}
+
+	@Test
+	public void deveEncontrarPelaIntersecaoDosTrigramasTest() {
+		adicionar(1L, "Thai Gourmet");
+		adicionar(2L, "Thai Delivery");
+		adicionar(3L, "Java Steakhouse");
+
+		assertEquals(Arrays.asList(1L), indice.buscar("gourmet"));
+		assertEquals(Arrays.asList(1L, 2L), indice.buscar("thai"));
+		assertEquals(Collections.emptyList(), indice.buscar("pizza"));
+	}
+
+	@Test
+	public void deveConferirOTermoInteiroAlemDosTrigramasTest() {
+		// Tem os trigramas "abc" e "bcd" do termo, mas não "abcd"
+		adicionar(1L, "abcxbcd");
+		adicionar(2L, "xabcd");
+
+		assertEquals(Arrays.asList(2L), indice.buscar("abcd"));
+	}
+
+	@Test
+	public void deveOrdenarPorRelevanciaTest() {
+		adicionar(1L, "Casa do Pão");
+		adicionar(2L, "Pão de Açúcar");
+		adicionar(3L, "Sopão Caseiro");
+		adicionar(4L, "Pãozinho");
+		adicionar(5L, "Pão Bom");
+		adicionar(6L, "Pão Boa");
+
+		// Começa com o termo (do mais curto, e no empate pelo id), depois começo de palavra, depois no meio
+		assertEquals(Arrays.asList(5L, 6L, 4L, 2L, 1L, 3L), indice.buscar("pao"));
+	}
+
+	@Test
+	public void deveIgnorarAcentosEMaiusculasTest() {
+		adicionar(1L, "Açaí da Praia");
+
+		assertEquals(Arrays.asList(1L), indice.buscar("ACAI"));
+		assertEquals(Arrays.asList(1L), indice.buscar("açaí"));
+	}
+
+	@Test
+	public void deveRecusarTermoSemTrigramaTest() {
+		adicionar(1L, "Thai Gourmet");
+
+		assertFalse(IndiceNomeRestaurante.isBuscavel(null));
+		assertFalse(IndiceNomeRestaurante.isBuscavel("th"));
+		assertFalse(IndiceNomeRestaurante.isBuscavel(" th "));
+		assertTrue(IndiceNomeRestaurante.isBuscavel("tha"));
+
+		try {
+			indice.buscar("th");
+			throw new AssertionError("Termo sem trigrama deveria ir para o banco");
+		} catch (IllegalArgumentException e) {
+			// esperado
+		}
+	}
+
+	@Test
+	public void deveAtualizarSomenteORestauranteAlteradoTest() {
+		adicionar(1L, "Thai Gourmet");
+		adicionar(2L, "Thai Delivery");
+
+		assertEquals(Arrays.asList(1L, 2L), indice.buscar("thai"));
+
+		// A consulta de todos não roda de novo, só a do restaurante alterado
+		restaurantes.clear();
+		nomesAlterados.add("Sushi Gourmet");
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(1L));
+
+		assertEquals(Arrays.asList(2L), indice.buscar("thai"));
+		assertEquals(Arrays.asList(1L), indice.buscar("sushi"));
+		assertEquals(Arrays.asList(1L), indice.buscar("gourmet"));
+	}
+
+	@Test
+	public void deveRetirarRestauranteRemovidoTest() {
+		adicionar(1L, "Thai Gourmet");
+
+		assertEquals(Arrays.asList(1L), indice.buscar("gourmet"));
+
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(1L));
+
+		assertEquals(Collections.emptyList(), indice.buscar("gourmet"));
+	}
+
+	@Test
+	public void deveOrdenarNomesDoBancoComAMesmaRelevanciaTest() {
+		List<String> nomes = new ArrayList<>(Arrays.asList("Casa do Pão", "Sopão", "Pão de Açúcar", "Pãozinho"));
+
+		nomes.sort(IndiceNomeRestaurante.comparadorRelevancia("pão"));
+
+		assertEquals(Arrays.asList("Pãozinho", "Pão de Açúcar", "Casa do Pão", "Sopão"), nomes);
+	}
+
+	private void adicionar(Long id, String nome) {
+		restaurantes.add(new Object[] { id, nome });
+	}
+
+}
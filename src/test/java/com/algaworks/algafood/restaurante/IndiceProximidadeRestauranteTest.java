@@ -0,0 +1,175 @@
+package com.algaworks.algafood.restaurante;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.algaworks.algafood.dto.RestauranteProximoDTO;
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+public class IndiceProximidadeRestauranteTest {
+
+	private static final double LATITUDE = -23.55;
+	private static final double LONGITUDE = -46.65;
+
+	/*
+	 * Um grau de latitude tem cerca de 111,2 km
+	 */
+	private static final double GRAUS_POR_KM = 1 / 111.195;
+
+	private List<Object[]> restaurantes;
+
+	private List<Object[]> restaurantesAlterados;
+
+	private final Set<Long> fechados = new HashSet<>();
+
+	private RestauranteProperties restauranteProperties;
+
+	private IndiceProximidadeRestaurante indice;
+
+	@Before
+	public void setUp() {
+		ConsultasRestauranteFalsas consultas = new ConsultasRestauranteFalsas();
+		restaurantes = consultas.montagem(Object[].class);
+		restaurantesAlterados = consultas.alteracao(Object[].class);
+
+		RestaurantesAbertos restaurantesAbertos = mock(RestaurantesAbertos.class);
+		when(restaurantesAbertos.isAberto(anyLong())).thenAnswer(invocacao -> !fechados.contains(invocacao.<Long>getArgument(0)));
+
+		restauranteProperties = new RestauranteProperties();
+
+		indice = new IndiceProximidadeRestaurante(consultas.getManager(), restauranteProperties, restaurantesAbertos);
+	}
+
+	@Test
+	public void deveTrazerSomenteDentroDoRaioDoMaisProximoParaOMaisDistanteTest() {
+		restaurantes.add(linha(1L, LATITUDE + 3 * GRAUS_POR_KM, LONGITUDE));
+		restaurantes.add(linha(2L, LATITUDE - 1 * GRAUS_POR_KM, LONGITUDE));
+		restaurantes.add(linha(3L, LATITUDE + 10 * GRAUS_POR_KM, LONGITUDE));
+
+		List<RestauranteProximoDTO> proximos = indice.buscar(LATITUDE, LONGITUDE, 5);
+
+		assertEquals(Arrays.asList(2L, 1L), ids(proximos));
+		assertDistancia(1000, proximos.get(0));
+		assertDistancia(3000, proximos.get(1));
+	}
+
+	@Test
+	public void deveEncontrarRestaurantesNasCelulasVizinhasTest() {
+		// Tamanho da célula de 0,05 grau, a coordenada da busca fica bem na borda entre duas linhas e duas colunas
+		restaurantes.add(linha(1L, LATITUDE + 0.001, LONGITUDE + 0.001));
+		restaurantes.add(linha(2L, LATITUDE - 0.001, LONGITUDE - 0.001));
+		restaurantes.add(linha(3L, LATITUDE + 0.001, LONGITUDE - 0.001));
+		restaurantes.add(linha(4L, LATITUDE - 0.001, LONGITUDE + 0.001));
+
+		assertEquals(4, indice.buscar(LATITUDE, LONGITUDE, 1).size());
+	}
+
+	@Test
+	public void deveCobrirVariasCelulasComRaioMaiorQueACelulaTest() {
+		// 20 km de distância, a busca cobre cerca de 4 células para cada lado
+		restaurantes.add(linha(1L, LATITUDE, LONGITUDE + 20 * GRAUS_POR_KM / Math.cos(Math.toRadians(LATITUDE))));
+
+		assertEquals(Collections.emptyList(), ids(indice.buscar(LATITUDE, LONGITUDE, 19)));
+		assertEquals(Arrays.asList(1L), ids(indice.buscar(LATITUDE, LONGITUDE, 21)));
+	}
+
+	@Test
+	public void deveDeixarDeForaOsFechadosTest() {
+		restaurantes.add(linha(1L, LATITUDE, LONGITUDE));
+		restaurantes.add(linha(2L, LATITUDE, LONGITUDE));
+		fechados.add(1L);
+
+		assertEquals(Arrays.asList(2L), ids(indice.buscar(LATITUDE, LONGITUDE, 1)));
+	}
+
+	@Test
+	public void deveLimitarAQuantidadeDesempatandoPeloIdTest() {
+		restauranteProperties.getProximidade().setQuantidadeMaxima(2);
+
+		restaurantes.add(linha(3L, LATITUDE, LONGITUDE));
+		restaurantes.add(linha(1L, LATITUDE, LONGITUDE));
+		restaurantes.add(linha(2L, LATITUDE, LONGITUDE));
+
+		assertEquals(Arrays.asList(1L, 2L), ids(indice.buscar(LATITUDE, LONGITUDE, 1)));
+	}
+
+	@Test
+	public void deveMoverORestauranteAlteradoDeCelulaTest() {
+		restaurantes.add(linha(1L, LATITUDE, LONGITUDE));
+		restaurantes.add(linha(2L, LATITUDE, LONGITUDE));
+		indice.buscar(LATITUDE, LONGITUDE, 1);
+
+		restaurantesAlterados.add(linha(1L, LATITUDE + 30 * GRAUS_POR_KM, LONGITUDE));
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(1L));
+
+		assertEquals(Arrays.asList(2L), ids(indice.buscar(LATITUDE, LONGITUDE, 1)));
+		assertEquals(Arrays.asList(1L), ids(indice.buscar(LATITUDE + 30 * GRAUS_POR_KM, LONGITUDE, 1)));
+	}
+
+	@Test
+	public void deveRetirarORestauranteInativoOuSemCoordenadasTest() {
+		restaurantes.add(linha(1L, LATITUDE, LONGITUDE));
+		indice.buscar(LATITUDE, LONGITUDE, 1);
+
+		// A consulta só traz ativos com coordenadas, sem linha o restaurante não volta para a grade
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(1L));
+
+		assertTrue(indice.buscar(LATITUDE, LONGITUDE, 1).isEmpty());
+	}
+
+	@Test
+	public void deveMontarDeNovoNaAlteracaoEmMassaTest() {
+		restaurantes.add(linha(1L, LATITUDE, LONGITUDE));
+		indice.buscar(LATITUDE, LONGITUDE, 1);
+
+		restaurantes.clear();
+		restaurantes.add(linha(2L, LATITUDE, LONGITUDE));
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(null));
+
+		assertEquals(Arrays.asList(2L), ids(indice.buscar(LATITUDE, LONGITUDE, 1)));
+	}
+
+	@Test
+	public void deveDevolverOsDadosDaRespostaTest() {
+		restaurantes.add(linha(1L, LATITUDE, LONGITUDE));
+
+		RestauranteProximoDTO proximo = indice.buscar(LATITUDE, LONGITUDE, 1).get(0);
+
+		assertEquals("Restaurante 1", proximo.getNome());
+		assertEquals(new BigDecimal("5.00"), proximo.getTaxaFrete());
+		assertEquals(Long.valueOf(10L), proximo.getCozinha().getId());
+		assertEquals("Tailandesa", proximo.getCozinha().getNome());
+		assertEquals(Long.valueOf(0L), proximo.getDistancia());
+	}
+
+	private static Object[] linha(Long id, double latitude, double longitude) {
+		return new Object[] { id, "Restaurante " + id, new BigDecimal("5.00"), 10L, "Tailandesa",
+				BigDecimal.valueOf(latitude), BigDecimal.valueOf(longitude) };
+	}
+
+	private static List<Long> ids(List<RestauranteProximoDTO> proximos) {
+		return proximos.stream().map(RestauranteProximoDTO::getId).collect(Collectors.toList());
+	}
+
+	/*
+	 * Tolerância de 1% pelo arredondamento do raio da Terra
+	 */
+	private static void assertDistancia(long metrosEsperados, RestauranteProximoDTO proximo) {
+		assertEquals(metrosEsperados, proximo.getDistancia(), metrosEsperados / 100.0);
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.algaworks.algafood.restaurante;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.algaworks.algafood.event.RestauranteAlteradoEvent;
+
+public class IndiceTaxaFreteRestauranteTest {
+
+	/*
+	 * Linhas (taxa, id) na ordem do order by r.taxaFrete, r.id da montagem
+	 */
+	private List<Object[]> restaurantes;
+
+	private List<BigDecimal> taxasAlteradas;
+
+	private IndiceTaxaFreteRestaurante indice;
+
+	@Before
+	public void setUp() {
+		ConsultasRestauranteFalsas consultas = new ConsultasRestauranteFalsas();
+		restaurantes = consultas.montagem(Object[].class);
+		taxasAlteradas = consultas.alteracao(BigDecimal.class);
+
+		indice = new IndiceTaxaFreteRestaurante(consultas.getManager());
+
+		adicionar("0.00", 4L);
+		adicionar("0.00", 7L);
+		adicionar("5.00", 1L);
+		adicionar("5.00", 3L);
+		adicionar("5.00", 9L);
+		adicionar("7.50", 2L);
+		adicionar("12.00", 5L);
+	}
+
+	@Test
+	public void deveIncluirOsLimitesDaFaixaTest() {
+		assertEquals(Arrays.asList(1L, 3L, 9L, 2L), indice.buscarPorFaixa(taxa("5.00"), taxa("7.50")));
+		assertEquals(Arrays.asList(1L, 3L, 9L), indice.buscarPorFaixa(taxa("5.00"), taxa("5.00")));
+	}
+
+	@Test
+	public void deveArredondarLimitesComMaisDeDuasCasasParaDentroDaFaixaTest() {
+		assertEquals(Arrays.asList(2L), indice.buscarPorFaixa(taxa("5.001"), taxa("7.509")));
+		assertEquals(Collections.emptyList(), indice.buscarPorFaixa(taxa("5.001"), taxa("5.009")));
+	}
+
+	@Test
+	public void deveDeixarAFaixaAbertaComLimiteNuloTest() {
+		assertEquals(Arrays.asList(4L, 7L, 1L, 3L, 9L), indice.buscarPorFaixa(null, taxa("5.00")));
+		assertEquals(Arrays.asList(2L, 5L), indice.buscarPorFaixa(taxa("7.00"), null));
+		assertEquals(Arrays.asList(4L, 7L, 1L, 3L, 9L, 2L, 5L), indice.buscarPorFaixa(null, null));
+	}
+
+	@Test
+	public void deveDevolverVazioComFaixaInvertidaOuSemRestaurantesTest() {
+		assertEquals(Collections.emptyList(), indice.buscarPorFaixa(taxa("8.00"), taxa("6.00")));
+		assertEquals(Collections.emptyList(), indice.buscarPorFaixa(taxa("8.00"), taxa("11.99")));
+		assertEquals(Collections.emptyList(), indice.buscarPorFaixa(taxa("12.01"), null));
+	}
+
+	@Test
+	public void deveOrdenarEmpatesPeloIdTest() {
+		assertEquals(Arrays.asList(4L, 7L), indice.buscarComFreteGratis());
+	}
+
+	@Test
+	public void deveMoverORestauranteAlteradoParaANovaTaxaTest() {
+		indice.buscarPorFaixa(null, null);
+
+		taxasAlteradas.add(taxa("5.00"));
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(2L));
+
+		// Entra no empate da nova taxa na posição do id
+		assertEquals(Arrays.asList(1L, 2L, 3L, 9L), indice.buscarPorFaixa(taxa("5.00"), taxa("5.00")));
+		assertEquals(Collections.emptyList(), indice.buscarPorFaixa(taxa("7.50"), taxa("7.50")));
+	}
+
+	@Test
+	public void deveRetirarORestauranteRemovidoTest() {
+		indice.buscarPorFaixa(null, null);
+
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(7L));
+
+		assertEquals(Arrays.asList(4L), indice.buscarComFreteGratis());
+	}
+
+	@Test
+	public void deveMontarDeNovoNaAlteracaoEmMassaTest() {
+		indice.buscarPorFaixa(null, null);
+
+		restaurantes.clear();
+		adicionar("1.00", 8L);
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(null));
+
+		assertEquals(Arrays.asList(8L), indice.buscarPorFaixa(null, null));
+	}
+
+	@Test
+	public void deveIgnorarAlteracaoAntesDaPrimeiraBuscaTest() {
+		taxasAlteradas.add(taxa("1.00"));
+		indice.restauranteAlterado(new RestauranteAlteradoEvent(6L));
+
+		// O evento não monta o índice, a primeira busca monta com o estado do banco
+		assertEquals(Arrays.asList(4L, 7L, 1L, 3L, 9L, 2L, 5L), indice.buscarPorFaixa(null, null));
+	}
+
+	private void adicionar(String taxaFrete, Long id) {
+		restaurantes.add(new Object[] { taxa(taxaFrete), id });
+	}
+
+	private static BigDecimal taxa(String valor) {
+		return new BigDecimal(valor);
+	}
+
+}
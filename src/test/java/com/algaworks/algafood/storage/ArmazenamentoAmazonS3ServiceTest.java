@@ -0,0 +1,114 @@
+package com.algaworks.algafood.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.algaworks.algafood.storage.ArmazenamentoService.NovaFoto;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+public class ArmazenamentoAmazonS3ServiceTest {
+
+	private static final String BUCKET = "algafood-fotos";
+	private static final String DIRETORIO = "catalogo";
+
+	private AmazonS3 amazonS3;
+
+	private ArmazenamentoAmazonS3Service armazenamento;
+
+	@Before
+	public void setUp() {
+		ArmazenamentoProperties armazenamentoProperties = new ArmazenamentoProperties();
+		armazenamentoProperties.getAmazonS3().setNomeBucket(BUCKET);
+		armazenamentoProperties.getAmazonS3().setDiretorioFotos(DIRETORIO);
+		armazenamentoProperties.getAmazonS3().setIdChaveAcesso("chave-de-acesso");
+
+		amazonS3 = mock(AmazonS3.class);
+		armazenamento = new ArmazenamentoAmazonS3Service(amazonS3, armazenamentoProperties);
+	}
+
+	@Test
+	public void deveRemoverAFotoDoBucketConfiguradoTest() {
+		armazenamento.removerFotoAnterior("foto.jpg");
+
+		verify(amazonS3).deleteObject(BUCKET, DIRETORIO + "/foto.jpg");
+	}
+
+	@Test
+	public void deveRemoverAsVariantesDoBucketConfiguradoTest() {
+		// Mesmo caminho do VariantesFotoProdutoService.removerArquivos depois de uma geração que falhou
+		armazenamento.removerFotoAnterior(armazenamento.gerarNomeVariante("foto.jpg", 320));
+
+		verify(amazonS3).deleteObject(BUCKET, DIRETORIO + "/320w_foto.jpg");
+	}
+
+	@Test
+	public void deveEnviarNumPutComOTamanhoQuandoCabeNumaParteTest() {
+		armazenamento.armazenarFoto(NovaFoto.builder()
+											.nomeArquivo("foto.jpg")
+											.inputStream(new ByteArrayInputStream(new byte[1000]))
+										.build());
+
+		ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+		verify(amazonS3).putObject(captor.capture());
+		verify(amazonS3, never()).initiateMultipartUpload(any());
+
+		assertEquals(BUCKET, captor.getValue().getBucketName());
+		assertEquals(DIRETORIO + "/foto.jpg", captor.getValue().getKey());
+		assertEquals(1000, captor.getValue().getMetadata().getContentLength());
+	}
+
+	@Test
+	public void deveEnviarEmPartesQuandoOTamanhoNaoEConhecidoTest() {
+		InitiateMultipartUploadResult iniciado = new InitiateMultipartUploadResult();
+		iniciado.setUploadId("upload-1");
+		when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(iniciado);
+		when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocacao -> {
+			UploadPartResult resultado = new UploadPartResult();
+			resultado.setPartNumber(invocacao.<UploadPartRequest>getArgument(0).getPartNumber());
+			resultado.setETag("etag");
+			return resultado;
+		});
+
+		int tamanhoParte = 5 * 1024 * 1024;
+
+		armazenamento.armazenarFoto(NovaFoto.builder()
+											.nomeArquivo("foto.jpg")
+											.inputStream(new ByteArrayInputStream(new byte[2 * tamanhoParte + 10]))
+										.build());
+
+		ArgumentCaptor<UploadPartRequest> partes = ArgumentCaptor.forClass(UploadPartRequest.class);
+		verify(amazonS3, times(3)).uploadPart(partes.capture());
+		verify(amazonS3, never()).putObject(any(PutObjectRequest.class));
+
+		List<UploadPartRequest> enviadas = partes.getAllValues();
+		assertEquals(tamanhoParte, enviadas.get(0).getPartSize());
+		assertEquals(tamanhoParte, enviadas.get(1).getPartSize());
+		assertEquals(10, enviadas.get(2).getPartSize());
+		assertTrue(enviadas.stream().allMatch(parte -> BUCKET.equals(parte.getBucketName())
+				&& (DIRETORIO + "/foto.jpg").equals(parte.getKey()) && "upload-1".equals(parte.getUploadId())));
+
+		ArgumentCaptor<CompleteMultipartUploadRequest> concluido = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+		verify(amazonS3).completeMultipartUpload(concluido.capture());
+		assertEquals(3, concluido.getValue().getPartETags().size());
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.algaworks.algafood.web;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class CondicaoRespostaAssincronaTest {
+
+	private final CondicaoRespostaAssincrona condicao = new CondicaoRespostaAssincrona();
+
+	@Test
+	public void deveAtenderComRespondAsyncSozinhoOuJuntoDeOutrasPreferenciasTest() {
+		assertNotNull(condicao.getMatchingCondition(requisicao("respond-async")));
+		assertNotNull(condicao.getMatchingCondition(requisicao("respond-async, wait=10")));
+		assertNotNull(condicao.getMatchingCondition(requisicao("wait=10, Respond-Async")));
+		assertNotNull(condicao.getMatchingCondition(requisicao("return=minimal; foo=\"a,b\",respond-async ; bar")));
+	}
+
+	@Test
+	public void deveAtenderComRespondAsyncEmOutroCabecalhoPreferTest() {
+		assertNotNull(condicao.getMatchingCondition(requisicao("return=minimal", "respond-async")));
+	}
+
+	@Test
+	public void naoDeveAtenderSemAPreferenciaRespondAsyncTest() {
+		assertNull(condicao.getMatchingCondition(new MockHttpServletRequest(HttpMethod.POST.name(), "/pedidos")));
+		assertNull(condicao.getMatchingCondition(requisicao("return=minimal, wait=10")));
+		assertNull(condicao.getMatchingCondition(requisicao("respond-async-depois")));
+		assertNull(condicao.getMatchingCondition(requisicao("wait=10; respond-async")));
+		assertNull(condicao.getMatchingCondition(requisicao("foo=\"x, respond-async\"")));
+	}
+
+	@Test
+	public void deveAtenderOPreflightDoCorsTest() {
+		MockHttpServletRequest preflight = new MockHttpServletRequest(HttpMethod.OPTIONS.name(), "/pedidos");
+		preflight.addHeader(HttpHeaders.ORIGIN, "http://localhost:3000");
+		preflight.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpMethod.POST.name());
+
+		assertNotNull(condicao.getMatchingCondition(preflight));
+	}
+
+	private static MockHttpServletRequest requisicao(String... prefer) {
+		MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.POST.name(), "/pedidos");
+
+		for (String valor : prefer) {
+			request.addHeader(CondicaoRespostaAssincrona.HEADER_PREFER, valor);
+		}
+
+		return request;
+	}
+
+}
@@ -0,0 +1,273 @@
+package com.algaworks.algafood.web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.algaworks.algafood.exception.NegocioException;
+
+public class LeitorMultipartTest {
+
+	private static final String BOUNDARY = "limite123";
+	private static final long TAMANHO_MAXIMO = 1024 * 1024;
+
+	@Test
+	public void deveLerOsCamposEOArquivoTest() throws IOException {
+		byte[] foto = conteudoBinario(40 * 1024);
+		LeitorMultipart leitor = new LeitorMultipart(new ByteArrayInputStream(corpoPadrao(foto)), BOUNDARY, TAMANHO_MAXIMO);
+
+		assertCorpoPadrao(leitor, foto);
+	}
+
+	@Test
+	public void deveEncontrarODelimitadorDivididoEntreLeiturasTest() throws IOException {
+		// O delimitador e as quebras de linha dos cabeçalhos chegam em pedaços de 1 a 7 bytes
+		byte[] foto = conteudoBinario(40 * 1024);
+		LeitorMultipart leitor = new LeitorMultipart(new EntradaPicada(corpoPadrao(foto)), BOUNDARY, TAMANHO_MAXIMO);
+
+		assertCorpoPadrao(leitor, foto);
+	}
+
+	@Test
+	public void deveManterCrlfEPedacosDoDelimitadorDentroDoArquivoTest() throws IOException {
+		byte[] foto = bytes("\r\n\r\n--\r\n--limite\r\n--limite12\r--limite123x\r\n-limite123\r\n--limite124--\r\n\r");
+
+		for (InputStream entrada : Arrays.asList(new ByteArrayInputStream(corpoPadrao(foto)), new EntradaPicada(corpoPadrao(foto)))) {
+			assertCorpoPadrao(new LeitorMultipart(entrada, BOUNDARY, TAMANHO_MAXIMO), foto);
+		}
+	}
+
+	@Test
+	public void deveDescartarPreambuloEParteNaoLidaTest() throws IOException {
+		byte[] corpo = bytes("preâmbulo que não faz parte do corpo\r\n"
+				+ "--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"ignorado\"\r\n\r\n"
+				+ "valor que ninguém leu\r\n"
+				+ "--" + BOUNDARY + "  \r\n"
+				+ "Content-Disposition: form-data; name=\"descricao\"\r\n\r\n"
+				+ "Feijoada\r\n"
+				+ "--" + BOUNDARY + "--\r\n"
+				+ "epílogo");
+
+		LeitorMultipart leitor = new LeitorMultipart(new EntradaPicada(corpo), BOUNDARY, TAMANHO_MAXIMO);
+
+		assertEquals("ignorado", leitor.proximaParte().getNome());
+
+		LeitorMultipart.Parte descricao = leitor.proximaParte();
+		assertEquals("descricao", descricao.getNome());
+		assertEquals("Feijoada", descricao.lerTexto(100));
+
+		assertNull(leitor.proximaParte());
+	}
+
+	@Test
+	public void deveTirarAsAspasDoBoundaryTest() throws IOException {
+		String boundary = "limite:com=aspas";
+		byte[] foto = conteudoBinario(1024);
+
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContentType("multipart/form-data; boundary=\"" + boundary + "\"");
+		request.setContent(corpo(boundary, foto));
+
+		assertCorpoPadrao(LeitorMultipart.de(request, TAMANHO_MAXIMO), foto);
+	}
+
+	@Test
+	public void deveRecusarRequisicaoQueNaoEMultipartTest() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContentType("application/json");
+
+		assertRecusado(() -> LeitorMultipart.de(request, TAMANHO_MAXIMO), "multipart/form-data");
+
+		request.setContentType("multipart/form-data");
+
+		assertRecusado(() -> LeitorMultipart.de(request, TAMANHO_MAXIMO), "multipart/form-data");
+	}
+
+	@Test
+	public void deveRecusarCabecalhosAlemDoLimiteTest() {
+		char[] valor = new char[9 * 1024];
+		Arrays.fill(valor, 'a');
+
+		byte[] corpo = bytes("--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"descricao\"\r\n"
+				+ "X-Grande: " + new String(valor) + "\r\n\r\n"
+				+ "Feijoada\r\n"
+				+ "--" + BOUNDARY + "--\r\n");
+
+		LeitorMultipart leitor = new LeitorMultipart(new EntradaPicada(corpo), BOUNDARY, TAMANHO_MAXIMO);
+
+		assertRecusado(leitor::proximaParte, "cabeçalhos");
+	}
+
+	@Test
+	public void deveRecusarCorpoAlemDoTamanhoMaximoTest() {
+		byte[] corpo = corpoPadrao(conteudoBinario(64 * 1024));
+		LeitorMultipart leitor = new LeitorMultipart(new EntradaPicada(corpo), BOUNDARY, 32 * 1024);
+
+		assertRecusado(() -> lerTudo(leitor), "tamanho máximo de 32768 bytes");
+	}
+
+	@Test
+	public void deveRecusarCorpoTruncadoNoArquivoTest() {
+		byte[] corpo = corpoPadrao(conteudoBinario(4 * 1024));
+		LeitorMultipart leitor = new LeitorMultipart(new EntradaPicada(Arrays.copyOf(corpo, corpo.length - 100)), BOUNDARY, TAMANHO_MAXIMO);
+
+		assertRecusado(() -> lerTudo(leitor), "inválido");
+	}
+
+	@Test
+	public void deveRecusarCorpoTruncadoNosCabecalhosEDepoisDoDelimitadorTest() {
+		byte[] nosCabecalhos = bytes("--" + BOUNDARY + "\r\nContent-Disposition: form-da");
+		byte[] depoisDoDelimitador = bytes("--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"descricao\"\r\n\r\n"
+				+ "Feijoada\r\n"
+				+ "--" + BOUNDARY);
+
+		for (byte[] corpo : Arrays.asList(nosCabecalhos, depoisDoDelimitador)) {
+			LeitorMultipart leitor = new LeitorMultipart(new EntradaPicada(corpo), BOUNDARY, TAMANHO_MAXIMO);
+
+			assertRecusado(() -> lerTudo(leitor), "inválido");
+		}
+	}
+
+	private static void assertCorpoPadrao(LeitorMultipart leitor, byte[] foto) throws IOException {
+		LeitorMultipart.Parte descricao = leitor.proximaParte();
+		assertEquals("descricao", descricao.getNome());
+		assertFalse(descricao.isArquivo());
+		assertEquals("Feijoada com ç", descricao.lerTexto(100));
+
+		LeitorMultipart.Parte arquivo = leitor.proximaParte();
+		assertEquals("arquivo", arquivo.getNome());
+		assertTrue(arquivo.isArquivo());
+		assertEquals("feijoada.jpg", arquivo.getNomeArquivo());
+		assertEquals("image/jpeg", arquivo.getContentType());
+		assertArrayEquals(foto, ler(arquivo.getInputStream()));
+
+		assertNull(leitor.proximaParte());
+		assertNull(leitor.proximaParte());
+	}
+
+	private static void lerTudo(LeitorMultipart leitor) throws IOException {
+		LeitorMultipart.Parte parte;
+
+		while ((parte = leitor.proximaParte()) != null) {
+			ler(parte.getInputStream());
+		}
+	}
+
+	private static void assertRecusado(Leitura leitura, String trechoMensagem) {
+		try {
+			leitura.executar();
+			fail("Era esperada uma NegocioException");
+		} catch (NegocioException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(trechoMensagem));
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static byte[] corpoPadrao(byte[] foto) {
+		return corpo(BOUNDARY, foto);
+	}
+
+	private static byte[] corpo(String boundary, byte[] foto) {
+		ByteArrayOutputStream corpo = new ByteArrayOutputStream();
+
+		escrever(corpo, bytes("--" + boundary + "\r\n"
+				+ "Content-Disposition: form-data; name=\"descricao\"\r\n\r\n"
+				+ "Feijoada com ç\r\n"
+				+ "--" + boundary + "\r\n"
+				+ "Content-Disposition: form-data; name=\"arquivo\"; filename=\"feijoada.jpg\"\r\n"
+				+ "Content-Type: image/jpeg\r\n\r\n"));
+		escrever(corpo, foto);
+		escrever(corpo, bytes("\r\n--" + boundary + "--\r\n"));
+
+		return corpo.toByteArray();
+	}
+
+	/*
+	 * Todos os valores de byte, com \r, \n e - espalhados pelo conteúdo
+	 */
+	private static byte[] conteudoBinario(int tamanho) {
+		byte[] conteudo = new byte[tamanho];
+
+		for (int i = 0; i < tamanho; i++) {
+			conteudo[i] = (byte) (i * 31 + i / 7);
+		}
+
+		return conteudo;
+	}
+
+	private static byte[] ler(InputStream entrada) throws IOException {
+		ByteArrayOutputStream lidos = new ByteArrayOutputStream();
+		byte[] bloco = new byte[1000];
+		int quantidade;
+
+		while ((quantidade = entrada.read(bloco)) != -1) {
+			lidos.write(bloco, 0, quantidade);
+		}
+
+		return lidos.toByteArray();
+	}
+
+	private static void escrever(ByteArrayOutputStream saida, byte[] dados) {
+		saida.write(dados, 0, dados.length);
+	}
+
+	private static byte[] bytes(String texto) {
+		return texto.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private interface Leitura {
+
+		void executar() throws IOException;
+
+	}
+
+	/*
+	 * Entrega de 1 a 7 bytes por leitura, como uma requisição que chega aos poucos pela rede
+	 */
+	private static class EntradaPicada extends InputStream {
+
+		private final byte[] dados;
+		private int posicao;
+		private int leituras;
+
+		EntradaPicada(byte[] dados) {
+			this.dados = dados;
+		}
+
+		@Override
+		public int read() {
+			return posicao < dados.length ? dados[posicao++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] destino, int inicio, int quantidade) {
+			if (posicao >= dados.length) {
+				return -1;
+			}
+
+			int lidos = Math.min(Math.min(quantidade, leituras++ % 7 + 1), dados.length - posicao);
+			System.arraycopy(dados, posicao, destino, inicio, lidos);
+			posicao += lidos;
+			return lidos;
+		}
+
+	}
+
+}